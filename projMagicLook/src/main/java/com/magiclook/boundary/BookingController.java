@@ -11,7 +11,6 @@ import org.springframework.format.annotation.DateTimeFormat;
 
 import java.time.LocalDate;
 import java.time.ZoneId;
-import java.util.Date;
 import java.util.UUID;
 import java.util.List;
 import java.util.Map;
@@ -32,6 +31,7 @@ public class BookingController {
     private static final String VIEW_MY_BOOKINGS = "booking/myBookings";
     private static final String VIEW_BOOKING_DETAILS = "booking/booking-details";
     private static final String VIEW_BOOKING_CONFIRMATION = "booking/bookingConfirmation";
+    private static final String VIEW_BOOKING_PENDING = "booking/bookingPending";
     private static final String ATTR_ERROR = "error";
     private static final String ATTR_AVAILABLE = "available";
     private static final String ATTR_MESSAGE = "message";
@@ -45,14 +45,24 @@ public class BookingController {
     private static final String BOOKING_STATUS_CONFIRMED = "CONFIRMED";
     private static final String BOOKING_STATUS_COMPLETED = "COMPLETED";
     private static final String ATTR_CAN_CANCEL = "canCancel";
+    private static final String ATTR_CURRENT_STATE = "currentState";
+    private static final String SESSION_CART_COUNT = "cartCount";
 
     private final BookingService bookingService;
     private final ItemService itemService;
+    private final BookingIntakeService bookingIntakeService;
+    private final BookingHoldService bookingHoldService;
+    private final WaitlistService waitlistService;
 
     // Injeção por construtor
-    public BookingController(BookingService bookingService, ItemService itemService) {
+    public BookingController(BookingService bookingService, ItemService itemService,
+            BookingIntakeService bookingIntakeService, BookingHoldService bookingHoldService,
+            WaitlistService waitlistService) {
         this.bookingService = bookingService;
         this.itemService = itemService;
+        this.bookingIntakeService = bookingIntakeService;
+        this.bookingHoldService = bookingHoldService;
+        this.waitlistService = waitlistService;
     }
 
     // Show booking form for specific item
@@ -80,6 +90,13 @@ public class BookingController {
         // Obter contagem por tamanho
         Map<String, Integer> sizeAvailability = bookingService.getSizeAvailabilityCount(itemId);
 
+        // Mensagem deixada na sessão (ex.: entrada na lista de espera)
+        Object flashMsg = session.getAttribute(ATTR_MESSAGE);
+        if (flashMsg != null) {
+            model.addAttribute(ATTR_MESSAGE, flashMsg.toString());
+            session.removeAttribute(ATTR_MESSAGE);
+        }
+
         model.addAttribute(ATTR_ITEM, item);
         model.addAttribute(ATTR_USER, user);
         model.addAttribute("availableSizes", availableSizes);
@@ -94,8 +111,9 @@ public class BookingController {
     public String createBooking(
             @RequestParam("itemId") Integer itemId,
             @RequestParam(value = "size", required = false) String size,
-            @RequestParam("startUseDate") @DateTimeFormat(pattern = "yyyy-MM-dd") Date startUseDate,
-            @RequestParam("endUseDate") @DateTimeFormat(pattern = "yyyy-MM-dd") Date endUseDate,
+            @RequestParam("startUseDate") @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate startUseDate,
+            @RequestParam("endUseDate") @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate endUseDate,
+            @RequestParam(value = "holdId", required = false) UUID holdId,
             HttpSession session,
             Model model) {
 
@@ -105,68 +123,117 @@ public class BookingController {
             return REDIRECT_LOGIN;
         }
 
-        // Buscar item
-        Item item = itemService.getItemById(itemId).orElse(null);
-        if (item == null) {
-            model.addAttribute(ATTR_ERROR, "Item não encontrado.");
-            return REDIRECT_DASHBOARD;
-        }
-
-        // Obter tamanhos disponíveis para mostrar novamente em caso de erro
-        List<String> availableSizes = bookingService.getAvailableSizesForItem(itemId);
-        Map<String, Integer> sizeAvailability = bookingService.getSizeAvailabilityCount(itemId);
-        model.addAttribute("availableSizes", availableSizes);
-        model.addAttribute("sizeAvailability", sizeAvailability);
-
         // Validar datas
-        if (startUseDate == null || endUseDate == null || endUseDate.before(startUseDate)) {
-            model.addAttribute(ATTR_ERROR, "Datas inválidas. A data de fim deve ser após a data de início.");
-            model.addAttribute(ATTR_ITEM, item);
-            return VIEW_BOOKING_FORM;
+        if (startUseDate == null || endUseDate == null || endUseDate.isBefore(startUseDate)) {
+            return showFormError(model, itemId, "Datas inválidas. A data de fim deve ser após a data de início.");
         }
 
-        // Validar que a data de início não é no passado (comparar por data, ignorando
-        // hora)
-        java.time.LocalDate startLocal = startUseDate.toInstant()
-                .atZone(ZoneId.systemDefault())
-                .toLocalDate();
-        java.time.LocalDate todayLocal = java.time.LocalDate.now(ZoneId.systemDefault());
-        if (startLocal.isBefore(todayLocal)) {
-            model.addAttribute(ATTR_ERROR, "A data de início não pode ser no passado.");
-            model.addAttribute(ATTR_ITEM, item);
-            return VIEW_BOOKING_FORM;
+        // Validar que a data de início não é no passado
+        if (startUseDate.isBefore(LocalDate.now(ZoneId.systemDefault()))) {
+            return showFormError(model, itemId, "A data de início não pode ser no passado.");
         }
 
+        // Criar DTO para passar para o serviço
+        BookingRequestDTO bookingRequest = new BookingRequestDTO();
+        bookingRequest.setItemId(itemId);
+        bookingRequest.setSize(size);
+        bookingRequest.setStartUseDate(startUseDate);
+        bookingRequest.setEndUseDate(endUseDate);
+        bookingRequest.setHoldId(holdId);
+
         try {
-            // Criar DTO para passar para o serviço
-            BookingRequestDTO bookingRequest = new BookingRequestDTO();
-            bookingRequest.setItemId(itemId);
-            bookingRequest.setSize(size);
-            bookingRequest.setStartUseDate(startUseDate);
-            bookingRequest.setEndUseDate(endUseDate);
-
-            // Verificar disponibilidade explicitamente antes de criar reserva
-            boolean available = bookingService.checkAvailabilityWithSize(itemId, size, startUseDate, endUseDate);
-            if (!available) {
-                String msg = (size != null && !size.isEmpty())
-                        ? "Item não disponível nas datas selecionadas para o tamanho " + size
-                        : "Item não disponível nas datas selecionadas";
-                model.addAttribute(ATTR_ERROR, msg);
-                model.addAttribute(ATTR_ITEM, item);
-                return VIEW_BOOKING_FORM;
+            // Modo assíncrono: o pedido fica em fila e a página de espera consulta o resultado
+            if (bookingIntakeService.isEnabled()) {
+                // Leitura sem lock, só para não pôr em fila pedidos sem hipótese (com hold a unidade já está garantida)
+                if (holdId == null
+                        && !bookingService.checkAvailabilityWithSize(itemId, size, bookingRequest.getWindow())) {
+                    return showFormError(model, itemId, unavailableMessage(size));
+                }
+                BookingIntake intake = bookingIntakeService.submit(bookingRequest, user);
+                return "redirect:/magiclook/booking/pending/" + intake.getIntakeId();
             }
 
-            // Usar o método do serviço - irá criar a reserva
-            Booking booking = bookingService.createBooking(bookingRequest, user);
+            // Uma única operação: procura e reserva a unidade sob o lock do item
+            BookingResult result = bookingService.reserve(bookingRequest, user);
+            if (result.isSuccess()) {
+                session.setAttribute(SESSION_CART_COUNT, bookingHoldService.countActiveForUser(user.getUserId()));
+                return "redirect:/magiclook/booking/confirmation/" + result.getBooking().getBookingId();
+            }
 
-            // Redirecionar para confirmação
-            return "redirect:/magiclook/booking/confirmation/" + booking.getBookingId();
+            // Modelo do formulário só é montado no insucesso
+            if (result.getFailureReason() == BookingResult.FailureReason.ITEM_NOT_FOUND) {
+                model.addAttribute(ATTR_ERROR, "Item não encontrado.");
+                return REDIRECT_DASHBOARD;
+            }
+            boolean noUnit = result.getFailureReason() == BookingResult.FailureReason.NO_UNIT_AVAILABLE;
+            if (noUnit) {
+                // Sem unidades: o formulário oferece a lista de espera para o mesmo pedido
+                model.addAttribute("waitlistRequest", bookingRequest);
+            }
+            String error = noUnit
+                    ? unavailableMessage(size)
+                    : "Erro ao criar reserva: " + result.getMessage();
+            return showFormError(model, itemId, error, result.getAvailableSizes(), result.getSizeAvailability());
 
         } catch (Exception e) {
-            model.addAttribute(ATTR_ERROR, "Erro ao criar reserva: " + e.getMessage());
-            model.addAttribute(ATTR_ITEM, item);
-            return VIEW_BOOKING_FORM;
+            return showFormError(model, itemId, "Erro ao criar reserva: " + e.getMessage());
+        }
+    }
+
+    // Lista de espera: a reserva é criada automaticamente quando uma unidade for libertada
+    @PostMapping("/waitlist")
+    @Timed(value = "request.reservation", histogram = true, description = "Waitlist join latency", extraTags = {
+            "slo", "reservation", "operation", "joinWaitlist" })
+    public String joinWaitlist(
+            @RequestParam("itemId") Integer itemId,
+            @RequestParam(value = "size", required = false) String size,
+            @RequestParam("startUseDate") @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate startUseDate,
+            @RequestParam("endUseDate") @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate endUseDate,
+            HttpSession session) {
+        User user = (User) session.getAttribute(SESSION_LOGGED_IN_USER);
+
+        if (user == null) {
+            return REDIRECT_LOGIN;
+        }
+
+        BookingRequestDTO bookingRequest = new BookingRequestDTO(itemId, startUseDate, endUseDate);
+        bookingRequest.setSize(size);
+        try {
+            waitlistService.join(bookingRequest, user);
+            session.setAttribute(ATTR_MESSAGE,
+                    "Está na lista de espera. Se uma unidade ficar livre, a reserva é feita e recebe uma notificação.");
+        } catch (IllegalArgumentException e) {
+            session.setAttribute(ATTR_MESSAGE, "Não foi possível entrar na lista de espera: " + e.getMessage());
+        }
+        return "redirect:/magiclook/booking/" + itemId;
+    }
+
+    private String unavailableMessage(String size) {
+        return (size != null && !size.isEmpty())
+                ? "Item não disponível nas datas selecionadas para o tamanho " + size
+                : "Item não disponível nas datas selecionadas";
+    }
+
+    private String showFormError(Model model, Integer itemId, String error) {
+        return showFormError(model, itemId, error, null, null);
+    }
+
+    // Volta a mostrar o formulário com o erro; tamanhos e contagens só são lidos se o serviço não os trouxe
+    private String showFormError(Model model, Integer itemId, String error,
+            List<String> availableSizes, Map<String, Integer> sizeAvailability) {
+        Item item = itemService.getItemById(itemId).orElse(null);
+        if (item == null) {
+            model.addAttribute(ATTR_ERROR, "Item não encontrado.");
+            return REDIRECT_DASHBOARD;
         }
+
+        model.addAttribute("availableSizes",
+                availableSizes != null ? availableSizes : bookingService.getAvailableSizesForItem(itemId));
+        model.addAttribute("sizeAvailability",
+                sizeAvailability != null ? sizeAvailability : bookingService.getSizeAvailabilityCount(itemId));
+        model.addAttribute(ATTR_ERROR, error);
+        model.addAttribute(ATTR_ITEM, item);
+        return VIEW_BOOKING_FORM;
     }
 
     // Show confirmation page
@@ -190,42 +257,81 @@ public class BookingController {
         return VIEW_BOOKING_CONFIRMATION;
     }
 
+    // Página de espera de um pedido em fila (modo assíncrono)
+    @GetMapping("/booking/pending/{intakeId}")
+    @Timed(value = "request.reservation", histogram = true, description = "Pending reservation page latency", extraTags = {
+            "slo", "reservation", "operation", "pending" })
+    public String showPendingBooking(@PathVariable UUID intakeId, HttpSession session, Model model) {
+        User user = (User) session.getAttribute(SESSION_LOGGED_IN_USER);
+
+        if (user == null) {
+            return REDIRECT_LOGIN;
+        }
+
+        BookingIntake intake = bookingIntakeService.findForUser(intakeId, user).orElse(null);
+        if (intake == null) {
+            return REDIRECT_DASHBOARD;
+        }
+        if (BookingIntake.STATUS_CONFIRMED.equals(intake.getStatus())) {
+            return "redirect:/magiclook/booking/confirmation/" + intake.getBookingId();
+        }
+
+        model.addAttribute("intake", intake);
+        model.addAttribute(ATTR_ITEM, itemService.getItemById(intake.getItemId()).orElse(null));
+        model.addAttribute(ATTR_USER, user);
+        return VIEW_BOOKING_PENDING;
+    }
+
+    // Estado de um pedido em fila, consultado periodicamente pela página de espera
+    @GetMapping("/api/booking/pending/{intakeId}")
+    @ResponseBody
+    @Timed(value = "request.reservation", histogram = true, description = "Pending reservation status latency", extraTags = {
+            "slo", "reservation", "operation", "pendingStatus" })
+    public Map<String, Object> getPendingBookingStatus(@PathVariable UUID intakeId, HttpSession session) {
+        Map<String, Object> response = new HashMap<>();
+        User user = (User) session.getAttribute(SESSION_LOGGED_IN_USER);
+
+        BookingIntake intake = bookingIntakeService.findForUser(intakeId, user).orElse(null);
+        if (intake == null) {
+            response.put("status", "UNKNOWN");
+            response.put(ATTR_ERROR, "Pedido de reserva não encontrado");
+            return response;
+        }
+
+        response.put("status", intake.getStatus());
+        if (intake.getBookingId() != null) {
+            response.put("bookingId", intake.getBookingId());
+        }
+        if (intake.getErrorMessage() != null) {
+            response.put(ATTR_MESSAGE, intake.getErrorMessage());
+        }
+        return response;
+    }
+
     // Show user's bookings
     @GetMapping("/my-bookings")
     @Timed(value = "request.reservation", histogram = true, description = "My bookings list latency", extraTags = {
             "slo", "reservation", "operation", "list" })
     public String showMyBookings(HttpSession session, Model model,
             @RequestParam(required = false) String filter,
-            @RequestParam(required = false) String search) {
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate afterStart,
+            @RequestParam(required = false) UUID afterId) {
         User user = (User) session.getAttribute(SESSION_LOGGED_IN_USER);
 
         if (user == null) {
             return REDIRECT_LOGIN;
         }
 
-        List<Booking> bookings = bookingService.getUserBookings(user);
+        // Filtro (Ativas/Passadas), pesquisa, ordenação e paginação feitos na query: só uma página é carregada
+        BookingPageDTO page = bookingService.getUserBookingsPage(user, filter, search, afterStart, afterId);
 
         // Garantir que bookings nunca seja null
-        if (bookings == null) {
-            bookings = new ArrayList<>();
-        }
-
-        // Atualizar estados antes de ordenar
-        for (Booking booking : bookings) {
-            String currentState = bookingService.getCurrentBookingState(booking);
-            booking.setState(currentState);
-        }
-
-        // Ordenar por data de início decrescente (mais recentes primeiro)
-        sortBookingsByStartDateDesc(bookings);
-
-        // Aplicar filtro de status (Ativas/Passadas)
-        bookings = applyFilter(bookings, filter);
-
-        // Aplicar pesquisa por nome do item
-        bookings = applySearch(bookings, search);
+        List<Booking> bookings = page != null && page.getBookings() != null ? page.getBookings() : new ArrayList<>();
 
         model.addAttribute(ATTR_BOOKINGS, bookings);
+        model.addAttribute("page", page);
+        model.addAttribute("firstPage", afterId == null);
         model.addAttribute(ATTR_FILTER, filter);
         model.addAttribute(ATTR_SEARCH, search);
         model.addAttribute(ATTR_USER, user);
@@ -234,53 +340,6 @@ public class BookingController {
         return VIEW_MY_BOOKINGS;
     }
 
-    private void sortBookingsByStartDateDesc(List<Booking> bookings) {
-        bookings.sort((b1, b2) -> {
-            if (b1.getStartUseDate() == null && b2.getStartUseDate() == null)
-                return 0;
-            if (b1.getStartUseDate() == null)
-                return 1;
-            if (b2.getStartUseDate() == null)
-                return -1;
-            return b2.getStartUseDate().compareTo(b1.getStartUseDate());
-        });
-    }
-
-    private List<Booking> applyFilter(List<Booking> bookings, String filter) {
-        if (filter == null || filter.isEmpty()) {
-            return bookings;
-        }
-
-        if ("active".equals(filter)) {
-            // Reservas ativas: estado CONFIRMED ou ACTIVE
-            return bookings.stream()
-                    .filter(booking -> BOOKING_STATUS_CONFIRMED.equals(booking.getState()) ||
-                            "ACTIVE".equals(booking.getState()))
-                    .toList();
-        } else if ("past".equals(filter)) {
-            // Reservas passadas: estado COMPLETED ou OVERDUE
-            return bookings.stream()
-                    .filter(booking -> BOOKING_STATUS_COMPLETED.equals(booking.getState()) ||
-                            "OVERDUE".equals(booking.getState()))
-                    .toList();
-        }
-
-        return bookings;
-    }
-
-    private List<Booking> applySearch(List<Booking> bookings, String search) {
-        if (search == null || search.isEmpty()) {
-            return bookings;
-        }
-
-        String searchLower = search.toLowerCase();
-        return bookings.stream()
-                .filter(booking -> booking.getItem() != null &&
-                        booking.getItem().getName() != null &&
-                        booking.getItem().getName().toLowerCase().contains(searchLower))
-                .toList();
-    }
-
     @GetMapping("/my-bookings/{id}")
     @Timed(value = "request.reservation", histogram = true, description = "Booking details latency", extraTags = {
             "slo", "reservation", "operation", "details" })
@@ -300,13 +359,12 @@ public class BookingController {
             return REDIRECT_MY_BOOKINGS;
         }
 
-        // Atualizar estado da reserva
+        // Estado calculado só para a página: a entidade é gerida e o estado guardado é do BookingStateScheduler
         String currentState = bookingService.getCurrentBookingState(booking);
-        booking.setState(currentState);
         // Determine if user can cancel: only owner and only when CONFIRMED and start
         // date is in the future
         boolean canCancel = BOOKING_STATUS_CONFIRMED.equals(currentState)
-                && booking.getStartUseDate().after(new java.util.Date());
+                && booking.getStartUseDate().isAfter(LocalDate.now());
 
         com.magiclook.dto.RefundInfoDTO refundInfo = bookingService.getRefundInfo(booking);
 
@@ -318,6 +376,7 @@ public class BookingController {
         }
 
         model.addAttribute(ATTR_BOOKING, booking);
+        model.addAttribute(ATTR_CURRENT_STATE, currentState);
         model.addAttribute(ATTR_USER, user);
         model.addAttribute("activePage", "myBookings");
         model.addAttribute(ATTR_CAN_CANCEL, canCancel);
@@ -349,7 +408,7 @@ public class BookingController {
             // owner
             if (user != null && booking.getUser().getUserId().equals(user.getUserId())) {
                 allowed = BOOKING_STATUS_CONFIRMED.equals(bookingService.getCurrentBookingState(booking))
-                        && booking.getStartUseDate().after(new java.util.Date());
+                        && booking.getStartUseDate().isAfter(LocalDate.now());
             }
             // staff may cancel
             if (!allowed && staff != null) {
@@ -392,7 +451,7 @@ public class BookingController {
             boolean allowed = false;
             if (user != null && booking.getUser().getUserId().equals(user.getUserId())) {
                 allowed = BOOKING_STATUS_CONFIRMED.equals(bookingService.getCurrentBookingState(booking))
-                        && booking.getStartUseDate().after(new java.util.Date());
+                        && booking.getStartUseDate().isAfter(LocalDate.now());
             }
             if (!allowed && staff != null) {
                 String state = bookingService.getCurrentBookingState(booking);
@@ -429,8 +488,7 @@ public class BookingController {
             boolean available = bookingService.checkAvailabilityWithSize(
                     bookingRequest.getItemId(),
                     bookingRequest.getSize(),
-                    bookingRequest.getStartUseDate(),
-                    bookingRequest.getEndUseDate());
+                    bookingRequest.getWindow());
 
             if (available) {
                 long useDays = bookingRequest.getUseDays();
@@ -453,6 +511,65 @@ public class BookingController {
         return response;
     }
 
+    // Conjunto de vários itens para as mesmas datas: reserva tudo ou nada numa única transação
+    @PostMapping("/api/bookings/bundle")
+    @ResponseBody
+    @Timed(value = "request.reservation", histogram = true, description = "Bundle reservation latency", extraTags = {
+            "slo", "reservation", "operation", "createBundle" })
+    public Map<String, Object> createBundle(@RequestBody BookingBundleRequestDTO bundle, HttpSession session) {
+        Map<String, Object> response = new HashMap<>();
+        User user = (User) session.getAttribute(SESSION_LOGGED_IN_USER);
+
+        if (user == null) {
+            response.put("success", false);
+            response.put(ATTR_MESSAGE, "Utilizador não autenticado");
+            return response;
+        }
+        if (bundle.getStartUseDate() != null && bundle.getStartUseDate().isBefore(LocalDate.now(ZoneId.systemDefault()))) {
+            response.put("success", false);
+            response.put(ATTR_MESSAGE, "A data de início não pode ser no passado.");
+            return response;
+        }
+
+        try {
+            List<Booking> bookings = bookingService.createBundle(bundle, user);
+            response.put("success", true);
+            response.put("bookingIds", bookings.stream().map(Booking::getBookingId).toList());
+            response.put("totalPrice", bookings.stream()
+                    .map(Booking::getTotalPrice)
+                    .reduce(java.math.BigDecimal.ZERO, java.math.BigDecimal::add));
+            response.put(ATTR_MESSAGE, "Conjunto reservado com sucesso");
+            session.setAttribute(SESSION_CART_COUNT, bookingHoldService.countActiveForUser(user.getUserId()));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            // Nenhuma reserva do conjunto ficou gravada
+            response.put("success", false);
+            response.put(ATTR_MESSAGE, e.getMessage());
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put(ATTR_MESSAGE, "Erro ao reservar o conjunto: " + e.getMessage());
+        }
+
+        return response;
+    }
+
+    // Disponibilidade de vários (item, tamanho, datas) numa única chamada
+    @PostMapping("/api/availability/batch")
+    @ResponseBody
+    @Timed(value = "request.reservation", histogram = true, description = "Batch availability check latency", extraTags = {
+            "slo", "reservation", "operation", "checkAvailabilityBatch" })
+    public Map<String, Object> checkAvailabilityBatch(@RequestBody List<BookingRequestDTO> queries) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            response.put("results", bookingService.checkAvailabilityBatch(queries));
+        } catch (Exception e) {
+            response.put("results", new ArrayList<>());
+            response.put(ATTR_ERROR, e.getMessage());
+        }
+
+        return response;
+    }
+
     // Nova API para verificar disponibilidade em tempo real (AJAX)
     @GetMapping("/api/items/{itemId}/check")
     @ResponseBody
@@ -461,32 +578,24 @@ public class BookingController {
     public Map<String, Object> checkItemAvailability(
             @PathVariable Integer itemId,
             @RequestParam(required = false) String size,
-            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") Date start,
-            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") Date end) {
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate start,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate end) {
 
         Map<String, Object> response = new HashMap<>();
 
         try {
-            // Converter Date para LocalDate para usar os novos métodos
-            LocalDate startDate = start.toInstant()
-                    .atZone(ZoneId.systemDefault())
-                    .toLocalDate();
-            LocalDate endDate = end.toInstant()
-                    .atZone(ZoneId.systemDefault())
-                    .toLocalDate();
-
             boolean available;
             if (size == null || size.isEmpty()) {
-                available = bookingService.isItemAvailable(itemId, startDate, endDate);
+                available = bookingService.isItemAvailable(itemId, start, end);
             } else {
-                available = bookingService.isItemAvailableWithSize(itemId, size, startDate, endDate);
+                available = bookingService.isItemAvailableWithSize(itemId, size, start, end);
             }
 
             response.put(ATTR_AVAILABLE, available);
 
             if (!available) {
                 // Obter conflitos
-                List<Booking> conflicts = bookingService.getConflictingBookings(itemId, startDate, endDate);
+                List<Booking> conflicts = bookingService.getConflictingBookings(itemId, start, end);
                 List<Map<String, String>> conflictList = conflicts.stream()
                         .map(b -> {
                             Map<String, String> conflictMap = new HashMap<>();
@@ -507,54 +616,93 @@ public class BookingController {
         return response;
     }
 
-    // API endpoint simples para obter datas indisponíveis (para o calendário)
-    @GetMapping("/api/availability")
+    // Retém uma unidade enquanto o utilizador conclui a reserva (expira ao fim do TTL)
+    @PostMapping("/api/items/{itemId}/hold")
     @ResponseBody
-    public Map<String, Object> getUnavailableDates(@RequestParam Integer itemId,
-            @RequestParam(required = false) String size) {
+    @Timed(value = "request.reservation", histogram = true, description = "Checkout hold latency", extraTags = {
+            "slo", "reservation", "operation", "hold" })
+    public Map<String, Object> holdItem(
+            @PathVariable Integer itemId,
+            @RequestParam(required = false) String size,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate start,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate end,
+            HttpSession session) {
+
         Map<String, Object> response = new HashMap<>();
+        User user = (User) session.getAttribute(SESSION_LOGGED_IN_USER);
+
+        if (user == null) {
+            response.put("held", false);
+            response.put(ATTR_MESSAGE, "Utilizador não autenticado");
+            return response;
+        }
+        if (end.isBefore(start) || start.isBefore(LocalDate.now(ZoneId.systemDefault()))) {
+            response.put("held", false);
+            response.put(ATTR_MESSAGE, "Datas inválidas");
+            return response;
+        }
 
         try {
-            // Obter todas as reservas do item
-            java.time.LocalDate today = java.time.LocalDate.now(ZoneId.systemDefault());
-            java.time.LocalDate endDate = today.plusMonths(3); // Ver 3 meses à frente
+            String requestedSize = size == null || size.isEmpty() ? null : size;
+            BookingHold hold = bookingHoldService.place(itemId, requestedSize, BookingWindow.of(start, end),
+                    user.getUserId()).orElse(null);
+
+            response.put("held", hold != null);
+            if (hold != null) {
+                response.put("holdId", hold.getHoldId());
+                response.put("expiresAt", hold.getExpiresAt().getTime());
+                response.put(ATTR_MESSAGE, "Unidade reservada temporariamente");
+            } else {
+                response.put(ATTR_MESSAGE, unavailableMessage(requestedSize));
+            }
+            session.setAttribute(SESSION_CART_COUNT, bookingHoldService.countActiveForUser(user.getUserId()));
+        } catch (Exception e) {
+            response.put("held", false);
+            response.put(ATTR_ERROR, e.getMessage());
+        }
 
-            List<Booking> bookings = bookingService.getConflictingBookings(itemId, today, endDate);
+        return response;
+    }
 
-            List<String> unavailableDates = new java.util.ArrayList<>();
+    // Stock livre por tamanho para as datas escolhidas no formulário de reserva
+    @GetMapping("/api/items/{itemId}/sizes")
+    @ResponseBody
+    @Timed(value = "request.reservation", histogram = true, description = "Size availability latency", extraTags = {
+            "slo", "reservation", "operation", "sizeAvailability" })
+    public Map<String, Object> getSizeAvailability(
+            @PathVariable Integer itemId,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate start,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate end) {
 
-            for (Booking booking : bookings) {
-                // Se foi especificado um tamanho, filtrar apenas as reservas desse tamanho
-                if (size != null && !size.isEmpty()) {
-                    String bookingSize = booking.getItemSingle() != null ? booking.getItemSingle().getSize() : "";
-                    if (!size.equalsIgnoreCase(bookingSize)) {
-                        continue; // Saltar esta reserva se não é do tamanho solicitado
-                    }
-                }
+        Map<String, Object> response = new HashMap<>();
 
-                // Adicionar todas as datas do período de reserva como indisponíveis
-                // INCLUINDO um dia antes (para busca) e um dia depois (para lavagem)
-                java.time.LocalDate current = booking.getStartUseDate().toInstant()
-                        .atZone(ZoneId.systemDefault())
-                        .toLocalDate()
-                        .minusDays(1); // Um dia antes para busca
-                java.time.LocalDate end = booking.getEndUseDate().toInstant()
-                        .atZone(ZoneId.systemDefault())
-                        .toLocalDate()
-                        .plusDays(1); // Um dia depois para lavagem
-
-                while (!current.isAfter(end)) {
-                    unavailableDates.add(current.toString());
-                    current = current.plusDays(1);
-                }
-            }
+        try {
+            response.put("sizes", bookingService.getFreeUnitsBySize(itemId, start, end));
+        } catch (Exception e) {
+            response.put("sizes", new ArrayList<>());
+            response.put(ATTR_ERROR, e.getMessage());
+        }
+
+        return response;
+    }
+
+    // API para o calendário: intervalos de datas sem nenhuma unidade livre (do tamanho escolhido)
+    @GetMapping("/api/availability")
+    @ResponseBody
+    public Map<String, Object> getUnavailableDates(@RequestParam Integer itemId,
+            @RequestParam(required = false) String size) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            LocalDate today = LocalDate.now(ZoneId.systemDefault());
+            LocalDate endDate = today.plusMonths(3); // Ver 3 meses à frente
 
-            response.put("unavailableDates", unavailableDates);
+            response.put("unavailableRanges", bookingService.getUnavailableRanges(itemId, size, today, endDate));
         } catch (Exception e) {
-            response.put("unavailableDates", new java.util.ArrayList<>());
+            response.put("unavailableRanges", new ArrayList<>());
             response.put(ATTR_ERROR, e.getMessage());
         }
 
         return response;
     }
-}
\ No newline at end of file
+}
@@ -186,12 +186,9 @@ public class StaffController {
         // Base list: items from this staff's shop
         List<Item> items = itemService.getItemsByShop(staff.getShop());
 
-        // Optional name search
+        // Optional text search (name, brand, color, material, type), best match first
         if (q != null && !q.isBlank()) {
-            String needle = q.trim().toLowerCase();
-            items = items.stream()
-                    .filter(i -> i.getName() != null && i.getName().toLowerCase().contains(needle))
-                    .toList();
+            items = itemService.filterByQuery(items, q);
         }
 
         // Optional state filter: keep items that have at least one ItemSingle in that
@@ -208,15 +205,10 @@ public class StaffController {
                     .toList();
         }
 
-        // Build map of itemId -> list of sizes
-        java.util.Map<Integer, List<String>> itemSizes = new java.util.HashMap<>();
+        // Build map of itemId -> list of sizes (one query for the whole shop)
+        java.util.Map<Integer, List<String>> itemSizes = itemService.getSizesByShop(staff.getShop());
         for (Item item : items) {
-            List<String> sizes = itemService.getItems(item.getItemId()).stream()
-                    .map(ItemSingle::getSize)
-                    .distinct()
-                    .sorted()
-                    .toList();
-            itemSizes.put(item.getItemId(), sizes);
+            itemSizes.putIfAbsent(item.getItemId(), List.of());
         }
 
         model.addAttribute(STAFF, staff);
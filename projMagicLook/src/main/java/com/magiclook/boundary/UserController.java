@@ -7,7 +7,9 @@ import com.magiclook.dto.LoginDTO;
 import com.magiclook.service.ItemService;
 import com.magiclook.repository.NotificationRepository;
 import com.magiclook.data.Item;
+import com.magiclook.dto.FacetedSearchResult;
 import com.magiclook.dto.ItemFilterDTO;
+import com.magiclook.dto.ItemPageDTO;
 import jakarta.servlet.http.HttpSession;
 import jakarta.validation.Valid;
 
@@ -19,9 +21,11 @@ import org.springframework.web.bind.annotation.*;
 
 import io.micrometer.core.annotation.Timed;
 
+import java.math.BigDecimal;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.ArrayList;
 import java.util.AbstractMap;
@@ -46,6 +50,7 @@ public class UserController {
     private static final String VIEW_DASHBOARD = "dashboard";
     private static final String ITEMS = "items";
     private static final String ITEM_COUNT = "itemCount";
+    private static final int MAX_SEARCH_RESULTS = 50;
 
     @Autowired
     public UserController(UserService userService, ItemService itemService,
@@ -123,10 +128,13 @@ public class UserController {
             "slo", "catalog", "operation", "getMenItems" })
     public String showMenItems(
             ItemFilterDTO filter,
+            @RequestParam(required = false) Integer afterId,
+            @RequestParam(required = false) String afterName,
+            @RequestParam(required = false) BigDecimal afterPrice,
             HttpSession session,
             Model model) {
 
-        return showGenderItems(session, model, "M", "men", filter);
+        return showGenderItems(session, model, "M", "men", filter, afterId, afterName, afterPrice);
     }
 
     // Convenience overload for unit tests (direct call)
@@ -149,10 +157,13 @@ public class UserController {
             "slo", "catalog", "operation", "getWomenItems" })
     public String showWomenItems(
             ItemFilterDTO filter,
+            @RequestParam(required = false) Integer afterId,
+            @RequestParam(required = false) String afterName,
+            @RequestParam(required = false) BigDecimal afterPrice,
             HttpSession session,
             Model model) {
 
-        return showGenderItems(session, model, "F", "women", filter);
+        return showGenderItems(session, model, "F", "women", filter, afterId, afterName, afterPrice);
     }
 
     // Convenience overload for unit tests (direct call)
@@ -172,7 +183,7 @@ public class UserController {
 
     private String showGenderItems(HttpSession session, Model model,
             String genderCode, String pageName,
-            ItemFilterDTO filter) {
+            ItemFilterDTO filter, Integer afterId, String afterName, BigDecimal afterPrice) {
 
         User user = (User) session.getAttribute(ATTR_LOGGED_IN_USER);
 
@@ -180,26 +191,35 @@ public class UserController {
             return REDIRECT_LOGIN;
         }
 
-        // Buscar itens com filtros
-        List<Item> items = itemService.findByGenderAndFilters(genderCode, filter);
+        // Só uma página de artigos é carregada; as seguintes chegam por scroll infinito
+        ItemPageDTO page = itemService.getCatalogPage(genderCode, filter, afterId, afterName, afterPrice);
+        List<Item> items = page.getItems();
+        model.addAttribute(ITEMS, items);
+        model.addAttribute("page", page);
+        if (afterId != null) {
+            // Página seguinte: só os cartões, sem facetas nem cabeçalho
+            return "items/" + pageName + " :: cards";
+        }
+
+        // Opções dos filtros, contagens por faceta e total de resultados, sem carregar os artigos
+        FacetedSearchResult result = itemService.search(genderCode, filter);
 
-        // Obter opções para os filtros
         model.addAttribute("filter", filter);
-        model.addAttribute("colors", itemService.getAllDistinctColors());
-        model.addAttribute("brands", itemService.getAllDistinctBrands());
-        model.addAttribute("materials", itemService.getAllDistinctMaterials());
-        model.addAttribute("categories", itemService.getAllDistinctCategories());
+        model.addAttribute("facets", result);
+        model.addAttribute("colors", result.options(FacetedSearchResult.COLOR));
+        model.addAttribute("brands", result.options(FacetedSearchResult.BRAND));
+        model.addAttribute("materials", result.options(FacetedSearchResult.MATERIAL));
+        model.addAttribute("categories", result.options(FacetedSearchResult.CATEGORY));
+        model.addAttribute("subcategories", result.options(FacetedSearchResult.SUBCATEGORY));
+        model.addAttribute("sizes", result.options(FacetedSearchResult.SIZE));
+        model.addAttribute("shopLocations", result.options(FacetedSearchResult.SHOP_LOCATION));
+        model.addAttribute("priceBuckets", FacetedSearchResult.PRICE_BUCKETS);
 
         long unreadNotifications = notificationRepository.countByUserAndReadFalse(user);
         model.addAttribute("unreadNotifications", unreadNotifications);
 
-        model.addAttribute("subcategories", itemService.getAllDistinctSubcategoriesByGender(genderCode));
-        model.addAttribute("sizes", itemService.getAllDistinctSizesByGender(genderCode));
-        model.addAttribute("shopLocations", itemService.getAllDistinctShopLocations());
-
         model.addAttribute("user", user);
-        model.addAttribute(ITEMS, items);
-        model.addAttribute(ITEM_COUNT, items.size());
+        model.addAttribute(ITEM_COUNT, result.getTotal());
         model.addAttribute(ATTR_ACTIVE_PAGE, pageName);
         model.addAttribute("gender", pageName);
         model.addAttribute("hasFilters", filter.hasFilters());
@@ -230,6 +250,9 @@ public class UserController {
         params.add(new AbstractMap.SimpleEntry<>("minPrice", filter.getMinPrice()));
         params.add(new AbstractMap.SimpleEntry<>("maxPrice", filter.getMaxPrice()));
         params.add(new AbstractMap.SimpleEntry<>("shopLocation", filter.getShopLocation()));
+        params.add(new AbstractMap.SimpleEntry<>("startUseDate", filter.getStartUseDate()));
+        params.add(new AbstractMap.SimpleEntry<>("endUseDate", filter.getEndUseDate()));
+        params.add(new AbstractMap.SimpleEntry<>("sort", filter.getSort()));
 
         for (Map.Entry<String, Object> param : params) {
             if (shouldIncludeParameter(param.getValue())) {
@@ -282,6 +305,24 @@ public class UserController {
         return "redirect:/magiclook/items/" + gender;
     }
 
+    // ========== PESQUISA ==========
+
+    // Typeahead: artigos com unidades disponíveis que correspondem ao texto, do mais relevante para o menos
+    @GetMapping("/api/search")
+    @ResponseBody
+    @Timed(value = "request.catalog", histogram = true, description = "Item search latency", extraTags = { "slo",
+            "catalog", "operation", "search" })
+    public Map<String, Object> searchItems(
+            @RequestParam(name = "q", required = false) String q,
+            @RequestParam(name = "gender", required = false) String gender,
+            @RequestParam(name = "limit", defaultValue = "8") int limit) {
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("query", q);
+        response.put("results", itemService.searchItems(q, gender, Math.max(1, Math.min(limit, MAX_SEARCH_RESULTS))));
+        return response;
+    }
+
     // ============== DASHBOARD ===============
 
     @GetMapping("/dashboard")
@@ -0,0 +1,78 @@
+package com.magiclook.config;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Lets the database reject overlapping bookings of the same ItemSingle:
+ * - Postgres: generated daterange column (pickup → return, inclusive) plus an
+ *   EXCLUDE USING gist constraint over (item_single_id, occupied_range),
+ *   ignoring cancelled bookings
+ * - Other databases (H2 in dev/tests): no constraint is installed and
+ *   BookingService falls back to a SELECT ... FOR UPDATE on the unit row
+ */
+@Component
+@DependsOn("entityManagerFactory") // a tabela booking tem de existir antes do ALTER TABLE
+public class BookingExclusionConstraint {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookingExclusionConstraint.class);
+
+    public static final String CONSTRAINT_NAME = "booking_item_single_no_overlap";
+
+    private static final String CREATE_EXTENSION = "CREATE EXTENSION IF NOT EXISTS btree_gist";
+
+    private static final String ADD_RANGE_COLUMN = "ALTER TABLE booking ADD COLUMN IF NOT EXISTS occupied_range daterange "
+            + "GENERATED ALWAYS AS (daterange(CAST(pickup_date AS date), CAST(return_date AS date), '[]')) STORED";
+
+    private static final String ADD_CONSTRAINT = "DO $$ BEGIN "
+            + "IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = '" + CONSTRAINT_NAME + "') THEN "
+            + "ALTER TABLE booking ADD CONSTRAINT " + CONSTRAINT_NAME + " "
+            + "EXCLUDE USING gist (item_single_id WITH =, occupied_range WITH &&) "
+            + "WHERE (state <> 'CANCELLED'); "
+            + "END IF; END $$";
+
+    private final DataSource dataSource;
+
+    private volatile boolean installed;
+
+    public BookingExclusionConstraint(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @PostConstruct
+    void install() {
+        try (Connection connection = dataSource.getConnection()) {
+            String product = connection.getMetaData().getDatabaseProductName();
+            if (!"PostgreSQL".equalsIgnoreCase(product)) {
+                logger.info("Database {} has no exclusion constraints, using row-lock fallback for bookings", product);
+                return;
+            }
+
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(CREATE_EXTENSION);
+                statement.execute(ADD_RANGE_COLUMN);
+                statement.execute(ADD_CONSTRAINT);
+            }
+            installed = true;
+            logger.info("Booking exclusion constraint {} is active", CONSTRAINT_NAME);
+        } catch (SQLException e) {
+            // Ex.: sem permissões para btree_gist ou dados antigos já sobrepostos
+            logger.warn("Could not install booking exclusion constraint, using row-lock fallback: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * True when overlapping inserts are rejected by the database itself.
+     */
+    public boolean isInstalled() {
+        return installed;
+    }
+}
@@ -1,31 +1,55 @@
 package com.magiclook.data;
 
 import jakarta.persistence.*;
+import java.time.LocalDate;
 import java.util.UUID;
 import java.util.Date;
+import com.magiclook.dto.BookingWindow;
 import java.math.BigDecimal;
 import java.io.Serializable;
 
 @Entity
-@Table(name = "booking")
+@NamedEntityGraph(name = Booking.GRAPH_LIST,
+        attributeNodes = { @NamedAttributeNode(value = "item", subgraph = "item"), @NamedAttributeNode("itemSingle") },
+        subgraphs = @NamedSubgraph(name = "item", attributeNodes = @NamedAttributeNode("shop")))
+@NamedEntityGraph(name = Booking.GRAPH_DETAILS,
+        attributeNodes = { @NamedAttributeNode(value = "item", subgraph = "item"), @NamedAttributeNode("itemSingle"),
+                @NamedAttributeNode("user") },
+        subgraphs = @NamedSubgraph(name = "item", attributeNodes = {
+                @NamedAttributeNode("shop"), @NamedAttributeNode("itemType") }))
+@Table(name = "booking", indexes = {
+        @Index(name = "idx_booking_state_return", columnList = "state, return_date"),
+        @Index(name = "idx_booking_user_start", columnList = "user_id, start_use_date, booking_id")
+})
 public class Booking implements Serializable{
     private static final long serialVersionUID = 1L;
 
+    // Grafos de leitura: lista "As minhas reservas" e página de detalhe
+    public static final String GRAPH_LIST = "Booking.list";
+    public static final String GRAPH_DETAILS = "Booking.details";
+
+    public static final String STATE_CONFIRMED = "CONFIRMED";
+    public static final String STATE_ACTIVE = "ACTIVE";
+    public static final String STATE_COMPLETED = "COMPLETED";
+    public static final String STATE_OVERDUE = "OVERDUE";
+    public static final String STATE_RETURNED = "RETURNED";
+    public static final String STATE_CANCELLED = "CANCELLED";
+
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
     private UUID bookingId;
 
     @Column(name = "pickup_date")
-    private Date pickupDate;
+    private LocalDate pickupDate;
 
     @Column(name = "start_use_date")
-    private Date startUseDate;
+    private LocalDate startUseDate;
 
     @Column(name = "end_use_date")
-    private Date endUseDate;
+    private LocalDate endUseDate;
 
     @Column(name = "return_date")
-    private Date returnDate;
+    private LocalDate returnDate;
 
     @Column(name = "total_days")
     private int totalDays;
@@ -35,15 +59,15 @@ public class Booking implements Serializable{
 
     private String state;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "item_single_id")
     private ItemSingle itemSingle;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "item_id")
     private Item item;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User user;
 
@@ -54,8 +78,8 @@ public class Booking implements Serializable{
     // Constructors
     public Booking() {}
 
-    public Booking(Date pickupDate, Date startUseDate, Date endUseDate, 
-                   Date returnDate, String state, Item item, User user) {
+    public Booking(LocalDate pickupDate, LocalDate startUseDate, LocalDate endUseDate, 
+                   LocalDate returnDate, String state, Item item, User user) {
         this.pickupDate = pickupDate;
         this.startUseDate = startUseDate;
         this.endUseDate = endUseDate;
@@ -70,17 +94,17 @@ public class Booking implements Serializable{
     public UUID getBookingId() { return bookingId; }
     public void setBookingId(UUID bookingId) { this.bookingId = bookingId; }
     
-    public Date getPickupDate() { return pickupDate; }
-    public void setPickupDate(Date pickupDate) { this.pickupDate = pickupDate; }
+    public LocalDate getPickupDate() { return pickupDate; }
+    public void setPickupDate(LocalDate pickupDate) { this.pickupDate = pickupDate; }
     
-    public Date getStartUseDate() { return startUseDate; }
-    public void setStartUseDate(Date startUseDate) { this.startUseDate = startUseDate; }
+    public LocalDate getStartUseDate() { return startUseDate; }
+    public void setStartUseDate(LocalDate startUseDate) { this.startUseDate = startUseDate; }
     
-    public Date getEndUseDate() { return endUseDate; }
-    public void setEndUseDate(Date endUseDate) { this.endUseDate = endUseDate; }
+    public LocalDate getEndUseDate() { return endUseDate; }
+    public void setEndUseDate(LocalDate endUseDate) { this.endUseDate = endUseDate; }
     
-    public Date getReturnDate() { return returnDate; }
-    public void setReturnDate(Date returnDate) { this.returnDate = returnDate; }
+    public LocalDate getReturnDate() { return returnDate; }
+    public void setReturnDate(LocalDate returnDate) { this.returnDate = returnDate; }
     
     public int getTotalDays() { return totalDays; }
     public void setTotalDays(int totalDays) { this.totalDays = totalDays; }
@@ -97,35 +121,50 @@ public class Booking implements Serializable{
     public User getUser() { return user; }
     public void setUser(User user) { this.user = user; }
     
+    // Preenche as quatro datas a partir da janela já calculada
+    public void applyWindow(BookingWindow window) {
+        this.pickupDate = window.getPickupDate();
+        this.startUseDate = window.getStartUseDate();
+        this.endUseDate = window.getEndUseDate();
+        this.returnDate = window.getReturnDate();
+    }
+    
     public Date getCreatedAt() { return createdAt; }
     public void setCreatedAt(Date createdAt) { this.createdAt = createdAt; }
 
     // Helper method to calculate total days of use
     public long calculateUseDays() {
         if (startUseDate == null || endUseDate == null) return 0;
-        long diff = endUseDate.getTime() - startUseDate.getTime();
-        return (diff / (1000 * 60 * 60 * 24)) + 1;
+        return endUseDate.toEpochDay() - startUseDate.toEpochDay() + 1;
     }
     
     public String getCurrentState() {
-        Date now = new Date();
-        if (state.equals("CANCELLED") || state.equals("COMPLETED")) {
+        return stateOn(LocalDate.now());
+    }
+
+    /**
+     * State the booking's dates give on the given day. CANCELLED and COMPLETED are final;
+     * the same rule runs in bulk in {@code BookingRepository.mark*} at each day boundary,
+     * except that an unreturned booking is stored as ACTIVE (not COMPLETED) until its
+     * return date, so it can still become OVERDUE.
+     */
+    public String stateOn(LocalDate day) {
+        if (STATE_CANCELLED.equals(state) || STATE_COMPLETED.equals(state)) {
             return state;
         }
-        
-        if (now.before(startUseDate)) {
-            return "CONFIRMED";
-        } else if (now.after(endUseDate)) {
-            // Check if past return date without returning
-            if (now.after(returnDate) && !state.equals("RETURNED")) {
-                return "OVERDUE";
-            } else {
-                return "COMPLETED";
+
+        if (day.isBefore(startUseDate)) {
+            return STATE_CONFIRMED;
+        } else if (day.isAfter(endUseDate)) {
+            // Passou a data de devolução sem ter sido devolvida
+            if (day.isAfter(returnDate) && !STATE_RETURNED.equals(state)) {
+                return STATE_OVERDUE;
             }
-        } else {
-            return "ACTIVE";
+            return STATE_COMPLETED;
         }
+        return STATE_ACTIVE;
     }
+
     public ItemSingle getItemSingle() { return itemSingle; }
     public void setItemSingle(ItemSingle itemSingle) { 
         this.itemSingle = itemSingle;
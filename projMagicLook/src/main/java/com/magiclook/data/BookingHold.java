@@ -0,0 +1,109 @@
+package com.magiclook.data;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Short-lived hold of one ItemSingle while its user finishes checkout.
+ * Other users see the unit as occupied for the held dates until the hold
+ * is turned into a booking or expires.
+ */
+@Entity
+@Table(name = "booking_hold", indexes = {
+    @Index(name = "idx_booking_hold_expires", columnList = "expires_at"),
+    @Index(name = "idx_booking_hold_unit", columnList = "item_single_id"),
+    @Index(name = "idx_booking_hold_item_expires", columnList = "item_id, expires_at")
+})
+public class BookingHold implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID holdId;
+
+    @Column(name = "item_single_id", nullable = false)
+    private UUID itemSingleId;
+
+    @Column(name = "item_id", nullable = false)
+    private Integer itemId;
+
+    private String size;
+
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+
+    // Intervalo ocupado (levantamento → devolução), como numa reserva
+    @Column(name = "pickup_date", nullable = false)
+    private LocalDate pickupDate;
+
+    @Column(name = "return_date", nullable = false)
+    private LocalDate returnDate;
+
+    @Column(name = "start_use_date", nullable = false)
+    private LocalDate startUseDate;
+
+    @Column(name = "end_use_date", nullable = false)
+    private LocalDate endUseDate;
+
+    @Column(name = "expires_at", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date expiresAt;
+
+    public BookingHold() {}
+
+    public BookingHold(ItemSingle unit, UUID userId, LocalDate pickupDate, LocalDate startUseDate,
+                       LocalDate endUseDate, LocalDate returnDate, Date expiresAt) {
+        this.itemSingleId = unit.getId();
+        this.itemId = unit.getItem().getItemId();
+        this.size = unit.getSize();
+        this.userId = userId;
+        this.pickupDate = pickupDate;
+        this.startUseDate = startUseDate;
+        this.endUseDate = endUseDate;
+        this.returnDate = returnDate;
+        this.expiresAt = expiresAt;
+    }
+
+    public boolean isExpired(long nowMillis) {
+        return expiresAt.getTime() <= nowMillis;
+    }
+
+    // Sobreposição com [pickupDate, returnDate] de outra janela
+    public boolean overlaps(LocalDate otherPickup, LocalDate otherReturn) {
+        return !pickupDate.isAfter(otherReturn) && !returnDate.isBefore(otherPickup);
+    }
+
+    // Getters and Setters
+    public UUID getHoldId() { return holdId; }
+    public void setHoldId(UUID holdId) { this.holdId = holdId; }
+
+    public UUID getItemSingleId() { return itemSingleId; }
+    public void setItemSingleId(UUID itemSingleId) { this.itemSingleId = itemSingleId; }
+
+    public Integer getItemId() { return itemId; }
+    public void setItemId(Integer itemId) { this.itemId = itemId; }
+
+    public String getSize() { return size; }
+    public void setSize(String size) { this.size = size; }
+
+    public UUID getUserId() { return userId; }
+    public void setUserId(UUID userId) { this.userId = userId; }
+
+    public LocalDate getPickupDate() { return pickupDate; }
+    public void setPickupDate(LocalDate pickupDate) { this.pickupDate = pickupDate; }
+
+    public LocalDate getReturnDate() { return returnDate; }
+    public void setReturnDate(LocalDate returnDate) { this.returnDate = returnDate; }
+
+    public LocalDate getStartUseDate() { return startUseDate; }
+    public void setStartUseDate(LocalDate startUseDate) { this.startUseDate = startUseDate; }
+
+    public LocalDate getEndUseDate() { return endUseDate; }
+    public void setEndUseDate(LocalDate endUseDate) { this.endUseDate = endUseDate; }
+
+    public Date getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(Date expiresAt) { this.expiresAt = expiresAt; }
+}
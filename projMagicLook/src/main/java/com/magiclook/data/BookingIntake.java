@@ -0,0 +1,110 @@
+package com.magiclook.data;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Outbox row for a booking request accepted in async intake mode.
+ * The row is written before the request is queued, so pending requests
+ * survive a restart and are picked up again by the dispatcher.
+ */
+@Entity
+@Table(name = "booking_intake", indexes = {
+    @Index(name = "idx_booking_intake_status_created", columnList = "status, created_at")
+})
+public class BookingIntake implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_CONFIRMED = "CONFIRMED";
+    public static final String STATUS_REJECTED = "REJECTED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID intakeId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Column(name = "item_id", nullable = false)
+    private Integer itemId;
+
+    private String size;
+
+    @Column(name = "start_use_date", nullable = false)
+    private LocalDate startUseDate;
+
+    @Column(name = "end_use_date", nullable = false)
+    private LocalDate endUseDate;
+
+    @Column(nullable = false, length = 20)
+    private String status = STATUS_PENDING;
+
+    @Column(name = "booking_id")
+    private UUID bookingId;
+
+    @Column(name = "error_message")
+    private String errorMessage;
+
+    @Column(name = "created_at", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date createdAt = new Date();
+
+    @Column(name = "processed_at")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date processedAt;
+
+    public BookingIntake() {}
+
+    public BookingIntake(User user, Integer itemId, String size, LocalDate startUseDate, LocalDate endUseDate) {
+        this.user = user;
+        this.itemId = itemId;
+        this.size = size;
+        this.startUseDate = startUseDate;
+        this.endUseDate = endUseDate;
+        this.status = STATUS_PENDING;
+        this.createdAt = new Date();
+    }
+
+    public boolean isPending() {
+        return STATUS_PENDING.equals(status);
+    }
+
+    // Getters and Setters
+    public UUID getIntakeId() { return intakeId; }
+    public void setIntakeId(UUID intakeId) { this.intakeId = intakeId; }
+
+    public User getUser() { return user; }
+    public void setUser(User user) { this.user = user; }
+
+    public Integer getItemId() { return itemId; }
+    public void setItemId(Integer itemId) { this.itemId = itemId; }
+
+    public String getSize() { return size; }
+    public void setSize(String size) { this.size = size; }
+
+    public LocalDate getStartUseDate() { return startUseDate; }
+    public void setStartUseDate(LocalDate startUseDate) { this.startUseDate = startUseDate; }
+
+    public LocalDate getEndUseDate() { return endUseDate; }
+    public void setEndUseDate(LocalDate endUseDate) { this.endUseDate = endUseDate; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public UUID getBookingId() { return bookingId; }
+    public void setBookingId(UUID bookingId) { this.bookingId = bookingId; }
+
+    public String getErrorMessage() { return errorMessage; }
+    public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
+
+    public Date getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Date createdAt) { this.createdAt = createdAt; }
+
+    public Date getProcessedAt() { return processedAt; }
+    public void setProcessedAt(Date processedAt) { this.processedAt = processedAt; }
+}
@@ -8,9 +8,13 @@ import java.util.Date;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 @Entity
+@NamedEntityGraph(name = Item.GRAPH_CATALOG,
+        attributeNodes = { @NamedAttributeNode("shop"), @NamedAttributeNode("itemType") })
 @Table(name = "item")
 @Data
 @Builder
@@ -18,6 +22,9 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class Item implements Serializable {
 
+    // Loja e tipo, usados por todas as listagens de artigos
+    public static final String GRAPH_CATALOG = "Item.catalog";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer itemId;
@@ -40,15 +47,22 @@ public class Item implements Serializable {
     @Column(name = "is_available")
     private boolean available = true;
 
-    @ManyToOne
+    // Associações lazy fora do equals/toString do Lombok para não as carregar por acidente
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "shop_id")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Shop shop;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "item_type_id")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private ItemType itemType;
 
     @OneToMany(mappedBy = "item", fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private List<ItemSingle> itemSingles;
 
     public Item(String name) {
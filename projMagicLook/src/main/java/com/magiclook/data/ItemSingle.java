@@ -25,7 +25,12 @@ public class ItemSingle implements Serializable {
     @Column(name = "damage_reason")
     private String damageReason; // Motivo do dano (se estado for Danificado)
 
-    @ManyToOne
+    // Incrementada em cada alocação no modo otimista (booking.concurrency.mode=optimistic)
+    @Version
+    @Column(columnDefinition = "BIGINT DEFAULT 0")
+    private Long version;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "item_id")
     private Item item;
 
@@ -78,4 +83,12 @@ public class ItemSingle implements Serializable {
     public void setId(UUID id) {
         this.id = id;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
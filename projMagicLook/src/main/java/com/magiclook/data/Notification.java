@@ -14,7 +14,7 @@ public class Notification implements Serializable {
     @GeneratedValue(strategy = GenerationType.UUID)
     private UUID notificationId;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
@@ -25,7 +25,7 @@ public class Staff implements Serializable {
     @Column(nullable = false, unique = true)
     private String username;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "shop_id", nullable = false)
     private Shop shop;
 
@@ -0,0 +1,105 @@
+package com.magiclook.data;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * A user queued for an item (and size) on given dates that had no free unit.
+ * When a cancellation frees capacity the earliest compatible entry is turned
+ * into a booking by the waitlist matcher.
+ */
+@Entity
+@Table(name = "booking_waitlist", indexes = {
+    @Index(name = "idx_waitlist_item_status_created", columnList = "item_id, status, created_at")
+})
+public class WaitlistEntry implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final String STATUS_WAITING = "WAITING";
+    public static final String STATUS_ALLOCATED = "ALLOCATED";
+    public static final String STATUS_EXPIRED = "EXPIRED";
+    public static final String STATUS_REJECTED = "REJECTED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID entryId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Column(name = "item_id", nullable = false)
+    private Integer itemId;
+
+    private String size;
+
+    @Column(name = "start_use_date", nullable = false)
+    private LocalDate startUseDate;
+
+    @Column(name = "end_use_date", nullable = false)
+    private LocalDate endUseDate;
+
+    @Column(nullable = false, length = 20)
+    private String status = STATUS_WAITING;
+
+    @Column(name = "booking_id")
+    private UUID bookingId;
+
+    @Column(name = "created_at", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date createdAt = new Date();
+
+    @Column(name = "allocated_at")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date allocatedAt;
+
+    public WaitlistEntry() {}
+
+    public WaitlistEntry(User user, Integer itemId, String size, LocalDate startUseDate, LocalDate endUseDate) {
+        this.user = user;
+        this.itemId = itemId;
+        this.size = size;
+        this.startUseDate = startUseDate;
+        this.endUseDate = endUseDate;
+        this.status = STATUS_WAITING;
+        this.createdAt = new Date();
+    }
+
+    public boolean isWaiting() {
+        return STATUS_WAITING.equals(status);
+    }
+
+    // Getters and Setters
+    public UUID getEntryId() { return entryId; }
+    public void setEntryId(UUID entryId) { this.entryId = entryId; }
+
+    public User getUser() { return user; }
+    public void setUser(User user) { this.user = user; }
+
+    public Integer getItemId() { return itemId; }
+    public void setItemId(Integer itemId) { this.itemId = itemId; }
+
+    public String getSize() { return size; }
+    public void setSize(String size) { this.size = size; }
+
+    public LocalDate getStartUseDate() { return startUseDate; }
+    public void setStartUseDate(LocalDate startUseDate) { this.startUseDate = startUseDate; }
+
+    public LocalDate getEndUseDate() { return endUseDate; }
+    public void setEndUseDate(LocalDate endUseDate) { this.endUseDate = endUseDate; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public UUID getBookingId() { return bookingId; }
+    public void setBookingId(UUID bookingId) { this.bookingId = bookingId; }
+
+    public Date getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Date createdAt) { this.createdAt = createdAt; }
+
+    public Date getAllocatedAt() { return allocatedAt; }
+    public void setAllocatedAt(Date allocatedAt) { this.allocatedAt = allocatedAt; }
+}
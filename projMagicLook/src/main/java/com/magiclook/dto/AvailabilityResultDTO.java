@@ -0,0 +1,52 @@
+package com.magiclook.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public class AvailabilityResultDTO {
+    private Integer itemId;
+    private String size;
+    private LocalDate startUseDate;
+    private LocalDate endUseDate;
+    private boolean available;
+    private long freeUnits;
+    private long useDays;
+    private BigDecimal totalPrice;
+    private String message;
+
+    public AvailabilityResultDTO() {}
+
+    public AvailabilityResultDTO(BookingRequestDTO query) {
+        this.itemId = query.getItemId();
+        this.size = query.getSize();
+        this.startUseDate = query.getStartUseDate();
+        this.endUseDate = query.getEndUseDate();
+    }
+
+    public Integer getItemId() { return itemId; }
+    public void setItemId(Integer itemId) { this.itemId = itemId; }
+
+    public String getSize() { return size; }
+    public void setSize(String size) { this.size = size; }
+
+    public LocalDate getStartUseDate() { return startUseDate; }
+    public void setStartUseDate(LocalDate startUseDate) { this.startUseDate = startUseDate; }
+
+    public LocalDate getEndUseDate() { return endUseDate; }
+    public void setEndUseDate(LocalDate endUseDate) { this.endUseDate = endUseDate; }
+
+    public boolean isAvailable() { return available; }
+    public void setAvailable(boolean available) { this.available = available; }
+
+    public long getFreeUnits() { return freeUnits; }
+    public void setFreeUnits(long freeUnits) { this.freeUnits = freeUnits; }
+
+    public long getUseDays() { return useDays; }
+    public void setUseDays(long useDays) { this.useDays = useDays; }
+
+    public BigDecimal getTotalPrice() { return totalPrice; }
+    public void setTotalPrice(BigDecimal totalPrice) { this.totalPrice = totalPrice; }
+
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+}
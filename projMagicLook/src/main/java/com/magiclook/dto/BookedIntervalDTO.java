@@ -0,0 +1,37 @@
+package com.magiclook.dto;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+public class BookedIntervalDTO {
+    private UUID bookingId;
+    private UUID itemSingleId;
+    private Integer itemId;
+    private LocalDate pickupDate;
+    private LocalDate returnDate;
+
+    public BookedIntervalDTO() {}
+
+    public BookedIntervalDTO(UUID bookingId, UUID itemSingleId, Integer itemId, LocalDate pickupDate, LocalDate returnDate) {
+        this.bookingId = bookingId;
+        this.itemSingleId = itemSingleId;
+        this.itemId = itemId;
+        this.pickupDate = pickupDate;
+        this.returnDate = returnDate;
+    }
+
+    public UUID getBookingId() { return bookingId; }
+    public void setBookingId(UUID bookingId) { this.bookingId = bookingId; }
+
+    public UUID getItemSingleId() { return itemSingleId; }
+    public void setItemSingleId(UUID itemSingleId) { this.itemSingleId = itemSingleId; }
+
+    public Integer getItemId() { return itemId; }
+    public void setItemId(Integer itemId) { this.itemId = itemId; }
+
+    public LocalDate getPickupDate() { return pickupDate; }
+    public void setPickupDate(LocalDate pickupDate) { this.pickupDate = pickupDate; }
+
+    public LocalDate getReturnDate() { return returnDate; }
+    public void setReturnDate(LocalDate returnDate) { this.returnDate = returnDate; }
+}
@@ -0,0 +1,62 @@
+package com.magiclook.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Several items (e.g. a suit plus accessories) booked together for the same dates.
+ */
+public class BookingBundleRequestDTO {
+
+    private LocalDate startUseDate;
+    private LocalDate endUseDate;
+    private List<Line> items = new ArrayList<>();
+
+    public BookingBundleRequestDTO() {}
+
+    public BookingBundleRequestDTO(LocalDate startUseDate, LocalDate endUseDate, List<Line> items) {
+        this.startUseDate = startUseDate;
+        this.endUseDate = endUseDate;
+        this.items = items;
+    }
+
+    public boolean isValidDates() {
+        if (startUseDate == null || endUseDate == null) return false;
+        return !endUseDate.isBefore(startUseDate);
+    }
+
+    @JsonIgnore
+    public BookingWindow getWindow() {
+        return BookingWindow.of(startUseDate, endUseDate);
+    }
+
+    public LocalDate getStartUseDate() { return startUseDate; }
+    public void setStartUseDate(LocalDate startUseDate) { this.startUseDate = startUseDate; }
+
+    public LocalDate getEndUseDate() { return endUseDate; }
+    public void setEndUseDate(LocalDate endUseDate) { this.endUseDate = endUseDate; }
+
+    public List<Line> getItems() { return items; }
+    public void setItems(List<Line> items) { this.items = items; }
+
+    // Uma peça do conjunto (o mesmo item pode aparecer mais de uma vez)
+    public static class Line {
+        private Integer itemId;
+        private String size;
+
+        public Line() {}
+
+        public Line(Integer itemId, String size) {
+            this.itemId = itemId;
+            this.size = size;
+        }
+
+        public Integer getItemId() { return itemId; }
+        public void setItemId(Integer itemId) { this.itemId = itemId; }
+
+        public String getSize() { return size; }
+        public void setSize(String size) { this.size = size; }
+    }
+}
@@ -0,0 +1,38 @@
+package com.magiclook.dto;
+
+import com.magiclook.data.Booking;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * One keyset page of a user's bookings, ordered by (startUseDate, bookingId) descending.
+ * The next page starts after the last booking of this one.
+ */
+public class BookingPageDTO {
+
+    private final List<Booking> bookings;
+    private final boolean hasNext;
+
+    public BookingPageDTO(List<Booking> bookings, boolean hasNext) {
+        this.bookings = bookings;
+        this.hasNext = hasNext;
+    }
+
+    public List<Booking> getBookings() { return bookings; }
+    public boolean isHasNext() { return hasNext; }
+
+    // Cursor da próxima página (null quando esta é a última)
+    public LocalDate getNextStart() {
+        return hasNext ? last().getStartUseDate() : null;
+    }
+
+    public UUID getNextId() {
+        return hasNext ? last().getBookingId() : null;
+    }
+
+    private Booking last() {
+        return bookings.get(bookings.size() - 1);
+    }
+}
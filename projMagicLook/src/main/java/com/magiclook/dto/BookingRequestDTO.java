@@ -1,8 +1,10 @@
 package com.magiclook.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.validation.constraints.Future;
 import jakarta.validation.constraints.NotNull;
-import java.util.Date;
+import java.time.LocalDate;
+import java.util.UUID;
 
 public class BookingRequestDTO {
     
@@ -11,17 +13,23 @@ public class BookingRequestDTO {
     
     @NotNull(message = "Data de início de uso é obrigatória")
     @Future(message = "A data deve ser futura")
-    private Date startUseDate;
+    private LocalDate startUseDate;
     
     @NotNull(message = "Data de fim de uso é obrigatória")
     @Future(message = "A data deve ser futura")
-    private Date endUseDate;
+    private LocalDate endUseDate;
 
     private String size;
+
+    // Hold de checkout obtido no formulário (opcional)
+    private UUID holdId;
+
+    // Calculada uma vez por pedido e reutilizada pelo serviço e pelos repositórios
+    private BookingWindow window;
     
     public BookingRequestDTO() {}
     
-    public BookingRequestDTO(Integer itemId, Date startUseDate, Date endUseDate) {
+    public BookingRequestDTO(Integer itemId, LocalDate startUseDate, LocalDate endUseDate) {
         this.itemId = itemId;
         this.startUseDate = startUseDate;
         this.endUseDate = endUseDate;
@@ -30,23 +38,39 @@ public class BookingRequestDTO {
     public Integer getItemId() { return itemId; }
     public void setItemId(Integer itemId) { this.itemId = itemId; }
     
-    public Date getStartUseDate() { return startUseDate; }
-    public void setStartUseDate(Date startUseDate) { this.startUseDate = startUseDate; }
+    public LocalDate getStartUseDate() { return startUseDate; }
+    public void setStartUseDate(LocalDate startUseDate) {
+        this.startUseDate = startUseDate;
+        this.window = null;
+    }
     
-    public Date getEndUseDate() { return endUseDate; }
-    public void setEndUseDate(Date endUseDate) { this.endUseDate = endUseDate; }
+    public LocalDate getEndUseDate() { return endUseDate; }
+    public void setEndUseDate(LocalDate endUseDate) {
+        this.endUseDate = endUseDate;
+        this.window = null;
+    }
     
     public boolean isValidDates() {
         if (startUseDate == null || endUseDate == null) return false;
-        return !endUseDate.before(startUseDate);
+        return !endUseDate.isBefore(startUseDate);
+    }
+
+    @JsonIgnore
+    public BookingWindow getWindow() {
+        if (window == null && startUseDate != null && endUseDate != null) {
+            window = BookingWindow.of(startUseDate, endUseDate);
+        }
+        return window;
     }
     
     public long getUseDays() {
         if (!isValidDates()) return 0;
-        long diff = endUseDate.getTime() - startUseDate.getTime();
-        return (diff / (1000 * 60 * 60 * 24)) + 1;
+        return getWindow().getUseDays();
     }
 
     public String getSize() { return size; }
     public void setSize(String size) { this.size = size; }
-}
\ No newline at end of file
+
+    public UUID getHoldId() { return holdId; }
+    public void setHoldId(UUID holdId) { this.holdId = holdId; }
+}
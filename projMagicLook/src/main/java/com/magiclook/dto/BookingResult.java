@@ -0,0 +1,55 @@
+package com.magiclook.dto;
+
+import com.magiclook.data.Booking;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of a single reserve attempt: the booking, or why it failed together
+ * with the item's current size availability for redisplaying the form.
+ */
+public class BookingResult {
+
+    public enum FailureReason {
+        INVALID_DATES,
+        NOT_AUTHENTICATED,
+        USER_NOT_FOUND,
+        ITEM_NOT_FOUND,
+        NO_UNIT_AVAILABLE,
+        CONFLICT,
+        ERROR
+    }
+
+    private final Booking booking;
+    private final FailureReason failureReason;
+    private final String message;
+    private final List<String> availableSizes;
+    private final Map<String, Integer> sizeAvailability;
+
+    private BookingResult(Booking booking, FailureReason failureReason, String message,
+                          List<String> availableSizes, Map<String, Integer> sizeAvailability) {
+        this.booking = booking;
+        this.failureReason = failureReason;
+        this.message = message;
+        this.availableSizes = availableSizes;
+        this.sizeAvailability = sizeAvailability;
+    }
+
+    public static BookingResult success(Booking booking) {
+        return new BookingResult(booking, null, null, List.of(), Map.of());
+    }
+
+    public static BookingResult failure(FailureReason failureReason, String message,
+                                        List<String> availableSizes, Map<String, Integer> sizeAvailability) {
+        return new BookingResult(null, failureReason, message, availableSizes, sizeAvailability);
+    }
+
+    public boolean isSuccess() { return booking != null; }
+
+    public Booking getBooking() { return booking; }
+    public FailureReason getFailureReason() { return failureReason; }
+    public String getMessage() { return message; }
+    public List<String> getAvailableSizes() { return availableSizes; }
+    public Map<String, Integer> getSizeAvailability() { return sizeAvailability; }
+}
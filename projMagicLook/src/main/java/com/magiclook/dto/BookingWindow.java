@@ -0,0 +1,65 @@
+package com.magiclook.dto;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * The days a booking occupies a unit, computed once from the use dates:
+ * pickup (the day before use), start/end of use, return (the day after)
+ * and laundry (the day after return). Plain calendar days, so no time zone
+ * or daylight saving shift can move them.
+ */
+public final class BookingWindow {
+
+    private final LocalDate pickupDate;
+    private final LocalDate startUseDate;
+    private final LocalDate endUseDate;
+    private final LocalDate returnDate;
+    private final LocalDate laundryDate;
+
+    private BookingWindow(LocalDate startUseDate, LocalDate endUseDate) {
+        this.startUseDate = startUseDate;
+        this.endUseDate = endUseDate;
+        this.pickupDate = startUseDate.minusDays(1);
+        this.returnDate = endUseDate.plusDays(1);
+        this.laundryDate = returnDate.plusDays(1);
+    }
+
+    public static BookingWindow of(LocalDate startUseDate, LocalDate endUseDate) {
+        Objects.requireNonNull(startUseDate, "startUseDate");
+        Objects.requireNonNull(endUseDate, "endUseDate");
+        return new BookingWindow(startUseDate, endUseDate);
+    }
+
+    public LocalDate getPickupDate() { return pickupDate; }
+    public LocalDate getStartUseDate() { return startUseDate; }
+    public LocalDate getEndUseDate() { return endUseDate; }
+    public LocalDate getReturnDate() { return returnDate; }
+    public LocalDate getLaundryDate() { return laundryDate; }
+
+    public boolean isValid() {
+        return !endUseDate.isBefore(startUseDate);
+    }
+
+    // Dias de uso, inclusivos (contagem por dias de calendário, sem milissegundos)
+    public long getUseDays() {
+        return isValid() ? endUseDate.toEpochDay() - startUseDate.toEpochDay() + 1 : 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof BookingWindow other)) return false;
+        return startUseDate.equals(other.startUseDate) && endUseDate.equals(other.endUseDate);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(startUseDate, endUseDate);
+    }
+
+    @Override
+    public String toString() {
+        return "BookingWindow[" + pickupDate + " → " + returnDate + ", uso " + startUseDate + " a " + endUseDate + "]";
+    }
+}
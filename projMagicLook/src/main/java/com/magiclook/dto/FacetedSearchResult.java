@@ -0,0 +1,80 @@
+package com.magiclook.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Number of items matching a catalog filter together with the count of each facet
+ * value; the items themselves are listed a page at a time by ItemService.getCatalogPage.
+ * A value's count is the number of items the page would show if that value were
+ * picked, keeping every other active filter (so "Azul (12)" means 12 results).
+ * Facet names are the ItemFilterDTO field names, with "price" for the price buckets.
+ */
+public class FacetedSearchResult {
+
+    public static final String COLOR = "color";
+    public static final String BRAND = "brand";
+    public static final String MATERIAL = "material";
+    public static final String CATEGORY = "category";
+    public static final String SUBCATEGORY = "subcategory";
+    public static final String SIZE = "size";
+    public static final String SHOP_LOCATION = "shopLocation";
+    public static final String PRICE = "price";
+
+    public static final List<String> FACETS =
+            List.of(COLOR, BRAND, MATERIAL, CATEGORY, SUBCATEGORY, SIZE, SHOP_LOCATION, PRICE);
+
+    // Escalões de preço de aluguer por dia (mínimo incluído, máximo excluído)
+    public static final List<PriceBucket> PRICE_BUCKETS = List.of(
+            new PriceBucket("Até 25 €", BigDecimal.ZERO, new BigDecimal("25")),
+            new PriceBucket("25 € a 50 €", new BigDecimal("25"), new BigDecimal("50")),
+            new PriceBucket("50 € a 100 €", new BigDecimal("50"), new BigDecimal("100")),
+            new PriceBucket("Mais de 100 €", new BigDecimal("100"), null));
+
+    private final long total;
+    private final Map<String, Map<String, Long>> facets;
+
+    public FacetedSearchResult(long total, Map<String, Map<String, Long>> facets) {
+        this.total = total;
+        this.facets = facets;
+    }
+
+    public long getTotal() { return total; }
+    public Map<String, Map<String, Long>> getFacets() { return facets; }
+
+    /**
+     * Values of the facet in display order, including those with a zero count.
+     */
+    public List<String> options(String facet) {
+        return List.copyOf(facets.getOrDefault(facet, Map.of()).keySet());
+    }
+
+    public long count(String facet, String value) {
+        return facets.getOrDefault(facet, Map.of()).getOrDefault(value, 0L);
+    }
+
+    /**
+     * One price facet value; the filter form maps it to minPrice/maxPrice.
+     */
+    public record PriceBucket(String label, BigDecimal min, BigDecimal max) {
+
+        public boolean contains(BigDecimal price) {
+            return price != null && price.compareTo(min) >= 0 && (max == null || price.compareTo(max) < 0);
+        }
+
+        // O maxPrice do filtro é inclusivo: o cêntimo antes do limite do escalão
+        public BigDecimal filterMax() {
+            return max == null ? null : max.subtract(new BigDecimal("0.01"));
+        }
+
+        public static PriceBucket of(BigDecimal price) {
+            for (PriceBucket bucket : PRICE_BUCKETS) {
+                if (bucket.contains(price)) {
+                    return bucket;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -4,12 +4,23 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+import java.util.List;
 
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class ItemFilterDTO {
+
+    // Ordenação do catálogo (null = por nome)
+    public static final String SORT_NAME = "name";
+    public static final String SORT_PRICE_ASC = "price_asc";
+    public static final String SORT_PRICE_DESC = "price_desc";
+    public static final List<String> SORTS = List.of(SORT_NAME, SORT_PRICE_ASC, SORT_PRICE_DESC);
+
     private String color;
     private String brand;
     private String material;
@@ -19,6 +30,31 @@ public class ItemFilterDTO {
     private String shopLocation;
     private String subcategory;
     private String size;
+    @DateTimeFormat(pattern = "yyyy-MM-dd")
+    private LocalDate startUseDate;
+    @DateTimeFormat(pattern = "yyyy-MM-dd")
+    private LocalDate endUseDate;
+    private String sort;
+
+    /** Both use dates are set, so the catalog only shows items with a free unit in that window. */
+    public boolean hasDateWindow() {
+        return startUseDate != null && endUseDate != null;
+    }
+
+    /** Pickup day of the window (day before use), as the booking flow stores it. */
+    public LocalDate getPickupDate() {
+        return hasDateWindow() ? startUseDate.minusDays(1) : null;
+    }
+
+    /** Return day of the window (day after use), as the booking flow stores it. */
+    public LocalDate getReturnDate() {
+        return hasDateWindow() ? endUseDate.plusDays(1) : null;
+    }
+
+    /** Catalog order, one of {@link #SORTS}; by name when unset or unknown. */
+    public String getSortOrDefault() {
+        return sort != null && SORTS.contains(sort) ? sort : SORT_NAME;
+    }
 
     public boolean hasFilters() {
         return (color != null && !color.isEmpty()) ||
@@ -29,6 +65,7 @@ public class ItemFilterDTO {
                 (shopLocation != null && !shopLocation.isEmpty()) ||
                 (size != null && !size.isEmpty()) ||
                 minPrice != null ||
-                maxPrice != null;
+                maxPrice != null ||
+                hasDateWindow();
     }
 }
\ No newline at end of file
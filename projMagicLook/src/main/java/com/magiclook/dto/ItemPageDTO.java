@@ -0,0 +1,42 @@
+package com.magiclook.dto;
+
+import com.magiclook.data.Item;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * One keyset page of the catalog, ordered by (name, itemId) or (priceRent, itemId)
+ * as chosen by {@link ItemFilterDTO#getSort()}. The next page starts after the last
+ * item of this one.
+ */
+public class ItemPageDTO {
+
+    private final List<Item> items;
+    private final boolean hasNext;
+
+    public ItemPageDTO(List<Item> items, boolean hasNext) {
+        this.items = items;
+        this.hasNext = hasNext;
+    }
+
+    public List<Item> getItems() { return items; }
+    public boolean isHasNext() { return hasNext; }
+
+    // Cursor da próxima página (null quando esta é a última)
+    public Integer getNextId() {
+        return hasNext ? last().getItemId() : null;
+    }
+
+    public String getNextName() {
+        return hasNext ? last().getName() : null;
+    }
+
+    public BigDecimal getNextPrice() {
+        return hasNext ? last().getPriceRent() : null;
+    }
+
+    private Item last() {
+        return items.get(items.size() - 1);
+    }
+}
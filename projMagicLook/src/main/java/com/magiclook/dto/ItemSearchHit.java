@@ -0,0 +1,45 @@
+package com.magiclook.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * One ranked result of the item text search, as returned by /magiclook/api/search.
+ */
+public class ItemSearchHit {
+
+    private final Integer itemId;
+    private final String name;
+    private final String brand;
+    private final String color;
+    private final String material;
+    private final String category;
+    private final String gender;
+    private final BigDecimal priceRent;
+    private final String imagePath;
+    private final double score;
+
+    public ItemSearchHit(Integer itemId, String name, String brand, String color, String material, String category,
+                         String gender, BigDecimal priceRent, String imagePath, double score) {
+        this.itemId = itemId;
+        this.name = name;
+        this.brand = brand;
+        this.color = color;
+        this.material = material;
+        this.category = category;
+        this.gender = gender;
+        this.priceRent = priceRent;
+        this.imagePath = imagePath;
+        this.score = score;
+    }
+
+    public Integer getItemId() { return itemId; }
+    public String getName() { return name; }
+    public String getBrand() { return brand; }
+    public String getColor() { return color; }
+    public String getMaterial() { return material; }
+    public String getCategory() { return category; }
+    public String getGender() { return gender; }
+    public BigDecimal getPriceRent() { return priceRent; }
+    public String getImagePath() { return imagePath; }
+    public double getScore() { return score; }
+}
@@ -0,0 +1,19 @@
+package com.magiclook.dto;
+
+public class SizeAvailabilityDTO {
+    private String size;
+    private long freeUnits;
+
+    public SizeAvailabilityDTO() {}
+
+    public SizeAvailabilityDTO(String size, long freeUnits) {
+        this.size = size;
+        this.freeUnits = freeUnits;
+    }
+
+    public String getSize() { return size; }
+    public void setSize(String size) { this.size = size; }
+
+    public long getFreeUnits() { return freeUnits; }
+    public void setFreeUnits(long freeUnits) { this.freeUnits = freeUnits; }
+}
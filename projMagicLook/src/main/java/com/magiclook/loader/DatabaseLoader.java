@@ -412,10 +412,10 @@ public class DatabaseLoader {
                         java.time.LocalDate day3 = day1.plusDays(2);
                         java.time.LocalDate day4 = day1.plusDays(3);
                         Booking booking1 = new Booking(
-                                        java.sql.Date.valueOf(day1),
-                                        java.sql.Date.valueOf(day2),
-                                        java.sql.Date.valueOf(day3),
-                                        java.sql.Date.valueOf(day4),
+                                        day1,
+                                        day2,
+                                        day3,
+                                        day4,
                                         "RESERVED",
                                         item1,
                                         userRepository.findByUsername("maria"));
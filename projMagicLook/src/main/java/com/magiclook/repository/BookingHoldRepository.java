@@ -0,0 +1,37 @@
+package com.magiclook.repository;
+
+import com.magiclook.data.BookingHold;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface BookingHoldRepository extends JpaRepository<BookingHold, UUID> {
+    // Holds ainda válidos do item que se sobrepõem a [pickupDate, returnDate], de qualquer nó
+    @Query("SELECT h FROM BookingHold h WHERE h.itemId = :itemId AND h.expiresAt > :now " +
+           "AND h.pickupDate <= :returnDate AND h.returnDate >= :pickupDate")
+    List<BookingHold> findActiveOverlapping(@Param("itemId") Integer itemId,
+                                            @Param("pickupDate") LocalDate pickupDate,
+                                            @Param("returnDate") LocalDate returnDate,
+                                            @Param("now") Date now);
+
+    Optional<BookingHold> findFirstByUserIdAndItemIdAndExpiresAtAfter(UUID userId, Integer itemId, Date now);
+
+    long countByUserIdAndExpiresAtAfter(UUID userId, Date now);
+
+    long countByExpiresAtAfter(Date now);
+
+    // Um lote de holds expirados, mais antigos primeiro
+    @Query("SELECT h.holdId FROM BookingHold h WHERE h.expiresAt <= :now ORDER BY h.expiresAt")
+    List<UUID> findExpiredIds(@Param("now") Date now, Limit limit);
+
+    List<BookingHold> findByUserIdAndItemId(UUID userId, Integer itemId);
+}
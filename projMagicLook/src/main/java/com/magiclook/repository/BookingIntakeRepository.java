@@ -0,0 +1,25 @@
+package com.magiclook.repository;
+
+import com.magiclook.data.BookingIntake;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface BookingIntakeRepository extends JpaRepository<BookingIntake, UUID> {
+    // Pedidos por processar, mais antigos primeiro (recuperação após reinício)
+    List<BookingIntake> findByStatusOrderByCreatedAtAsc(String status, Limit limit);
+
+    // Impede que dois workers (ou dois nós) processem o mesmo pedido
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT bi FROM BookingIntake bi WHERE bi.intakeId = :intakeId")
+    Optional<BookingIntake> lockById(@Param("intakeId") UUID intakeId);
+}
@@ -1,14 +1,20 @@
 package com.magiclook.repository;
 
 import org.springframework.stereotype.Repository;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.util.UUID;
-import java.util.Date;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import com.magiclook.data.*;
+import com.magiclook.dto.BookedIntervalDTO;
 
 @Repository
 public interface BookingRepository extends JpaRepository<Booking, UUID> {
@@ -17,34 +23,94 @@ public interface BookingRepository extends JpaRepository<Booking, UUID> {
 
        List<Booking> findByUserOrderByCreatedAtDesc(User user);
 
+       // Página de detalhe: item com loja e tipo, unidade e utilizador numa só query
+       @EntityGraph(Booking.GRAPH_DETAILS)
+       Optional<Booking> findWithDetailsByBookingId(UUID bookingId);
+
+       // Lista "As minhas reservas": pesquisa, ordenação e paginação por keyset (startUseDate, bookingId) na query.
+       // Sem cursor (afterId null) devolve a primeira página; datas nulas ficam no fim
+       String USER_BOOKINGS_PAGE = "SELECT b FROM Booking b LEFT JOIN b.item i WHERE b.user = :user " +
+                     "AND (:search IS NULL OR LOWER(i.name) LIKE CONCAT('%', :search, '%')) " +
+                     "AND (:afterId IS NULL " +
+                     "OR (:afterStart IS NOT NULL AND (b.startUseDate < :afterStart " +
+                     "OR (b.startUseDate = :afterStart AND b.bookingId < :afterId) OR b.startUseDate IS NULL)) " +
+                     "OR (:afterStart IS NULL AND b.startUseDate IS NULL AND b.bookingId < :afterId)) ";
+       String USER_BOOKINGS_ORDER = "ORDER BY b.startUseDate DESC NULLS LAST, b.bookingId DESC";
+
+       @EntityGraph(Booking.GRAPH_LIST)
+       @Query(USER_BOOKINGS_PAGE + USER_BOOKINGS_ORDER)
+       List<Booking> findUserBookingsPage(@Param("user") User user,
+                     @Param("search") String search,
+                     @Param("afterStart") LocalDate afterStart,
+                     @Param("afterId") UUID afterId,
+                     Limit limit);
+
+       // Igual, restrita aos estados persistidos indicados (filtros Ativas/Passadas)
+       @EntityGraph(Booking.GRAPH_LIST)
+       @Query(USER_BOOKINGS_PAGE + "AND b.state IN :states " + USER_BOOKINGS_ORDER)
+       List<Booking> findUserBookingsPageByStates(@Param("user") User user,
+                     @Param("states") Collection<String> states,
+                     @Param("search") String search,
+                     @Param("afterStart") LocalDate afterStart,
+                     @Param("afterId") UUID afterId,
+                     Limit limit);
+
+       // Transições de estado em bloco (mesma regra que Booking.stateOn); CANCELLED e COMPLETED são finais,
+       // por isso só uma reserva RETURNED passa a COMPLETED e as outras ficam ACTIVE até à data de devolução
+       @Modifying
+       @Query("UPDATE Booking b SET b.state = 'CONFIRMED' " +
+                     "WHERE (b.state IS NULL OR b.state NOT IN ('CANCELLED', 'COMPLETED', 'CONFIRMED')) " +
+                     "AND b.startUseDate > :today")
+       int markConfirmed(@Param("today") LocalDate today);
+
+       @Modifying
+       @Query("UPDATE Booking b SET b.state = 'ACTIVE' " +
+                     "WHERE (b.state IS NULL OR b.state NOT IN ('CANCELLED', 'COMPLETED', 'ACTIVE')) " +
+                     "AND b.startUseDate <= :today AND (b.endUseDate >= :today " +
+                     "OR (b.returnDate >= :today AND (b.state IS NULL OR b.state != 'RETURNED')))")
+       int markActive(@Param("today") LocalDate today);
+
+       @Modifying
+       @Query("UPDATE Booking b SET b.state = 'COMPLETED' " +
+                     "WHERE b.state = 'RETURNED' AND b.endUseDate < :today")
+       int markCompleted(@Param("today") LocalDate today);
+
+       @Modifying
+       @Query("UPDATE Booking b SET b.state = 'OVERDUE' " +
+                     "WHERE (b.state IS NULL OR b.state NOT IN ('CANCELLED', 'COMPLETED', 'RETURNED', 'OVERDUE')) " +
+                     "AND b.endUseDate < :today AND b.returnDate < :today")
+       int markOverdue(@Param("today") LocalDate today);
+
        @Query("SELECT COUNT(b) FROM Booking b WHERE b.item.itemId = :itemId " +
                      "AND b.state != 'CANCELLED' " +
                      "AND ((b.pickupDate <= :returnDate AND b.returnDate >= :pickupDate) OR " +
                      "(b.startUseDate <= :endUseDate AND b.endUseDate >= :startUseDate))")
        Long countOverlappingBookings(@Param("itemId") Integer itemId,
-                     @Param("pickupDate") Date pickupDate,
-                     @Param("startUseDate") Date startUseDate,
-                     @Param("endUseDate") Date endUseDate,
-                     @Param("returnDate") Date returnDate);
+                     @Param("pickupDate") LocalDate pickupDate,
+                     @Param("startUseDate") LocalDate startUseDate,
+                     @Param("endUseDate") LocalDate endUseDate,
+                     @Param("returnDate") LocalDate returnDate);
 
+       // Lista de conflitos: mostra o tamanho da unidade de cada reserva
+       @EntityGraph(attributePaths = "itemSingle")
        @Query("SELECT b FROM Booking b WHERE b.item.itemId = :itemId " +
                      "AND b.state != 'CANCELLED' " +
                      "AND ((b.pickupDate <= :laundryDate AND b.returnDate >= :pickupDate) " +
                      "OR (b.startUseDate <= :endUseDate AND b.endUseDate >= :startUseDate))")
        List<Booking> findOverlappingBookings(
                      @Param("itemId") Integer itemId,
-                     @Param("pickupDate") Date pickupDate,
-                     @Param("startUseDate") Date startUseDate,
-                     @Param("endUseDate") Date endUseDate,
-                     @Param("laundryDate") Date laundryDate);
+                     @Param("pickupDate") LocalDate pickupDate,
+                     @Param("startUseDate") LocalDate startUseDate,
+                     @Param("endUseDate") LocalDate endUseDate,
+                     @Param("laundryDate") LocalDate laundryDate);
 
        @Query("SELECT COUNT(b) FROM Booking b WHERE b.item.itemId = :itemId " +
                      "AND b.state != 'CANCELLED' " +
                      "AND NOT (b.endUseDate < :startUseDate OR b.startUseDate > :endUseDate)")
        Long countOverlappingSimple(
                      @Param("itemId") Integer itemId,
-                     @Param("startUseDate") Date startUseDate,
-                     @Param("endUseDate") Date endUseDate);
+                     @Param("startUseDate") LocalDate startUseDate,
+                     @Param("endUseDate") LocalDate endUseDate);
 
        @Query("SELECT COUNT(b) FROM Booking b WHERE b.itemSingle.id = :itemSingleId " +
                      "AND b.state != 'CANCELLED' " +
@@ -52,10 +118,10 @@ public interface BookingRepository extends JpaRepository<Booking, UUID> {
                      "(b.startUseDate <= :endUseDate AND b.endUseDate >= :startUseDate))")
        Long countOverlappingBookingsForItemSingle(
                      @Param("itemSingleId") UUID itemSingleId,
-                     @Param("pickupDate") Date pickupDate,
-                     @Param("startUseDate") Date startUseDate,
-                     @Param("endUseDate") Date endUseDate,
-                     @Param("returnDate") Date returnDate);
+                     @Param("pickupDate") LocalDate pickupDate,
+                     @Param("startUseDate") LocalDate startUseDate,
+                     @Param("endUseDate") LocalDate endUseDate,
+                     @Param("returnDate") LocalDate returnDate);
 
        @Query("SELECT b FROM Booking b WHERE b.itemSingle = :itemSingle " +
                      "AND b.state != 'CANCELLED' " +
@@ -63,8 +129,25 @@ public interface BookingRepository extends JpaRepository<Booking, UUID> {
                      "OR (b.startUseDate <= :endUseDate AND b.endUseDate >= :startUseDate))")
        List<Booking> findOverlappingBookingsForItemSingle(
                      @Param("itemSingle") ItemSingle itemSingle,
-                     @Param("pickupDate") Date pickupDate,
-                     @Param("startUseDate") Date startUseDate,
-                     @Param("endUseDate") Date endUseDate,
-                     @Param("laundryDate") Date laundryDate);
+                     @Param("pickupDate") LocalDate pickupDate,
+                     @Param("startUseDate") LocalDate startUseDate,
+                     @Param("endUseDate") LocalDate endUseDate,
+                     @Param("laundryDate") LocalDate laundryDate);
+
+       // Intervalos pickup → return das reservas ativas com unidade atribuída (para o índice de disponibilidade);
+       // reservas já devolvidas antes de :from não contam para nenhuma janela futura
+       @Query("SELECT new com.magiclook.dto.BookedIntervalDTO(b.bookingId, b.itemSingle.id, b.itemSingle.item.itemId, b.pickupDate, b.returnDate) " +
+                     "FROM Booking b WHERE b.itemSingle IS NOT NULL AND b.state != 'CANCELLED' AND b.returnDate >= :from")
+       List<BookedIntervalDTO> findActiveIntervals(@Param("from") LocalDate from);
+
+       @Query("SELECT new com.magiclook.dto.BookedIntervalDTO(b.bookingId, b.itemSingle.id, b.itemSingle.item.itemId, b.pickupDate, b.returnDate) " +
+                     "FROM Booking b WHERE b.itemSingle.item.itemId = :itemId AND b.state != 'CANCELLED' " +
+                     "AND b.returnDate >= :from")
+       List<BookedIntervalDTO> findActiveIntervalsByItemId(@Param("itemId") Integer itemId, @Param("from") LocalDate from);
+
+       @Query("SELECT new com.magiclook.dto.BookedIntervalDTO(b.bookingId, b.itemSingle.id, b.itemSingle.item.itemId, b.pickupDate, b.returnDate) " +
+                     "FROM Booking b WHERE b.itemSingle.item.itemId IN :itemIds AND b.state != 'CANCELLED' " +
+                     "AND b.returnDate >= :from")
+       List<BookedIntervalDTO> findActiveIntervalsByItemIds(@Param("itemIds") Collection<Integer> itemIds,
+                     @Param("from") LocalDate from);
 }
\ No newline at end of file
@@ -5,11 +5,14 @@ import com.magiclook.data.Shop;
 import com.magiclook.dto.ItemFilterDTO;
 import com.magiclook.dto.ItemDTO;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,6 +24,8 @@ public interface ItemRepository extends JpaRepository<Item, Integer> {
                         String color,
                         String brand);
 
+        // Lista de artigos do staff: loja e tipo na mesma query
+        @EntityGraph(Item.GRAPH_CATALOG)
         List<Item> findByShop(Shop shop);
 
         @Query("SELECT i FROM Item i WHERE i.itemType.gender = :gender")
@@ -53,11 +58,107 @@ public interface ItemRepository extends JpaRepository<Item, Integer> {
                         "AND isg.state = 'AVAILABLE' " +
                         "AND (:#{#filter.shopLocation} IS NULL OR i.shop.location = :#{#filter.shopLocation}) " +
                         "AND (:#{#filter.minPrice} IS NULL OR i.priceRent >= :#{#filter.minPrice}) " +
-                        "AND (:#{#filter.maxPrice} IS NULL OR i.priceRent <= :#{#filter.maxPrice})")
+                        "AND (:#{#filter.maxPrice} IS NULL OR i.priceRent <= :#{#filter.maxPrice}) " +
+                        // Anti-join: a unidade tem de estar livre em toda a janela escolhida
+                        "AND (:#{#filter.pickupDate} IS NULL OR NOT EXISTS (SELECT b FROM Booking b " +
+                        "WHERE b.itemSingle = isg AND b.state != 'CANCELLED' " +
+                        "AND ((b.pickupDate <= :#{#filter.returnDate} AND b.returnDate >= :#{#filter.pickupDate}) " +
+                        "OR (b.startUseDate <= :#{#filter.endUseDate} AND b.endUseDate >= :#{#filter.startUseDate}))))")
         List<Item> findByGenderAndFilters(
                         @Param("gender") String gender,
                         @Param("filter") ItemFilterDTO filter);
 
+        // Catálogo paginado por keyset: mesmos filtros que findByGenderAndFilters, um artigo por linha
+        // (unidades num EXISTS) e a página seguinte começa depois do cursor. Sem cursor (afterId null)
+        // devolve a primeira página; nome e preço de aluguer são obrigatórios, por isso nunca nulos
+        String CATALOG_PAGE = "SELECT i FROM Item i JOIN i.itemType t LEFT JOIN i.shop s " +
+                        "WHERE t.gender = :gender " +
+                        "AND (:#{#filter.color} IS NULL OR i.color = :#{#filter.color}) " +
+                        "AND (:#{#filter.brand} IS NULL OR i.brand = :#{#filter.brand}) " +
+                        "AND (:#{#filter.material} IS NULL OR i.material = :#{#filter.material}) " +
+                        "AND (:#{#filter.category} IS NULL OR t.category = :#{#filter.category}) " +
+                        "AND (:#{#filter.subcategory} IS NULL OR t.subcategory = :#{#filter.subcategory}) " +
+                        "AND (:#{#filter.shopLocation} IS NULL OR s.location = :#{#filter.shopLocation}) " +
+                        "AND (:#{#filter.minPrice} IS NULL OR i.priceRent >= :#{#filter.minPrice}) " +
+                        "AND (:#{#filter.maxPrice} IS NULL OR i.priceRent <= :#{#filter.maxPrice}) " +
+                        "AND EXISTS (SELECT isg FROM ItemSingle isg WHERE isg.item = i " +
+                        "AND isg.state = 'AVAILABLE' " +
+                        "AND (:#{#filter.size} IS NULL OR isg.size = :#{#filter.size}) " +
+                        "AND (:#{#filter.pickupDate} IS NULL OR NOT EXISTS (SELECT b FROM Booking b " +
+                        "WHERE b.itemSingle = isg AND b.state != 'CANCELLED' " +
+                        "AND ((b.pickupDate <= :#{#filter.returnDate} AND b.returnDate >= :#{#filter.pickupDate}) " +
+                        "OR (b.startUseDate <= :#{#filter.endUseDate} AND b.endUseDate >= :#{#filter.startUseDate}))))) ";
+
+        // Ordenado por (name, itemId)
+        @Query(CATALOG_PAGE +
+                        "AND (:afterId IS NULL OR i.name > :afterName " +
+                        "OR (i.name = :afterName AND i.itemId > :afterId)) " +
+                        "ORDER BY i.name, i.itemId")
+        List<Item> findCatalogPageByName(@Param("gender") String gender,
+                        @Param("filter") ItemFilterDTO filter,
+                        @Param("afterName") String afterName,
+                        @Param("afterId") Integer afterId,
+                        Limit limit);
+
+        // Ordenado por (priceRent, itemId), do mais barato para o mais caro
+        @Query(CATALOG_PAGE +
+                        "AND (:afterId IS NULL OR i.priceRent > :afterPrice " +
+                        "OR (i.priceRent = :afterPrice AND i.itemId > :afterId)) " +
+                        "ORDER BY i.priceRent, i.itemId")
+        List<Item> findCatalogPageByPrice(@Param("gender") String gender,
+                        @Param("filter") ItemFilterDTO filter,
+                        @Param("afterPrice") BigDecimal afterPrice,
+                        @Param("afterId") Integer afterId,
+                        Limit limit);
+
+        // Ordenado por (priceRent, itemId) descendente, do mais caro para o mais barato
+        @Query(CATALOG_PAGE +
+                        "AND (:afterId IS NULL OR i.priceRent < :afterPrice " +
+                        "OR (i.priceRent = :afterPrice AND i.itemId < :afterId)) " +
+                        "ORDER BY i.priceRent DESC, i.itemId DESC")
+        List<Item> findCatalogPageByPriceDesc(@Param("gender") String gender,
+                        @Param("filter") ItemFilterDTO filter,
+                        @Param("afterPrice") BigDecimal afterPrice,
+                        @Param("afterId") Integer afterId,
+                        Limit limit);
+
+        // Pesquisa facetada: uma linha {id, cor, marca, material, preço, categoria, subcategoria,
+        // localização, tamanho} por artigo e tamanho com unidades disponíveis e livres na janela;
+        // os restantes filtros e as contagens são feitos em memória
+        @Query("SELECT i.itemId, i.color, i.brand, i.material, i.priceRent, " +
+                        "t.category, t.subcategory, s.location, isg.size FROM ItemSingle isg " +
+                        "JOIN isg.item i " +
+                        "JOIN i.itemType t " +
+                        "LEFT JOIN i.shop s " +
+                        "WHERE t.gender = :gender " +
+                        "AND isg.state = 'AVAILABLE' " +
+                        "AND (:#{#filter.pickupDate} IS NULL OR NOT EXISTS (SELECT b FROM Booking b " +
+                        "WHERE b.itemSingle = isg AND b.state != 'CANCELLED' " +
+                        "AND ((b.pickupDate <= :#{#filter.returnDate} AND b.returnDate >= :#{#filter.pickupDate}) " +
+                        "OR (b.startUseDate <= :#{#filter.endUseDate} AND b.endUseDate >= :#{#filter.startUseDate})))) " +
+                        "GROUP BY i.itemId, i.color, i.brand, i.material, i.priceRent, " +
+                        "t.category, t.subcategory, s.location, isg.size " +
+                        "ORDER BY i.itemId")
+        List<Object[]> findCatalogRowsByGender(
+                        @Param("gender") String gender,
+                        @Param("filter") ItemFilterDTO filter);
+
+        // Índice do catálogo: {artigo com tipo e loja, tamanho} por unidade disponível, ou uma linha
+        // com tamanho null para artigos sem nenhuma
+        @Query("SELECT i, isg.size FROM Item i " +
+                        "JOIN FETCH i.itemType " +
+                        "LEFT JOIN FETCH i.shop " +
+                        "LEFT JOIN i.itemSingles isg ON isg.state = 'AVAILABLE' " +
+                        "ORDER BY i.itemId")
+        List<Object[]> findIndexRows();
+
+        @Query("SELECT i, isg.size FROM Item i " +
+                        "JOIN FETCH i.itemType " +
+                        "LEFT JOIN FETCH i.shop " +
+                        "LEFT JOIN i.itemSingles isg ON isg.state = 'AVAILABLE' " +
+                        "WHERE i.itemId = :itemId")
+        List<Object[]> findIndexRowsByItemId(@Param("itemId") Integer itemId);
+
         @Query("SELECT i FROM Item i WHERE i.name = :#{#itemDTO.name} " +
                         "AND i.material = :#{#itemDTO.material} " +
                         "AND i.color = :#{#itemDTO.color} " +
@@ -1,12 +1,22 @@
 package com.magiclook.repository;
 
 import com.magiclook.data.ItemSingle;
+import com.magiclook.data.Shop;
+import com.magiclook.dto.SizeAvailabilityDTO;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
@@ -14,12 +24,79 @@ public interface ItemSingleRepository extends JpaRepository<ItemSingle, UUID> {
 
     List<ItemSingle> findByItem_ItemId(Integer itemId);
 
+    List<ItemSingle> findByItem_ItemIdIn(Collection<Integer> itemIds);
+
+    @Query("SELECT DISTINCT i.item.itemId FROM ItemSingle i")
+    List<Integer> findItemIds();
+
     void deleteByItem_ItemIdAndSize(Integer itemId, String size);
     
     // Adicionar estas queries se necessário para melhor performance
     @Query("SELECT DISTINCT i.size FROM ItemSingle i WHERE i.item.itemId = :itemId AND i.state = 'AVAILABLE'")
     List<String> findDistinctAvailableSizesByItemId(@Param("itemId") Integer itemId);
     
+    // Tamanhos distintos de cada artigo da loja, numa única query (lista de artigos do staff)
+    @Query("SELECT DISTINCT i.item.itemId, i.size FROM ItemSingle i WHERE i.item.shop = :shop ORDER BY i.item.itemId, i.size")
+    List<Object[]> findSizesByShop(@Param("shop") Shop shop);
+
     @Query("SELECT i.size, COUNT(i) FROM ItemSingle i WHERE i.item.itemId = :itemId AND i.state = 'AVAILABLE' GROUP BY i.size")
     List<Object[]> countAvailableBySize(@Param("itemId") Integer itemId);
+
+    // SELECT ... FOR UPDATE: serializa reservas da mesma unidade quando a BD não tem exclusion constraint
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT i FROM ItemSingle i WHERE i.id = :id")
+    Optional<ItemSingle> lockById(@Param("id") UUID id);
+
+    // Modo otimista: só incrementa se ninguém alocou a unidade desde que foi lida (0 linhas = conflito)
+    @Modifying
+    @Query("UPDATE ItemSingle i SET i.version = i.version + 1 WHERE i.id = :id AND i.version = :version")
+    int incrementVersion(@Param("id") UUID id, @Param("version") Long version);
+
+    // Unidades AVAILABLE (opcionalmente de um tamanho) sem reservas sobrepostas, numa única query (anti-join)
+    @Query("SELECT isg FROM ItemSingle isg WHERE isg.item.itemId = :itemId " +
+            "AND isg.state = 'AVAILABLE' " +
+            "AND (:size IS NULL OR isg.size = :size) " +
+            "AND NOT EXISTS (SELECT b FROM Booking b WHERE b.itemSingle = isg " +
+            "AND b.state != 'CANCELLED' " +
+            "AND ((b.pickupDate <= :returnDate AND b.returnDate >= :pickupDate) OR " +
+            "(b.startUseDate <= :endUseDate AND b.endUseDate >= :startUseDate))) " +
+            "ORDER BY isg.id")
+    List<ItemSingle> findFreeUnits(@Param("itemId") Integer itemId,
+            @Param("size") String size,
+            @Param("pickupDate") LocalDate pickupDate,
+            @Param("startUseDate") LocalDate startUseDate,
+            @Param("endUseDate") LocalDate endUseDate,
+            @Param("returnDate") LocalDate returnDate,
+            Limit limit);
+
+    // Unidades livres de vários itens de uma vez (reserva de conjuntos): uma query para todo o pedido
+    @EntityGraph(attributePaths = "item")
+    @Query("SELECT isg FROM ItemSingle isg WHERE isg.item.itemId IN :itemIds " +
+            "AND isg.state = 'AVAILABLE' " +
+            "AND NOT EXISTS (SELECT b FROM Booking b WHERE b.itemSingle = isg " +
+            "AND b.state != 'CANCELLED' " +
+            "AND ((b.pickupDate <= :returnDate AND b.returnDate >= :pickupDate) OR " +
+            "(b.startUseDate <= :endUseDate AND b.endUseDate >= :startUseDate))) " +
+            "ORDER BY isg.item.itemId, isg.id")
+    List<ItemSingle> findFreeUnitsForItems(@Param("itemIds") Collection<Integer> itemIds,
+            @Param("pickupDate") LocalDate pickupDate,
+            @Param("startUseDate") LocalDate startUseDate,
+            @Param("endUseDate") LocalDate endUseDate,
+            @Param("returnDate") LocalDate returnDate);
+
+    // Unidades livres por tamanho (tamanho null = "Único") para uma janela de datas, numa única query
+    @Query("SELECT new com.magiclook.dto.SizeAvailabilityDTO(COALESCE(isg.size, 'Único'), COUNT(isg)) " +
+            "FROM ItemSingle isg WHERE isg.item.itemId = :itemId " +
+            "AND isg.state = 'AVAILABLE' " +
+            "AND NOT EXISTS (SELECT b FROM Booking b WHERE b.itemSingle = isg " +
+            "AND b.state != 'CANCELLED' " +
+            "AND ((b.pickupDate <= :returnDate AND b.returnDate >= :pickupDate) OR " +
+            "(b.startUseDate <= :endUseDate AND b.endUseDate >= :startUseDate))) " +
+            "GROUP BY isg.size " +
+            "ORDER BY isg.size")
+    List<SizeAvailabilityDTO> countFreeUnitsBySize(@Param("itemId") Integer itemId,
+            @Param("pickupDate") LocalDate pickupDate,
+            @Param("startUseDate") LocalDate startUseDate,
+            @Param("endUseDate") LocalDate endUseDate,
+            @Param("returnDate") LocalDate returnDate);
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.magiclook.repository;
 
 import com.magiclook.data.Staff;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 import java.util.UUID;
@@ -8,7 +9,10 @@ import java.util.Optional;
 
 @Repository
 public interface StaffRepository extends JpaRepository<Staff, UUID> {
+    // O staff fica na sessão HTTP: a loja tem de vir carregada no login
+    @EntityGraph(attributePaths = "shop")
     Optional<Staff> findByEmail(String email);
+    @EntityGraph(attributePaths = "shop")
     Optional<Staff> findByUsername(String username);
     boolean existsByEmail(String email);
     boolean existsByUsername(String username);
@@ -0,0 +1,35 @@
+package com.magiclook.repository;
+
+import com.magiclook.data.User;
+import com.magiclook.data.WaitlistEntry;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface WaitlistRepository extends JpaRepository<WaitlistEntry, UUID> {
+    // Fila de um item, por ordem de chegada (com o utilizador para criar a reserva e a notificação)
+    @EntityGraph(attributePaths = "user")
+    List<WaitlistEntry> findByItemIdAndStatusOrderByCreatedAtAsc(Integer itemId, String status, Limit limit);
+
+    // Itens com alguém à espera (recuperação periódica)
+    @Query("SELECT DISTINCT w.itemId FROM WaitlistEntry w WHERE w.status = 'WAITING'")
+    List<Integer> findWaitingItemIds();
+
+    // Tamanho nulo é comparado com IS NULL (pedido sem tamanho)
+    boolean existsByUserAndItemIdAndSizeAndStatusAndStartUseDateAndEndUseDate(User user, Integer itemId, String size,
+            String status, LocalDate startUseDate, LocalDate endUseDate);
+
+    // Pedidos cujo início já passou deixam de poder ser atendidos
+    @Modifying
+    @Query("UPDATE WaitlistEntry w SET w.status = 'EXPIRED' WHERE w.status = 'WAITING' AND w.startUseDate <= :today")
+    int expireStarted(@Param("today") LocalDate today);
+}
@@ -0,0 +1,625 @@
+package com.magiclook.service;
+
+import com.magiclook.data.Booking;
+import com.magiclook.data.ItemSingle;
+import com.magiclook.dto.BookedIntervalDTO;
+import com.magiclook.dto.DateRangeDTO;
+import com.magiclook.repository.BookingRepository;
+import com.magiclook.repository.ItemSingleRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory availability index, one sorted interval array per ItemSingle:
+ * - Holds the pickup → return interval of every non-cancelled booking, sorted by
+ *   start with a running max of the ends, so "is this unit free" is a binary search
+ * - Warmed from the database once the application is ready and updated after
+ *   each booking/stock change commits (never with uncommitted data)
+ * - Only answers availability reads; allocation still re-validates against the
+ *   database under the item lock, so a briefly stale index can't double-book
+ * - Only bookings returned today or later are loaded; past ones never affect a new window
+ * - A periodic consistency check diffs the index against the database item by item
+ *   (in batches), reports the number of drifted units as a gauge and reloads the affected items
+ * - Each unit also keeps a day bitmap over a rolling horizon; the calendar's
+ *   "no unit free" days are the AND of the bitmaps of the matching units
+ */
+@Component
+public class AvailabilityIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(AvailabilityIndex.class);
+
+    // Horizonte do bitmap de dias de cada unidade (~6 meses, 3 longs por unidade)
+    private static final int HORIZON_DAYS = 192;
+
+    // Itens comparados por lote na verificação de consistência
+    private static final int CHECK_BATCH = 100;
+
+    // Tentativas de um reload que perde a corrida com uma atualização concorrente
+    private static final int RELOAD_ATTEMPTS = 3;
+
+    private final BookingRepository bookingRepository;
+    private final ItemSingleRepository itemSingleRepository;
+
+    private final Map<Integer, ItemCalendar> items = new ConcurrentHashMap<>();
+    private final AtomicLong drift = new AtomicLong();
+
+    private volatile boolean ready;
+
+    public AvailabilityIndex(BookingRepository bookingRepository, ItemSingleRepository itemSingleRepository,
+                             MeterRegistry registry) {
+        this.bookingRepository = bookingRepository;
+        this.itemSingleRepository = itemSingleRepository;
+
+        Gauge.builder("booking.availability.index.drift", drift, AtomicLong::get)
+                .description("Units whose indexed bookings differed from the database at the last check")
+                .register(registry);
+        Gauge.builder("booking.availability.index.units", this, AvailabilityIndex::getIndexedUnits)
+                .description("ItemSingle units held in the availability index")
+                .register(registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            // putIfAbsent: um reload feito entretanto (após commit) é mais recente que esta carga
+            loadAll().forEach(items::putIfAbsent);
+            ready = true;
+            logger.info("Availability index ready with {} items and {} units", items.size(), getIndexedUnits());
+        } catch (RuntimeException e) {
+            // Sem índice as verificações continuam a ir à base de dados
+            logger.warn("Could not warm availability index, using database checks: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * True when the index can answer for this item; otherwise callers use the database.
+     */
+    public boolean covers(Integer itemId) {
+        return ready && itemId != null && items.containsKey(itemId);
+    }
+
+    /**
+     * Whether some AVAILABLE unit of the item (of the given size, or any size when null)
+     * has no booking overlapping [pickupDate, returnDate].
+     */
+    public boolean hasFreeUnit(Integer itemId, String size, LocalDate pickupDate, LocalDate returnDate) {
+        ItemCalendar calendar = items.get(itemId);
+        return calendar != null && calendar.hasFreeUnit(size, pickupDate.toEpochDay(), returnDate.toEpochDay());
+    }
+
+    /**
+     * Number of AVAILABLE units of the item (of the given size, or any size when null)
+     * with no booking overlapping [pickupDate, returnDate].
+     */
+    public int countFreeUnits(Integer itemId, String size, LocalDate pickupDate, LocalDate returnDate) {
+        ItemCalendar calendar = items.get(itemId);
+        return calendar == null ? 0 : calendar.countFreeUnits(size, pickupDate.toEpochDay(), returnDate.toEpochDay());
+    }
+
+    /**
+     * Records a created, updated or cancelled booking once the current transaction commits.
+     */
+    public void bookingChanged(Booking booking) {
+        if (booking == null || booking.getBookingId() == null || booking.getItem() == null) {
+            return;
+        }
+        Integer itemId = booking.getItem().getItemId();
+        UUID bookingId = booking.getBookingId();
+
+        // Copiar os valores já: a entidade pode mudar até ao commit
+        BookedIntervalDTO interval = isActive(booking)
+                ? new BookedIntervalDTO(bookingId, booking.getItemSingle().getId(), itemId,
+                        booking.getPickupDate(), booking.getReturnDate())
+                : null;
+
+        afterCommit(() -> applyBooking(itemId, bookingId, interval));
+    }
+
+    /**
+     * Reloads an item's units and bookings once the current transaction commits
+     * (units added, removed, resized or sent to maintenance).
+     */
+    public void itemChanged(Integer itemId) {
+        if (itemId != null) {
+            afterCommit(() -> reloadItem(itemId));
+        }
+    }
+
+    /**
+     * Rebuilds an item from the database. The new calendar only replaces the snapshot
+     * that was current before the queries ran, so a booking applied meanwhile is never
+     * overwritten; the reload is retried instead.
+     */
+    public void reloadItem(Integer itemId) {
+        for (int attempt = 0; attempt < RELOAD_ATTEMPTS; attempt++) {
+            ItemCalendar before = items.get(itemId);
+            ItemCalendar calendar = loadItem(itemId);
+            if (swap(itemId, before, calendar)) {
+                return;
+            }
+        }
+        // Continua a perder a corrida: a próxima verificação de consistência apanha o que faltar
+        logger.debug("Availability index reload of item {} kept losing to concurrent updates", itemId);
+    }
+
+    /**
+     * Days in [from, to] on which no AVAILABLE unit of the item (of the given size,
+     * or any size when null) is free, merged into consecutive ranges.
+     */
+    public List<DateRangeDTO> getUnavailableRanges(Integer itemId, String size, LocalDate from, LocalDate to) {
+        int days = (int) ChronoUnit.DAYS.between(from, to) + 1;
+        if (days <= 0) {
+            return List.of();
+        }
+
+        ItemCalendar calendar = ready ? items.get(itemId) : null;
+        if (calendar == null) {
+            // Item fora do índice: montar o calendário com duas queries
+            calendar = loadItem(itemId);
+        }
+
+        BitSet unavailable = calendar.unavailableDays(size, from.toEpochDay(), days);
+        List<DateRangeDTO> ranges = new ArrayList<>();
+        int start = unavailable.nextSetBit(0);
+        while (start >= 0) {
+            int end = unavailable.nextClearBit(start);
+            ranges.add(new DateRangeDTO(from.plusDays(start), from.plusDays(end - 1L)));
+            start = unavailable.nextSetBit(end);
+        }
+        return ranges;
+    }
+
+    /**
+     * Gaps around [pickupDate, returnDate] and booking counts of the given free units,
+     * in the same order, for the allocation strategy. Units the index doesn't know yet
+     * count as empty calendars.
+     */
+    public List<UnitAllocationStrategy.Candidate> describeUnits(Integer itemId, List<UUID> unitIds,
+                                                                LocalDate pickupDate, LocalDate returnDate) {
+        ItemCalendar calendar = ready ? items.get(itemId) : null;
+        if (calendar == null) {
+            calendar = loadItem(itemId);
+        }
+        long from = pickupDate.toEpochDay();
+        long to = returnDate.toEpochDay();
+        List<UnitAllocationStrategy.Candidate> candidates = new ArrayList<>(unitIds.size());
+        for (UUID unitId : unitIds) {
+            candidates.add(calendar.describe(unitId, from, to));
+        }
+        return candidates;
+    }
+
+    // Avança a origem dos bitmaps para o dia atual
+    @Scheduled(cron = "${availability.index.roll-cron:0 5 0 * * *}")
+    public void rollHorizon() {
+        items.replaceAll((itemId, calendar) -> calendar.rolled());
+    }
+
+    @Scheduled(fixedDelayString = "${availability.index.check-interval-ms:300000}",
+            initialDelayString = "${availability.index.check-interval-ms:300000}")
+    public void checkConsistency() {
+        if (!ready) {
+            return;
+        }
+
+        Set<Integer> itemIds = new TreeSet<>(itemSingleRepository.findItemIds());
+        itemIds.addAll(items.keySet());
+        long today = today().toEpochDay();
+
+        // Lote a lote: só os calendários de CHECK_BATCH itens existem em paralelo com o índice
+        long driftedUnits = 0;
+        List<Integer> staleItems = new ArrayList<>();
+        List<Integer> batch = new ArrayList<>(CHECK_BATCH);
+        for (Iterator<Integer> it = itemIds.iterator(); it.hasNext(); ) {
+            batch.add(it.next());
+            if (batch.size() < CHECK_BATCH && it.hasNext()) {
+                continue;
+            }
+            Map<Integer, ItemCalendar> fromDatabase = loadItems(batch);
+            for (Integer itemId : batch) {
+                int differences = ItemCalendar.countDifferences(items.get(itemId), fromDatabase.get(itemId), today);
+                if (differences > 0) {
+                    driftedUnits += differences;
+                    staleItems.add(itemId);
+                }
+            }
+            batch = new ArrayList<>(CHECK_BATCH);
+        }
+        drift.set(driftedUnits);
+
+        if (!staleItems.isEmpty()) {
+            // Pode ser apenas uma reserva confirmada durante a verificação; recarregar é barato de qualquer forma
+            logger.warn("Availability index drifted on {} units of items {}, reloading", driftedUnits, staleItems);
+            staleItems.forEach(this::reloadItem);
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public long getDrift() {
+        return drift.get();
+    }
+
+    public int getIndexedUnits() {
+        return items.values().stream().mapToInt(ItemCalendar::size).sum();
+    }
+
+    private Map<Integer, ItemCalendar> loadAll() {
+        return group(itemSingleRepository.findAll(), bookingRepository.findActiveIntervals(today()));
+    }
+
+    private Map<Integer, ItemCalendar> loadItems(Collection<Integer> itemIds) {
+        return group(itemSingleRepository.findByItem_ItemIdIn(itemIds),
+                bookingRepository.findActiveIntervalsByItemIds(itemIds, today()));
+    }
+
+    private ItemCalendar loadItem(Integer itemId) {
+        return ItemCalendar.build(itemSingleRepository.findByItem_ItemId(itemId),
+                bookingRepository.findActiveIntervalsByItemId(itemId, today()));
+    }
+
+    private static Map<Integer, ItemCalendar> group(List<ItemSingle> itemSingles, List<BookedIntervalDTO> intervals) {
+        Map<Integer, List<ItemSingle>> unitsByItem = new HashMap<>();
+        for (ItemSingle unit : itemSingles) {
+            if (unit.getItem() != null) {
+                unitsByItem.computeIfAbsent(unit.getItem().getItemId(), id -> new ArrayList<>()).add(unit);
+            }
+        }
+
+        Map<Integer, List<BookedIntervalDTO>> intervalsByItem = new HashMap<>();
+        for (BookedIntervalDTO interval : intervals) {
+            intervalsByItem.computeIfAbsent(interval.getItemId(), id -> new ArrayList<>()).add(interval);
+        }
+
+        Map<Integer, ItemCalendar> loaded = new HashMap<>();
+        unitsByItem.forEach((itemId, units) -> loaded.put(itemId,
+                ItemCalendar.build(units, intervalsByItem.getOrDefault(itemId, List.of()))));
+        return loaded;
+    }
+
+    // Troca condicional: os snapshots são imutáveis, por isso o próprio objeto serve de versão
+    private boolean swap(Integer itemId, ItemCalendar before, ItemCalendar calendar) {
+        if (calendar.isEmpty()) {
+            return before == null ? !items.containsKey(itemId) : items.remove(itemId, before);
+        }
+        return before == null ? items.putIfAbsent(itemId, calendar) == null : items.replace(itemId, before, calendar);
+    }
+
+    private static LocalDate today() {
+        return LocalDate.now(ZoneId.systemDefault());
+    }
+
+    private void applyBooking(Integer itemId, UUID bookingId, BookedIntervalDTO interval) {
+        ItemCalendar current = items.get(itemId);
+        if (current == null) {
+            return; // Item ainda não indexado: o warm-up ou o próximo reload trazem a reserva
+        }
+        if (interval != null && !current.hasUnit(interval.getItemSingleId())) {
+            reloadItem(itemId); // Unidade nova que o índice ainda não conhece
+            return;
+        }
+        items.computeIfPresent(itemId, (id, calendar) -> calendar.withBooking(bookingId, interval));
+    }
+
+    private void afterCommit(Runnable update) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            runSafely(update);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                runSafely(update);
+            }
+        });
+    }
+
+    private void runSafely(Runnable update) {
+        try {
+            update.run();
+        } catch (RuntimeException e) {
+            // O índice só fica desatualizado até à próxima verificação de consistência
+            logger.warn("Could not update availability index: {}", e.getMessage());
+        }
+    }
+
+    private static boolean isActive(Booking booking) {
+        return booking.getItemSingle() != null && booking.getItemSingle().getId() != null
+                && booking.getPickupDate() != null && booking.getReturnDate() != null
+                && !"CANCELLED".equals(booking.getState());
+    }
+
+    /**
+     * Immutable snapshot of one item's units; updates build a new snapshot.
+     */
+    private static final class ItemCalendar {
+
+        private final Map<UUID, UnitCalendar> units;
+
+        private ItemCalendar(Map<UUID, UnitCalendar> units) {
+            this.units = units;
+        }
+
+        static ItemCalendar build(List<ItemSingle> itemSingles, List<BookedIntervalDTO> intervals) {
+            Map<UUID, List<BookedIntervalDTO>> byUnit = new HashMap<>();
+            for (BookedIntervalDTO interval : intervals) {
+                byUnit.computeIfAbsent(interval.getItemSingleId(), id -> new ArrayList<>()).add(interval);
+            }
+
+            Map<UUID, UnitCalendar> units = new HashMap<>();
+            for (ItemSingle unit : itemSingles) {
+                units.put(unit.getId(), UnitCalendar.of(unit.getSize(), unit.getState(),
+                        byUnit.getOrDefault(unit.getId(), List.of())));
+            }
+            return new ItemCalendar(units);
+        }
+
+        boolean hasFreeUnit(String size, long from, long to) {
+            for (UnitCalendar unit : units.values()) {
+                if (unit.serves(size) && unit.isFree(from, to)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        int countFreeUnits(String size, long from, long to) {
+            int free = 0;
+            for (UnitCalendar unit : units.values()) {
+                if (unit.serves(size) && unit.isFree(from, to)) {
+                    free++;
+                }
+            }
+            return free;
+        }
+
+        // Um dia fica indisponível quando está ocupado em todas as unidades que servem o pedido
+        BitSet unavailableDays(String size, long fromDay, int days) {
+            BitSet unavailable = new BitSet(days);
+            unavailable.set(0, days);
+            for (UnitCalendar unit : units.values()) {
+                if (unit.serves(size)) {
+                    unavailable.and(unit.occupiedDays(fromDay, days));
+                }
+            }
+            return unavailable;
+        }
+
+        UnitAllocationStrategy.Candidate describe(UUID unitId, long from, long to) {
+            UnitCalendar unit = units.get(unitId);
+            if (unit == null) {
+                return new UnitAllocationStrategy.Candidate(UnitAllocationStrategy.OPEN, UnitAllocationStrategy.OPEN, 0);
+            }
+            return new UnitAllocationStrategy.Candidate(unit.gapBefore(from), unit.gapAfter(to), unit.currentBookings());
+        }
+
+        ItemCalendar rolled() {
+            Map<UUID, UnitCalendar> updated = new HashMap<>(units);
+            updated.replaceAll((unitId, unit) -> unit.rolled());
+            return new ItemCalendar(updated);
+        }
+
+        boolean hasUnit(UUID unitId) {
+            return units.containsKey(unitId);
+        }
+
+        boolean isEmpty() {
+            return units.isEmpty();
+        }
+
+        int size() {
+            return units.size();
+        }
+
+        // Remove a reserva de onde estiver e volta a inseri-la se continuar ativa
+        ItemCalendar withBooking(UUID bookingId, BookedIntervalDTO interval) {
+            Map<UUID, UnitCalendar> updated = new HashMap<>(units);
+            updated.replaceAll((unitId, unit) -> unit.without(bookingId));
+            if (interval != null) {
+                updated.computeIfPresent(interval.getItemSingleId(), (unitId, unit) -> unit.with(bookingId,
+                        interval.getPickupDate().toEpochDay(), interval.getReturnDate().toEpochDay()));
+            }
+            return new ItemCalendar(updated);
+        }
+
+        // Reservas devolvidas antes de fromDay são ignoradas (o índice só as larga no roll seguinte)
+        static int countDifferences(ItemCalendar indexed, ItemCalendar actual, long fromDay) {
+            Map<UUID, UnitCalendar> left = indexed == null ? Map.of() : indexed.units;
+            Map<UUID, UnitCalendar> right = actual == null ? Map.of() : actual.units;
+
+            Set<UUID> unitIds = new HashSet<>(left.keySet());
+            unitIds.addAll(right.keySet());
+
+            int differences = 0;
+            for (UUID unitId : unitIds) {
+                UnitCalendar a = left.get(unitId);
+                UnitCalendar b = right.get(unitId);
+                if (a == null || !a.sameAs(b, fromDay)) {
+                    differences++;
+                }
+            }
+            return differences;
+        }
+    }
+
+    /**
+     * Bookings of one unit as epoch days, sorted by (start, end, id), with
+     * maxEnds[i] = max(ends[0..i]), plus the occupied days (pickup to return, inclusive) from originDay on.
+     * Bookings returned before originDay are dropped when the horizon rolls.
+     */
+    private static final class UnitCalendar {
+
+        private final String size;
+        private final String state;
+        private final long[] starts;
+        private final long[] ends;
+        private final long[] maxEnds;
+        private final UUID[] bookingIds;
+        private final long originDay;
+        private final BitSet occupiedDays;
+
+        private UnitCalendar(String size, String state, List<Entry> entries) {
+            this.size = size;
+            this.state = state;
+
+            List<Entry> sorted = new ArrayList<>(entries);
+            sorted.sort(Comparator.comparingLong(Entry::start).thenComparingLong(Entry::end)
+                    .thenComparing(Entry::bookingId));
+
+            int n = sorted.size();
+            this.starts = new long[n];
+            this.ends = new long[n];
+            this.maxEnds = new long[n];
+            this.bookingIds = new UUID[n];
+            long maxEnd = Long.MIN_VALUE;
+            for (int i = 0; i < n; i++) {
+                Entry entry = sorted.get(i);
+                starts[i] = entry.start();
+                ends[i] = entry.end();
+                maxEnd = Math.max(maxEnd, entry.end());
+                maxEnds[i] = maxEnd;
+                bookingIds[i] = entry.bookingId();
+            }
+
+            this.originDay = today().toEpochDay();
+            this.occupiedDays = markDays(originDay, HORIZON_DAYS);
+        }
+
+        static UnitCalendar of(String size, String state, List<BookedIntervalDTO> intervals) {
+            List<Entry> entries = new ArrayList<>(intervals.size());
+            for (BookedIntervalDTO interval : intervals) {
+                entries.add(new Entry(interval.getBookingId(),
+                        interval.getPickupDate().toEpochDay(), interval.getReturnDate().toEpochDay()));
+            }
+            return new UnitCalendar(size, state, entries);
+        }
+
+        // Unidade AVAILABLE do tamanho pedido (null = qualquer tamanho)
+        boolean serves(String requestedSize) {
+            return ItemSingle.STATE_AVAILABLE.equals(state) && (requestedSize == null || requestedSize.equals(size));
+        }
+
+        // Mesmo critério da query: livre se nenhuma reserva tem start <= to && end >= from
+        boolean isFree(long from, long to) {
+            int candidates = upperBound(starts, to);
+            return candidates == 0 || maxEnds[candidates - 1] < from;
+        }
+
+        // Dias livres entre a última devolução antes de from e from
+        long gapBefore(long from) {
+            int before = upperBound(starts, from - 1);
+            return before == 0 ? UnitAllocationStrategy.OPEN : Math.max(0, from - maxEnds[before - 1] - 1);
+        }
+
+        // Dias livres entre to e o próximo levantamento
+        long gapAfter(long to) {
+            int next = upperBound(starts, to);
+            return next == starts.length ? UnitAllocationStrategy.OPEN : Math.max(0, starts[next] - to - 1);
+        }
+
+        // Só as reservas ainda no calendário: as devolvidas antes de originDay já saíram
+        int currentBookings() {
+            return starts.length;
+        }
+
+        BitSet occupiedDays(long fromDay, int days) {
+            long offset = fromDay - originDay;
+            if (offset >= 0 && offset + days <= HORIZON_DAYS) {
+                return occupiedDays.get((int) offset, (int) offset + days);
+            }
+            // Janela fora do horizonte guardado: calcular a partir dos intervalos
+            return markDays(fromDay, days);
+        }
+
+        UnitCalendar rolled() {
+            long day = today().toEpochDay();
+            List<Entry> entries = entries();
+            entries.removeIf(entry -> entry.end() < day);
+            return new UnitCalendar(size, state, entries);
+        }
+
+        UnitCalendar with(UUID bookingId, long start, long end) {
+            List<Entry> entries = entries();
+            entries.add(new Entry(bookingId, start, end));
+            return new UnitCalendar(size, state, entries);
+        }
+
+        UnitCalendar without(UUID bookingId) {
+            if (!Arrays.asList(bookingIds).contains(bookingId)) {
+                return this;
+            }
+            List<Entry> entries = entries();
+            entries.removeIf(entry -> entry.bookingId().equals(bookingId));
+            return new UnitCalendar(size, state, entries);
+        }
+
+        boolean sameAs(UnitCalendar other, long fromDay) {
+            return other != null
+                    && Objects.equals(size, other.size)
+                    && Objects.equals(state, other.state)
+                    && entriesFrom(fromDay).equals(other.entriesFrom(fromDay));
+        }
+
+        private List<Entry> entries() {
+            return entriesFrom(Long.MIN_VALUE);
+        }
+
+        // Entradas por ordem (start, end, id) cuja devolução é >= fromDay
+        private List<Entry> entriesFrom(long fromDay) {
+            List<Entry> entries = new ArrayList<>(starts.length + 1);
+            for (int i = 0; i < starts.length; i++) {
+                if (ends[i] >= fromDay) {
+                    entries.add(new Entry(bookingIds[i], starts[i], ends[i]));
+                }
+            }
+            return entries;
+        }
+
+        private BitSet markDays(long fromDay, int days) {
+            BitSet window = new BitSet(days);
+            for (int i = 0; i < starts.length; i++) {
+                long first = Math.max(starts[i] - fromDay, 0);
+                long last = Math.min(ends[i] - fromDay, days - 1L);
+                if (first <= last) {
+                    window.set((int) first, (int) last + 1);
+                }
+            }
+            return window;
+        }
+
+        // Número de elementos <= key num array ordenado
+        private static int upperBound(long[] sorted, long key) {
+            int low = 0;
+            int high = sorted.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (sorted[mid] <= key) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private record Entry(UUID bookingId, long start, long end) {
+        }
+    }
+}
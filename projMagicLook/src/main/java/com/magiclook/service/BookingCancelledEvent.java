@@ -0,0 +1,21 @@
+package com.magiclook.service;
+
+import java.util.UUID;
+
+/**
+ * Published by {@link BookingService#cancelBooking} once a booking is cancelled,
+ * so listeners (e.g. the waitlist matcher) can react after the commit.
+ */
+public class BookingCancelledEvent {
+
+    private final UUID bookingId;
+    private final Integer itemId;
+
+    public BookingCancelledEvent(UUID bookingId, Integer itemId) {
+        this.bookingId = bookingId;
+        this.itemId = itemId;
+    }
+
+    public UUID getBookingId() { return bookingId; }
+    public Integer getItemId() { return itemId; }
+}
@@ -0,0 +1,210 @@
+package com.magiclook.service;
+
+import com.magiclook.data.BookingHold;
+import com.magiclook.data.ItemSingle;
+import com.magiclook.dto.BookingWindow;
+import com.magiclook.repository.BookingHoldRepository;
+import com.magiclook.repository.ItemSingleRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Checkout holds: a unit is set aside for one user for a short TTL.
+ * - Active holds are read from the booking_hold table on every check, so a hold
+ *   placed on one application node is honoured by all the others
+ * - Placing a hold runs under the item lock, like a booking, and picks a unit
+ *   with no overlapping booking and no other user's hold
+ * - Allocation and availability treat units held by other users as occupied;
+ *   the holder's own booking takes the held unit
+ * - A background sweeper deletes expired holds from the table in batches;
+ *   until then the expiry time alone keeps them from counting
+ */
+@Component
+public class BookingHoldService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookingHoldService.class);
+
+    private final BookingHoldRepository bookingHoldRepository;
+    private final ItemSingleRepository itemSingleRepository;
+    private final BookingLockManager bookingLockManager;
+    private final UnitAllocator unitAllocator;
+    private final TransactionTemplate transactionTemplate;
+    private final long ttlMillis;
+    private final int sweepBatch;
+
+    // Contagem do último sweep, só para o gauge (não é consultada nas reservas)
+    private final AtomicLong active = new AtomicLong();
+
+    private final Counter placed;
+    private final Counter expired;
+
+    public BookingHoldService(BookingHoldRepository bookingHoldRepository,
+                              ItemSingleRepository itemSingleRepository,
+                              BookingLockManager bookingLockManager,
+                              UnitAllocator unitAllocator,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${booking.hold.ttl-seconds:600}") long ttlSeconds,
+                              @Value("${booking.hold.sweep-batch:200}") int sweepBatch) {
+        if (ttlSeconds <= 0 || sweepBatch <= 0) {
+            throw new IllegalArgumentException("booking.hold.ttl-seconds e booking.hold.sweep-batch devem ser positivos");
+        }
+        this.bookingHoldRepository = bookingHoldRepository;
+        this.itemSingleRepository = itemSingleRepository;
+        this.bookingLockManager = bookingLockManager;
+        this.unitAllocator = unitAllocator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttlMillis = ttlSeconds * 1000;
+        this.sweepBatch = sweepBatch;
+
+        this.placed = Counter.builder("booking.hold.placed")
+                .description("Checkout holds placed on a unit")
+                .register(meterRegistry);
+        this.expired = Counter.builder("booking.hold.expired")
+                .description("Checkout holds released by the sweeper after their TTL")
+                .register(meterRegistry);
+        Gauge.builder("booking.hold.active", active, AtomicLong::get)
+                .description("Active checkout holds counted by the last sweep")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Holds a free unit of the item (of the given size, or any size when null) for the user,
+     * replacing the user's previous hold on the same item. Empty when no unit is free.
+     */
+    public Optional<BookingHold> place(Integer itemId, String size, BookingWindow window, UUID userId) {
+        Objects.requireNonNull(userId, "userId");
+        BookingHold hold = transactionTemplate.execute(status -> bookingLockManager.withItemLock(itemId, () -> {
+            // Um hold por utilizador e item: mudar de datas ou tamanho liberta o anterior
+            bookingHoldRepository.deleteAll(bookingHoldRepository.findByUserIdAndItemId(userId, itemId));
+
+            ItemSingle unit = findFreeUnit(itemId, size, window, userId);
+            if (unit == null) {
+                return null;
+            }
+            return bookingHoldRepository.save(new BookingHold(unit, userId,
+                    window.getPickupDate(), window.getStartUseDate(), window.getEndUseDate(), window.getReturnDate(),
+                    new Date(System.currentTimeMillis() + ttlMillis)));
+        }));
+        if (hold != null) {
+            placed.increment();
+        }
+        return Optional.ofNullable(hold);
+    }
+
+    /**
+     * AVAILABLE unit with no overlapping booking and not held by another user,
+     * picked by the allocation strategy like a booking's unit.
+     */
+    public ItemSingle findFreeUnit(Integer itemId, String size, BookingWindow window, UUID userId) {
+        Set<UUID> held = heldUnitIds(itemId, window, userId);
+        // Pedir mais uma unidade por cada unidade retida por outros (todas, se a estratégia as compara)
+        List<ItemSingle> free = itemSingleRepository.findFreeUnits(itemId, size,
+                        window.getPickupDate(), window.getStartUseDate(), window.getEndUseDate(), window.getReturnDate(),
+                        unitAllocator.comparesUnits() ? Limit.unlimited() : Limit.of(held.size() + 1))
+                .stream()
+                .filter(unit -> !held.contains(unit.getId()))
+                .toList();
+        return unitAllocator.choose(itemId, free, window);
+    }
+
+    /**
+     * Units of the item held for an overlapping window by anyone but the given user (null = by anyone).
+     */
+    public Set<UUID> heldUnitIds(Integer itemId, BookingWindow window, UUID excludingUserId) {
+        return activeOverlapping(itemId, window).stream()
+                .filter(h -> !h.getUserId().equals(excludingUserId))
+                .map(BookingHold::getItemSingleId)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Held units of the item for an overlapping window, by size (null size as "Único", like the stock queries).
+     */
+    public Map<String, Long> countHeldBySize(Integer itemId, BookingWindow window) {
+        return activeOverlapping(itemId, window).stream()
+                .collect(Collectors.groupingBy(h -> Objects.toString(h.getSize(), "Único"), Collectors.counting()));
+    }
+
+    /**
+     * The user's active hold, if it still exists.
+     */
+    public Optional<BookingHold> findActive(UUID holdId, UUID userId) {
+        if (holdId == null) {
+            return Optional.empty();
+        }
+        long now = System.currentTimeMillis();
+        return bookingHoldRepository.findById(holdId)
+                .filter(h -> !h.isExpired(now) && h.getUserId().equals(userId));
+    }
+
+    /**
+     * The user's active hold on the item, e.g. for requests that went through the intake queue.
+     */
+    public Optional<BookingHold> findActiveForItem(UUID userId, Integer itemId) {
+        return bookingHoldRepository.findFirstByUserIdAndItemIdAndExpiresAtAfter(userId, itemId, new Date());
+    }
+
+    // Valor do cartCount mostrado no dashboard
+    public int countActiveForUser(UUID userId) {
+        return (int) bookingHoldRepository.countByUserIdAndExpiresAtAfter(userId, new Date());
+    }
+
+    /**
+     * Drops the hold, e.g. once its booking is saved; within a transaction the row
+     * is deleted with it.
+     */
+    public void release(UUID holdId) {
+        if (holdId == null) {
+            return;
+        }
+        bookingHoldRepository.deleteById(holdId);
+    }
+
+    @Scheduled(fixedDelayString = "${booking.hold.sweep-interval-ms:30000}",
+            initialDelayString = "${booking.hold.sweep-interval-ms:30000}")
+    public void sweepExpired() {
+        Date cutoff = new Date();
+        int released = 0;
+        try {
+            List<UUID> batch;
+            do {
+                batch = bookingHoldRepository.findExpiredIds(cutoff, Limit.of(sweepBatch));
+                if (!batch.isEmpty()) {
+                    List<UUID> ids = batch;
+                    transactionTemplate.executeWithoutResult(status -> bookingHoldRepository.deleteAllByIdInBatch(ids));
+                    released += ids.size();
+                }
+            } while (batch.size() == sweepBatch);
+            active.set(bookingHoldRepository.countByExpiresAtAfter(cutoff));
+        } catch (RuntimeException e) {
+            // Os holds expirados já não contam; as linhas ficam para a próxima passagem
+            logger.warn("Could not delete expired checkout holds: {}", e.getMessage());
+        }
+        if (released > 0) {
+            expired.increment(released);
+        }
+    }
+
+    public long getActiveCount() {
+        return bookingHoldRepository.countByExpiresAtAfter(new Date());
+    }
+
+    private List<BookingHold> activeOverlapping(Integer itemId, BookingWindow window) {
+        return bookingHoldRepository.findActiveOverlapping(itemId, window.getPickupDate(), window.getReturnDate(),
+                new Date());
+    }
+}
@@ -0,0 +1,289 @@
+package com.magiclook.service;
+
+import com.magiclook.data.Booking;
+import com.magiclook.data.BookingIntake;
+import com.magiclook.data.User;
+import com.magiclook.dto.BookingRequestDTO;
+import com.magiclook.repository.BookingIntakeRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous booking intake.
+ * - Requests are validated, written to the booking_intake outbox and handed
+ *   to a bounded set of allocation workers, freeing the request thread
+ * - Workers are grouped by itemId: requests for the same item run one after
+ *   the other on the same lane, unrelated items run in parallel
+ * - When the queue is full the request is refused straight away
+ *   (backpressure) instead of piling up behind the booking locks
+ * - Pending rows left by a restart are dispatched again by a periodic poll
+ */
+@Service
+public class BookingIntakeService {
+
+    public static final String MODE_SYNC = "sync";
+    public static final String MODE_ASYNC = "async";
+
+    private static final Logger logger = LoggerFactory.getLogger(BookingIntakeService.class);
+
+    private final BookingIntakeRepository bookingIntakeRepository;
+    private final BookingService bookingService;
+    private final TransactionTemplate transactionTemplate;
+    private final String mode;
+    private final Semaphore capacity;
+    private final ExecutorService[] lanes;
+    private final Set<UUID> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final Counter submitted;
+    private final Counter throttled;
+    private final Counter confirmed;
+    private final Counter rejected;
+
+    public BookingIntakeService(BookingIntakeRepository bookingIntakeRepository,
+                                BookingService bookingService,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry,
+                                @Value("${booking.intake.mode:sync}") String mode,
+                                @Value("${booking.intake.workers:4}") int workers,
+                                @Value("${booking.intake.queue-capacity:500}") int queueCapacity) {
+        if (workers <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("booking.intake.workers e booking.intake.queue-capacity devem ser positivos");
+        }
+        this.bookingIntakeRepository = bookingIntakeRepository;
+        this.bookingService = bookingService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.mode = mode;
+        this.capacity = new Semaphore(queueCapacity);
+        this.lanes = new ExecutorService[MODE_ASYNC.equals(mode) ? workers : 0];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = Executors.newSingleThreadExecutor(laneThreads(i));
+        }
+
+        this.submitted = Counter.builder("booking.intake.submitted")
+                .description("Booking requests accepted into the async queue")
+                .register(meterRegistry);
+        this.throttled = Counter.builder("booking.intake.throttled")
+                .description("Booking requests refused because the queue was full")
+                .register(meterRegistry);
+        this.confirmed = Counter.builder("booking.intake.processed")
+                .tag("outcome", BookingIntake.STATUS_CONFIRMED)
+                .description("Queued booking requests processed by the workers")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("booking.intake.processed")
+                .tag("outcome", BookingIntake.STATUS_REJECTED)
+                .description("Queued booking requests processed by the workers")
+                .register(meterRegistry);
+        Gauge.builder("booking.intake.queue.depth", inFlight, Set::size)
+                .description("Booking requests queued or being allocated")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return MODE_ASYNC.equals(mode);
+    }
+
+    /**
+     * Accepts a booking request for asynchronous processing.
+     * The returned intake id is what the confirmation page polls for.
+     */
+    public BookingIntake submit(BookingRequestDTO bookingRequest, User user) {
+        if (user == null) {
+            throw new IllegalArgumentException("Utilizador não autenticado");
+        }
+        if (!bookingRequest.isValidDates()) {
+            throw new IllegalArgumentException("Datas inválidas");
+        }
+        if (!capacity.tryAcquire()) {
+            throttled.increment();
+            throw new IllegalStateException(
+                "Estamos a receber muitas reservas neste momento. Por favor, tente novamente dentro de instantes.");
+        }
+
+        BookingIntake intake;
+        try {
+            intake = bookingIntakeRepository.save(new BookingIntake(user, bookingRequest.getItemId(),
+                emptyToNull(bookingRequest.getSize()), bookingRequest.getStartUseDate(), bookingRequest.getEndUseDate()));
+        } catch (RuntimeException e) {
+            capacity.release();
+            throw e;
+        }
+        submitted.increment();
+
+        // Só entregar aos workers depois de a linha estar gravada
+        UUID intakeId = intake.getIntakeId();
+        Integer itemId = intake.getItemId();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatch(intakeId, itemId);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        capacity.release();
+                    }
+                }
+            });
+        } else {
+            dispatch(intakeId, itemId);
+        }
+        return intake;
+    }
+
+    public Optional<BookingIntake> findForUser(UUID intakeId, User user) {
+        if (intakeId == null || user == null) {
+            return Optional.empty();
+        }
+        return bookingIntakeRepository.findById(intakeId)
+            .filter(intake -> intake.getUser().getUserId().equals(user.getUserId()));
+    }
+
+    /**
+     * Re-dispatches pending rows that are not queued in this node,
+     * e.g. requests accepted before a restart.
+     */
+    @Scheduled(fixedDelayString = "${booking.intake.poll-interval-ms:5000}",
+               initialDelayString = "${booking.intake.poll-interval-ms:5000}")
+    public void dispatchPending() {
+        if (!isEnabled() || capacity.availablePermits() == 0) {
+            return;
+        }
+        try {
+            for (BookingIntake intake : bookingIntakeRepository.findByStatusOrderByCreatedAtAsc(
+                    BookingIntake.STATUS_PENDING, Limit.of(capacity.availablePermits()))) {
+                if (inFlight.contains(intake.getIntakeId())) {
+                    continue;
+                }
+                if (!capacity.tryAcquire()) {
+                    break;
+                }
+                dispatch(intake.getIntakeId(), intake.getItemId());
+            }
+        } catch (Exception e) {
+            logger.warn("Falha ao recuperar pedidos de reserva pendentes: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Allocates one queued request. The outbox update runs inside the booking's
+     * own transaction, so both commit together and a crash never leaves a booking
+     * behind a PENDING row; no other transaction is open while the booking retries.
+     */
+    public void process(UUID intakeId) {
+        BookingIntake intake = bookingIntakeRepository.findById(intakeId).orElse(null);
+        if (intake == null || !intake.isPending()) {
+            return;
+        }
+        try {
+            bookingService.createBooking(toRequest(intake), intake.getUser(), booking -> confirm(intakeId, booking));
+            confirmed.increment();
+        } catch (RuntimeException e) {
+            // A transação da reserva foi desfeita: registar a rejeição numa nova
+            markRejected(intakeId, e.getMessage());
+        }
+    }
+
+    public int getQueueDepth() {
+        return inFlight.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Os pedidos ainda na fila ficam PENDING e são retomados no próximo arranque
+        for (ExecutorService lane : lanes) {
+            lane.shutdownNow();
+        }
+    }
+
+    private void dispatch(UUID intakeId, Integer itemId) {
+        if (!inFlight.add(intakeId)) {
+            capacity.release();
+            return;
+        }
+        if (lanes.length == 0) {
+            // Modo síncrono: não há workers, processar já
+            runQueued(intakeId);
+            return;
+        }
+        try {
+            lanes[laneIndex(itemId)].execute(() -> runQueued(intakeId));
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(intakeId);
+            capacity.release();
+        }
+    }
+
+    private void runQueued(UUID intakeId) {
+        try {
+            process(intakeId);
+        } catch (Exception e) {
+            logger.warn("Falha ao processar o pedido de reserva {}: {}", intakeId, e.getMessage());
+        } finally {
+            capacity.release();
+            inFlight.remove(intakeId);
+        }
+    }
+
+    private void confirm(UUID intakeId, Booking booking) {
+        // Outro worker pode ter tratado o pedido entretanto: desfazer esta reserva
+        BookingIntake intake = bookingIntakeRepository.lockById(intakeId).filter(BookingIntake::isPending)
+            .orElseThrow(() -> new IllegalStateException("Pedido de reserva já processado"));
+        intake.setStatus(BookingIntake.STATUS_CONFIRMED);
+        intake.setBookingId(booking.getBookingId());
+        intake.setProcessedAt(new Date());
+        bookingIntakeRepository.save(intake);
+    }
+
+    private void markRejected(UUID intakeId, String message) {
+        transactionTemplate.executeWithoutResult(status ->
+            bookingIntakeRepository.lockById(intakeId).filter(BookingIntake::isPending).ifPresent(intake -> {
+                intake.setStatus(BookingIntake.STATUS_REJECTED);
+                intake.setErrorMessage(message);
+                intake.setProcessedAt(new Date());
+                bookingIntakeRepository.save(intake);
+                rejected.increment();
+            }));
+    }
+
+    private int laneIndex(Integer itemId) {
+        return Math.floorMod(itemId == null ? 0 : itemId.hashCode(), lanes.length);
+    }
+
+    private BookingRequestDTO toRequest(BookingIntake intake) {
+        BookingRequestDTO request = new BookingRequestDTO(intake.getItemId(),
+            intake.getStartUseDate(), intake.getEndUseDate());
+        request.setSize(intake.getSize());
+        return request;
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    private static ThreadFactory laneThreads(int lane) {
+        AtomicInteger created = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "booking-intake-" + lane + "-" + created.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
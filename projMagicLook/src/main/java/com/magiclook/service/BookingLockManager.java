@@ -0,0 +1,160 @@
+package com.magiclook.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Striped locks for booking allocation.
+ * - Each item maps to one of a fixed number of stripes, so bookings for
+ *   unrelated items never wait on each other
+ * - Inside a transaction the stripe is only released after commit/rollback,
+ *   so the next booking for the same item always sees the previous insert
+ * - In "advisory" mode a Postgres transaction-level advisory lock is also
+ *   taken, extending the guarantee across several application nodes
+ */
+@Component
+public class BookingLockManager {
+
+    public static final String MODE_LOCAL = "local";
+    public static final String MODE_ADVISORY = "advisory";
+
+    // Namespace para as advisory locks das reservas (evita colisões com outros usos)
+    private static final int ADVISORY_NAMESPACE = 0x4D4C4B;
+
+    private final ReentrantLock[] stripes;
+    private final String mode;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public BookingLockManager(@Value("${booking.lock.mode:local}") String mode,
+                              @Value("${booking.lock.stripes:64}") int stripeCount) {
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("booking.lock.stripes deve ser positivo");
+        }
+        this.mode = mode;
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Runs the action while holding the lock of the item's stripe.
+     */
+    public <T> T withItemLock(Integer itemId, Supplier<T> action) {
+        ReentrantLock lock = stripes[stripeIndex(itemId)];
+        lock.lock();
+
+        boolean deferred = false;
+        try {
+            deferred = releaseAfterTransaction(lock);
+            if (MODE_ADVISORY.equals(mode)) {
+                acquireAdvisoryLock(itemId);
+            }
+            return action.get();
+        } finally {
+            if (!deferred) {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Runs the action holding only the item's stripe, released as soon as the action
+     * returns. For callers outside a transaction (e.g. the waitlist matcher): the
+     * advisory lock would be released at once there, so it is not taken at all.
+     */
+    public <T> T withLocalItemLock(Integer itemId, Supplier<T> action) {
+        ReentrantLock lock = stripes[stripeIndex(itemId)];
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs the action holding the locks of all the items (e.g. an outfit bundle).
+     * Stripes are taken in ascending stripe order, and advisory locks in ascending
+     * itemId order, so two bundles sharing items can never wait on each other in a cycle.
+     */
+    public <T> T withItemLocks(Collection<Integer> itemIds, Supplier<T> action) {
+        int[] stripeOrder = itemIds.stream()
+                .mapToInt(this::stripeIndex)
+                .distinct()
+                .sorted()
+                .toArray();
+        return lockStripes(stripeOrder, 0, () -> {
+            if (MODE_ADVISORY.equals(mode)) {
+                itemIds.stream().filter(Objects::nonNull).distinct().sorted().forEach(this::acquireAdvisoryLock);
+            }
+            return action.get();
+        });
+    }
+
+    private <T> T lockStripes(int[] stripeOrder, int next, Supplier<T> action) {
+        if (next == stripeOrder.length) {
+            return action.get();
+        }
+        ReentrantLock lock = stripes[stripeOrder[next]];
+        lock.lock();
+
+        boolean deferred = false;
+        try {
+            deferred = releaseAfterTransaction(lock);
+            return lockStripes(stripeOrder, next + 1, action);
+        } finally {
+            if (!deferred) {
+                lock.unlock();
+            }
+        }
+    }
+
+    public int stripeIndex(Integer itemId) {
+        int hash = itemId == null ? 0 : itemId.hashCode();
+        // Espalhar bits para ids sequenciais não caírem sempre em stripes vizinhas
+        hash ^= (hash >>> 16);
+        return Math.floorMod(hash * 0x9E3779B9, stripes.length);
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    private boolean releaseAfterTransaction(ReentrantLock lock) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return false;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                lock.unlock();
+            }
+        });
+        return true;
+    }
+
+    private void acquireAdvisoryLock(Integer itemId) {
+        // pg_advisory_xact_lock é libertado automaticamente no fim da transação
+        entityManager.createNativeQuery(
+                "SELECT COUNT(*) FROM (SELECT pg_advisory_xact_lock(?1, ?2)) AS advisory_lock")
+                .setParameter(1, ADVISORY_NAMESPACE)
+                .setParameter(2, itemId == null ? 0 : itemId)
+                .getResultList();
+    }
+}
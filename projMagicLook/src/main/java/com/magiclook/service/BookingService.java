@@ -1,16 +1,31 @@
 package com.magiclook.service;
 
+import com.magiclook.config.BookingExclusionConstraint;
 import com.magiclook.data.*;
+import com.magiclook.dto.AvailabilityResultDTO;
+import com.magiclook.dto.BookingBundleRequestDTO;
+import com.magiclook.dto.BookingPageDTO;
 import com.magiclook.dto.BookingRequestDTO;
+import com.magiclook.dto.BookingResult;
+import com.magiclook.dto.BookingWindow;
+import com.magiclook.dto.DateRangeDTO;
+import com.magiclook.dto.SizeAvailabilityDTO;
 import com.magiclook.repository.*;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.time.ZoneId;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.function.Consumer;
 
 @Service
 @Transactional
@@ -20,31 +35,76 @@ public class BookingService {
     private final ItemRepository itemRepository;
     private final ItemSingleRepository itemSingleRepository;
     private final UserRepository userRepository;
+    private final BookingLockManager bookingLockManager;
+    private final BookingExclusionConstraint bookingExclusionConstraint;
+    private final AvailabilityIndex availabilityIndex;
+    private final OptimisticBookingRetry optimisticBookingRetry;
+    private final BookingHoldService bookingHoldService;
+    private final UnitAllocator unitAllocator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransaction;
         
     private static final String NOT_FOUND = "Item não encontrado";
-    private static final String CONFIRMED = "CONFIRMED";
     private static final String CANCELLED = "CANCELLED";
     private static final String COMPLETED = "COMPLETED";
-
-    // Lock global para todas as reservas
-    private static final Object GLOBAL_BOOKING_LOCK = new Object();
+    private static final int MAX_BATCH_QUERIES = 200;
+    public static final int MAX_BUNDLE_ITEMS = 10;
+    public static final int MY_BOOKINGS_PAGE_SIZE = 10;
 
     public BookingService(BookingRepository bookingRepository, ItemRepository itemRepository,
-                         ItemSingleRepository itemSingleRepository, UserRepository userRepository) {
+                         ItemSingleRepository itemSingleRepository, UserRepository userRepository,
+                         BookingLockManager bookingLockManager,
+                         BookingExclusionConstraint bookingExclusionConstraint,
+                         AvailabilityIndex availabilityIndex,
+                         OptimisticBookingRetry optimisticBookingRetry,
+                         BookingHoldService bookingHoldService,
+                         UnitAllocator unitAllocator,
+                         ApplicationEventPublisher eventPublisher,
+                         PlatformTransactionManager transactionManager) {
         this.bookingRepository = bookingRepository;
         this.itemRepository = itemRepository;
         this.itemSingleRepository = itemSingleRepository;
         this.userRepository = userRepository;
+        this.bookingLockManager = bookingLockManager;
+        this.bookingExclusionConstraint = bookingExclusionConstraint;
+        this.availabilityIndex = availabilityIndex;
+        this.optimisticBookingRetry = optimisticBookingRetry;
+        this.bookingHoldService = bookingHoldService;
+        this.unitAllocator = unitAllocator;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
     }
     
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Booking createBooking(BookingRequestDTO bookingRequest, User user) {
-        // Usar lock global para evitar qualquer concorrência (mais seguro)
-        synchronized (GLOBAL_BOOKING_LOCK) {
-            return doCreateBooking(bookingRequest, user);
+        return createBooking(bookingRequest, user, booking -> { });
+    }
+    
+    /**
+     * Books the request in a transaction of its own, never joining the caller's.
+     * - In optimistic mode every attempt is a new transaction, retried on version
+     *   conflicts without holding the caller's connection in the meantime
+     * - Otherwise the item's lock is taken inside that transaction and released
+     *   after its commit
+     * - inBookingTransaction runs right after the insert in the same transaction
+     *   (the successful attempt's), so whatever it writes commits with the booking
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Booking createBooking(BookingRequestDTO bookingRequest, User user, Consumer<Booking> inBookingTransaction) {
+        if (optimisticBookingRetry.isEnabled()) {
+            // Sem locks: o conflito é detetado pela versão da unidade e a tentativa é repetida
+            return optimisticBookingRetry.execute(() -> doCreateBooking(bookingRequest, user, inBookingTransaction));
         }
+        // Lock apenas do item reservado: reservas de itens diferentes correm em paralelo
+        return transactionTemplate.execute(status -> bookingLockManager.withItemLock(bookingRequest.getItemId(),
+            () -> doCreateBooking(bookingRequest, user, inBookingTransaction)));
     }
     
-    private Booking doCreateBooking(BookingRequestDTO bookingRequest, User user) {
+    private Booking doCreateBooking(BookingRequestDTO bookingRequest, User user,
+                                    Consumer<Booking> inBookingTransaction) {
         // Validate dates
         if (!bookingRequest.isValidDates()) {
             throw new IllegalArgumentException("Datas inválidas");
@@ -63,38 +123,23 @@ public class BookingService {
         User currentUser = userRepository.findById(user.getUserId())
             .orElseThrow(() -> new IllegalArgumentException("Utilizador não encontrado na base de dados. Por favor, faça logout e login novamente."));
         
-        // Calcular datas
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTime(bookingRequest.getStartUseDate());
-        calendar.add(Calendar.DAY_OF_MONTH, -1); // 1 dia antes para pickup
-        Date pickupDate = calendar.getTime();
-        
-        Date startUseDate = bookingRequest.getStartUseDate();
-        Date endUseDate = bookingRequest.getEndUseDate();
-        
-        calendar.setTime(endUseDate);
-        calendar.add(Calendar.DAY_OF_MONTH, 1); // 1 dia depois para devolução
-        Date returnDate = calendar.getTime();
-        
-        // Calcular dias e preço
-        long useDays = bookingRequest.getUseDays();
-        BigDecimal totalPrice = item.getPriceRent().multiply(BigDecimal.valueOf(useDays));
-        
-        // Encontrar ItemSingle disponível PARA AS DATAS
-        ItemSingle availableItemSingle = findAvailableItemSingleForDates(
-            bookingRequest.getItemId(), 
-            bookingRequest.getSize(),
-            pickupDate, 
-            startUseDate, 
-            endUseDate, 
-            returnDate
-        );
+        // Pickup (1 dia antes) e devolução (1 dia depois), calculados uma vez
+        BookingWindow window = bookingRequest.getWindow();
+        
+        // Unidade retida no checkout, se o hold ainda for deste utilizador, item, tamanho e datas
+        Optional<BookingHold> hold = (bookingRequest.getHoldId() != null
+                ? bookingHoldService.findActive(bookingRequest.getHoldId(), currentUser.getUserId())
+                : bookingHoldService.findActiveForItem(currentUser.getUserId(), item.getItemId()))
+            .filter(h -> matchesHold(h, item.getItemId(), bookingRequest.getSize(), window));
+        
+        // Encontrar ItemSingle disponível PARA AS DATAS (ignorando unidades retidas por outros)
+        ItemSingle availableItemSingle = hold.isPresent()
+            ? itemSingleRepository.findById(hold.get().getItemSingleId()).orElse(null)
+            : findAvailableItemSingleForDates(bookingRequest.getItemId(), bookingRequest.getSize(), window,
+                currentUser.getUserId());
         
         if (availableItemSingle == null) {
-            String errorMsg = bookingRequest.getSize() != null && !bookingRequest.getSize().isEmpty()
-                ? "Nenhuma unidade disponível para o tamanho " + bookingRequest.getSize() + " nas datas selecionadas"
-                : "Nenhuma unidade disponível para as datas selecionadas";
-            throw new IllegalStateException(errorMsg);
+            throw new IllegalStateException(noUnitAvailableMessage(bookingRequest.getSize()));
         }
         
         // Verificar se o ItemSingle está disponível fisicamente (não em manutenção)
@@ -103,98 +148,299 @@ public class BookingService {
         }
         
         // Criar reserva
-        Booking booking = new Booking();
-        booking.setPickupDate(pickupDate);
-        booking.setStartUseDate(startUseDate);
-        booking.setEndUseDate(endUseDate);
-        booking.setReturnDate(returnDate);
-        booking.setTotalDays((int) useDays);
-        booking.setTotalPrice(totalPrice);
-        booking.setState(CONFIRMED);
-        booking.setItem(item);
-        booking.setItemSingle(availableItemSingle);
-        booking.setUser(currentUser);
-        booking.setCreatedAt(new Date());
+        Booking booking = newBooking(window, item, availableItemSingle, currentUser);
         
         // IMPORTANTE: NÃO alteramos o estado do ItemSingle!
         // A disponibilidade é determinada pelas reservas, não pelo estado
         
-        // Salvar booking
-        return bookingRepository.save(booking);
+        // Salvar booking; o hold deixa de ser necessário quando a reserva é confirmada
+        Booking saved = reserveUnit(booking, bookingRequest.getSize());
+        hold.ifPresent(h -> bookingHoldService.release(h.getHoldId()));
+        inBookingTransaction.accept(saved);
+        return saved;
     }
     
-    // Adicionar método createBookingWithSize para compatibilidade
-    public Booking createBookingWithSize(BookingRequestDTO bookingRequest, User user) {
-        return createBooking(bookingRequest, user);
+    private boolean matchesHold(BookingHold hold, Integer itemId, String size, BookingWindow window) {
+        String requested = normalizeSize(size);
+        return hold.getItemId().equals(itemId)
+            && (requested == null || requested.equals(hold.getSize()))
+            && hold.getPickupDate().equals(window.getPickupDate())
+            && hold.getReturnDate().equals(window.getReturnDate());
+    }
+    
+    /**
+     * Books every item of the bundle for the same dates, all or nothing.
+     * - The items' locks are taken together in a fixed order, so concurrent
+     *   bundles sharing items cannot deadlock
+     * - Free units of all the items come from one set-based query; each line takes
+     *   the user's held unit or, among the free units of its size not held by
+     *   others, the one the allocation strategy picks
+     * - Any line without a unit (or any later failure) throws and the whole
+     *   transaction, with the bookings already inserted, is rolled back
+     * - Like createBooking, it runs in its own transaction(s), never the caller's
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<Booking> createBundle(BookingBundleRequestDTO bundle, User user) {
+        List<Integer> itemIds = bundle.getItems() == null ? List.of()
+            : bundle.getItems().stream().map(BookingBundleRequestDTO.Line::getItemId).toList();
+        if (optimisticBookingRetry.isEnabled()) {
+            return optimisticBookingRetry.execute(() -> doCreateBundle(bundle, user));
+        }
+        return transactionTemplate.execute(status ->
+            bookingLockManager.withItemLocks(itemIds, () -> doCreateBundle(bundle, user)));
     }
     
-    private ItemSingle findAvailableItemSingleForDates(Integer itemId, String size, 
-                                                      Date pickupDate, Date startUseDate, 
-                                                      Date endUseDate, Date returnDate) {
+    private List<Booking> doCreateBundle(BookingBundleRequestDTO bundle, User user) {
+        List<BookingBundleRequestDTO.Line> lines = bundle.getItems();
+        if (lines == null || lines.isEmpty()) {
+            throw new IllegalArgumentException("O conjunto não tem itens");
+        }
+        if (lines.size() > MAX_BUNDLE_ITEMS) {
+            throw new IllegalArgumentException("Máximo de " + MAX_BUNDLE_ITEMS + " itens por conjunto");
+        }
+        if (!bundle.isValidDates()) {
+            throw new IllegalArgumentException("Datas inválidas");
+        }
+        if (user == null) {
+            throw new IllegalArgumentException("Utilizador não autenticado");
+        }
+        User currentUser = userRepository.findById(user.getUserId())
+            .orElseThrow(() -> new IllegalArgumentException("Utilizador não encontrado na base de dados. Por favor, faça logout e login novamente."));
         
-        // Buscar todos ItemSingles do item que estão fisicamente disponíveis
-        List<ItemSingle> itemSingles = itemSingleRepository.findByItem_ItemId(itemId)
-            .stream()
-            .filter(is -> ItemSingle.STATE_AVAILABLE.equals(is.getState())) // Apenas fisicamente disponíveis
-            .filter(is -> size == null || size.isEmpty() || size.equals(is.getSize())) // Filtrar por tamanho
-            .toList();
+        Set<Integer> itemIds = new LinkedHashSet<>();
+        for (BookingBundleRequestDTO.Line line : lines) {
+            if (line.getItemId() == null) {
+                throw new IllegalArgumentException(NOT_FOUND);
+            }
+            itemIds.add(line.getItemId());
+        }
+        Map<Integer, Item> itemsById = new HashMap<>();
+        for (Item item : itemRepository.findAllById(itemIds)) {
+            itemsById.put(item.getItemId(), item);
+        }
+        if (itemsById.size() != itemIds.size()) {
+            throw new IllegalArgumentException(NOT_FOUND);
+        }
         
-        if (itemSingles.isEmpty()) {
-            return null;
+        BookingWindow window = bundle.getWindow();
+        // Uma query para todos os itens; as unidades usadas saem do conjunto disponível
+        Map<Integer, List<ItemSingle>> freeByItem = new HashMap<>();
+        for (ItemSingle unit : itemSingleRepository.findFreeUnitsForItems(itemIds, window.getPickupDate(),
+                window.getStartUseDate(), window.getEndUseDate(), window.getReturnDate())) {
+            freeByItem.computeIfAbsent(unit.getItem().getItemId(), id -> new ArrayList<>()).add(unit);
         }
         
-        // Verificar qual não tem reservas conflitantes
-        for (ItemSingle itemSingle : itemSingles) {
-            Long overlapping = bookingRepository.countOverlappingBookingsForItemSingle(
-                itemSingle.getId(), pickupDate, startUseDate, endUseDate, returnDate);
-            
-            if (overlapping == 0) {
-                return itemSingle;
+        List<Booking> bookings = new ArrayList<>(lines.size());
+        List<BookingHold> usedHolds = new ArrayList<>();
+        for (BookingBundleRequestDTO.Line line : lines) {
+            Item item = itemsById.get(line.getItemId());
+            List<ItemSingle> pool = freeByItem.getOrDefault(item.getItemId(), new ArrayList<>());
+            ItemSingle unit = takeUnit(pool, item.getItemId(), line.getSize(), window, currentUser.getUserId(), usedHolds);
+            if (unit == null) {
+                throw new IllegalStateException(noUnitAvailableMessage(line.getSize()) + " (" + item.getName() + ")");
             }
+            bookings.add(newBooking(window, item, unit, currentUser));
         }
         
-        return null;
+        List<Booking> saved = new ArrayList<>(bookings.size());
+        for (Booking booking : bookings) {
+            saved.add(reserveUnit(booking, booking.getItemSingle().getSize()));
+        }
+        usedHolds.forEach(hold -> bookingHoldService.release(hold.getHoldId()));
+        return saved;
     }
     
-    public boolean checkAvailability(Integer itemId, Date startUseDate, Date endUseDate) {
-        return checkAvailabilityWithSize(itemId, null, startUseDate, endUseDate);
+    // Unidade retida pelo próprio utilizador, se servir; senão a escolhida pela estratégia entre as livres que ninguém reteve
+    private ItemSingle takeUnit(List<ItemSingle> pool, Integer itemId, String size, BookingWindow window,
+                                UUID userId, List<BookingHold> usedHolds) {
+        Optional<BookingHold> hold = bookingHoldService.findActiveForItem(userId, itemId)
+            .filter(h -> !usedHolds.contains(h) && matchesHold(h, itemId, size, window));
+        if (hold.isPresent()) {
+            for (Iterator<ItemSingle> it = pool.iterator(); it.hasNext(); ) {
+                ItemSingle unit = it.next();
+                if (unit.getId().equals(hold.get().getItemSingleId())) {
+                    it.remove();
+                    usedHolds.add(hold.get());
+                    return unit;
+                }
+            }
+        }
+        String requested = normalizeSize(size);
+        Set<UUID> held = bookingHoldService.heldUnitIds(itemId, window, userId);
+        List<ItemSingle> candidates = pool.stream()
+            .filter(unit -> (requested == null || requested.equals(unit.getSize())) && !held.contains(unit.getId()))
+            .toList();
+        ItemSingle unit = unitAllocator.choose(itemId, candidates, window);
+        if (unit != null) {
+            pool.remove(unit);
+        }
+        return unit;
     }
     
-    public boolean checkAvailabilityWithSize(Integer itemId, String size, Date startUseDate, Date endUseDate) {
-        // Usar lock global para evitar concorrência durante verificação
-        synchronized (GLOBAL_BOOKING_LOCK) {
-            Calendar calendar = Calendar.getInstance();
-            calendar.setTime(startUseDate);
-            calendar.add(Calendar.DAY_OF_MONTH, -1);
-            Date pickupDate = calendar.getTime();
-            
-            calendar.setTime(endUseDate);
-            calendar.add(Calendar.DAY_OF_MONTH, 1);
-            Date returnDate = calendar.getTime();
-            
-            // Buscar ItemSingles fisicamente disponíveis
-            List<ItemSingle> availableItemSingles = itemSingleRepository.findByItem_ItemId(itemId)
-                .stream()
-                .filter(is -> ItemSingle.STATE_AVAILABLE.equals(is.getState()))
-                .filter(is -> size == null || size.isEmpty() || size.equals(is.getSize()))
-                .toList();
-            
-            if (availableItemSingles.isEmpty()) {
-                return false;
+    /**
+     * Unsaved booking of the unit for the window, priced and in its initial state.
+     * The single, bundle and simple paths all build their bookings here.
+     */
+    private Booking newBooking(BookingWindow window, Item item, ItemSingle unit, User user) {
+        long useDays = window.getUseDays();
+        Booking booking = new Booking();
+        booking.applyWindow(window);
+        booking.setTotalDays((int) useDays);
+        booking.setTotalPrice(calculatePrice(item, useDays));
+        // Estado inicial já de acordo com as datas; daí em diante avança com o BookingStateScheduler
+        booking.setState(booking.stateOn(LocalDate.now()));
+        booking.setItem(item);
+        booking.setItemSingle(unit);
+        booking.setUser(user);
+        booking.setCreatedAt(new Date());
+        return booking;
+    }
+    
+    /**
+     * Inserts the booking letting the database have the final word on overlaps,
+     * so that several application nodes can book the same item safely.
+     * - With the Postgres exclusion constraint a conflicting insert fails on flush
+     * - Otherwise the unit row is locked (SELECT ... FOR UPDATE) and re-checked first
+     * - In optimistic mode the unit's version is bumped instead; losing that race
+     *   raises an optimistic lock failure so the attempt is retried
+     * Either way a conflict surfaces as the usual "Nenhuma unidade disponível" error.
+     */
+    private Booking reserveUnit(Booking booking, String size) {
+        ItemSingle unit = booking.getItemSingle();
+        
+        if (optimisticBookingRetry.isEnabled()) {
+            if (itemSingleRepository.incrementVersion(unit.getId(), unit.getVersion()) == 0) {
+                throw new ObjectOptimisticLockingFailureException(ItemSingle.class, unit.getId());
             }
-            
-            // Verificar se algum não tem conflitos
-            for (ItemSingle itemSingle : availableItemSingles) {
-                Long overlapping = bookingRepository.countOverlappingBookingsForItemSingle(
-                    itemSingle.getId(), pickupDate, startUseDate, endUseDate, returnDate);
-                
-                if (overlapping == 0) {
-                    return true;
-                }
+        } else if (!bookingExclusionConstraint.isInstalled()) {
+            itemSingleRepository.lockById(unit.getId());
+            Long overlapping = bookingRepository.countOverlappingBookingsForItemSingle(unit.getId(),
+                booking.getPickupDate(), booking.getStartUseDate(), booking.getEndUseDate(), booking.getReturnDate());
+            if (overlapping != null && overlapping > 0) {
+                throw new IllegalStateException(noUnitAvailableMessage(size));
             }
-            
-            return false;
         }
+        
+        try {
+            Booking saved = bookingRepository.saveAndFlush(booking);
+            availabilityIndex.bookingChanged(saved);
+            return saved;
+        } catch (DataIntegrityViolationException e) {
+            // Outro nó reservou a mesma unidade entretanto (exclusion constraint)
+            throw new IllegalStateException(noUnitAvailableMessage(size), e);
+        }
+    }
+    
+    private String noUnitAvailableMessage(String size) {
+        return size != null && !size.isEmpty()
+            ? "Nenhuma unidade disponível para o tamanho " + size + " nas datas selecionadas"
+            : "Nenhuma unidade disponível para as datas selecionadas";
+    }
+    
+    /**
+     * Single atomic reserve operation for the booking form.
+     * The allocation query runs once, under the item's lock; nothing else is
+     * read on success. On failure the reason is typed and the item's size
+     * availability is loaded so the form can be shown again, in a fresh read-only
+     * transaction once the booking's has rolled back (on Postgres a failed insert
+     * aborts its transaction, which then refuses any further query).
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public BookingResult reserve(BookingRequestDTO bookingRequest, User user) {
+        Integer itemId = bookingRequest.getItemId();
+        if (!bookingRequest.isValidDates()) {
+            return failure(BookingResult.FailureReason.INVALID_DATES, "Datas inválidas", itemId);
+        }
+        if (user == null) {
+            return failure(BookingResult.FailureReason.NOT_AUTHENTICATED, "Utilizador não autenticado", itemId);
+        }
+        
+        try {
+            return BookingResult.success(createBooking(bookingRequest, user));
+        } catch (IllegalArgumentException e) {
+            if (NOT_FOUND.equals(e.getMessage())) {
+                return BookingResult.failure(BookingResult.FailureReason.ITEM_NOT_FOUND, e.getMessage(),
+                    List.of(), Map.of());
+            }
+            return failure(BookingResult.FailureReason.USER_NOT_FOUND, e.getMessage(), itemId);
+        } catch (IllegalStateException e) {
+            // Esgotadas as tentativas do modo otimista: conflito e não falta de unidades
+            BookingResult.FailureReason reason = e.getCause() instanceof ConcurrencyFailureException
+                ? BookingResult.FailureReason.CONFLICT
+                : BookingResult.FailureReason.NO_UNIT_AVAILABLE;
+            return failure(reason, e.getMessage(), itemId);
+        } catch (RuntimeException e) {
+            return failure(BookingResult.FailureReason.ERROR, e.getMessage(), itemId);
+        }
+    }
+    
+    private BookingResult failure(BookingResult.FailureReason reason, String message, Integer itemId) {
+        // Só no insucesso: uma leitura das unidades dá os tamanhos e as contagens do formulário
+        List<ItemSingle> units = itemId == null ? List.of() : readOnlyTransaction.execute(status -> availableUnits(itemId));
+        List<String> sizes = units.stream().map(ItemSingle::getSize).distinct().sorted().toList();
+        return BookingResult.failure(reason, message, sizes, countBySize(units));
+    }
+    
+    // Adicionar método createBookingWithSize para compatibilidade
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Booking createBookingWithSize(BookingRequestDTO bookingRequest, User user) {
+        return createBooking(bookingRequest, user);
+    }
+    
+    private ItemSingle findAvailableItemSingleForDates(Integer itemId, String size, BookingWindow window, UUID userId) {
+        return unitAllocator.choose(itemId, findFreeUnits(itemId, size, window, userId, unitAllocator.comparesUnits()),
+            window);
+    }
+    
+    private List<ItemSingle> findFreeUnits(Integer itemId, String size, BookingWindow window, UUID userId, boolean all) {
+        // Unidades retidas por outros utilizadores contam como ocupadas
+        Set<UUID> held = bookingHoldService.heldUnitIds(itemId, window, userId);
+        
+        // Uma única query: unidades AVAILABLE do tamanho pedido sem reservas sobrepostas
+        // (só a primeira com first-fit; todas quando a estratégia as compara)
+        return itemSingleRepository.findFreeUnits(itemId, normalizeSize(size),
+                window.getPickupDate(), window.getStartUseDate(), window.getEndUseDate(), window.getReturnDate(),
+                all ? Limit.unlimited() : Limit.of(held.size() + 1))
+            .stream()
+            .filter(unit -> !held.contains(unit.getId()))
+            .toList();
+    }
+    
+    // Tamanho vazio equivale a "qualquer tamanho" na query
+    private String normalizeSize(String size) {
+        return size == null || size.isEmpty() ? null : size;
+    }
+    
+    public boolean checkAvailability(Integer itemId, LocalDate startUseDate, LocalDate endUseDate) {
+        return checkAvailabilityWithSize(itemId, null, startUseDate, endUseDate);
+    }
+    
+    public boolean checkAvailabilityWithSize(Integer itemId, String size, LocalDate startUseDate, LocalDate endUseDate) {
+        return checkAvailabilityWithSize(itemId, size, BookingWindow.of(startUseDate, endUseDate));
+    }
+    
+    public boolean checkAvailabilityWithSize(Integer itemId, String size, BookingWindow window) {
+        // Leitura sem lock: é apenas indicativa, a reserva volta a validar sob o lock do item
+        // Índice em memória quando já cobre o item: responde sem ir à base de dados
+        if (availabilityIndex.covers(itemId)) {
+            long held = countHeld(itemId, normalizeSize(size), window);
+            if (held == 0) {
+                return availabilityIndex.hasFreeUnit(itemId, normalizeSize(size), window.getPickupDate(), window.getReturnDate());
+            }
+            return availabilityIndex.countFreeUnits(itemId, normalizeSize(size),
+                window.getPickupDate(), window.getReturnDate()) > held;
+        }
+        
+        return !findFreeUnits(itemId, size, window, null, false).isEmpty();
+    }
+    
+    // Unidades retidas em checkout (de qualquer utilizador) para o tamanho e datas
+    private long countHeld(Integer itemId, String size, BookingWindow window) {
+        Map<String, Long> heldBySize = bookingHoldService.countHeldBySize(itemId, window);
+        if (size == null) {
+            return heldBySize.values().stream().mapToLong(Long::longValue).sum();
+        }
+        return heldBySize.getOrDefault(size, 0L);
     }
     
     public List<Booking> getUserBookings(User user) {
@@ -203,60 +449,153 @@ public class BookingService {
         }
         return bookingRepository.findByUserOrderByCreatedAtDesc(user);
     }
+
+    /**
+     * One page of the user's bookings filtered by persisted state ("active" / "past") and item
+     * name, most recent start date first. Pass the previous page's cursor to get the next one.
+     * The states are kept current by {@link BookingStateScheduler}.
+     */
+    @Transactional(readOnly = true)
+    public BookingPageDTO getUserBookingsPage(User user, String filter, String search,
+                                              LocalDate afterStart, UUID afterId) {
+        if (user == null) {
+            throw new IllegalArgumentException("Utilizador não autenticado");
+        }
+        String term = (search == null || search.isEmpty()) ? null : search.toLowerCase();
+        // Mais uma linha que a página só para saber se existe a seguinte
+        Limit limit = Limit.of(MY_BOOKINGS_PAGE_SIZE + 1);
+
+        List<String> states = statesForFilter(filter);
+        List<Booking> rows = states == null
+                ? bookingRepository.findUserBookingsPage(user, term, afterStart, afterId, limit)
+                : bookingRepository.findUserBookingsPageByStates(user, states, term, afterStart, afterId, limit);
+
+        boolean hasNext = rows.size() > MY_BOOKINGS_PAGE_SIZE;
+        return new BookingPageDTO(hasNext ? rows.subList(0, MY_BOOKINGS_PAGE_SIZE) : rows, hasNext);
+    }
+
+    // null = sem filtro de estado
+    private static List<String> statesForFilter(String filter) {
+        if ("active".equals(filter)) {
+            return List.of(Booking.STATE_CONFIRMED, Booking.STATE_ACTIVE);
+        } else if ("past".equals(filter)) {
+            return List.of(Booking.STATE_COMPLETED, Booking.STATE_OVERDUE);
+        }
+        return null;
+    }
     
     public BigDecimal calculatePrice(Integer itemId, long useDays) {
         Item item = itemRepository.findById(itemId)
             .orElseThrow(() -> new IllegalArgumentException(NOT_FOUND));
+        return calculatePrice(item, useDays);
+    }
+    
+    public BigDecimal calculatePrice(Item item, long useDays) {
         return item.getPriceRent().multiply(BigDecimal.valueOf(useDays));
     }
+    
+    /**
+     * Answers many (itemId, size, start, end) availability queries at once:
+     * - Prices come from a single findAllById over the distinct items
+     * - Items covered by the availability index are counted in memory
+     * - The rest fall back to one grouped count query per tuple (no item lock)
+     */
+    @Transactional(readOnly = true)
+    public List<AvailabilityResultDTO> checkAvailabilityBatch(List<BookingRequestDTO> queries) {
+        if (queries == null || queries.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (queries.size() > MAX_BATCH_QUERIES) {
+            throw new IllegalArgumentException("Máximo de " + MAX_BATCH_QUERIES + " pedidos por chamada");
+        }
+        
+        Set<Integer> itemIds = new HashSet<>();
+        for (BookingRequestDTO query : queries) {
+            if (query.getItemId() != null) {
+                itemIds.add(query.getItemId());
+            }
+        }
+        Map<Integer, Item> itemsById = new HashMap<>();
+        for (Item item : itemRepository.findAllById(itemIds)) {
+            itemsById.put(item.getItemId(), item);
+        }
+        
+        List<AvailabilityResultDTO> results = new ArrayList<>(queries.size());
+        for (BookingRequestDTO query : queries) {
+            results.add(resolveQuery(query, itemsById.get(query.getItemId())));
+        }
+        return results;
+    }
+    
+    private AvailabilityResultDTO resolveQuery(BookingRequestDTO query, Item item) {
+        AvailabilityResultDTO result = new AvailabilityResultDTO(query);
+        
+        if (item == null) {
+            result.setMessage(NOT_FOUND);
+            return result;
+        }
+        if (!query.isValidDates()) {
+            result.setMessage("Datas inválidas");
+            return result;
+        }
+        
+        BookingWindow window = query.getWindow();
+        String size = normalizeSize(query.getSize());
+        long freeUnits;
+        if (availabilityIndex.covers(item.getItemId())) {
+            freeUnits = Math.max(0, availabilityIndex.countFreeUnits(item.getItemId(), size,
+                    window.getPickupDate(), window.getReturnDate()) - countHeld(item.getItemId(), size, window));
+        } else {
+            freeUnits = countFreeUnitsBySize(item.getItemId(), window)
+                .stream()
+                .filter(sizeAvailability -> size == null || size.equals(sizeAvailability.getSize()))
+                .mapToLong(SizeAvailabilityDTO::getFreeUnits)
+                .sum();
+        }
+        
+        long useDays = window.getUseDays();
+        result.setFreeUnits(freeUnits);
+        result.setAvailable(freeUnits > 0);
+        result.setUseDays(useDays);
+        result.setTotalPrice(calculatePrice(item, useDays));
+        result.setMessage(freeUnits > 0
+            ? "Item disponível para o período selecionado"
+            : "Item não disponível para o período selecionado");
+        return result;
+    }
 
     public Booking getBookingById(UUID bookingId) {
-        return bookingRepository.findById(bookingId).orElse(null);
+        return bookingRepository.findWithDetailsByBookingId(bookingId).orElse(null);
     }
         
     public boolean isItemAvailable(Integer itemId, LocalDate startUseDate, LocalDate endUseDate) {
-        // Converter LocalDate para Date
-        Date startDate = Date.from(startUseDate.atStartOfDay(ZoneId.systemDefault()).toInstant());
-        Date endDate = Date.from(endUseDate.atStartOfDay(ZoneId.systemDefault()).toInstant());
-        
         // Usar o método existente que verifica disponibilidade (sem tamanho)
-        return checkAvailability(itemId, startDate, endDate);
+        return checkAvailability(itemId, startUseDate, endUseDate);
     }
     
     public boolean isItemAvailableWithSize(Integer itemId, String size, LocalDate startUseDate, LocalDate endUseDate) {
-        // Converter LocalDate para Date
-        Date startDate = Date.from(startUseDate.atStartOfDay(ZoneId.systemDefault()).toInstant());
-        Date endDate = Date.from(endUseDate.atStartOfDay(ZoneId.systemDefault()).toInstant());
-        
         // Usar o método que considera tamanho
-        return checkAvailabilityWithSize(itemId, size, startDate, endDate);
+        return checkAvailabilityWithSize(itemId, size, startUseDate, endUseDate);
     }
     
     public List<Booking> getConflictingBookings(Integer itemId, LocalDate startUseDate, LocalDate endUseDate) {
         try {
-            // Converter LocalDate para Date
-            Date startDate = Date.from(startUseDate.atStartOfDay(ZoneId.systemDefault()).toInstant());
-            Date endDate = Date.from(endUseDate.atStartOfDay(ZoneId.systemDefault()).toInstant());
-            
-            // Calcular pickupDate e returnDate (1 dia antes e 2 dias depois)
-            Calendar calendar = Calendar.getInstance();
-            calendar.setTime(startDate);
-            calendar.add(Calendar.DAY_OF_MONTH, -1); // pickup date
-            Date pickupDate = calendar.getTime();
-            
-            calendar.setTime(endDate);
-            calendar.add(Calendar.DAY_OF_MONTH, 2);
-            Date laundryDate = calendar.getTime();
+            // Pickup 1 dia antes, lavandaria 2 dias depois do fim de uso
+            BookingWindow window = BookingWindow.of(startUseDate, endUseDate);
             
             // Chamar o método do repositório (para o item em geral)
-            return bookingRepository.findOverlappingBookings(
-                itemId, pickupDate, startDate, endDate, laundryDate
-            );
+            return bookingRepository.findOverlappingBookings(itemId, window.getPickupDate(),
+                window.getStartUseDate(), window.getEndUseDate(), window.getLaundryDate());
         } catch (Exception e) {
             return new ArrayList<>();
         }
     }
     
+    // Intervalos de dias sem nenhuma unidade livre (do tamanho pedido), para o calendário
+    public List<DateRangeDTO> getUnavailableRanges(Integer itemId, String size, LocalDate from, LocalDate to) {
+        return availabilityIndex.getUnavailableRanges(itemId, normalizeSize(size), from, to);
+    }
+    
     public List<Booking> getConflictingBookingsBySize(Integer itemId, LocalDate startUseDate, LocalDate endUseDate) {
         // Return conflicts for the item
         return getConflictingBookings(itemId, startUseDate, endUseDate);
@@ -264,6 +603,7 @@ public class BookingService {
     
     public void saveBooking(Booking booking) {
         bookingRepository.save(booking);
+        availabilityIndex.bookingChanged(booking);
     }
     
     public Booking createSimpleBooking(Integer itemId, LocalDate startUseDate, LocalDate endUseDate, User user) {
@@ -274,49 +614,17 @@ public class BookingService {
             throw new IllegalStateException("Item não disponível nas datas selecionadas");
         }
         
-        // Converter para Date
-        Date startDate = Date.from(startUseDate.atStartOfDay(ZoneId.systemDefault()).toInstant());
-        Date endDate = Date.from(endUseDate.atStartOfDay(ZoneId.systemDefault()).toInstant());
-        
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTime(startDate);
-        calendar.add(Calendar.DAY_OF_MONTH, -1);
-        Date pickupDate = calendar.getTime();
-        
-        calendar.setTime(endDate);
-        calendar.add(Calendar.DAY_OF_MONTH, 1);
-        Date returnDate = calendar.getTime();
-        
-        calendar.add(Calendar.DAY_OF_MONTH, 1);
-        Date laundryDate = calendar.getTime();
+        BookingWindow window = BookingWindow.of(startUseDate, endUseDate);
         
         // Encontrar ItemSingle disponível (qualquer tamanho)
-        ItemSingle availableItemSingle = findAvailableItemSingleForDates(
-            itemId, null, pickupDate, startDate, endDate, laundryDate);
+        ItemSingle availableItemSingle = findAvailableItemSingleForDates(itemId, null, window,
+            user != null ? user.getUserId() : null);
         
         if (availableItemSingle == null) {
             throw new IllegalStateException("Nenhuma unidade disponível para as datas selecionadas");
         }
         
-        // Calcular dias e preço
-        long useDays = ChronoUnit.DAYS.between(startUseDate, endUseDate) + 1;
-        BigDecimal totalPrice = item.getPriceRent().multiply(BigDecimal.valueOf(useDays));
-        
-        // Criar booking
-        Booking booking = new Booking();
-        booking.setPickupDate(pickupDate);
-        booking.setStartUseDate(startDate);
-        booking.setEndUseDate(endDate);
-        booking.setReturnDate(returnDate);
-        booking.setTotalDays((int) useDays);
-        booking.setTotalPrice(totalPrice);
-        booking.setState(CONFIRMED);
-        booking.setItem(item);
-        booking.setItemSingle(availableItemSingle);
-        booking.setUser(user);
-        booking.setCreatedAt(new Date());
-        
-        return bookingRepository.save(booking);
+        return reserveUnit(newBooking(window, item, availableItemSingle, user), null);
     }
     
     public boolean checkItemAvailability(Integer itemId, LocalDate start, LocalDate end) {
@@ -324,26 +632,7 @@ public class BookingService {
     }
 
     public String getCurrentBookingState(Booking booking) {
-        Date now = new Date();
-        
-        if (booking.getState() != null && 
-            (booking.getState().equals(CANCELLED) || booking.getState().equals(COMPLETED))) {
-            return booking.getState();
-        }
-        
-        // Determinar estado baseado nas datas
-        if (now.before(booking.getStartUseDate())) {
-            return CONFIRMED;
-        } else if (now.after(booking.getEndUseDate())) {
-            // Verificar se já passou a data de devolução sem devolver
-            if (now.after(booking.getReturnDate()) && !"RETURNED".equals(booking.getState())) {
-                return "OVERDUE";
-            } else {
-                return COMPLETED;
-            }
-        } else {
-            return "ACTIVE";
-        }
+        return booking.getCurrentState();
     }
 
     /**
@@ -360,7 +649,7 @@ public class BookingService {
         }
 
         java.time.ZonedDateTime now = java.time.ZonedDateTime.now(java.time.ZoneId.systemDefault());
-        java.time.ZonedDateTime start = booking.getStartUseDate().toInstant().atZone(java.time.ZoneId.systemDefault()).toLocalDate().atStartOfDay(java.time.ZoneId.systemDefault());
+        java.time.ZonedDateTime start = booking.getStartUseDate().atStartOfDay(java.time.ZoneId.systemDefault());
 
         long hours = java.time.Duration.between(now, start).toHours();
 
@@ -385,6 +674,7 @@ public class BookingService {
 
     /**
      * Cancel a booking: set state to CANCELLED and persist. Returns the refund info computed.
+     * Publishes a {@link BookingCancelledEvent} so the freed unit can go to the item's waitlist.
      */
     public com.magiclook.dto.RefundInfoDTO cancelBooking(Booking booking) {
         if (booking == null) throw new IllegalArgumentException("Reserva inexistente");
@@ -398,15 +688,19 @@ public class BookingService {
 
         booking.setState(CANCELLED);
         bookingRepository.save(booking);
+        availabilityIndex.bookingChanged(booking);
+        // A lista de espera do item é tratada depois do commit, fora deste pedido
+        if (booking.getItem() != null) {
+            eventPublisher.publishEvent(new BookingCancelledEvent(booking.getBookingId(), booking.getItem().getItemId()));
+        }
 
         return info;
     }
     
     // Método para obter tamanhos disponíveis para um item
     public List<String> getAvailableSizesForItem(Integer itemId) {
-        return itemSingleRepository.findByItem_ItemId(itemId)
+        return availableUnits(itemId)
             .stream()
-            .filter(is -> "AVAILABLE".equals(is.getState()))
             .map(ItemSingle::getSize)
             .distinct()
             .sorted()
@@ -415,12 +709,18 @@ public class BookingService {
     
     // Método para obter contagem por tamanho
     public Map<String, Integer> getSizeAvailabilityCount(Integer itemId) {
-        Map<String, Integer> sizeCount = new HashMap<>();
-        
-        List<ItemSingle> itemSingles = itemSingleRepository.findByItem_ItemId(itemId)
+        return countBySize(availableUnits(itemId));
+    }
+    
+    private List<ItemSingle> availableUnits(Integer itemId) {
+        return itemSingleRepository.findByItem_ItemId(itemId)
             .stream()
-            .filter(is -> "AVAILABLE".equals(is.getState()))
+            .filter(is -> ItemSingle.STATE_AVAILABLE.equals(is.getState()))
             .toList();
+    }
+    
+    private Map<String, Integer> countBySize(List<ItemSingle> itemSingles) {
+        Map<String, Integer> sizeCount = new HashMap<>();
         
         for (ItemSingle itemSingle : itemSingles) {
             String size = itemSingle.getSize() != null ? itemSingle.getSize() : "Único";
@@ -430,36 +730,33 @@ public class BookingService {
         return sizeCount;
     }
     
-    public Map<String, Integer> getSizeAvailabilityForDates(Integer itemId, Date startUseDate, Date endUseDate) {
+    public Map<String, Integer> getSizeAvailabilityForDates(Integer itemId, LocalDate startUseDate, LocalDate endUseDate) {
         Map<String, Integer> availability = new HashMap<>();
         
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTime(startUseDate);
-        calendar.add(Calendar.DAY_OF_MONTH, -1);
-        Date pickupDate = calendar.getTime();
-        
-        calendar.setTime(endUseDate);
-        calendar.add(Calendar.DAY_OF_MONTH, 1);
-        Date returnDate = calendar.getTime();
-        
-        // Buscar todos ItemSingles fisicamente disponíveis
-        List<ItemSingle> allItemSingles = itemSingleRepository.findByItem_ItemId(itemId)
-            .stream()
-            .filter(is -> ItemSingle.STATE_AVAILABLE.equals(is.getState()))
-            .toList();
-        
-        // Para cada tamanho, contar quantos não têm conflitos
-        for (ItemSingle itemSingle : allItemSingles) {
-            String size = itemSingle.getSize() != null ? itemSingle.getSize() : "Único";
-            
-            Long overlapping = bookingRepository.countOverlappingBookingsForItemSingle(
-                itemSingle.getId(), pickupDate, startUseDate, endUseDate, returnDate);
-            
-            if (overlapping == 0) {
-                availability.put(size, availability.getOrDefault(size, 0) + 1);
-            }
+        for (SizeAvailabilityDTO sizeAvailability : getFreeUnitsBySize(itemId, startUseDate, endUseDate)) {
+            availability.put(sizeAvailability.getSize(), (int) sizeAvailability.getFreeUnits());
         }
         
         return availability;
     }
-}
\ No newline at end of file
+    
+    // Stock livre por tamanho para as datas escolhidas (uma query, independente do número de unidades)
+    public List<SizeAvailabilityDTO> getFreeUnitsBySize(Integer itemId, LocalDate startUseDate, LocalDate endUseDate) {
+        return countFreeUnitsBySize(itemId, BookingWindow.of(startUseDate, endUseDate));
+    }
+    
+    private List<SizeAvailabilityDTO> countFreeUnitsBySize(Integer itemId, BookingWindow window) {
+        List<SizeAvailabilityDTO> free = itemSingleRepository.countFreeUnitsBySize(itemId, window.getPickupDate(),
+            window.getStartUseDate(), window.getEndUseDate(), window.getReturnDate());
+        Map<String, Long> heldBySize = bookingHoldService.countHeldBySize(itemId, window);
+        if (heldBySize.isEmpty()) {
+            return free;
+        }
+        // Descontar as unidades retidas em checkout
+        for (SizeAvailabilityDTO sizeAvailability : free) {
+            long held = heldBySize.getOrDefault(sizeAvailability.getSize(), 0L);
+            sizeAvailability.setFreeUnits(Math.max(0, sizeAvailability.getFreeUnits() - held));
+        }
+        return free;
+    }
+}
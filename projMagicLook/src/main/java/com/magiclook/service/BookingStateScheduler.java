@@ -0,0 +1,98 @@
+package com.magiclook.service;
+
+import com.magiclook.data.Booking;
+import com.magiclook.repository.BookingRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+
+/**
+ * Keeps the persisted booking state in step with the calendar:
+ * - Right after each day boundary, bulk UPDATEs move bookings
+ *   CONFIRMED → ACTIVE → COMPLETED (once returned) / OVERDUE following {@link Booking#stateOn}
+ * - Runs once when the application is ready to catch up on days it was down
+ * - List pages filter and sort on the stored state instead of re-evaluating
+ *   every booking per request
+ */
+@Component
+public class BookingStateScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookingStateScheduler.class);
+
+    private final BookingRepository bookingRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Counter toConfirmed;
+    private final Counter toActive;
+    private final Counter toCompleted;
+    private final Counter toOverdue;
+
+    public BookingStateScheduler(BookingRepository bookingRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry) {
+        this.bookingRepository = bookingRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+
+        this.toConfirmed = transitions(meterRegistry, Booking.STATE_CONFIRMED);
+        this.toActive = transitions(meterRegistry, Booking.STATE_ACTIVE);
+        this.toCompleted = transitions(meterRegistry, Booking.STATE_COMPLETED);
+        this.toOverdue = transitions(meterRegistry, Booking.STATE_OVERDUE);
+    }
+
+    private static Counter transitions(MeterRegistry meterRegistry, String state) {
+        return Counter.builder("booking.state.transitions")
+                .description("Bookings moved to a new state by the day-boundary scheduler")
+                .tag("to", state)
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void catchUp() {
+        try {
+            advanceToToday();
+        } catch (RuntimeException e) {
+            // Volta a tentar na próxima mudança de dia
+            logger.warn("Could not update booking states on startup: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(cron = "${booking.state.transition-cron:0 1 0 * * *}")
+    public void advanceToToday() {
+        advance(LocalDate.now());
+    }
+
+    /**
+     * Applies the state rule for the given day to every non-final booking in one transaction.
+     * Returns the number of bookings whose state changed.
+     */
+    public int advance(LocalDate today) {
+        Integer changed = transactionTemplate.execute(status -> {
+            // As condições de datas são disjuntas: cada reserva muda no máximo uma vez
+            int confirmed = bookingRepository.markConfirmed(today);
+            int active = bookingRepository.markActive(today);
+            int completed = bookingRepository.markCompleted(today);
+            int overdue = bookingRepository.markOverdue(today);
+
+            toConfirmed.increment(confirmed);
+            toActive.increment(active);
+            toCompleted.increment(completed);
+            toOverdue.increment(overdue);
+            return confirmed + active + completed + overdue;
+        });
+
+        int total = changed == null ? 0 : changed;
+        if (total > 0) {
+            logger.info("Booking states advanced for {}: {} bookings changed", today, total);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,17 @@
+package com.magiclook.service;
+
+/**
+ * Published by {@link StaffService} when staff add, edit or remove stock, so
+ * catalog caches (e.g. the facet lists) can be dropped and the in-memory catalog
+ * indexes can reload that item after the commit (null: everything).
+ */
+public class CatalogChangedEvent {
+
+    private final Integer itemId;
+
+    public CatalogChangedEvent(Integer itemId) {
+        this.itemId = itemId;
+    }
+
+    public Integer getItemId() { return itemId; }
+}
@@ -0,0 +1,90 @@
+package com.magiclook.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.magiclook.dto.FacetedSearchResult;
+import com.magiclook.dto.ItemFilterDTO;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Caffeine cache for the catalog's filter option lists (colors, brands, sizes...)
+ * and for faceted searches answered from the database.
+ * - Bounded by catalog.facets.max-entries and expired catalog.facets.ttl-seconds
+ *   after being loaded, as a safety net for changes made outside the application
+ * - Dropped as a whole after any {@link CatalogChangedEvent} commits; keys carry a
+ *   generation, so a list loaded from the old data while staff were saving is
+ *   never served afterwards
+ * - Hits, misses, evictions and size are exported as cache.* metrics (cache=catalog.facets)
+ */
+@Component
+public class CatalogFacetCache {
+
+    private final Cache<FacetKey, Object> cache;
+    private final AtomicLong generation = new AtomicLong();
+
+    public CatalogFacetCache(@Value("${catalog.facets.max-entries:100}") long maxEntries,
+                             @Value("${catalog.facets.ttl-seconds:600}") long ttlSeconds,
+                             MeterRegistry meterRegistry) {
+        if (maxEntries <= 0 || ttlSeconds <= 0) {
+            throw new IllegalArgumentException("catalog.facets.max-entries e catalog.facets.ttl-seconds devem ser positivos");
+        }
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "catalog.facets");
+    }
+
+    /**
+     * The cached list of the facet (optionally per gender), loading it on a miss.
+     */
+    @SuppressWarnings("unchecked")
+    public List<String> get(String facet, String gender, Supplier<List<String>> loader) {
+        // Cópia imutável (as colunas podem ter null, por isso não List.copyOf)
+        return (List<String>) cache.get(new FacetKey(generation.get(), facet, gender, null),
+                key -> Collections.unmodifiableList(new ArrayList<>(loader.get())));
+    }
+
+    /**
+     * The cached faceted search for the gender and filter, loading it on a miss. Only for
+     * filters without a date window (bookings don't invalidate the cache); the filter is
+     * part of the key and must not be changed afterwards, and the result is shared.
+     */
+    public FacetedSearchResult getSearch(String gender, ItemFilterDTO filter, Supplier<FacetedSearchResult> loader) {
+        if (filter.hasDateWindow()) {
+            throw new IllegalArgumentException("Pesquisas com janela de datas não podem ficar em cache");
+        }
+        return (FacetedSearchResult) cache.get(new FacetKey(generation.get(), "search", gender, filter),
+                key -> loader.get());
+    }
+
+    // Depois do commit: antes disso uma leitura ainda veria os dados antigos
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        invalidateAll();
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    private record FacetKey(long generation, String facet, String gender, ItemFilterDTO filter) {
+    }
+}
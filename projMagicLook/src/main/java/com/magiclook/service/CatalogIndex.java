@@ -0,0 +1,557 @@
+package com.magiclook.service;
+
+import com.magiclook.data.Item;
+import com.magiclook.dto.FacetedSearchResult;
+import com.magiclook.dto.FacetedSearchResult.PriceBucket;
+import com.magiclook.dto.ItemFilterDTO;
+import com.magiclook.repository.ItemRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory columnar index of the catalog for attribute filtering without SQL:
+ * - Each item gets a dense slot; every attribute (gender, color, brand, material,
+ *   category, subcategory, shop location) is a dictionary-encoded column with one
+ *   bitset posting list per value, and available sizes are a multi-valued column
+ * - Rent prices are kept as a sorted array of cents, so a price range is two
+ *   binary searches; slots are also kept in name order for the catalog pages
+ * - A filter is the AND of the matching posting lists; the date window is then
+ *   checked per item against the {@link AvailabilityIndex}
+ * - Catalog pages walk the name or price order from the keyset cursor and keep the
+ *   slots in the filter's bitset, in the same order as the ItemRepository page queries
+ * - Facet counts for the catalog page are cardinalities of the same posting lists,
+ *   each facet ANDed with every other active filter
+ * - Warmed once the application is ready and updated item by item after each
+ *   {@link CatalogChangedEvent} commits
+ * - Returns the items as loaded (with type and shop), detached: callers only read them
+ */
+@Component
+public class CatalogIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogIndex.class);
+
+    private static final int GENDER = 0;
+    private static final int COLOR = 1;
+    private static final int BRAND = 2;
+    private static final int MATERIAL = 3;
+    private static final int CATEGORY = 4;
+    private static final int SUBCATEGORY = 5;
+    private static final int SHOP_LOCATION = 6;
+    private static final int COLUMNS = 7;
+
+    private static final BitSet EMPTY = new BitSet();
+
+    // Facetas de valor único e a coluna de cada uma
+    private static final Map<String, Integer> FACET_COLUMNS = Map.of(
+            FacetedSearchResult.COLOR, COLOR,
+            FacetedSearchResult.BRAND, BRAND,
+            FacetedSearchResult.MATERIAL, MATERIAL,
+            FacetedSearchResult.CATEGORY, CATEGORY,
+            FacetedSearchResult.SUBCATEGORY, SUBCATEGORY,
+            FacetedSearchResult.SHOP_LOCATION, SHOP_LOCATION);
+
+    private final ItemRepository itemRepository;
+    private final AvailabilityIndex availabilityIndex;
+    private final boolean enabled;
+
+    // Tudo o que está abaixo só é lido/escrito com o lock
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Integer> slots = new HashMap<>();
+    private final List<Item> items = new ArrayList<>();
+    private final Column[] columns = new Column[COLUMNS];
+    private final Column sizes = new Column();
+    // Slots com pelo menos uma unidade AVAILABLE (os outros não aparecem no catálogo)
+    private final BitSet live = new BitSet();
+    private long[] sortedPrices = new long[0];
+    private int[] slotsByPrice = new int[0];
+    private int[] slotsByName = new int[0];
+
+    private volatile boolean ready;
+
+    public CatalogIndex(ItemRepository itemRepository, AvailabilityIndex availabilityIndex,
+                        @Value("${catalog.index.enabled:true}") boolean enabled,
+                        MeterRegistry registry) {
+        this.itemRepository = itemRepository;
+        this.availabilityIndex = availabilityIndex;
+        this.enabled = enabled;
+        for (int i = 0; i < COLUMNS; i++) {
+            columns[i] = new Column();
+        }
+
+        Gauge.builder("catalog.index.items", this, CatalogIndex::getIndexedItems)
+                .description("Catalog items with available units held in the catalog index")
+                .register(registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            rebuild();
+            ready = true;
+            logger.info("Catalog index ready with {} items", getIndexedItems());
+        } catch (RuntimeException e) {
+            // Sem índice os filtros continuam a ir à base de dados
+            logger.warn("Could not build catalog index, using database filters: {}", e.getMessage());
+        }
+    }
+
+    // Depois do commit: o índice nunca vê stock por confirmar
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (!ready) {
+            return;
+        }
+        if (event.getItemId() == null) {
+            rebuild();
+        } else {
+            reloadItem(event.getItemId());
+        }
+    }
+
+    /**
+     * Items of the gender matching the filter, in item id order, or empty when the
+     * index can't answer (not built, or an item outside the availability index for a
+     * date window) and the caller must use the database.
+     */
+    public Optional<List<Item>> find(String gender, ItemFilterDTO filter) {
+        if (!ready) {
+            return Optional.empty();
+        }
+        lock.readLock().lock();
+        try {
+            BitSet matches = matching(gender, filter);
+            List<Item> found = new ArrayList<>(matches.cardinality());
+            for (int slot = matches.nextSetBit(0); slot >= 0; slot = matches.nextSetBit(slot + 1)) {
+                Item item = items.get(slot);
+                if (filter.hasDateWindow()) {
+                    if (!availabilityIndex.covers(item.getItemId())) {
+                        return Optional.empty();
+                    }
+                    if (!availabilityIndex.hasFreeUnit(item.getItemId(), filter.getSize(),
+                            filter.getPickupDate(), filter.getReturnDate())) {
+                        continue;
+                    }
+                }
+                found.add(item);
+            }
+            return Optional.of(found);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Up to limit items of the gender matching the filter, after the keyset cursor
+     * (afterId null = first page), in the filter's sort order with the same tie-break
+     * on item id as the ItemRepository page queries. Empty when the index can't answer
+     * and the caller must use the database.
+     */
+    public Optional<List<Item>> findPage(String gender, ItemFilterDTO filter, Integer afterId,
+                                         String afterName, BigDecimal afterPrice, int limit) {
+        if (!ready) {
+            return Optional.empty();
+        }
+        String sort = filter.getSortOrDefault();
+        boolean descending = ItemFilterDTO.SORT_PRICE_DESC.equals(sort);
+        boolean byPrice = descending || ItemFilterDTO.SORT_PRICE_ASC.equals(sort);
+        if (afterId != null && (byPrice ? afterPrice == null : afterName == null)) {
+            return Optional.empty();
+        }
+
+        lock.readLock().lock();
+        try {
+            BitSet matches = matching(gender, filter);
+            int[] order = byPrice ? slotsByPrice : slotsByName;
+            List<Item> page = new ArrayList<>(limit);
+            for (int i = 0; i < order.length && page.size() < limit; i++) {
+                int slot = order[descending ? order.length - 1 - i : i];
+                if (!matches.get(slot)) {
+                    continue;
+                }
+                Item item = items.get(slot);
+                if (afterId != null && !isAfter(item, byPrice, descending, afterId, afterName, afterPrice)) {
+                    continue;
+                }
+                if (filter.hasDateWindow()) {
+                    if (!availabilityIndex.covers(item.getItemId())) {
+                        return Optional.empty();
+                    }
+                    if (!availabilityIndex.hasFreeUnit(item.getItemId(), filter.getSize(),
+                            filter.getPickupDate(), filter.getReturnDate())) {
+                        continue;
+                    }
+                }
+                page.add(item);
+            }
+            return Optional.of(page);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Catalog search with facet counts, with the same semantics as the database path
+     * of ItemService.search: a value's count is what picking it would return with the
+     * other filters kept, and every value present in the gender's catalog is an option.
+     * Empty when the index can't answer and the caller must use the database.
+     */
+    public Optional<FacetedSearchResult> search(String gender, ItemFilterDTO filter) {
+        if (!ready) {
+            return Optional.empty();
+        }
+        lock.readLock().lock();
+        try {
+            BitSet base = (BitSet) live.clone();
+            base.and(columns[GENDER].posting(gender));
+
+            // Com janela de datas só contam os tamanhos com uma unidade livre em toda a janela
+            Map<String, BitSet> sizePostings = sizes.byValue();
+            if (filter.hasDateWindow()) {
+                sizePostings = freeSizes(base, filter);
+                if (sizePostings == null) {
+                    return Optional.empty();
+                }
+                BitSet free = new BitSet();
+                sizePostings.values().forEach(free::or);
+                base.and(free);
+            }
+
+            Map<String, BitSet> selected = new HashMap<>();
+            select(selected, FacetedSearchResult.COLOR, filter.getColor());
+            select(selected, FacetedSearchResult.BRAND, filter.getBrand());
+            select(selected, FacetedSearchResult.MATERIAL, filter.getMaterial());
+            select(selected, FacetedSearchResult.CATEGORY, filter.getCategory());
+            select(selected, FacetedSearchResult.SUBCATEGORY, filter.getSubcategory());
+            select(selected, FacetedSearchResult.SHOP_LOCATION, filter.getShopLocation());
+            if (filter.getSize() != null) {
+                selected.put(FacetedSearchResult.SIZE, sizePostings.getOrDefault(filter.getSize(), EMPTY));
+            }
+            if (filter.getMinPrice() != null || filter.getMaxPrice() != null) {
+                selected.put(FacetedSearchResult.PRICE, priceRange(filter.getMinPrice(), filter.getMaxPrice()));
+            }
+
+            Map<String, Map<String, Long>> facets = new LinkedHashMap<>();
+            for (String facet : FacetedSearchResult.FACETS) {
+                BitSet others = (BitSet) base.clone();
+                selected.forEach((other, posting) -> {
+                    if (!other.equals(facet)) {
+                        others.and(posting);
+                    }
+                });
+                facets.put(facet, counts(facet, base, others, sizePostings));
+            }
+
+            BitSet matches = (BitSet) base.clone();
+            selected.values().forEach(matches::and);
+            return Optional.of(new FacetedSearchResult(matches.cardinality(), facets));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void reloadItem(Integer itemId) {
+        List<Object[]> rows = itemRepository.findIndexRowsByItemId(itemId);
+        lock.writeLock().lock();
+        try {
+            if (rows.isEmpty()) {
+                remove(itemId);
+            } else {
+                index(rows);
+            }
+            sortSlots();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int getIndexedItems() {
+        lock.readLock().lock();
+        try {
+            return live.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void rebuild() {
+        List<Object[]> rows = itemRepository.findIndexRows();
+        lock.writeLock().lock();
+        try {
+            index(rows);
+            // Artigos que deixaram de existir
+            Set<Integer> loaded = new HashSet<>();
+            rows.forEach(row -> loaded.add(((Item) row[0]).getItemId()));
+            new ArrayList<>(slots.keySet()).stream().filter(id -> !loaded.contains(id)).forEach(this::remove);
+            sortSlots();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Linhas {artigo, tamanho} já ordenadas por artigo; tamanho null quando não há unidades disponíveis
+    private void index(List<Object[]> rows) {
+        Item current = null;
+        Set<String> currentSizes = new TreeSet<>();
+        for (Object[] row : rows) {
+            Item item = (Item) row[0];
+            if (current != null && !current.getItemId().equals(item.getItemId())) {
+                put(current, currentSizes);
+                currentSizes = new TreeSet<>();
+            }
+            current = item;
+            if (row[1] != null) {
+                currentSizes.add((String) row[1]);
+            }
+        }
+        if (current != null) {
+            put(current, currentSizes);
+        }
+    }
+
+    private void put(Item item, Set<String> availableSizes) {
+        int slot = slots.computeIfAbsent(item.getItemId(), id -> {
+            items.add(null);
+            return items.size() - 1;
+        });
+        items.set(slot, item);
+
+        String gender = item.getItemType() == null ? null : item.getItemType().getGender();
+        columns[GENDER].set(slot, gender);
+        columns[COLOR].set(slot, item.getColor());
+        columns[BRAND].set(slot, item.getBrand());
+        columns[MATERIAL].set(slot, item.getMaterial());
+        columns[CATEGORY].set(slot, item.getItemType() == null ? null : item.getItemType().getCategory());
+        columns[SUBCATEGORY].set(slot, item.getItemType() == null ? null : item.getItemType().getSubcategory());
+        columns[SHOP_LOCATION].set(slot, item.getShop() == null ? null : item.getShop().getLocation());
+        sizes.clearAll(slot);
+        availableSizes.forEach(size -> sizes.add(slot, size));
+        live.set(slot, !availableSizes.isEmpty());
+    }
+
+    private void remove(Integer itemId) {
+        Integer slot = slots.get(itemId);
+        if (slot == null) {
+            return;
+        }
+        // O slot fica reservado para o mesmo id
+        items.set(slot, null);
+        for (Column column : columns) {
+            column.set(slot, null);
+        }
+        sizes.clearAll(slot);
+        live.clear(slot);
+    }
+
+    // Ordens de preço e de nome, ambas desempatadas pelo id do artigo como nas queries de página
+    private void sortSlots() {
+        long[] centsBySlot = new long[items.size()];
+        List<Integer> priced = new ArrayList<>();
+        List<Integer> named = new ArrayList<>();
+        for (int slot = 0; slot < items.size(); slot++) {
+            Item item = items.get(slot);
+            if (item != null && item.getPriceRent() != null) {
+                centsBySlot[slot] = item.getPriceRent().movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+                priced.add(slot);
+            }
+            if (item != null && item.getName() != null) {
+                named.add(slot);
+            }
+        }
+        Comparator<Integer> byItemId = Comparator.comparing(slot -> items.get(slot).getItemId());
+        priced.sort(Comparator.<Integer>comparingLong(slot -> centsBySlot[slot]).thenComparing(byItemId));
+        named.sort(Comparator.<Integer, String>comparing(slot -> items.get(slot).getName()).thenComparing(byItemId));
+        sortedPrices = priced.stream().mapToLong(slot -> centsBySlot[slot]).toArray();
+        slotsByPrice = priced.stream().mapToInt(Integer::intValue).toArray();
+        slotsByName = named.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // Slots vivos do género que passam os filtros de atributos (a janela de datas fica de fora)
+    private BitSet matching(String gender, ItemFilterDTO filter) {
+        BitSet matches = (BitSet) live.clone();
+        matches.and(columns[GENDER].posting(gender));
+        and(matches, COLOR, filter.getColor());
+        and(matches, BRAND, filter.getBrand());
+        and(matches, MATERIAL, filter.getMaterial());
+        and(matches, CATEGORY, filter.getCategory());
+        and(matches, SUBCATEGORY, filter.getSubcategory());
+        and(matches, SHOP_LOCATION, filter.getShopLocation());
+        if (filter.getSize() != null) {
+            matches.and(sizes.posting(filter.getSize()));
+        }
+        if (filter.getMinPrice() != null || filter.getMaxPrice() != null) {
+            matches.and(priceRange(filter.getMinPrice(), filter.getMaxPrice()));
+        }
+        return matches;
+    }
+
+    // Mesmo critério do cursor das queries: (chave, id) estritamente depois de (afterKey, afterId)
+    private static boolean isAfter(Item item, boolean byPrice, boolean descending,
+                                   Integer afterId, String afterName, BigDecimal afterPrice) {
+        int key = byPrice ? item.getPriceRent().compareTo(afterPrice) : item.getName().compareTo(afterName);
+        int cmp = key != 0 ? key : item.getItemId().compareTo(afterId);
+        return descending ? cmp < 0 : cmp > 0;
+    }
+
+    // Slots com minPrice <= preço <= maxPrice (limites em falta ficam abertos)
+    private BitSet priceRange(Double minPrice, Double maxPrice) {
+        int from = minPrice == null ? 0 : lowerBound(toCents(minPrice, RoundingMode.CEILING));
+        int to = maxPrice == null ? sortedPrices.length : lowerBound(toCents(maxPrice, RoundingMode.FLOOR) + 1);
+        BitSet range = new BitSet();
+        for (int i = from; i < to; i++) {
+            range.set(slotsByPrice[i]);
+        }
+        return range;
+    }
+
+    // Primeira posição com preço >= cents
+    private int lowerBound(long cents) {
+        int low = 0;
+        int high = sortedPrices.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedPrices[mid] < cents) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static long toCents(double price, RoundingMode rounding) {
+        return BigDecimal.valueOf(price).movePointRight(2).setScale(0, rounding).longValue();
+    }
+
+    // Contagem de cada valor da faceta; os escalões de preço ficam na ordem de preço
+    private Map<String, Long> counts(String facet, BitSet base, BitSet others, Map<String, BitSet> sizePostings) {
+        if (FacetedSearchResult.PRICE.equals(facet)) {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            for (PriceBucket bucket : FacetedSearchResult.PRICE_BUCKETS) {
+                BitSet range = priceRange(bucket.min().doubleValue(),
+                        bucket.filterMax() == null ? null : bucket.filterMax().doubleValue());
+                counts.put(bucket.label(), (long) intersection(others, range));
+            }
+            return counts;
+        }
+        Map<String, BitSet> postings = FacetedSearchResult.SIZE.equals(facet)
+                ? sizePostings
+                : columns[FACET_COLUMNS.get(facet)].byValue();
+        Map<String, Long> counts = new TreeMap<>();
+        postings.forEach((value, posting) -> {
+            // Todos os valores do catálogo ficam como opção, mesmo com contagem 0
+            if (base.intersects(posting)) {
+                counts.put(value, (long) intersection(others, posting));
+            }
+        });
+        return counts;
+    }
+
+    // Por tamanho, os slots com uma unidade desse tamanho livre na janela; null se algum
+    // artigo não estiver no índice de disponibilidade
+    private Map<String, BitSet> freeSizes(BitSet base, ItemFilterDTO filter) {
+        Map<String, BitSet> byValue = sizes.byValue();
+        Map<String, BitSet> free = new HashMap<>();
+        for (int slot = base.nextSetBit(0); slot >= 0; slot = base.nextSetBit(slot + 1)) {
+            Integer itemId = items.get(slot).getItemId();
+            if (!availabilityIndex.covers(itemId)) {
+                return null;
+            }
+            for (Map.Entry<String, BitSet> size : byValue.entrySet()) {
+                if (size.getValue().get(slot) && availabilityIndex.hasFreeUnit(itemId, size.getKey(),
+                        filter.getPickupDate(), filter.getReturnDate())) {
+                    free.computeIfAbsent(size.getKey(), key -> new BitSet()).set(slot);
+                }
+            }
+        }
+        return free;
+    }
+
+    private static int intersection(BitSet a, BitSet b) {
+        BitSet both = (BitSet) a.clone();
+        both.and(b);
+        return both.cardinality();
+    }
+
+    private void select(Map<String, BitSet> selected, String facet, String value) {
+        if (value != null) {
+            selected.put(facet, columns[FACET_COLUMNS.get(facet)].posting(value));
+        }
+    }
+
+    private void and(BitSet matches, int column, String value) {
+        if (value != null) {
+            matches.and(columns[column].posting(value));
+        }
+    }
+
+    // Coluna codificada por dicionário: código por slot e uma posting list (bitset) por valor
+    private static final class Column {
+
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private final List<BitSet> postings = new ArrayList<>();
+        private int[] codes = new int[0];
+
+        BitSet posting(String value) {
+            Integer code = value == null ? null : dictionary.get(value);
+            return code == null ? EMPTY : postings.get(code);
+        }
+
+        Map<String, BitSet> byValue() {
+            Map<String, BitSet> byValue = new HashMap<>();
+            dictionary.forEach((value, code) -> byValue.put(value, postings.get(code)));
+            return byValue;
+        }
+
+        // Coluna de valor único: substitui o valor do slot
+        void set(int slot, String value) {
+            if (slot >= codes.length) {
+                int length = codes.length;
+                codes = Arrays.copyOf(codes, Math.max(slot + 1, length * 2));
+                Arrays.fill(codes, length, codes.length, -1);
+            }
+            if (codes[slot] >= 0) {
+                postings.get(codes[slot]).clear(slot);
+            }
+            codes[slot] = value == null ? -1 : code(value);
+            if (value != null) {
+                postings.get(codes[slot]).set(slot);
+            }
+        }
+
+        // Coluna multi-valor (tamanhos): acrescenta um valor ao slot
+        void add(int slot, String value) {
+            postings.get(code(value)).set(slot);
+        }
+
+        void clearAll(int slot) {
+            postings.forEach(posting -> posting.clear(slot));
+        }
+
+        private int code(String value) {
+            return dictionary.computeIfAbsent(value, key -> {
+                postings.add(new BitSet());
+                return postings.size() - 1;
+            });
+        }
+    }
+}
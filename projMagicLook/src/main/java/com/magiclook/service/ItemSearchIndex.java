@@ -0,0 +1,315 @@
+package com.magiclook.service;
+
+import com.magiclook.data.Item;
+import com.magiclook.dto.ItemSearchHit;
+import com.magiclook.repository.ItemRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index for item text search (typeahead and staff search):
+ * - Terms come from name, brand, category, subcategory, color and material, lower-cased
+ *   and accent-folded ("Algodão" and "algodao" are the same term); each posting keeps
+ *   the summed weight of the fields the term appears in (name weighs most)
+ * - Every query word must match the item, exactly, as a prefix of a term or, from
+ *   four letters on, within one edit (two from eight letters)
+ * - Score is field weight × idf, discounted for prefix and fuzzy matches; ties go to
+ *   the shorter name
+ * - Warmed once the application is ready and updated item by item after each
+ *   {@link CatalogChangedEvent} commits
+ */
+@Component
+public class ItemSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ItemSearchIndex.class);
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final float NAME = 3.0f;
+    private static final float BRAND = 2.0f;
+    private static final float CATEGORY = 2.0f;
+    private static final float SUBCATEGORY = 1.5f;
+    private static final float COLOR = 1.0f;
+    private static final float MATERIAL = 1.0f;
+
+    // Desconto de uma correspondência por prefixo ou aproximada face à exata
+    private static final double PREFIX = 0.7;
+    private static final double FUZZY = 0.5;
+    private static final int FUZZY_MIN_LENGTH = 4;
+    private static final int FUZZY_TWO_EDITS_LENGTH = 8;
+
+    private final ItemRepository itemRepository;
+
+    // Tudo o que está abaixo só é lido/escrito com o lock
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, Map<Integer, Float>> postings = new TreeMap<>();
+    private final Map<Integer, Doc> docs = new HashMap<>();
+
+    private volatile boolean ready;
+
+    public ItemSearchIndex(ItemRepository itemRepository, MeterRegistry registry) {
+        this.itemRepository = itemRepository;
+
+        Gauge.builder("catalog.search.terms", this, ItemSearchIndex::getTermCount)
+                .description("Distinct terms in the item search index")
+                .register(registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            List<Object[]> rows = itemRepository.findIndexRows();
+            lock.writeLock().lock();
+            try {
+                postings.clear();
+                docs.clear();
+                index(rows);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            ready = true;
+            logger.info("Item search index ready with {} items and {} terms", docs.size(), getTermCount());
+        } catch (RuntimeException e) {
+            logger.warn("Could not build item search index: {}", e.getMessage());
+        }
+    }
+
+    // Depois do commit: o índice nunca vê stock por confirmar
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (!ready) {
+            return;
+        }
+        if (event.getItemId() == null) {
+            warmUp();
+            return;
+        }
+        List<Object[]> rows = itemRepository.findIndexRowsByItemId(event.getItemId());
+        lock.writeLock().lock();
+        try {
+            remove(event.getItemId());
+            index(rows);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Best matches for the query, highest score first.
+     *
+     * @param gender        only items of this gender, or any when null
+     * @param availableOnly skip items with no AVAILABLE unit (customer search)
+     */
+    public List<ItemSearchHit> search(String query, String gender, boolean availableOnly, int limit) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            Map<Integer, Double> scores = null;
+            for (String word : words) {
+                Map<Integer, Double> wordScores = match(word);
+                if (scores == null) {
+                    scores = wordScores;
+                } else {
+                    // Todas as palavras têm de corresponder
+                    scores.keySet().retainAll(wordScores.keySet());
+                    scores.replaceAll((itemId, score) -> score + wordScores.get(itemId));
+                }
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+
+            List<ItemSearchHit> hits = new ArrayList<>();
+            for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+                Doc doc = docs.get(entry.getKey());
+                if ((gender == null || gender.equals(doc.gender)) && (!availableOnly || doc.available)) {
+                    hits.add(doc.hit(entry.getValue()));
+                }
+            }
+            hits.sort(Comparator.comparingDouble(ItemSearchHit::getScore).reversed()
+                    .thenComparingInt(hit -> hit.getName() == null ? Integer.MAX_VALUE : hit.getName().length())
+                    .thenComparing(ItemSearchHit::getItemId));
+            return hits.size() > limit ? List.copyOf(hits.subList(0, limit)) : hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int getTermCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Lower-cased, accent-folded words of the text ("Três Peças" → [tres, pecas]).
+     */
+    public static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        List<String> words = new ArrayList<>();
+        for (String word : SEPARATORS.split(folded)) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    // Melhor pontuação de cada artigo para uma palavra da pesquisa
+    private Map<Integer, Double> match(String word) {
+        Map<Integer, Double> scores = new HashMap<>();
+        for (Map.Entry<String, Map<Integer, Float>> term
+                : postings.subMap(word, true, word + Character.MAX_VALUE, false).entrySet()) {
+            collect(scores, term.getValue(), term.getKey().equals(word) ? 1.0 : PREFIX);
+        }
+
+        if (word.length() >= FUZZY_MIN_LENGTH) {
+            int maxEdits = word.length() >= FUZZY_TWO_EDITS_LENGTH ? 2 : 1;
+            for (Map.Entry<String, Map<Integer, Float>> term : postings.entrySet()) {
+                String candidate = term.getKey();
+                if (Math.abs(candidate.length() - word.length()) <= maxEdits && !candidate.startsWith(word)) {
+                    int edits = editDistance(word, candidate, maxEdits);
+                    if (edits <= maxEdits) {
+                        collect(scores, term.getValue(), FUZZY / edits);
+                    }
+                }
+            }
+        }
+        return scores;
+    }
+
+    private void collect(Map<Integer, Double> scores, Map<Integer, Float> posting, double discount) {
+        double idf = Math.log(1.0 + (double) docs.size() / posting.size());
+        posting.forEach((itemId, weight) -> scores.merge(itemId, weight * idf * discount, Math::max));
+    }
+
+    // Levenshtein com paragem antecipada: devolve max + 1 assim que passa o limite
+    static int editDistance(String a, String b, int max) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    // Linhas {artigo, tamanho} por unidade disponível; tamanho null quando não há nenhuma
+    private void index(List<Object[]> rows) {
+        Map<Integer, Doc> loaded = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            Item item = (Item) row[0];
+            Doc doc = loaded.computeIfAbsent(item.getItemId(), id -> new Doc(item));
+            doc.available |= row[1] != null;
+        }
+        for (Doc doc : loaded.values()) {
+            docs.put(doc.itemId, doc);
+            doc.weights.forEach((term, weight) ->
+                    postings.computeIfAbsent(term, key -> new HashMap<>()).put(doc.itemId, weight));
+        }
+    }
+
+    private void remove(Integer itemId) {
+        Doc doc = docs.remove(itemId);
+        if (doc == null) {
+            return;
+        }
+        for (String term : doc.weights.keySet()) {
+            Map<Integer, Float> posting = postings.get(term);
+            posting.remove(itemId);
+            if (posting.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    // Campos de um artigo já copiados: a entidade não fica presa ao índice
+    private static final class Doc {
+
+        private final Integer itemId;
+        private final String name;
+        private final String brand;
+        private final String color;
+        private final String material;
+        private final String category;
+        private final String gender;
+        private final BigDecimal priceRent;
+        private final String imagePath;
+        private final Map<String, Float> weights = new HashMap<>();
+        private boolean available;
+
+        Doc(Item item) {
+            this.itemId = item.getItemId();
+            this.name = item.getName();
+            this.brand = item.getBrand();
+            this.color = item.getColor();
+            this.material = item.getMaterial();
+            this.priceRent = item.getPriceRent();
+            this.imagePath = item.getImagePath();
+            this.category = item.getItemType() == null ? null : item.getItemType().getCategory();
+            this.gender = item.getItemType() == null ? null : item.getItemType().getGender();
+
+            add(name, NAME);
+            add(brand, BRAND);
+            add(category, CATEGORY);
+            add(item.getItemType() == null ? null : item.getItemType().getSubcategory(), SUBCATEGORY);
+            add(color, COLOR);
+            add(material, MATERIAL);
+        }
+
+        private void add(String text, float weight) {
+            // Um termo repetido no mesmo campo conta uma vez
+            for (String term : new HashSet<>(tokenize(text))) {
+                weights.merge(term, weight, Float::sum);
+            }
+        }
+
+        ItemSearchHit hit(double score) {
+            return new ItemSearchHit(itemId, name, brand, color, material, category, gender, priceRent, imagePath,
+                    score);
+        }
+    }
+}
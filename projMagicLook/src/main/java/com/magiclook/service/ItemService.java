@@ -1,29 +1,55 @@
 package com.magiclook.service;
 
+import com.magiclook.dto.FacetedSearchResult;
+import com.magiclook.dto.FacetedSearchResult.PriceBucket;
 import com.magiclook.dto.ItemFilterDTO;
+import com.magiclook.dto.ItemPageDTO;
+import com.magiclook.dto.ItemSearchHit;
 import com.magiclook.data.Item;
 import com.magiclook.data.ItemSingle;
 import com.magiclook.data.Shop;
 import com.magiclook.repository.ItemRepository;
 import com.magiclook.repository.ItemSingleRepository;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static com.magiclook.dto.FacetedSearchResult.*;
 
 @Service
 public class ItemService {
 
     private static final Logger logger = LoggerFactory.getLogger(ItemService.class);
+    // Artigo que falha mais do que um filtro: não conta para nenhuma faceta
+    private static final String MISSED_SEVERAL = "";
+
+    public static final int CATALOG_PAGE_SIZE = 24;
 
     private final ItemRepository itemRepository;
     private final ItemSingleRepository itemSingleRepository;
+    private final CatalogFacetCache facetCache;
+    private final CatalogIndex catalogIndex;
+    private final ItemSearchIndex searchIndex;
 
-    public ItemService(ItemRepository itemRepository, ItemSingleRepository itemSingleRepository) {
+    public ItemService(ItemRepository itemRepository, ItemSingleRepository itemSingleRepository,
+                       CatalogFacetCache facetCache, CatalogIndex catalogIndex, ItemSearchIndex searchIndex) {
         this.itemRepository = itemRepository;
         this.itemSingleRepository = itemSingleRepository;
+        this.facetCache = facetCache;
+        this.catalogIndex = catalogIndex;
+        this.searchIndex = searchIndex;
     }
 
     public List<Item> getItemsByShop(Shop shop) {
@@ -34,6 +60,57 @@ public class ItemService {
         return itemRepository.findByShop(shop);
     }
 
+    /**
+     * Distinct sizes of every item of the shop, by item id, in a single query.
+     */
+    public Map<Integer, List<String>> getSizesByShop(Shop shop) {
+        Map<Integer, List<String>> sizes = new HashMap<>();
+        if (shop == null) {
+            return sizes;
+        }
+        // Linhas já ordenadas por item e tamanho
+        for (Object[] row : itemSingleRepository.findSizesByShop(shop)) {
+            sizes.computeIfAbsent((Integer) row[0], id -> new ArrayList<>()).add((String) row[1]);
+        }
+        return sizes;
+    }
+
+    /**
+     * Typeahead search over the catalog: ranked items with at least one available unit.
+     */
+    public List<ItemSearchHit> searchItems(String query, String gender, int limit) {
+        if (query == null || query.isBlank()) {
+            return List.of();
+        }
+        return searchIndex.search(query, gender == null || gender.isEmpty() ? null : gender, true, limit);
+    }
+
+    /**
+     * The given items matching the text query, best match first. Before the search
+     * index is built, falls back to a case-insensitive name match in the original order.
+     */
+    public List<Item> filterByQuery(List<Item> items, String query) {
+        if (query == null || query.isBlank()) {
+            return items;
+        }
+        if (!searchIndex.isReady()) {
+            String needle = query.trim().toLowerCase();
+            return items.stream()
+                    .filter(i -> i.getName() != null && i.getName().toLowerCase().contains(needle))
+                    .toList();
+        }
+
+        Map<Integer, Integer> rank = new HashMap<>();
+        List<ItemSearchHit> hits = searchIndex.search(query, null, false, Integer.MAX_VALUE);
+        for (int i = 0; i < hits.size(); i++) {
+            rank.put(hits.get(i).getItemId(), i);
+        }
+        return items.stream()
+                .filter(i -> rank.containsKey(i.getItemId()))
+                .sorted(Comparator.comparing(i -> rank.get(i.getItemId())))
+                .toList();
+    }
+
     public List<Item> getAllItems() {
         return itemRepository.findAll();
     }
@@ -52,24 +129,26 @@ public class ItemService {
                 .toList();
     }
 
+    // Listas dos filtros do catálogo: só mudam quando o staff altera stock, por isso vêm da cache
+
     public List<String> getAllDistinctColors() {
-        return itemRepository.findAllDistinctColors();
+        return facetCache.get("colors", null, itemRepository::findAllDistinctColors);
     }
 
     public List<String> getAllDistinctBrands() {
-        return itemRepository.findAllDistinctBrands();
+        return facetCache.get("brands", null, itemRepository::findAllDistinctBrands);
     }
 
     public List<String> getAllDistinctMaterials() {
-        return itemRepository.findAllDistinctMaterials();
+        return facetCache.get("materials", null, itemRepository::findAllDistinctMaterials);
     }
 
     public List<String> getAllDistinctCategories() {
-        return itemRepository.findAllDistinctCategories();
+        return facetCache.get("categories", null, itemRepository::findAllDistinctCategories);
     }
 
     public List<String> getAllDistinctShopLocations() {
-        return itemRepository.findAllDistinctShopLocations();
+        return facetCache.get("shopLocations", null, itemRepository::findAllDistinctShopLocations);
     }
 
     public List<Item> findByGenderAndFilters(String gender, ItemFilterDTO filter) {
@@ -81,7 +160,193 @@ public class ItemService {
         // Sanitize filter: convert empty strings to nulls
         sanitizeFilter(filter);
 
-        return itemRepository.findByGenderAndFilters(gender, filter);
+        // Interseção de bitsets em memória; a base de dados só quando o índice não pode responder
+        return catalogIndex.find(gender, filter)
+                .orElseGet(() -> itemRepository.findByGenderAndFilters(gender, filter));
+    }
+
+    /**
+     * One page of the catalog with the given filters, in the filter's sort order, from the
+     * {@link CatalogIndex} or, when it can't answer, from the keyset page queries.
+     * Pass the previous page's cursor (last item's id, name and price) to get the next one.
+     */
+    public ItemPageDTO getCatalogPage(String gender, ItemFilterDTO filter,
+                                      Integer afterId, String afterName, BigDecimal afterPrice) {
+        if (gender == null || gender.isEmpty() || filter == null) {
+            logger.warn("getCatalogPage called with invalid parameters");
+            return new ItemPageDTO(List.of(), false);
+        }
+        sanitizeFilter(filter);
+        // Mais uma linha que a página só para saber se existe a seguinte
+        Limit limit = Limit.of(CATALOG_PAGE_SIZE + 1);
+
+        List<Item> rows = catalogIndex.findPage(gender, filter, afterId, afterName, afterPrice, limit.max())
+                .orElseGet(() -> switch (filter.getSortOrDefault()) {
+                    case ItemFilterDTO.SORT_PRICE_ASC ->
+                            itemRepository.findCatalogPageByPrice(gender, filter, afterPrice, afterId, limit);
+                    case ItemFilterDTO.SORT_PRICE_DESC ->
+                            itemRepository.findCatalogPageByPriceDesc(gender, filter, afterPrice, afterId, limit);
+                    default -> itemRepository.findCatalogPageByName(gender, filter, afterName, afterId, limit);
+                });
+
+        boolean hasNext = rows.size() > CATALOG_PAGE_SIZE;
+        return new ItemPageDTO(hasNext ? rows.subList(0, CATALOG_PAGE_SIZE) : rows, hasNext);
+    }
+
+    /**
+     * Catalog filter counts and result total, answered from the {@link CatalogIndex} bitsets,
+     * or from one query grouped by item and size and one pass over its rows when the index
+     * can't (kept in the {@link CatalogFacetCache} when there is no date window); the
+     * catalog page itself lists its items with {@link #getCatalogPage}.
+     * - An item failing no filter is a result and counts towards every facet
+     * - An item failing exactly one filter counts only towards that facet, so each
+     *   value's count is what picking it would return with the other filters kept
+     * - The date window is not a facet: only items with a free unit in it count
+     */
+    public FacetedSearchResult search(String gender, ItemFilterDTO filter) {
+        if (gender == null || gender.isEmpty() || filter == null) {
+            logger.warn("search called with invalid parameters");
+            return new FacetedSearchResult(0, Map.of());
+        }
+        sanitizeFilter(filter);
+
+        Optional<FacetedSearchResult> indexed = catalogIndex.search(gender, filter);
+        if (indexed.isPresent()) {
+            return withSelected(indexed.get(), filter);
+        }
+        if (filter.hasDateWindow()) {
+            return withSelected(scanCatalogRows(gender, filter), filter);
+        }
+        // Sem janela de datas o resultado só muda com o stock: fica em cache até ao próximo CatalogChangedEvent
+        ItemFilterDTO key = searchKey(filter);
+        return facetCache.getSearch(gender, key, () -> withSelected(scanCatalogRows(gender, key), key));
+    }
+
+    // O valor escolhido aparece sempre na lista, mesmo que já não tenha resultados
+    private static FacetedSearchResult withSelected(FacetedSearchResult result, ItemFilterDTO filter) {
+        keepSelected(result.getFacets().get(COLOR), filter.getColor());
+        keepSelected(result.getFacets().get(BRAND), filter.getBrand());
+        keepSelected(result.getFacets().get(MATERIAL), filter.getMaterial());
+        keepSelected(result.getFacets().get(CATEGORY), filter.getCategory());
+        keepSelected(result.getFacets().get(SUBCATEGORY), filter.getSubcategory());
+        keepSelected(result.getFacets().get(SIZE), filter.getSize());
+        keepSelected(result.getFacets().get(SHOP_LOCATION), filter.getShopLocation());
+        return result;
+    }
+
+    // Cópia dos filtros que contam para a pesquisa (a ordenação não), para chave da cache
+    private static ItemFilterDTO searchKey(ItemFilterDTO filter) {
+        return ItemFilterDTO.builder()
+                .color(filter.getColor())
+                .brand(filter.getBrand())
+                .material(filter.getMaterial())
+                .category(filter.getCategory())
+                .subcategory(filter.getSubcategory())
+                .size(filter.getSize())
+                .shopLocation(filter.getShopLocation())
+                .minPrice(filter.getMinPrice())
+                .maxPrice(filter.getMaxPrice())
+                .build();
+    }
+
+    private FacetedSearchResult scanCatalogRows(String gender, ItemFilterDTO filter) {
+        // Linhas por artigo e tamanho, juntas por artigo
+        Map<Integer, CatalogRow> rows = new LinkedHashMap<>();
+        for (Object[] row : itemRepository.findCatalogRowsByGender(gender, filter)) {
+            CatalogRow catalogRow = rows.computeIfAbsent((Integer) row[0], id -> new CatalogRow(row));
+            if (row[8] != null) {
+                catalogRow.sizes.add((String) row[8]);
+            }
+        }
+
+        Map<String, Map<String, Long>> facets = new LinkedHashMap<>();
+        for (String facet : FACETS) {
+            facets.put(facet, new TreeMap<>());
+        }
+        // Escalões por ordem de preço, não alfabética
+        Map<String, Long> prices = new LinkedHashMap<>();
+        PRICE_BUCKETS.forEach(bucket -> prices.put(bucket.label(), 0L));
+        facets.put(PRICE, prices);
+
+        long total = 0;
+        for (CatalogRow row : rows.values()) {
+            // Todos os valores vistos ficam como opção, mesmo com contagem 0
+            FACETS.forEach(facet -> row.count(facet, facets.get(facet), 0L));
+            String missed = row.missedFacet(filter);
+            if (missed == null) {
+                total++;
+                FACETS.forEach(facet -> row.count(facet, facets.get(facet), 1L));
+            } else if (!MISSED_SEVERAL.equals(missed)) {
+                row.count(missed, facets.get(missed), 1L);
+            }
+        }
+
+        return new FacetedSearchResult(total, facets);
+    }
+
+    private static void keepSelected(Map<String, Long> counts, String selected) {
+        if (selected != null) {
+            counts.putIfAbsent(selected, 0L);
+        }
+    }
+
+    // Um artigo do catálogo com os valores de cada faceta e os tamanhos das unidades livres
+    private static final class CatalogRow {
+
+        private final BigDecimal price;
+        private final Map<String, String> values = new HashMap<>();
+        private final TreeSet<String> sizes = new TreeSet<>();
+
+        CatalogRow(Object[] row) {
+            this.price = (BigDecimal) row[4];
+            values.put(COLOR, (String) row[1]);
+            values.put(BRAND, (String) row[2]);
+            values.put(MATERIAL, (String) row[3]);
+            values.put(CATEGORY, (String) row[5]);
+            values.put(SUBCATEGORY, (String) row[6]);
+            values.put(SHOP_LOCATION, (String) row[7]);
+            PriceBucket bucket = PriceBucket.of(price);
+            values.put(PRICE, bucket == null ? null : bucket.label());
+        }
+
+        // A faceta que este artigo falha, MISSED_SEVERAL se falhar mais do que uma, null se passar
+        String missedFacet(ItemFilterDTO filter) {
+            String missed = null;
+            int misses = 0;
+            if (!matches(COLOR, filter.getColor())) { missed = COLOR; misses++; }
+            if (!matches(BRAND, filter.getBrand())) { missed = BRAND; misses++; }
+            if (!matches(MATERIAL, filter.getMaterial())) { missed = MATERIAL; misses++; }
+            if (!matches(CATEGORY, filter.getCategory())) { missed = CATEGORY; misses++; }
+            if (!matches(SUBCATEGORY, filter.getSubcategory())) { missed = SUBCATEGORY; misses++; }
+            if (!matches(SHOP_LOCATION, filter.getShopLocation())) { missed = SHOP_LOCATION; misses++; }
+            if (filter.getSize() != null && !sizes.contains(filter.getSize())) { missed = SIZE; misses++; }
+            if (!inPriceRange(filter)) { missed = PRICE; misses++; }
+            return misses > 1 ? MISSED_SEVERAL : missed;
+        }
+
+        private boolean matches(String facet, String selected) {
+            return selected == null || selected.equals(values.get(facet));
+        }
+
+        private boolean inPriceRange(ItemFilterDTO filter) {
+            if (filter.getMinPrice() != null
+                    && (price == null || price.compareTo(BigDecimal.valueOf(filter.getMinPrice())) < 0)) {
+                return false;
+            }
+            return filter.getMaxPrice() == null
+                    || (price != null && price.compareTo(BigDecimal.valueOf(filter.getMaxPrice())) <= 0);
+        }
+
+        void count(String facet, Map<String, Long> counts, long increment) {
+            if (SIZE.equals(facet)) {
+                sizes.forEach(size -> counts.merge(size, increment, Long::sum));
+                return;
+            }
+            String value = values.get(facet);
+            if (value != null) {
+                counts.merge(value, increment, Long::sum);
+            }
+        }
     }
 
     private void sanitizeFilter(ItemFilterDTO filter) {
@@ -99,6 +364,13 @@ public class ItemService {
             filter.setShopLocation(null);
         if (filter.getSize() != null && filter.getSize().isEmpty())
             filter.setSize(null);
+        if (filter.getSort() != null && !ItemFilterDTO.SORTS.contains(filter.getSort()))
+            filter.setSort(null);
+        // Uma janela só conta se estiver completa e na ordem certa
+        if (!filter.hasDateWindow() || filter.getEndUseDate().isBefore(filter.getStartUseDate())) {
+            filter.setStartUseDate(null);
+            filter.setEndUseDate(null);
+        }
     }
 
     public List<Item> getAllItemsByState(String state) {
@@ -145,7 +417,8 @@ public class ItemService {
             logger.warn("getAllDistinctSubcategoriesByGender called with null or empty gender");
             return List.of();
         }
-        return itemRepository.findAllDistinctSubcategoriesByGender(gender);
+        return facetCache.get("subcategories", gender,
+                () -> itemRepository.findAllDistinctSubcategoriesByGender(gender));
     }
 
     public List<String> getAllDistinctSizesByGender(String gender) {
@@ -153,7 +426,7 @@ public class ItemService {
             logger.warn("getAllDistinctSizesByGender called with null or empty gender");
             return List.of();
         }
-        return itemRepository.findAllDistinctSizesByGender(gender);
+        return facetCache.get("sizes", gender, () -> itemRepository.findAllDistinctSizesByGender(gender));
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,127 @@
+package com.magiclook.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.OptimisticLockException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Optimistic alternative to {@link BookingLockManager} for booking allocation.
+ * - Each attempt runs in its own transaction and bumps the allocated unit's
+ *   version; a concurrent allocation of the same unit makes one of them fail
+ * - The loop itself runs outside any transaction, so a retrying booking holds
+ *   one pooled connection at a time and never a suspended outer one
+ * - Failed attempts are retried with exponential backoff and jitter, up to
+ *   booking.optimistic.max-attempts
+ * - Attempts, conflicts and retries per booking are exported to Micrometer
+ *   so both modes can be compared under load
+ */
+@Component
+public class OptimisticBookingRetry {
+
+    public static final String MODE_PESSIMISTIC = "pessimistic";
+    public static final String MODE_OPTIMISTIC = "optimistic";
+
+    private final String mode;
+    private final int maxAttempts;
+    private final long backoffMs;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Counter attempts;
+    private final Counter conflicts;
+    private final Counter exhausted;
+    private final DistributionSummary retries;
+
+    public OptimisticBookingRetry(@Value("${booking.concurrency.mode:pessimistic}") String mode,
+                                  @Value("${booking.optimistic.max-attempts:5}") int maxAttempts,
+                                  @Value("${booking.optimistic.backoff-ms:20}") long backoffMs,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry) {
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("booking.optimistic.max-attempts deve ser positivo");
+        }
+        this.mode = mode;
+        this.maxAttempts = maxAttempts;
+        this.backoffMs = Math.max(0, backoffMs);
+
+        // Chamado fora de transações: cada tentativa abre a sua, e o conflito é detetado no flush/commit
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+
+        this.attempts = Counter.builder("booking.optimistic.attempts")
+                .description("Booking allocation attempts in optimistic mode")
+                .register(meterRegistry);
+        this.conflicts = Counter.builder("booking.optimistic.conflicts")
+                .description("Attempts that lost a version race on the allocated unit")
+                .register(meterRegistry);
+        this.exhausted = Counter.builder("booking.optimistic.exhausted")
+                .description("Bookings rejected after running out of retries")
+                .register(meterRegistry);
+        this.retries = DistributionSummary.builder("booking.optimistic.retries")
+                .description("Retries needed per booking in optimistic mode")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return MODE_OPTIMISTIC.equals(mode);
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Runs the allocation, retrying it in a fresh transaction on version conflicts
+     * (or any other transient concurrency failure reported by the database).
+     * Must be called outside a transaction: joining one would make a failed attempt
+     * doom the caller's work, and suspending it would take a second connection.
+     */
+    public <T> T execute(Supplier<T> allocation) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("A reserva otimista não pode correr dentro de outra transação");
+        }
+        for (int attempt = 1; ; attempt++) {
+            attempts.increment();
+            try {
+                T result = transactionTemplate.execute(status -> allocation.get());
+                retries.record(attempt - 1.0);
+                return result;
+            } catch (ConcurrencyFailureException | OptimisticLockException e) {
+                conflicts.increment();
+                if (attempt >= maxAttempts) {
+                    exhausted.increment();
+                    retries.record(attempt - 1.0);
+                    throw new IllegalStateException(
+                        "O item está muito procurado neste momento. Por favor, tente novamente.", e);
+                }
+                backoff(attempt);
+            }
+        }
+    }
+
+    private void backoff(int attempt) {
+        if (backoffMs == 0) {
+            return;
+        }
+        // Exponencial com jitter, para os concorrentes não voltarem a colidir em simultâneo
+        long ceiling = backoffMs << Math.min(attempt - 1, 10);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Reserva interrompida", e);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.magiclook.data.*;
 import com.magiclook.dto.*;
 import com.magiclook.repository.*;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
@@ -17,6 +18,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.*;
 import java.util.Optional;
@@ -36,13 +38,16 @@ public class StaffService {
     private final ItemSingleRepository itemSingleRepository;
     private final NotificationRepository notificationRepository;
     private final BookingRepository bookingRepository;
+    private final AvailabilityIndex availabilityIndex;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Value("${app.upload.dir}")
     private String uploadDir;
 
     public StaffService(StaffRepository staffRepository, ItemRepository itemRepository, ShopRepository shopRepository,
             ItemTypeRepository itemTypeRepository, ItemSingleRepository itemSingleRepository,
-            BookingRepository bookingRepository, NotificationRepository notificationRepository) {
+            BookingRepository bookingRepository, NotificationRepository notificationRepository,
+            AvailabilityIndex availabilityIndex, ApplicationEventPublisher eventPublisher) {
         this.staffRepository = staffRepository;
         this.itemRepository = itemRepository;
         this.shopRepository = shopRepository;
@@ -50,6 +55,8 @@ public class StaffService {
         this.itemSingleRepository = itemSingleRepository;
         this.bookingRepository = bookingRepository;
         this.notificationRepository = notificationRepository;
+        this.availabilityIndex = availabilityIndex;
+        this.eventPublisher = eventPublisher;
     }
 
     public String saveImage(MultipartFile image, Integer itemId) throws IOException {
@@ -110,6 +117,8 @@ public class StaffService {
 
     public void deleteItemSize(Integer itemId, String size) {
         itemSingleRepository.deleteByItem_ItemIdAndSize(itemId, size);
+        availabilityIndex.itemChanged(itemId);
+        eventPublisher.publishEvent(new CatalogChangedEvent(itemId));
 
         if (itemSingleRepository.findByItem_ItemId(itemId).isEmpty()) {
             itemRepository.deleteById(itemId);
@@ -137,6 +146,11 @@ public class StaffService {
             }
             if (changed) {
                 itemSingleRepository.saveAndFlush(single);
+                Integer itemId = single.getItem() != null ? single.getItem().getItemId() : null;
+                if (itemId != null) {
+                    availabilityIndex.itemChanged(itemId);
+                }
+                eventPublisher.publishEvent(new CatalogChangedEvent(itemId));
             }
         });
     }
@@ -146,16 +160,13 @@ public class StaffService {
             return;
 
         // 2. Notify upcoming users (next 3 days)
-        Date now = new Date();
-        Calendar cal = Calendar.getInstance();
-        cal.setTime(now);
-        cal.add(Calendar.DAY_OF_YEAR, 3);
-        Date threeDaysLater = cal.getTime();
+        LocalDate today = LocalDate.now();
+        LocalDate threeDaysLater = today.plusDays(3);
 
         List<Booking> upcomingBookings = bookingRepository.findOverlappingBookingsForItemSingle(
                 itemSingle,
-                now, // pickup (conservative)
-                now, // start
+                today, // pickup (conservative)
+                today, // start
                 threeDaysLater, // end
                 threeDaysLater // laundry (conservative)
         );
@@ -205,6 +216,9 @@ public class StaffService {
         ItemSingle itemSingle = new ItemSingle("AVAILABLE", itemToUse, size);
 
         itemSingleRepository.saveAndFlush(itemSingle);
+        availabilityIndex.itemChanged(itemToUse.getItemId());
+        // Novo item ou tamanho: as listas de filtros do catálogo deixam de estar certas
+        eventPublisher.publishEvent(new CatalogChangedEvent(itemToUse.getItemId()));
 
         if (itemToUse.getItemId() != null) {
             itemDTO.setItemId(itemToUse.getItemId());
@@ -242,6 +256,7 @@ public class StaffService {
         // Save if there were changes
         if (hasChanges) {
             itemRepository.save(itemToUpdate);
+            eventPublisher.publishEvent(new CatalogChangedEvent(itemToUpdate.getItemId()));
         }
 
         return 0;
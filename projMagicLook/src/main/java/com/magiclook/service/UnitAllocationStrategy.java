@@ -0,0 +1,139 @@
+package com.magiclook.service;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Picks which free unit of an item a new booking goes to.
+ * - Candidates are units already known to be free for the whole window, in
+ *   repository order, each with the free days left on either side of it
+ * - Only the choice differs between strategies; availability and the final
+ *   overlap check stay with the caller
+ * - Strategies are stateless, so the live allocator and the simulator share them
+ */
+public interface UnitAllocationStrategy {
+
+    String FIRST_FIT = "first-fit";
+    String BEST_FIT = "best-fit";
+    String LEAST_BOOKED = "least-booked";
+    // Nome anterior de least-booked, ainda aceite na configuração
+    String ROUND_ROBIN = "round-robin";
+
+    // Gap sem reserva do lado correspondente (calendário aberto)
+    long OPEN = Long.MAX_VALUE;
+
+    /**
+     * Index of the chosen candidate; the list is never empty.
+     */
+    int choose(List<Candidate> candidates);
+
+    String getName();
+
+    /**
+     * Whether the strategy looks at the gaps and bookings of the candidates; when not,
+     * callers only need to fetch the first free unit.
+     */
+    default boolean comparesUnits() {
+        return true;
+    }
+
+    static UnitAllocationStrategy named(String name) {
+        String normalized = name == null ? FIRST_FIT : name.trim().toLowerCase(Locale.ROOT);
+        return switch (normalized) {
+            case FIRST_FIT -> new FirstFit();
+            case BEST_FIT -> new BestFit();
+            case LEAST_BOOKED, ROUND_ROBIN -> new LeastBooked();
+            default -> throw new IllegalArgumentException("booking.allocation.strategy desconhecida: " + name);
+        };
+    }
+
+    /**
+     * A free unit for the requested window: free days between the previous booking's
+     * return and the pickup (gapBefore), between the return and the next booking's
+     * pickup (gapAfter), and the number of bookings the unit currently holds (ongoing
+     * and upcoming; returned bookings drop out, so this is not a lifetime usage count).
+     */
+    record Candidate(long gapBefore, long gapAfter, int currentBookings) {
+
+        // Soma saturada: um lado aberto deixa o buraco "infinito"
+        public long slack() {
+            return gapBefore == OPEN || gapAfter == OPEN ? OPEN : gapBefore + gapAfter;
+        }
+    }
+
+    /**
+     * First candidate in repository order: the historical behaviour.
+     */
+    final class FirstFit implements UnitAllocationStrategy {
+
+        @Override
+        public int choose(List<Candidate> candidates) {
+            return 0;
+        }
+
+        @Override
+        public String getName() {
+            return FIRST_FIT;
+        }
+
+        @Override
+        public boolean comparesUnits() {
+            return false;
+        }
+    }
+
+    /**
+     * The unit whose free gap around the window is tightest, so long free runs are
+     * kept whole for later long rentals. Gaps closed on both sides beat a gap open on
+     * one side; ties go to the tighter smaller side, then to repository order.
+     */
+    final class BestFit implements UnitAllocationStrategy {
+
+        @Override
+        public int choose(List<Candidate> candidates) {
+            int best = 0;
+            for (int i = 1; i < candidates.size(); i++) {
+                if (tighter(candidates.get(i), candidates.get(best))) {
+                    best = i;
+                }
+            }
+            return best;
+        }
+
+        private static boolean tighter(Candidate a, Candidate b) {
+            if (a.slack() != b.slack()) {
+                return a.slack() < b.slack();
+            }
+            return Math.min(a.gapBefore(), a.gapAfter()) < Math.min(b.gapBefore(), b.gapAfter());
+        }
+
+        @Override
+        public String getName() {
+            return BEST_FIT;
+        }
+    }
+
+    /**
+     * Least currently booked: the unit holding the fewest ongoing and upcoming bookings,
+     * so new bookings spread over the units. Past bookings are not counted, so this
+     * balances the current load rather than the lifetime wear of each unit.
+     */
+    final class LeastBooked implements UnitAllocationStrategy {
+
+        @Override
+        public int choose(List<Candidate> candidates) {
+            int best = 0;
+            for (int i = 1; i < candidates.size(); i++) {
+                if (candidates.get(i).currentBookings() < candidates.get(best).currentBookings()) {
+                    best = i;
+                }
+            }
+            return best;
+        }
+
+        @Override
+        public String getName() {
+            return LEAST_BOOKED;
+        }
+    }
+}
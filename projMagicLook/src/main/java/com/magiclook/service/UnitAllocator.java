@@ -0,0 +1,55 @@
+package com.magiclook.service;
+
+import com.magiclook.data.ItemSingle;
+import com.magiclook.dto.BookingWindow;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Applies the configured {@link UnitAllocationStrategy} (booking.allocation.strategy)
+ * to the free units found by bookings, holds and bundles.
+ * - first-fit keeps the single-row query and takes the first unit
+ * - The other strategies get every free unit and read each unit's neighbouring
+ *   bookings from the availability index, so choosing costs no extra query
+ */
+@Component
+public class UnitAllocator {
+
+    private final UnitAllocationStrategy strategy;
+    private final AvailabilityIndex availabilityIndex;
+
+    public UnitAllocator(@Value("${booking.allocation.strategy:first-fit}") String strategy,
+                         AvailabilityIndex availabilityIndex) {
+        this.strategy = UnitAllocationStrategy.named(strategy);
+        this.availabilityIndex = availabilityIndex;
+    }
+
+    /**
+     * Whether callers must pass every free unit (otherwise the first one is enough).
+     */
+    public boolean comparesUnits() {
+        return strategy.comparesUnits();
+    }
+
+    /**
+     * One of the free units for the window, or null when there is none.
+     */
+    public ItemSingle choose(Integer itemId, List<ItemSingle> freeUnits, BookingWindow window) {
+        if (freeUnits.isEmpty()) {
+            return null;
+        }
+        if (freeUnits.size() == 1 || !strategy.comparesUnits()) {
+            return freeUnits.get(0);
+        }
+        List<UUID> unitIds = freeUnits.stream().map(ItemSingle::getId).toList();
+        return freeUnits.get(strategy.choose(availabilityIndex.describeUnits(itemId, unitIds,
+                window.getPickupDate(), window.getReturnDate())));
+    }
+
+    public String getStrategy() {
+        return strategy.getName();
+    }
+}
@@ -0,0 +1,255 @@
+package com.magiclook.service;
+
+import com.magiclook.data.Booking;
+import com.magiclook.data.Notification;
+import com.magiclook.data.User;
+import com.magiclook.data.WaitlistEntry;
+import com.magiclook.dto.BookingRequestDTO;
+import com.magiclook.dto.SizeAvailabilityDTO;
+import com.magiclook.repository.NotificationRepository;
+import com.magiclook.repository.WaitlistRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Waitlist for (item, size, dates) requests that found no free unit.
+ * - A cancellation publishes a {@link BookingCancelledEvent}; after its commit
+ *   the item is handed to a single matcher thread, so cancelling stays as fast
+ *   as before
+ * - The matcher walks the item's queue in arrival order holding only the item's
+ *   stripe, which keeps passes for the same item from overlapping on this node;
+ *   across nodes each booking re-checks capacity under the stripe and advisory
+ *   lock of its own transaction
+ * - Every entry that now fits is booked; the entry's status and its user's
+ *   notification commit in the booking's own transaction
+ * - An entry whose booking fails is rolled back alone and marked REJECTED, so it
+ *   neither undoes the rest of the pass nor blocks the head of the queue
+ * - Repeated cancellations of the same item coalesce into one pass; a periodic
+ *   poll expires entries whose start date has passed and retries the rest
+ */
+@Service
+public class WaitlistService {
+
+    private static final Logger logger = LoggerFactory.getLogger(WaitlistService.class);
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    private final WaitlistRepository waitlistRepository;
+    private final BookingService bookingService;
+    private final NotificationRepository notificationRepository;
+    private final BookingLockManager bookingLockManager;
+    private final TransactionTemplate transactionTemplate;
+    private final int matchBatch;
+    private final ExecutorService matcher;
+    private final Set<Integer> queuedItems = ConcurrentHashMap.newKeySet();
+
+    private final Counter joined;
+    private final Counter allocated;
+    private final Counter rejected;
+
+    public WaitlistService(WaitlistRepository waitlistRepository,
+                           BookingService bookingService,
+                           NotificationRepository notificationRepository,
+                           BookingLockManager bookingLockManager,
+                           PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry,
+                           @Value("${booking.waitlist.match-batch:50}") int matchBatch) {
+        if (matchBatch <= 0) {
+            throw new IllegalArgumentException("booking.waitlist.match-batch deve ser positivo");
+        }
+        this.waitlistRepository = waitlistRepository;
+        this.bookingService = bookingService;
+        this.notificationRepository = notificationRepository;
+        this.bookingLockManager = bookingLockManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.matchBatch = matchBatch;
+        this.matcher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "waitlist-matcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.joined = Counter.builder("booking.waitlist.joined")
+                .description("Users added to an item's waitlist")
+                .register(meterRegistry);
+        this.allocated = Counter.builder("booking.waitlist.allocated")
+                .description("Waitlist entries turned into bookings after a cancellation")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("booking.waitlist.rejected")
+                .description("Waitlist entries dropped because their booking failed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queues the user for the item, size and dates. Joining twice for the same
+     * request returns without adding a second entry; another size of the same
+     * item is a separate request.
+     */
+    public WaitlistEntry join(BookingRequestDTO request, User user) {
+        if (user == null) {
+            throw new IllegalArgumentException("Utilizador não autenticado");
+        }
+        if (request.getItemId() == null || !request.isValidDates()
+                || !request.getStartUseDate().isAfter(LocalDate.now())) {
+            throw new IllegalArgumentException("Datas inválidas");
+        }
+        String size = request.getSize() == null || request.getSize().isEmpty() ? null : request.getSize();
+        if (waitlistRepository.existsByUserAndItemIdAndSizeAndStatusAndStartUseDateAndEndUseDate(user,
+                request.getItemId(), size, WaitlistEntry.STATUS_WAITING,
+                request.getStartUseDate(), request.getEndUseDate())) {
+            return null;
+        }
+        WaitlistEntry entry = waitlistRepository.save(new WaitlistEntry(user, request.getItemId(), size,
+                request.getStartUseDate(), request.getEndUseDate()));
+        joined.increment();
+        return entry;
+    }
+
+    // Só depois do commit do cancelamento, e fora da thread do pedido
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingCancelled(BookingCancelledEvent event) {
+        schedule(event.getItemId());
+    }
+
+    /**
+     * Expires entries that can no longer be served and re-queues the items
+     * that still have someone waiting (capacity may have been freed elsewhere).
+     */
+    @Scheduled(fixedDelayString = "${booking.waitlist.poll-interval-ms:60000}",
+               initialDelayString = "${booking.waitlist.poll-interval-ms:60000}")
+    public void matchPending() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> waitlistRepository.expireStarted(LocalDate.now()));
+            waitlistRepository.findWaitingItemIds().forEach(this::schedule);
+        } catch (Exception e) {
+            logger.warn("Falha ao rever a lista de espera: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Books the waiting entries of the item that fit the current free capacity,
+     * oldest first. Runs outside any transaction: each allocation commits on its own,
+     * with the entry's status and notification. Returns how many were allocated.
+     */
+    public int match(Integer itemId) {
+        // Sem transação à volta: só a stripe local se aplica (a advisory lock seria libertada logo)
+        int booked = bookingLockManager.withLocalItemLock(itemId, () -> {
+            int count = 0;
+            LocalDate today = LocalDate.now();
+            for (WaitlistEntry entry : waitlistRepository.findByItemIdAndStatusOrderByCreatedAtAsc(
+                    itemId, WaitlistEntry.STATUS_WAITING, Limit.of(matchBatch))) {
+                if (!entry.getStartUseDate().isAfter(today)) {
+                    entry.setStatus(WaitlistEntry.STATUS_EXPIRED);
+                    waitlistRepository.save(entry);
+                    continue;
+                }
+                // Contagem na base de dados: já inclui as reservas feitas nesta passagem
+                if (!hasFreeUnit(entry)) {
+                    continue;
+                }
+                try {
+                    bookingService.createBooking(toRequest(entry), entry.getUser(), booking -> allocate(entry, booking));
+                    count++;
+                } catch (RuntimeException e) {
+                    // Só a reserva desta entrada foi desfeita: tirá-la da fila e seguir para a próxima
+                    logger.warn("Falha ao atribuir a entrada {} da lista de espera: {}", entry.getEntryId(), e.getMessage());
+                    reject(entry);
+                }
+            }
+            return count;
+        });
+        if (booked > 0) {
+            allocated.increment(booked);
+        }
+        return booked;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Entradas por tratar ficam WAITING e são revistas pela passagem periódica
+        matcher.shutdownNow();
+    }
+
+    private void schedule(Integer itemId) {
+        if (itemId == null || !queuedItems.add(itemId)) {
+            return;
+        }
+        try {
+            matcher.execute(() -> {
+                // Sair do conjunto antes de correr: um cancelamento durante a passagem agenda outra
+                queuedItems.remove(itemId);
+                try {
+                    match(itemId);
+                } catch (Exception e) {
+                    logger.warn("Falha ao atribuir a lista de espera do item {}: {}", itemId, e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            queuedItems.remove(itemId);
+        }
+    }
+
+    private void allocate(WaitlistEntry entry, Booking booking) {
+        // Na transação da reserva: a entrada e a notificação são confirmadas com ela
+        entry.setStatus(WaitlistEntry.STATUS_ALLOCATED);
+        entry.setBookingId(booking.getBookingId());
+        entry.setAllocatedAt(new Date());
+        waitlistRepository.save(entry);
+        notificationRepository.save(new Notification(entry.getUser(), allocationMessage(booking)));
+    }
+
+    private void reject(WaitlistEntry entry) {
+        entry.setStatus(WaitlistEntry.STATUS_REJECTED);
+        entry.setBookingId(null);
+        entry.setAllocatedAt(null);
+        transactionTemplate.executeWithoutResult(status -> {
+            waitlistRepository.save(entry);
+            notificationRepository.save(new Notification(entry.getUser(), rejectionMessage(entry)));
+        });
+        rejected.increment();
+    }
+
+    private boolean hasFreeUnit(WaitlistEntry entry) {
+        return bookingService.getFreeUnitsBySize(entry.getItemId(), entry.getStartUseDate(), entry.getEndUseDate())
+                .stream()
+                .filter(sizeAvailability -> entry.getSize() == null || entry.getSize().equals(sizeAvailability.getSize()))
+                .mapToLong(SizeAvailabilityDTO::getFreeUnits)
+                .sum() > 0;
+    }
+
+    private static BookingRequestDTO toRequest(WaitlistEntry entry) {
+        BookingRequestDTO request = new BookingRequestDTO(entry.getItemId(), entry.getStartUseDate(), entry.getEndUseDate());
+        request.setSize(entry.getSize());
+        return request;
+    }
+
+    private static String rejectionMessage(WaitlistEntry entry) {
+        return "Não foi possível confirmar a sua reserva da lista de espera ("
+                + entry.getStartUseDate().format(DATE_FORMAT) + " a " + entry.getEndUseDate().format(DATE_FORMAT)
+                + "). Por favor, tente reservar novamente.";
+    }
+
+    private static String allocationMessage(Booking booking) {
+        return "Vagou uma unidade de " + booking.getItem().getName() + ": a sua reserva da lista de espera ("
+                + booking.getStartUseDate().format(DATE_FORMAT) + " a " + booking.getEndUseDate().format(DATE_FORMAT)
+                + ") foi confirmada.";
+    }
+}
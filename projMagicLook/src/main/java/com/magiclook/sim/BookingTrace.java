@@ -0,0 +1,191 @@
+package com.magiclook.sim;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.magiclook.dto.BookingWindow;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Stock and booking requests to replay, read from JSONL or generated.
+ * - {"type":"stock","itemId":1,"size":"M","units":3} declares units of an item/size
+ * - {"itemId":1,"size":"M","startUseDate":"2030-01-10","endUseDate":"2030-01-12"} is a
+ *   request; a bookings export may add "itemSingleId" and "state" (CANCELLED lines are skipped)
+ * - Without stock lines the units of an item/size are the distinct itemSingleIds of its
+ *   bookings (or a single unit), so a plain export of the bookings table can be replayed
+ */
+public final class BookingTrace {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String[] SIZES = {"S", "M", "L", "XL"};
+    // Procura por tamanho no trace sintético: M e L são os mais pedidos
+    private static final int[] SIZE_WEIGHTS = {2, 4, 3, 1};
+
+    /**
+     * A unit of an item; size may be null (item without sizes), label names it in reports.
+     */
+    public record Unit(String label, Integer itemId, String size) {
+
+        public Unit(Integer itemId, String size) {
+            this(null, itemId, size);
+        }
+    }
+
+    /**
+     * A booking request as the form sends it: size null means any size.
+     */
+    public record Request(Integer itemId, String size, LocalDate startUseDate, LocalDate endUseDate) {
+
+        public boolean isValid() {
+            return itemId != null && startUseDate != null && endUseDate != null && !endUseDate.isBefore(startUseDate);
+        }
+
+        // Pickup e devolução calculados como numa reserva real
+        public BookingWindow window() {
+            return BookingWindow.of(startUseDate, endUseDate);
+        }
+    }
+
+    private final List<Unit> units;
+    private final List<Request> requests;
+
+    private BookingTrace(List<Unit> units, List<Request> requests) {
+        this.units = List.copyOf(units);
+        this.requests = List.copyOf(requests);
+    }
+
+    public static BookingTrace of(List<Unit> units, List<Request> requests) {
+        return new BookingTrace(units, requests);
+    }
+
+    public static BookingTrace read(Path path) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(path)) {
+            return read(reader);
+        }
+    }
+
+    public static BookingTrace read(BufferedReader reader) throws IOException {
+        List<Unit> declared = new ArrayList<>();
+        Set<Integer> declaredItems = new HashSet<>();
+        List<Request> requests = new ArrayList<>();
+        // (item, tamanho) -> unidades vistas no histórico, por ordem de aparecimento
+        Map<List<Object>, Set<String>> seenUnits = new LinkedHashMap<>();
+
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            JsonNode node;
+            try {
+                node = MAPPER.readTree(line);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Linha " + lineNumber + " do trace inválida: " + e.getMessage(), e);
+            }
+            Integer itemId = node.hasNonNull("itemId") ? node.get("itemId").asInt() : null;
+            String size = normalizeSize(node.path("size").asText(null));
+
+            if ("stock".equals(node.path("type").asText())) {
+                int count = node.path("units").asInt(1);
+                for (int i = 1; i <= count; i++) {
+                    declared.add(new Unit(label(itemId, size, i), itemId, size));
+                }
+                declaredItems.add(itemId);
+                continue;
+            }
+            if ("CANCELLED".equals(node.path("state").asText())) {
+                continue;
+            }
+            requests.add(new Request(itemId, size, date(node, "startUseDate"), date(node, "endUseDate")));
+            Set<String> unitIds = seenUnits.computeIfAbsent(Arrays.asList(itemId, size), key -> new LinkedHashSet<>());
+            if (node.hasNonNull("itemSingleId")) {
+                unitIds.add(node.get("itemSingleId").asText());
+            }
+        }
+
+        List<Unit> units = new ArrayList<>(declared);
+        seenUnits.forEach((key, unitIds) -> {
+            Integer itemId = (Integer) key.get(0);
+            String size = (String) key.get(1);
+            // Pedidos "qualquer tamanho" não dizem que tamanho existe: só o stock declarado os serve
+            if (itemId == null || declaredItems.contains(itemId) || (size == null && unitIds.isEmpty())) {
+                return;
+            }
+            if (unitIds.isEmpty()) {
+                units.add(new Unit(label(itemId, size, 1), itemId, size));
+            } else {
+                unitIds.forEach(unitId -> units.add(new Unit(unitId, itemId, size)));
+            }
+        });
+        return new BookingTrace(units, requests);
+    }
+
+    /**
+     * Synthetic year of demand: a few popular items get most requests, rentals
+     * are mostly 1-4 days with some week-long ones, in random arrival order.
+     */
+    public static BookingTrace synthetic(int bookings, int items, int unitsPerSize, long seed) {
+        if (bookings < 0 || items <= 0 || unitsPerSize <= 0) {
+            throw new IllegalArgumentException("Parâmetros do trace sintético inválidos");
+        }
+        Random random = new Random(seed);
+        List<Unit> units = new ArrayList<>(items * SIZES.length * unitsPerSize);
+        for (int itemId = 1; itemId <= items; itemId++) {
+            for (String size : SIZES) {
+                for (int i = 1; i <= unitsPerSize; i++) {
+                    units.add(new Unit(label(itemId, size, i), itemId, size));
+                }
+            }
+        }
+
+        int totalWeight = Arrays.stream(SIZE_WEIGHTS).sum();
+        LocalDate firstDay = LocalDate.of(2030, 1, 1);
+        List<Request> requests = new ArrayList<>(bookings);
+        for (int i = 0; i < bookings; i++) {
+            double r = random.nextDouble();
+            int itemId = 1 + (int) (items * r * r);
+            LocalDate start = firstDay.plusDays(random.nextInt(365));
+            int useDays = random.nextInt(10) == 0 ? 7 + random.nextInt(8) : 1 + random.nextInt(4);
+            requests.add(new Request(itemId, pickSize(random.nextInt(totalWeight)), start, start.plusDays(useDays - 1L)));
+        }
+        return new BookingTrace(units, requests);
+    }
+
+    public List<Unit> getUnits() {
+        return units;
+    }
+
+    public List<Request> getRequests() {
+        return requests;
+    }
+
+    private static String pickSize(int ticket) {
+        for (int i = 0; i < SIZES.length; i++) {
+            ticket -= SIZE_WEIGHTS[i];
+            if (ticket < 0) {
+                return SIZES[i];
+            }
+        }
+        return SIZES[SIZES.length - 1];
+    }
+
+    private static LocalDate date(JsonNode node, String field) {
+        return node.hasNonNull(field) ? LocalDate.parse(node.get(field).asText()) : null;
+    }
+
+    // Tamanho vazio equivale a "qualquer tamanho", como no BookingService
+    private static String normalizeSize(String size) {
+        return size == null || size.isEmpty() ? null : size;
+    }
+
+    static String label(Integer itemId, String size, int index) {
+        return "item" + itemId + "-" + Objects.toString(size, "Único") + "#" + index;
+    }
+}
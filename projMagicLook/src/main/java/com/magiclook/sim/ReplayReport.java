@@ -0,0 +1,77 @@
+package com.magiclook.sim;
+
+import java.io.PrintStream;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Outcome of one replay: throughput, rejections by size and how much each unit was used.
+ */
+public record ReplayReport(String strategy, int threads, int stripes, long requests, long accepted, long invalid,
+                           long elapsedNanos, List<SizeStats> sizes, List<SimUnit> units, long spanDays) {
+
+    public record SizeStats(String size, long requests, long rejected) {
+
+        public double rejectionRate() {
+            return requests == 0 ? 0 : (double) rejected / requests;
+        }
+    }
+
+    public long rejected() {
+        return requests - accepted;
+    }
+
+    public double rejectionRate() {
+        return requests == 0 ? 0 : (double) rejected() / requests;
+    }
+
+    public double throughputPerSecond() {
+        return elapsedNanos == 0 ? 0 : requests * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    // Dias reservados sobre dias disponíveis (unidades x dias cobertos pelo trace)
+    public double utilization() {
+        long capacity = spanDays * units.size();
+        return capacity == 0 ? 0 : (double) units.stream().mapToLong(SimUnit::getBookedDays).sum() / capacity;
+    }
+
+    public double utilization(SimUnit unit) {
+        return spanDays == 0 ? 0 : (double) unit.getBookedDays() / spanDays;
+    }
+
+    public SizeStats size(String size) {
+        return sizes.stream().filter(stats -> stats.size().equals(size)).findFirst().orElse(null);
+    }
+
+    /**
+     * Prints the summary, the per-size rejections and the busiest and idlest units.
+     */
+    public void print(PrintStream out, int unitsShown) {
+        out.printf(Locale.ROOT, "== %s (%d threads, %d stripes)%n", strategy, threads, stripes);
+        out.printf(Locale.ROOT, "requests=%d accepted=%d rejected=%d (%.2f%%) invalid=%d%n",
+                requests, accepted, rejected(), rejectionRate() * 100, invalid);
+        out.printf(Locale.ROOT, "elapsed=%.1f ms throughput=%.0f/s (%.0f/min)%n",
+                elapsedNanos / 1e6, throughputPerSecond(), throughputPerSecond() * 60);
+        out.printf(Locale.ROOT, "utilization=%.2f%% over %d units x %d days%n", utilization() * 100, units.size(), spanDays);
+        for (SizeStats stats : sizes) {
+            out.printf(Locale.ROOT, "  size %-6s requests=%d rejected=%d (%.2f%%)%n",
+                    stats.size(), stats.requests(), stats.rejected(), stats.rejectionRate() * 100);
+        }
+        if (unitsShown <= 0 || units.isEmpty()) {
+            return;
+        }
+        List<SimUnit> byUse = units.stream()
+                .sorted(Comparator.comparingLong(SimUnit::getBookedDays).reversed().thenComparing(SimUnit::getLabel))
+                .toList();
+        out.println("  busiest units:");
+        byUse.stream().limit(unitsShown).forEach(unit -> printUnit(out, unit));
+        out.println("  idlest units:");
+        byUse.reversed().stream().limit(unitsShown).forEach(unit -> printUnit(out, unit));
+    }
+
+    private void printUnit(PrintStream out, SimUnit unit) {
+        out.printf(Locale.ROOT, "    %-40s bookings=%d days=%d utilization=%.2f%%%n",
+                unit.getLabel(), unit.getBookings(), unit.getBookedDays(), utilization(unit) * 100);
+    }
+}
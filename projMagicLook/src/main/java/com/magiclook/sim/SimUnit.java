@@ -0,0 +1,71 @@
+package com.magiclook.sim;
+
+import com.magiclook.service.UnitAllocationStrategy;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * One simulated ItemSingle: its bookings as epoch-day intervals keyed by start
+ * (they never overlap), plus what it was used for during a replay.
+ * Not thread-safe: callers hold the item's lock, as allocation does live.
+ */
+public final class SimUnit {
+
+    private final String label;
+    private final Integer itemId;
+    private final String size;
+    private final TreeMap<Long, Long> bookings = new TreeMap<>();
+    private long bookedDays;
+
+    SimUnit(String label, Integer itemId, String size) {
+        this.label = label;
+        this.itemId = itemId;
+        this.size = size;
+    }
+
+    // Mesmo critério da query: livre se nenhuma reserva tem start <= to && end >= from
+    boolean isFree(long from, long to) {
+        Map.Entry<Long, Long> last = bookings.floorEntry(to);
+        return last == null || last.getValue() < from;
+    }
+
+    // Tamanho pedido (null = qualquer tamanho)
+    boolean serves(String requestedSize) {
+        return requestedSize == null || requestedSize.equals(size);
+    }
+
+    void book(long from, long to) {
+        bookings.put(from, to);
+        bookedDays += to - from + 1;
+    }
+
+    UnitAllocationStrategy.Candidate describe(long from, long to) {
+        Map.Entry<Long, Long> previous = bookings.lowerEntry(from);
+        Map.Entry<Long, Long> next = bookings.higherEntry(to);
+        return new UnitAllocationStrategy.Candidate(
+                previous == null ? UnitAllocationStrategy.OPEN : from - previous.getValue() - 1,
+                next == null ? UnitAllocationStrategy.OPEN : next.getKey() - to - 1,
+                bookings.size());
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public Integer getItemId() {
+        return itemId;
+    }
+
+    public String getSize() {
+        return size;
+    }
+
+    public int getBookings() {
+        return bookings.size();
+    }
+
+    public long getBookedDays() {
+        return bookedDays;
+    }
+}
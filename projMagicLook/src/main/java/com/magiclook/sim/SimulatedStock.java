@@ -0,0 +1,69 @@
+package com.magiclook.sim;
+
+import com.magiclook.dto.BookingWindow;
+import com.magiclook.service.UnitAllocationStrategy;
+
+import java.util.*;
+
+/**
+ * In-memory stand-in for the ItemSingle table during a replay: the units of each
+ * item in trace order, allocated with the same rules as BookingService
+ * (AVAILABLE unit of the size, no overlap between pickup and return, unit
+ * picked by the allocation strategy).
+ */
+public final class SimulatedStock {
+
+    private final Map<Integer, List<SimUnit>> unitsByItem = new HashMap<>();
+    private final List<SimUnit> units = new ArrayList<>();
+
+    public SimulatedStock(List<BookingTrace.Unit> traceUnits) {
+        Map<List<Object>, Integer> counters = new HashMap<>();
+        for (BookingTrace.Unit unit : traceUnits) {
+            String label = unit.label();
+            if (label == null) {
+                int index = counters.merge(Arrays.asList(unit.itemId(), unit.size()), 1, Integer::sum);
+                label = BookingTrace.label(unit.itemId(), unit.size(), index);
+            }
+            SimUnit simUnit = new SimUnit(label, unit.itemId(), unit.size());
+            units.add(simUnit);
+            unitsByItem.computeIfAbsent(unit.itemId(), id -> new ArrayList<>()).add(simUnit);
+        }
+    }
+
+    /**
+     * Books a unit of the item for the window, or returns null when none is free.
+     * Callers serialize allocations of the same item (item lock).
+     */
+    public SimUnit allocate(Integer itemId, String size, BookingWindow window, UnitAllocationStrategy strategy) {
+        long from = window.getPickupDate().toEpochDay();
+        long to = window.getReturnDate().toEpochDay();
+
+        List<SimUnit> free = new ArrayList<>();
+        for (SimUnit unit : unitsByItem.getOrDefault(itemId, List.of())) {
+            if (unit.serves(size) && unit.isFree(from, to)) {
+                free.add(unit);
+                if (!strategy.comparesUnits()) {
+                    break; // first-fit: a query com Limit.of(1)
+                }
+            }
+        }
+        if (free.isEmpty()) {
+            return null;
+        }
+
+        SimUnit chosen = free.get(0);
+        if (free.size() > 1) {
+            List<UnitAllocationStrategy.Candidate> candidates = new ArrayList<>(free.size());
+            for (SimUnit unit : free) {
+                candidates.add(unit.describe(from, to));
+            }
+            chosen = free.get(strategy.choose(candidates));
+        }
+        chosen.book(from, to);
+        return chosen;
+    }
+
+    public List<SimUnit> getUnits() {
+        return Collections.unmodifiableList(units);
+    }
+}
@@ -0,0 +1,215 @@
+package com.magiclook.sim;
+
+import com.magiclook.service.BookingLockManager;
+import com.magiclook.service.UnitAllocationStrategy;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Offline capacity planner: replays a booking trace against the booking rules in
+ * memory, with no HTTP and no database, and reports throughput, rejection rate by
+ * size and per-unit utilization.
+ * - Requests go through the same steps as BookingService: date validation, pickup/return
+ *   window, item lock (striped {@link BookingLockManager}), unit picked by the
+ *   {@link UnitAllocationStrategy}
+ * - Several worker threads replay the trace concurrently, so stripe counts and
+ *   strategies can be compared at millions of bookings per minute
+ *
+ * Usage: TraceReplay [trace.jsonl] [--synthetic=N] [--items=N] [--units=N] [--seed=N]
+ *                    [--strategy=first-fit|best-fit|least-booked|all] [--threads=N] [--stripes=N] [--top=N]
+ */
+public final class TraceReplay {
+
+    private static final String ANY_SIZE = "any";
+    // Pedidos reservados por cada worker de uma vez: menos disputa no contador partilhado
+    private static final int CHUNK = 256;
+
+    private TraceReplay() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        String tracePath = null;
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                int equals = arg.indexOf('=');
+                options.put(equals < 0 ? arg.substring(2) : arg.substring(2, equals), equals < 0 ? "" : arg.substring(equals + 1));
+            } else {
+                tracePath = arg;
+            }
+        }
+
+        BookingTrace trace = tracePath != null
+                ? BookingTrace.read(Path.of(tracePath))
+                : BookingTrace.synthetic(intOption(options, "synthetic", 1_000_000), intOption(options, "items", 200),
+                        intOption(options, "units", 3), intOption(options, "seed", 42));
+        int threads = intOption(options, "threads", Runtime.getRuntime().availableProcessors());
+        int stripes = intOption(options, "stripes", 64);
+        int top = intOption(options, "top", 5);
+
+        String strategy = options.getOrDefault("strategy", "all");
+        List<UnitAllocationStrategy> strategies = "all".equals(strategy)
+                ? List.of(UnitAllocationStrategy.named(UnitAllocationStrategy.FIRST_FIT),
+                        UnitAllocationStrategy.named(UnitAllocationStrategy.BEST_FIT),
+                        UnitAllocationStrategy.named(UnitAllocationStrategy.LEAST_BOOKED))
+                : List.of(UnitAllocationStrategy.named(strategy));
+
+        System.out.printf("Replaying %d requests over %d units%n", trace.getRequests().size(), trace.getUnits().size());
+        for (UnitAllocationStrategy unitStrategy : strategies) {
+            replay(trace, unitStrategy, threads, stripes).print(System.out, top);
+        }
+    }
+
+    /**
+     * Replays the trace single-threaded for each strategy, so the reports differ only by
+     * the units chosen.
+     */
+    public static List<ReplayReport> compare(BookingTrace trace, List<UnitAllocationStrategy> strategies) {
+        List<ReplayReport> reports = new ArrayList<>(strategies.size());
+        for (UnitAllocationStrategy strategy : strategies) {
+            try {
+                reports.add(replay(trace, strategy, 1, 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Replay interrompido", e);
+            }
+        }
+        return reports;
+    }
+
+    /**
+     * Replays the trace with the given number of worker threads and lock stripes.
+     * With more than one thread the order of requests for different items may change
+     * between runs, as it would live.
+     */
+    public static ReplayReport replay(BookingTrace trace, UnitAllocationStrategy strategy, int threads, int stripes)
+            throws InterruptedException {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads deve ser positivo");
+        }
+        SimulatedStock stock = new SimulatedStock(trace.getUnits());
+        BookingLockManager lockManager = new BookingLockManager(BookingLockManager.MODE_LOCAL, stripes);
+        List<BookingTrace.Request> requests = trace.getRequests();
+
+        AtomicInteger next = new AtomicInteger();
+        List<Worker> workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            workers.add(new Worker(requests, next, stock, lockManager, strategy));
+        }
+
+        long started = System.nanoTime();
+        if (threads == 1) {
+            workers.get(0).run();
+        } else {
+            List<Thread> running = new ArrayList<>(threads);
+            for (int i = 0; i < threads; i++) {
+                Thread thread = new Thread(workers.get(i), "trace-replay-" + i);
+                thread.start();
+                running.add(thread);
+            }
+            for (Thread thread : running) {
+                thread.join();
+            }
+        }
+        long elapsed = System.nanoTime() - started;
+
+        // Juntar as contagens locais de cada worker
+        Map<String, long[]> bySize = new TreeMap<>();
+        long accepted = 0;
+        long invalid = 0;
+        for (Worker worker : workers) {
+            accepted += worker.accepted;
+            invalid += worker.invalid;
+            worker.bySize.forEach((size, counts) -> {
+                long[] total = bySize.computeIfAbsent(size, key -> new long[2]);
+                total[0] += counts[0];
+                total[1] += counts[1];
+            });
+        }
+        List<ReplayReport.SizeStats> sizes = bySize.entrySet().stream()
+                .map(entry -> new ReplayReport.SizeStats(entry.getKey(), entry.getValue()[0], entry.getValue()[1]))
+                .toList();
+
+        return new ReplayReport(strategy.getName(), threads, stripes, requests.size(), accepted, invalid, elapsed,
+                sizes, stock.getUnits(), spanDays(requests));
+    }
+
+    // Dias entre o primeiro levantamento e a última devolução do trace
+    private static long spanDays(List<BookingTrace.Request> requests) {
+        long first = Long.MAX_VALUE;
+        long last = Long.MIN_VALUE;
+        for (BookingTrace.Request request : requests) {
+            if (request.isValid()) {
+                first = Math.min(first, request.window().getPickupDate().toEpochDay());
+                last = Math.max(last, request.window().getReturnDate().toEpochDay());
+            }
+        }
+        return first > last ? 0 : last - first + 1;
+    }
+
+    private static int intOption(Map<String, String> options, String name, int defaultValue) {
+        String value = options.get(name);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--" + name + " deve ser um número: " + value, e);
+        }
+    }
+
+    private static final class Worker implements Runnable {
+
+        private final List<BookingTrace.Request> requests;
+        private final AtomicInteger next;
+        private final SimulatedStock stock;
+        private final BookingLockManager lockManager;
+        private final UnitAllocationStrategy strategy;
+
+        // Tamanho -> {pedidos, rejeitados}; só esta thread escreve
+        private final Map<String, long[]> bySize = new HashMap<>();
+        private long accepted;
+        private long invalid;
+
+        Worker(List<BookingTrace.Request> requests, AtomicInteger next, SimulatedStock stock,
+               BookingLockManager lockManager, UnitAllocationStrategy strategy) {
+            this.requests = requests;
+            this.next = next;
+            this.stock = stock;
+            this.lockManager = lockManager;
+            this.strategy = strategy;
+        }
+
+        @Override
+        public void run() {
+            int start;
+            while ((start = next.getAndAdd(CHUNK)) < requests.size()) {
+                int end = Math.min(start + CHUNK, requests.size());
+                for (int i = start; i < end; i++) {
+                    replayOne(requests.get(i));
+                }
+            }
+        }
+
+        private void replayOne(BookingTrace.Request request) {
+            long[] counts = bySize.computeIfAbsent(Objects.toString(request.size(), ANY_SIZE), key -> new long[2]);
+            counts[0]++;
+            if (!request.isValid()) {
+                invalid++;
+                counts[1]++;
+                return;
+            }
+            SimUnit unit = lockManager.withItemLock(request.itemId(),
+                    () -> stock.allocate(request.itemId(), request.size(), request.window(), strategy));
+            if (unit == null) {
+                counts[1]++;
+            } else {
+                accepted++;
+            }
+        }
+    }
+}
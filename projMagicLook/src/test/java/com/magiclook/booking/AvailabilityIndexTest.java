@@ -0,0 +1,344 @@
+package com.magiclook.booking;
+
+import com.magiclook.data.*;
+import com.magiclook.dto.BookedIntervalDTO;
+import com.magiclook.dto.DateRangeDTO;
+import com.magiclook.repository.BookingRepository;
+import com.magiclook.repository.ItemSingleRepository;
+import com.magiclook.service.AvailabilityIndex;
+import com.magiclook.service.UnitAllocationStrategy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AvailabilityIndexTest {
+
+    private BookingRepository bookingRepository;
+    private ItemSingleRepository itemSingleRepository;
+    private SimpleMeterRegistry registry;
+    private AvailabilityIndex index;
+
+    private Item item;
+    private ItemSingle unitM;
+    private ItemSingle unitL;
+    private final LocalDate base = LocalDate.of(2030, 3, 1);
+
+    @BeforeEach
+    void setUp() {
+        bookingRepository = mock(BookingRepository.class);
+        itemSingleRepository = mock(ItemSingleRepository.class);
+        registry = new SimpleMeterRegistry();
+        index = new AvailabilityIndex(bookingRepository, itemSingleRepository, registry);
+
+        item = new Item();
+        item.setItemId(1);
+        unitM = unit("M", ItemSingle.STATE_AVAILABLE);
+        unitL = unit("L", ItemSingle.STATE_AVAILABLE);
+
+        when(itemSingleRepository.findAll()).thenReturn(List.of(unitM, unitL));
+        when(itemSingleRepository.findByItem_ItemId(1)).thenReturn(List.of(unitM, unitL));
+        when(itemSingleRepository.findItemIds()).thenReturn(List.of(1));
+        when(itemSingleRepository.findByItem_ItemIdIn(anyCollection())).thenReturn(List.of(unitM, unitL));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testNotReady_DoesNotCoverAnyItem() {
+        assertFalse(index.covers(1));
+    }
+
+    @Test
+    void testWarmUp_AnswersFromIntervals() {
+        // M ocupado nos dias 10 a 14
+        when(bookingRepository.findActiveIntervals(any()))
+            .thenReturn(List.of(interval(UUID.randomUUID(), unitM, 10, 14)));
+
+        index.warmUp();
+
+        assertTrue(index.covers(1));
+        assertFalse(index.covers(2));
+        assertFalse(index.hasFreeUnit(1, "M", day(12), day(16)));
+        assertFalse(index.hasFreeUnit(1, "M", day(14), day(18))); // Limites inclusivos, como na query
+        assertTrue(index.hasFreeUnit(1, "M", day(15), day(18)));
+        assertTrue(index.hasFreeUnit(1, "M", day(5), day(9)));
+        assertTrue(index.hasFreeUnit(1, "L", day(12), day(16)));
+        assertTrue(index.hasFreeUnit(1, null, day(12), day(16))); // Qualquer tamanho: L está livre
+        assertFalse(index.hasFreeUnit(1, "XL", day(12), day(16)));
+        assertEquals(2, index.getIndexedUnits());
+        verify(bookingRepository).findActiveIntervals(LocalDate.now(ZoneId.systemDefault()));
+    }
+
+    @Test
+    void testLongBookingBeforeShortOnes_IsStillSeen() {
+        // Uma reserva longa que começa primeiro tem de bloquear intervalos posteriores (max dos fins)
+        when(bookingRepository.findActiveIntervals(any())).thenReturn(List.of(
+            interval(UUID.randomUUID(), unitM, 1, 30),
+            interval(UUID.randomUUID(), unitM, 5, 6)));
+
+        index.warmUp();
+
+        assertFalse(index.hasFreeUnit(1, "M", day(20), day(22)));
+        assertTrue(index.hasFreeUnit(1, "M", day(31), day(33)));
+    }
+
+    @Test
+    void testMaintenanceUnit_IsNeverFree() {
+        ItemSingle maintenance = unit("S", ItemSingle.STATE_MAINTENANCE);
+        when(itemSingleRepository.findAll()).thenReturn(List.of(maintenance));
+        when(bookingRepository.findActiveIntervals(any())).thenReturn(List.of());
+
+        index.warmUp();
+
+        assertFalse(index.hasFreeUnit(1, "S", day(1), day(3)));
+    }
+
+    @Test
+    void testBookingChanged_AppliedOnlyAfterCommit() {
+        when(bookingRepository.findActiveIntervals(any())).thenReturn(List.of());
+        index.warmUp();
+
+        TransactionSynchronizationManager.initSynchronization();
+        Booking booking = booking(unitM, 10, 14, "CONFIRMED");
+        index.bookingChanged(booking);
+
+        // Ainda não houve commit
+        assertTrue(index.hasFreeUnit(1, "M", day(12), day(13)));
+
+        for (TransactionSynchronization sync : TransactionSynchronizationManager.getSynchronizations()) {
+            sync.afterCommit();
+        }
+
+        assertFalse(index.hasFreeUnit(1, "M", day(12), day(13)));
+    }
+
+    @Test
+    void testCancelledBooking_FreesTheUnit() {
+        Booking booking = booking(unitM, 10, 14, "CONFIRMED");
+        when(bookingRepository.findActiveIntervals(any()))
+            .thenReturn(List.of(interval(booking.getBookingId(), unitM, 10, 14)));
+        index.warmUp();
+        assertFalse(index.hasFreeUnit(1, "M", day(12), day(13)));
+
+        booking.setState("CANCELLED");
+        index.bookingChanged(booking);
+
+        assertTrue(index.hasFreeUnit(1, "M", day(12), day(13)));
+    }
+
+    @Test
+    void testBookingForUnknownUnit_ReloadsItem() {
+        when(bookingRepository.findActiveIntervals(any())).thenReturn(List.of());
+        index.warmUp();
+
+        ItemSingle added = unit("M", ItemSingle.STATE_AVAILABLE);
+        Booking booking = booking(added, 10, 14, "CONFIRMED");
+        when(itemSingleRepository.findByItem_ItemId(1)).thenReturn(List.of(unitM, unitL, added));
+        when(bookingRepository.findActiveIntervalsByItemId(eq(1), any()))
+            .thenReturn(List.of(interval(booking.getBookingId(), added, 10, 14)));
+
+        index.bookingChanged(booking);
+
+        assertEquals(3, index.getIndexedUnits());
+        verify(bookingRepository).findActiveIntervalsByItemId(eq(1), any());
+    }
+
+    @Test
+    void testConsistencyCheck_ReportsDriftAndRepairs() {
+        when(bookingRepository.findActiveIntervals(any())).thenReturn(List.of());
+        index.warmUp();
+
+        // Reserva escrita na BD sem passar pelo índice (ex.: outro nó)
+        BookedIntervalDTO missed = interval(UUID.randomUUID(), unitM, 10, 14);
+        when(bookingRepository.findActiveIntervalsByItemIds(anyCollection(), any())).thenReturn(List.of(missed));
+        when(bookingRepository.findActiveIntervalsByItemId(eq(1), any())).thenReturn(List.of(missed));
+
+        index.checkConsistency();
+
+        assertEquals(1, index.getDrift());
+        assertEquals(1.0, registry.get("booking.availability.index.drift").gauge().value());
+        assertFalse(index.hasFreeUnit(1, "M", day(12), day(13)));
+
+        index.checkConsistency();
+
+        assertEquals(0, index.getDrift());
+        // Comparação por lotes de itens: nunca volta a carregar a base inteira
+        verify(itemSingleRepository, times(1)).findAll();
+        verify(bookingRepository, times(1)).findActiveIntervals(any());
+    }
+
+    @Test
+    void testConsistencyCheck_IgnoresBookingsReturnedBeforeToday() {
+        LocalDate today = LocalDate.now(ZoneId.systemDefault());
+        // Já devolvida: o índice só a larga no próximo roll, a query limitada já não a devolve
+        when(bookingRepository.findActiveIntervals(any())).thenReturn(List.of(
+            new BookedIntervalDTO(UUID.randomUUID(), unitM.getId(), 1, at(today, -5), at(today, -1))));
+        index.warmUp();
+        when(bookingRepository.findActiveIntervalsByItemIds(anyCollection(), any())).thenReturn(List.of());
+
+        index.checkConsistency();
+
+        assertEquals(0, index.getDrift());
+        verify(bookingRepository).findActiveIntervalsByItemIds(List.of(1), today);
+    }
+
+    @Test
+    void testReload_DoesNotOverwriteBookingAppliedMeanwhile() {
+        when(bookingRepository.findActiveIntervals(any())).thenReturn(List.of());
+        index.warmUp();
+
+        // A reserva é confirmada (afterCommit) enquanto o reload ainda está a ler a BD sem ela
+        Booking booking = booking(unitM, 10, 14, "CONFIRMED");
+        BookedIntervalDTO committed = interval(booking.getBookingId(), unitM, 10, 14);
+        when(bookingRepository.findActiveIntervalsByItemId(eq(1), any()))
+            .thenAnswer(invocation -> {
+                index.bookingChanged(booking);
+                return List.of();
+            })
+            .thenReturn(List.of(committed));
+
+        index.reloadItem(1);
+
+        assertFalse(index.hasFreeUnit(1, "M", day(12), day(13)));
+        verify(bookingRepository, times(2)).findActiveIntervalsByItemId(eq(1), any());
+    }
+
+    @Test
+    void testUnavailableRanges_OnlyWhereEveryUnitOfTheSizeIsTaken() {
+        ItemSingle secondM = unit("M", ItemSingle.STATE_AVAILABLE);
+        when(itemSingleRepository.findAll()).thenReturn(List.of(unitM, secondM, unitL));
+        LocalDate today = LocalDate.now(ZoneId.systemDefault());
+
+        // M ocupado nos dias 10-14 numa unidade e 12-20 na outra: só 12-14 ficam sem M livre
+        when(bookingRepository.findActiveIntervals(any())).thenReturn(List.of(
+            new BookedIntervalDTO(UUID.randomUUID(), unitM.getId(), 1, at(today, 10), at(today, 14)),
+            new BookedIntervalDTO(UUID.randomUUID(), secondM.getId(), 1, at(today, 12), at(today, 20))));
+        index.warmUp();
+
+        List<DateRangeDTO> ranges = index.getUnavailableRanges(1, "M", today, today.plusDays(30));
+
+        assertEquals(1, ranges.size());
+        assertEquals(today.plusDays(12), ranges.get(0).getStart());
+        assertEquals(today.plusDays(14), ranges.get(0).getEnd());
+        assertTrue(index.getUnavailableRanges(1, "L", today, today.plusDays(30)).isEmpty());
+        assertTrue(index.getUnavailableRanges(1, null, today, today.plusDays(30)).isEmpty());
+    }
+
+    @Test
+    void testUnavailableRanges_SizeWithoutUnitsIsAlwaysUnavailable() {
+        when(bookingRepository.findActiveIntervals(any())).thenReturn(List.of());
+        index.warmUp();
+        LocalDate today = LocalDate.now(ZoneId.systemDefault());
+
+        List<DateRangeDTO> ranges = index.getUnavailableRanges(1, "XL", today, today.plusDays(9));
+
+        assertEquals(1, ranges.size());
+        assertEquals(today, ranges.get(0).getStart());
+        assertEquals(today.plusDays(9), ranges.get(0).getEnd());
+    }
+
+    @Test
+    void testUnavailableRanges_BeyondHorizonAndOutsideIndex() {
+        LocalDate today = LocalDate.now(ZoneId.systemDefault());
+        BookedIntervalDTO farAway = new BookedIntervalDTO(UUID.randomUUID(), unitM.getId(), 1,
+            at(today, 400), at(today, 402));
+        when(bookingRepository.findActiveIntervalsByItemId(eq(1), any())).thenReturn(List.of(farAway));
+        when(itemSingleRepository.findByItem_ItemId(1)).thenReturn(List.of(unitM));
+
+        // Sem warm-up: o calendário é montado a partir da BD
+        List<DateRangeDTO> ranges = index.getUnavailableRanges(1, "M", today.plusDays(390), today.plusDays(410));
+
+        assertEquals(1, ranges.size());
+        assertEquals(today.plusDays(400), ranges.get(0).getStart());
+        assertEquals(today.plusDays(402), ranges.get(0).getEnd());
+    }
+
+    @Test
+    void testUnavailableRanges_FollowBookingChanges() {
+        when(bookingRepository.findActiveIntervals(any())).thenReturn(List.of());
+        when(itemSingleRepository.findAll()).thenReturn(List.of(unitM));
+        index.warmUp();
+        LocalDate today = LocalDate.now(ZoneId.systemDefault());
+
+        Booking booking = new Booking();
+        booking.setBookingId(UUID.randomUUID());
+        booking.setItem(item);
+        booking.setItemSingle(unitM);
+        booking.setPickupDate(at(today, 3));
+        booking.setReturnDate(at(today, 5));
+        booking.setState("CONFIRMED");
+        index.bookingChanged(booking);
+
+        assertEquals(1, index.getUnavailableRanges(1, "M", today, today.plusDays(10)).size());
+
+        booking.setState("CANCELLED");
+        index.bookingChanged(booking);
+        index.rollHorizon();
+
+        assertTrue(index.getUnavailableRanges(1, "M", today, today.plusDays(10)).isEmpty());
+    }
+
+    @Test
+    void testDescribeUnits_GapsAroundWindowAndBookingCounts() {
+        ItemSingle unused = unit("M", ItemSingle.STATE_AVAILABLE);
+        // M: devolução no dia 9 e levantamento seguinte no dia 20; L: só uma reserva antiga
+        when(bookingRepository.findActiveIntervals(any())).thenReturn(List.of(
+            interval(UUID.randomUUID(), unitM, 1, 4),
+            interval(UUID.randomUUID(), unitM, 6, 9),
+            interval(UUID.randomUUID(), unitM, 20, 22),
+            interval(UUID.randomUUID(), unitL, 1, 2)));
+        index.warmUp();
+
+        List<UnitAllocationStrategy.Candidate> candidates = index.describeUnits(1,
+            List.of(unitM.getId(), unitL.getId(), unused.getId()), day(12), day(15));
+
+        assertEquals(new UnitAllocationStrategy.Candidate(2, 4, 3), candidates.get(0));
+        assertEquals(new UnitAllocationStrategy.Candidate(9, UnitAllocationStrategy.OPEN, 1), candidates.get(1));
+        assertEquals(new UnitAllocationStrategy.Candidate(UnitAllocationStrategy.OPEN, UnitAllocationStrategy.OPEN, 0),
+            candidates.get(2));
+    }
+
+    private ItemSingle unit(String size, String state) {
+        ItemSingle unit = new ItemSingle(state, item, size);
+        unit.setId(UUID.randomUUID());
+        return unit;
+    }
+
+    private Booking booking(ItemSingle unit, int fromDay, int toDay, String state) {
+        Booking booking = new Booking();
+        booking.setBookingId(UUID.randomUUID());
+        booking.setItem(item);
+        booking.setItemSingle(unit);
+        booking.setPickupDate(day(fromDay));
+        booking.setReturnDate(day(toDay));
+        booking.setState(state);
+        return booking;
+    }
+
+    private BookedIntervalDTO interval(UUID bookingId, ItemSingle unit, int fromDay, int toDay) {
+        return new BookedIntervalDTO(bookingId, unit.getId(), item.getItemId(), day(fromDay), day(toDay));
+    }
+
+    private LocalDate day(int offset) {
+        return base.plusDays(offset);
+    }
+
+    private LocalDate at(LocalDate today, int plusDays) {
+        return today.plusDays(plusDays);
+    }
+}
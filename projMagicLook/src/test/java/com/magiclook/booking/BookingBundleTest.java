@@ -0,0 +1,115 @@
+package com.magiclook.booking;
+
+import com.magiclook.data.Item;
+import com.magiclook.data.User;
+import com.magiclook.repository.BookingRepository;
+import com.magiclook.repository.ItemRepository;
+import com.magiclook.repository.ItemSingleRepository;
+import com.magiclook.repository.UserRepository;
+import com.magiclook.service.AvailabilityIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Outfit bundles against the real database: either every item is booked or,
+ * when one line has no unit, nothing is left behind. Not transactional, so the
+ * service's own transaction is what commits or rolls back.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class BookingBundleTest {
+
+    private static final LocalDate START = LocalDate.of(2032, 9, 20);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private ItemSingleRepository itemSingleRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AvailabilityIndex availabilityIndex;
+
+    private MockHttpSession session;
+    private List<Item> items;
+    private long bookingsBefore;
+
+    @BeforeEach
+    void setUp() {
+        User user = userRepository.findByUsername("maria");
+        session = new MockHttpSession();
+        session.setAttribute("loggedInUser", user);
+        items = itemRepository.findAll().stream()
+                .filter(item -> !itemSingleRepository.findByItem_ItemId(item.getItemId()).isEmpty())
+                .limit(2)
+                .toList();
+        bookingsBefore = bookingRepository.count();
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookingRepository.findAll().stream()
+                .filter(booking -> START.equals(booking.getStartUseDate()))
+                .forEach(booking -> {
+                    bookingRepository.delete(booking);
+                    availabilityIndex.itemChanged(booking.getItem().getItemId());
+                });
+    }
+
+    @Test
+    void testBundle_BooksAllItems() throws Exception {
+        mockMvc.perform(post("/magiclook/api/bookings/bundle").session(session)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(bundleJson(line(items.get(0), ""), line(items.get(1), ""))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.bookingIds.length()").value(2));
+
+        assertEquals(bookingsBefore + 2, bookingRepository.count());
+    }
+
+    @Test
+    void testBundle_OneLineWithoutUnit_RollsBackEverything() throws Exception {
+        mockMvc.perform(post("/magiclook/api/bookings/bundle").session(session)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(bundleJson(line(items.get(0), ""), line(items.get(1), "XXXL"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(false));
+
+        // A primeira peça tinha unidade, mas não fica reservada sozinha
+        assertEquals(bookingsBefore, bookingRepository.count());
+    }
+
+    private static String line(Item item, String size) {
+        return "{\"itemId\":" + item.getItemId() + ",\"size\":\"" + size + "\"}";
+    }
+
+    private static String bundleJson(String... lines) {
+        return "{\"startUseDate\":\"" + START + "\",\"endUseDate\":\"" + START.plusDays(1) + "\",\"items\":["
+                + String.join(",", lines) + "]}";
+    }
+}
@@ -2,8 +2,18 @@ package com.magiclook.booking;
 
 import com.magiclook.boundary.BookingController;
 import com.magiclook.data.*;
+import com.magiclook.dto.AvailabilityResultDTO;
+import com.magiclook.dto.BookingPageDTO;
+import com.magiclook.dto.BookingRequestDTO;
+import com.magiclook.dto.BookingResult;
+import com.magiclook.dto.BookingWindow;
+import com.magiclook.dto.DateRangeDTO;
+import com.magiclook.dto.SizeAvailabilityDTO;
+import com.magiclook.service.BookingHoldService;
+import com.magiclook.service.BookingIntakeService;
 import com.magiclook.service.BookingService;
 import com.magiclook.service.ItemService;
+import com.magiclook.service.WaitlistService;
 import jakarta.servlet.http.HttpSession;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -30,6 +40,15 @@ class BookingControllerTest {
     @Mock
     private ItemService itemService;
 
+    @Mock
+    private BookingIntakeService bookingIntakeService;
+
+    @Mock
+    private BookingHoldService bookingHoldService;
+
+    @Mock
+    private WaitlistService waitlistService;
+
     @Mock
     private HttpSession session;
 
@@ -52,7 +71,8 @@ class BookingControllerTest {
         testItem = createTestItem();
         testBooking = createTestBooking();
         
-        bookingController = new BookingController(bookingService, itemService);
+        bookingController = new BookingController(bookingService, itemService, bookingIntakeService, bookingHoldService,
+            waitlistService);
     }
 
     @Test
@@ -100,127 +120,244 @@ class BookingControllerTest {
     @Test
     void testCreateBooking_Success() {
         when(session.getAttribute("loggedInUser")).thenReturn(testUser);
-        when(itemService.getItemById(testItem.getItemId())).thenReturn(Optional.of(testItem));
-        
-        List<String> availableSizes = Arrays.asList("M", "L");
-        Map<String, Integer> sizeAvailability = new HashMap<>();
-        sizeAvailability.put("M", 2);
-        sizeAvailability.put("L", 1);
+        when(bookingService.reserve(any(BookingRequestDTO.class), eq(testUser)))
+            .thenReturn(BookingResult.success(testBooking));
         
-        when(bookingService.getAvailableSizesForItem(testItem.getItemId())).thenReturn(availableSizes);
-        when(bookingService.getSizeAvailabilityCount(testItem.getItemId())).thenReturn(sizeAvailability);
-        when(bookingService.checkAvailabilityWithSize(anyInt(), anyString(), any(), any())).thenReturn(true);
-        
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, 7);
-        Date startDate = cal.getTime();
-        
-        cal.add(Calendar.DAY_OF_MONTH, 2);
-        Date endDate = cal.getTime();
-
-        // availability check should not be stubbed for invalid date ranges
-        when(bookingService.createBooking(any(com.magiclook.dto.BookingRequestDTO.class), eq(testUser)))
-            .thenReturn(testBooking);
+        LocalDate startDate = LocalDate.now().plusDays(7);
+        LocalDate endDate = LocalDate.now().plusDays(9);
 
         String viewName = bookingController.createBooking(
             testItem.getItemId(),
             "M",
             startDate,
             endDate,
+            null,
             session,
             model
         );
 
         assertEquals("redirect:/magiclook/booking/confirmation/" + testBooking.getBookingId(), viewName);
-        verify(bookingService, times(1)).checkAvailabilityWithSize(anyInt(), anyString(), any(), any());
-        verify(bookingService, times(1)).createBooking(any(com.magiclook.dto.BookingRequestDTO.class), eq(testUser));
+        // Sucesso: uma única operação de reserva, sem verificação prévia nem modelo do formulário
+        verify(bookingService, times(1)).reserve(any(BookingRequestDTO.class), eq(testUser));
+        verify(bookingService, never()).checkAvailabilityWithSize(anyInt(), anyString(), any(BookingWindow.class));
+        verify(bookingService, never()).getAvailableSizesForItem(anyInt());
+        verify(bookingService, never()).getSizeAvailabilityCount(anyInt());
+        verify(itemService, never()).getItemById(anyInt());
     }
 
     @Test
-    void testCreateBooking_StartDateIsToday_AllowsBooking() {
+    void testHoldItem_PlacesHoldAndUpdatesCartCount() {
+        when(session.getAttribute("loggedInUser")).thenReturn(testUser);
+        LocalDate start = LocalDate.now().plusDays(7);
+        BookingHold hold = new BookingHold(new ItemSingle("AVAILABLE", testItem, "M"), testUser.getUserId(),
+            start.minusDays(1), start, start.plusDays(2), start.plusDays(3), new Date());
+        hold.setHoldId(UUID.randomUUID());
+        when(bookingHoldService.place(eq(testItem.getItemId()), eq("M"), any(BookingWindow.class), eq(testUser.getUserId())))
+            .thenReturn(Optional.of(hold));
+        when(bookingHoldService.countActiveForUser(testUser.getUserId())).thenReturn(1);
+
+        Map<String, Object> response = bookingController.holdItem(testItem.getItemId(), "M", start, start.plusDays(2), session);
+
+        assertEquals(true, response.get("held"));
+        assertEquals(hold.getHoldId(), response.get("holdId"));
+        verify(session).setAttribute("cartCount", 1);
+    }
+
+    @Test
+    void testHoldItem_NoFreeUnit() {
+        when(session.getAttribute("loggedInUser")).thenReturn(testUser);
+        when(bookingHoldService.place(anyInt(), any(), any(BookingWindow.class), any(UUID.class)))
+            .thenReturn(Optional.empty());
+        LocalDate start = LocalDate.now().plusDays(7);
+
+        Map<String, Object> response = bookingController.holdItem(testItem.getItemId(), "", start, start.plusDays(2), session);
+
+        assertEquals(false, response.get("held"));
+        assertEquals("Item não disponível nas datas selecionadas", response.get("message"));
+    }
+
+    @Test
+    void testCreateBooking_AsyncModeWithHold_SkipsPreCheck() {
+        when(session.getAttribute("loggedInUser")).thenReturn(testUser);
+        when(bookingIntakeService.isEnabled()).thenReturn(true);
+        BookingIntake intake = new BookingIntake(testUser, testItem.getItemId(), "M", LocalDate.now(), LocalDate.now());
+        intake.setIntakeId(UUID.randomUUID());
+        when(bookingIntakeService.submit(any(BookingRequestDTO.class), eq(testUser))).thenReturn(intake);
+
+        String viewName = bookingController.createBooking(testItem.getItemId(), "M", LocalDate.now().plusDays(7),
+            LocalDate.now().plusDays(9), UUID.randomUUID(), session, model);
+
+        assertEquals("redirect:/magiclook/booking/pending/" + intake.getIntakeId(), viewName);
+        verify(bookingService, never()).checkAvailabilityWithSize(anyInt(), any(), any(BookingWindow.class));
+    }
+
+    @Test
+    void testJoinWaitlist_QueuesRequestAndRedirectsToForm() {
+        when(session.getAttribute("loggedInUser")).thenReturn(testUser);
+        LocalDate start = LocalDate.now().plusDays(7);
+
+        String viewName = bookingController.joinWaitlist(testItem.getItemId(), "M", start, start.plusDays(2), session);
+
+        assertEquals("redirect:/magiclook/booking/" + testItem.getItemId(), viewName);
+        verify(waitlistService).join(argThat(r -> r.getItemId().equals(testItem.getItemId())
+            && "M".equals(r.getSize()) && start.equals(r.getStartUseDate())), eq(testUser));
+        verify(session).setAttribute(eq("message"), startsWith("Está na lista de espera"));
+    }
+
+    @Test
+    void testJoinWaitlist_NotLoggedIn() {
+        when(session.getAttribute("loggedInUser")).thenReturn(null);
+
+        String viewName = bookingController.joinWaitlist(testItem.getItemId(), "M", LocalDate.now().plusDays(7),
+            LocalDate.now().plusDays(9), session);
+
+        assertEquals("redirect:/magiclook/login", viewName);
+        verifyNoInteractions(waitlistService);
+    }
+
+    @Test
+    void testCreateBooking_AsyncMode_QueuesAndRedirectsToPendingPage() {
+        when(session.getAttribute("loggedInUser")).thenReturn(testUser);
+        when(bookingService.checkAvailabilityWithSize(anyInt(), anyString(), any(BookingWindow.class))).thenReturn(true);
+        when(bookingIntakeService.isEnabled()).thenReturn(true);
+        BookingIntake intake = new BookingIntake(testUser, testItem.getItemId(), "M", LocalDate.now(), LocalDate.now());
+        intake.setIntakeId(UUID.randomUUID());
+        when(bookingIntakeService.submit(any(BookingRequestDTO.class), eq(testUser))).thenReturn(intake);
+
+        LocalDate startDate = LocalDate.now().plusDays(7);
+
+        String viewName = bookingController.createBooking(testItem.getItemId(), "M", startDate, LocalDate.now().plusDays(9),
+            null, session, model);
+
+        assertEquals("redirect:/magiclook/booking/pending/" + intake.getIntakeId(), viewName);
+        verify(bookingService, never()).reserve(any(), any());
+    }
+
+    @Test
+    void testShowPendingBooking_ConfirmedRedirectsToConfirmation() {
+        BookingIntake intake = new BookingIntake(testUser, testItem.getItemId(), "M", LocalDate.now(), LocalDate.now());
+        intake.setIntakeId(UUID.randomUUID());
+        intake.setStatus(BookingIntake.STATUS_CONFIRMED);
+        intake.setBookingId(testBooking.getBookingId());
         when(session.getAttribute("loggedInUser")).thenReturn(testUser);
+        when(bookingIntakeService.findForUser(intake.getIntakeId(), testUser)).thenReturn(Optional.of(intake));
+
+        String viewName = bookingController.showPendingBooking(intake.getIntakeId(), session, model);
+
+        assertEquals("redirect:/magiclook/booking/confirmation/" + testBooking.getBookingId(), viewName);
+    }
+
+    @Test
+    void testShowPendingBooking_StillPendingShowsWaitingPage() {
+        BookingIntake intake = new BookingIntake(testUser, testItem.getItemId(), "M", LocalDate.now(), LocalDate.now());
+        intake.setIntakeId(UUID.randomUUID());
+        when(session.getAttribute("loggedInUser")).thenReturn(testUser);
+        when(bookingIntakeService.findForUser(intake.getIntakeId(), testUser)).thenReturn(Optional.of(intake));
         when(itemService.getItemById(testItem.getItemId())).thenReturn(Optional.of(testItem));
-        
-        List<String> availableSizes = Arrays.asList("M", "L");
-        Map<String, Integer> sizeAvailability = new HashMap<>();
-        sizeAvailability.put("M", 2);
-        sizeAvailability.put("L", 1);
-        
-        when(bookingService.getAvailableSizesForItem(testItem.getItemId())).thenReturn(availableSizes);
-        when(bookingService.getSizeAvailabilityCount(testItem.getItemId())).thenReturn(sizeAvailability);
-        when(bookingService.checkAvailabilityWithSize(anyInt(), anyString(), any(), any())).thenReturn(true);
-        when(bookingService.createBooking(any(com.magiclook.dto.BookingRequestDTO.class), eq(testUser)))
-            .thenReturn(testBooking);
 
-        Date startDate = Date.from(LocalDate.now(ZoneId.systemDefault()).atStartOfDay(ZoneId.systemDefault()).toInstant());
-        Calendar cal = Calendar.getInstance();
-        cal.setTime(startDate);
-        cal.add(Calendar.DAY_OF_MONTH, 2);
-        Date endDate = cal.getTime();
+        String viewName = bookingController.showPendingBooking(intake.getIntakeId(), session, model);
+
+        assertEquals("booking/bookingPending", viewName);
+        verify(model).addAttribute("intake", intake);
+    }
+
+    @Test
+    void testGetPendingBookingStatus_ReportsRejection() {
+        BookingIntake intake = new BookingIntake(testUser, testItem.getItemId(), "M", LocalDate.now(), LocalDate.now());
+        intake.setIntakeId(UUID.randomUUID());
+        intake.setStatus(BookingIntake.STATUS_REJECTED);
+        intake.setErrorMessage("Nenhuma unidade disponível para as datas selecionadas");
+        when(session.getAttribute("loggedInUser")).thenReturn(testUser);
+        when(bookingIntakeService.findForUser(intake.getIntakeId(), testUser)).thenReturn(Optional.of(intake));
+
+        Map<String, Object> response = bookingController.getPendingBookingStatus(intake.getIntakeId(), session);
+
+        assertEquals("REJECTED", response.get("status"));
+        assertEquals("Nenhuma unidade disponível para as datas selecionadas", response.get("message"));
+        assertFalse(response.containsKey("bookingId"));
+    }
+
+    @Test
+    void testGetPendingBookingStatus_UnknownIntake() {
+        UUID intakeId = UUID.randomUUID();
+        when(session.getAttribute("loggedInUser")).thenReturn(testUser);
+        when(bookingIntakeService.findForUser(intakeId, testUser)).thenReturn(Optional.empty());
+
+        Map<String, Object> response = bookingController.getPendingBookingStatus(intakeId, session);
+
+        assertEquals("UNKNOWN", response.get("status"));
+        assertTrue(response.containsKey("error"));
+    }
+
+    @Test
+    void testCreateBooking_StartDateIsToday_AllowsBooking() {
+        when(session.getAttribute("loggedInUser")).thenReturn(testUser);
+        when(bookingService.reserve(any(BookingRequestDTO.class), eq(testUser)))
+            .thenReturn(BookingResult.success(testBooking));
+
+        LocalDate startDate = LocalDate.now(ZoneId.systemDefault());
+        LocalDate endDate = startDate.plusDays(2);
 
         String viewName = bookingController.createBooking(
             testItem.getItemId(),
             "M",
             startDate,
             endDate,
+            null,
             session,
             model
         );
 
         assertEquals("redirect:/magiclook/booking/confirmation/" + testBooking.getBookingId(), viewName);
-        verify(bookingService, times(1)).createBooking(any(com.magiclook.dto.BookingRequestDTO.class), eq(testUser));
+        verify(bookingService, times(1)).reserve(any(BookingRequestDTO.class), eq(testUser));
     }
 
     @Test
     void testCreateBooking_UserNotLoggedIn() {
         when(session.getAttribute("loggedInUser")).thenReturn(null);
         
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, 7);
-        Date startDate = cal.getTime();
-        
-        cal.add(Calendar.DAY_OF_MONTH, 2);
-        Date endDate = cal.getTime();
+        LocalDate startDate = LocalDate.now().plusDays(7);
+        LocalDate endDate = LocalDate.now().plusDays(9);
 
         String viewName = bookingController.createBooking(
             testItem.getItemId(),
             "M",
             startDate,
             endDate,
+            null,
             session,
             model
         );
 
         assertEquals("redirect:/magiclook/login", viewName);
-        verify(bookingService, never()).checkAvailabilityWithSize(anyInt(), anyString(), any(), any());
-        verify(bookingService, never()).createBooking(any(), any());
+        verify(bookingService, never()).checkAvailabilityWithSize(anyInt(), anyString(), any(BookingWindow.class));
+        verify(bookingService, never()).reserve(any(), any());
     }
 
     @Test
     void testCreateBooking_ItemNotFound() {
         when(session.getAttribute("loggedInUser")).thenReturn(testUser);
-        when(itemService.getItemById(testItem.getItemId())).thenReturn(Optional.empty());
+        when(bookingService.reserve(any(BookingRequestDTO.class), eq(testUser)))
+            .thenReturn(BookingResult.failure(BookingResult.FailureReason.ITEM_NOT_FOUND, "Item não encontrado",
+                List.of(), Map.of()));
         
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, 7);
-        Date startDate = cal.getTime();
-        
-        cal.add(Calendar.DAY_OF_MONTH, 2);
-        Date endDate = cal.getTime();
+        LocalDate startDate = LocalDate.now().plusDays(7);
+        LocalDate endDate = LocalDate.now().plusDays(9);
 
         String viewName = bookingController.createBooking(
             testItem.getItemId(),
             "M",
             startDate,
             endDate,
+            null,
             session,
             model
         );
 
         assertEquals("redirect:/magiclook/dashboard", viewName);
         verify(model).addAttribute("error", "Item não encontrado.");
-        verify(bookingService, never()).checkAvailabilityWithSize(anyInt(), anyString(), any(), any());
-        verify(bookingService, never()).createBooking(any(), any());
+        verify(bookingService, never()).checkAvailabilityWithSize(anyInt(), anyString(), any(BookingWindow.class));
+        verify(bookingService, never()).getAvailableSizesForItem(anyInt());
     }
 
     @Test
@@ -233,23 +370,19 @@ class BookingControllerTest {
         sizeAvailability.put("M", 2);
         sizeAvailability.put("L", 1);
         
-        when(bookingService.getAvailableSizesForItem(testItem.getItemId())).thenReturn(availableSizes);
-        when(bookingService.getSizeAvailabilityCount(testItem.getItemId())).thenReturn(sizeAvailability);
-        when(bookingService.checkAvailabilityWithSize(anyInt(), anyString(), any(), any())).thenReturn(true);
-        when(bookingService.checkAvailabilityWithSize(anyInt(), anyString(), any(), any())).thenReturn(false);
-        
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, 7);
-        Date startDate = cal.getTime();
+        when(bookingService.reserve(any(BookingRequestDTO.class), eq(testUser)))
+            .thenReturn(BookingResult.failure(BookingResult.FailureReason.NO_UNIT_AVAILABLE,
+                "Nenhuma unidade disponível para o tamanho M nas datas selecionadas", availableSizes, sizeAvailability));
         
-        cal.add(Calendar.DAY_OF_MONTH, 2);
-        Date endDate = cal.getTime();
+        LocalDate startDate = LocalDate.now().plusDays(7);
+        LocalDate endDate = LocalDate.now().plusDays(9);
 
         String viewName = bookingController.createBooking(
             testItem.getItemId(),
             "M",
             startDate,
             endDate,
+            null,
             session,
             model
         );
@@ -257,9 +390,12 @@ class BookingControllerTest {
         assertEquals("booking/bookingForm", viewName);
         verify(model).addAttribute("error", "Item não disponível nas datas selecionadas para o tamanho M");
         verify(model).addAttribute("item", testItem);
-        // the controller will check availability but not proceed to create the booking
-        verify(bookingService, times(1)).checkAvailabilityWithSize(anyInt(), anyString(), any(), any());
-        verify(bookingService, never()).createBooking(any(), any());
+        verify(model).addAttribute(eq("waitlistRequest"), any(BookingRequestDTO.class));
+        // O modelo do formulário vem do resultado da reserva, sem novas leituras
+        verify(model).addAttribute("availableSizes", availableSizes);
+        verify(model).addAttribute("sizeAvailability", sizeAvailability);
+        verify(bookingService, never()).getAvailableSizesForItem(anyInt());
+        verify(bookingService, never()).checkAvailabilityWithSize(anyInt(), anyString(), any(BookingWindow.class));
     }
 
     @Test
@@ -277,18 +413,15 @@ class BookingControllerTest {
         
         // availability check should not be performed when end date is before start date
         
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, -1);
-        Date startDate = cal.getTime();
-        
-        cal.add(Calendar.DAY_OF_MONTH, 5);
-        Date endDate = cal.getTime();
+        LocalDate startDate = LocalDate.now().minusDays(1);
+        LocalDate endDate = LocalDate.now().plusDays(4);
 
         String viewName = bookingController.createBooking(
             testItem.getItemId(),
             "M",
             startDate,
             endDate,
+            null,
             session,
             model
         );
@@ -297,7 +430,7 @@ class BookingControllerTest {
         verify(model).addAttribute(eq("error"), anyString());
         verify(model).addAttribute("item", testItem);
         // availability check should not be called for invalid date ranges
-        verify(bookingService, never()).createBooking(any(com.magiclook.dto.BookingRequestDTO.class), any(User.class));
+        verify(bookingService, never()).reserve(any(BookingRequestDTO.class), any(User.class));
     }
 
     @Test
@@ -313,16 +446,10 @@ class BookingControllerTest {
         when(bookingService.getAvailableSizesForItem(testItem.getItemId())).thenReturn(availableSizes);
         when(bookingService.getSizeAvailabilityCount(testItem.getItemId())).thenReturn(sizeAvailability);
         
-        when(bookingService.checkAvailabilityWithSize(anyInt(), anyString(), any(), any())).thenReturn(true);
-        
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, 7);
-        Date startDate = cal.getTime();
-        
-        cal.add(Calendar.DAY_OF_MONTH, 2);
-        Date endDate = cal.getTime();
+        LocalDate startDate = LocalDate.now().plusDays(7);
+        LocalDate endDate = LocalDate.now().plusDays(9);
 
-        when(bookingService.createBooking(any(com.magiclook.dto.BookingRequestDTO.class), eq(testUser)))
+        when(bookingService.reserve(any(BookingRequestDTO.class), eq(testUser)))
             .thenThrow(new RuntimeException("Erro no banco de dados"));
 
         String viewName = bookingController.createBooking(
@@ -330,15 +457,16 @@ class BookingControllerTest {
             "M",
             startDate,
             endDate,
+            null,
             session,
             model
         );
 
         assertEquals("booking/bookingForm", viewName);
-        verify(model).addAttribute(eq("error"), anyString());
+        verify(model).addAttribute("error", "Erro ao criar reserva: Erro no banco de dados");
         verify(model).addAttribute("item", testItem);
-        verify(bookingService, times(1)).checkAvailabilityWithSize(anyInt(), anyString(), any(), any());
-        verify(bookingService, times(1)).createBooking(any(com.magiclook.dto.BookingRequestDTO.class), eq(testUser));
+        verify(model).addAttribute("availableSizes", availableSizes);
+        verify(bookingService, times(1)).reserve(any(BookingRequestDTO.class), eq(testUser));
     }
 
     @Test
@@ -391,9 +519,9 @@ class BookingControllerTest {
         when(session.getAttribute("loggedInUser")).thenReturn(testUser);
         List<Booking> bookings = new ArrayList<>();
         bookings.add(testBooking);
-        when(bookingService.getUserBookings(testUser)).thenReturn(bookings);
+        when(bookingService.getUserBookingsPage(testUser, null, null, null, null)).thenReturn(new BookingPageDTO(bookings, false));
 
-        String viewName = bookingController.showMyBookings(session, model, null, null);
+        String viewName = bookingController.showMyBookings(session, model, null, null, null, null);
 
         assertEquals("booking/myBookings", viewName);
         verify(model).addAttribute("bookings", bookings);
@@ -414,6 +542,7 @@ class BookingControllerTest {
 
         assertEquals("booking/booking-details", viewName);
         verify(model).addAttribute("booking", testBooking);
+        verify(model).addAttribute("currentState", "CONFIRMED");
         verify(model).addAttribute("user", testUser);
         verify(model).addAttribute("activePage", "myBookings");
         // As the booking is CONFIRMED and start date is in the future, canCancel should be true
@@ -422,15 +551,27 @@ class BookingControllerTest {
         verify(model).addAttribute("refundAmount", new BigDecimal("0.00"));
     }
 
+    @Test
+    void testBookingDetails_DoesNotWriteComputedStateToBooking() {
+        testBooking.setState("ACTIVE");
+        when(session.getAttribute("loggedInUser")).thenReturn(testUser);
+        when(bookingService.getBookingById(testBooking.getBookingId())).thenReturn(testBooking);
+        when(bookingService.getCurrentBookingState(testBooking)).thenReturn("COMPLETED");
+        when(bookingService.getRefundInfo(testBooking)).thenReturn(new com.magiclook.dto.RefundInfoDTO(0, new BigDecimal("0.00")));
+
+        bookingController.bookingDetails(testBooking.getBookingId().toString(), session, model);
+
+        assertEquals("ACTIVE", testBooking.getState());
+        verify(model).addAttribute("currentState", "COMPLETED");
+    }
+
     @Test
     void testCancelInfo_OwnerAllowed() {
         when(session.getAttribute("loggedInUser")).thenReturn(testUser);
         when(bookingService.getBookingById(testBooking.getBookingId())).thenReturn(testBooking);
 
         // Ensure booking start is in the future
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, 7);
-        testBooking.setStartUseDate(cal.getTime());
+        testBooking.setStartUseDate(LocalDate.now().plusDays(7));
 
         when(bookingService.getCurrentBookingState(testBooking)).thenReturn("CONFIRMED");
         when(bookingService.getRefundInfo(testBooking)).thenReturn(new com.magiclook.dto.RefundInfoDTO(50, new BigDecimal("50.00")));
@@ -448,9 +589,7 @@ class BookingControllerTest {
         when(bookingService.getBookingById(testBooking.getBookingId())).thenReturn(testBooking);
 
         // start date in the past
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, -1);
-        testBooking.setStartUseDate(cal.getTime());
+        testBooking.setStartUseDate(LocalDate.now().minusDays(1));
 
         Map<String, Object> resp = bookingController.cancelInfo(testBooking.getBookingId().toString(), session);
 
@@ -463,9 +602,7 @@ class BookingControllerTest {
         when(session.getAttribute("loggedInUser")).thenReturn(testUser);
         when(bookingService.getBookingById(testBooking.getBookingId())).thenReturn(testBooking);
         when(bookingService.getCurrentBookingState(testBooking)).thenReturn("CONFIRMED");
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, 7);
-        testBooking.setStartUseDate(cal.getTime());
+        testBooking.setStartUseDate(LocalDate.now().plusDays(7));
 
         when(bookingService.cancelBooking(testBooking)).thenReturn(new com.magiclook.dto.RefundInfoDTO(50, new BigDecimal("50.00")));
 
@@ -540,18 +677,15 @@ class BookingControllerTest {
         
         // availability check is not expected to be invoked for end-before-start validation
         
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, 7);
-        Date startDate = cal.getTime();
-        
-        cal.add(Calendar.DAY_OF_MONTH, -10);
-        Date endDate = cal.getTime();
+        LocalDate startDate = LocalDate.now().plusDays(7);
+        LocalDate endDate = LocalDate.now().minusDays(3);
 
         String viewName = bookingController.createBooking(
             testItem.getItemId(),
             "M",
             startDate,
             endDate,
+            null,
             session,
             model
         );
@@ -559,45 +693,32 @@ class BookingControllerTest {
         assertEquals("booking/bookingForm", viewName);
         verify(model).addAttribute(eq("error"), anyString());
         verify(model).addAttribute("item", testItem);
-        verify(bookingService, never()).createBooking(any(com.magiclook.dto.BookingRequestDTO.class), any(User.class));
+        verify(bookingService, never()).reserve(any(BookingRequestDTO.class), any(User.class));
     }
 
     @Test
     void testCreateBooking_SuccessWithValidDates() {
         when(session.getAttribute("loggedInUser")).thenReturn(testUser);
-        when(itemService.getItemById(testItem.getItemId())).thenReturn(Optional.of(testItem));
-        
-        List<String> availableSizes = Arrays.asList("M", "L");
-        Map<String, Integer> sizeAvailability = new HashMap<>();
-        sizeAvailability.put("M", 2);
-        sizeAvailability.put("L", 1);
-        
-        when(bookingService.getAvailableSizesForItem(testItem.getItemId())).thenReturn(availableSizes);
-        when(bookingService.getSizeAvailabilityCount(testItem.getItemId())).thenReturn(sizeAvailability);
         
-        when(bookingService.checkAvailabilityWithSize(anyInt(), anyString(), any(), any())).thenReturn(true);
-        
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, 7);
-        Date startDate = cal.getTime();
-        
-        cal.add(Calendar.DAY_OF_MONTH, 2);
-        Date endDate = cal.getTime();
+        LocalDate startDate = LocalDate.now().plusDays(7);
+        LocalDate endDate = LocalDate.now().plusDays(9);
 
-        when(bookingService.createBooking(any(com.magiclook.dto.BookingRequestDTO.class), eq(testUser))).thenReturn(testBooking);
+        when(bookingService.reserve(any(BookingRequestDTO.class), eq(testUser)))
+            .thenReturn(BookingResult.success(testBooking));
 
         String viewName = bookingController.createBooking(
             testItem.getItemId(),
             "M",
             startDate,
             endDate,
+            null,
             session,
             model
         );
 
         assertEquals("redirect:/magiclook/booking/confirmation/" + testBooking.getBookingId(), viewName);
-        verify(bookingService, times(1)).createBooking(any(com.magiclook.dto.BookingRequestDTO.class), eq(testUser));
-        verify(bookingService, times(1)).checkAvailabilityWithSize(anyInt(), anyString(), any(), any());
+        verify(bookingService, times(1)).reserve(any(BookingRequestDTO.class), eq(testUser));
+        verify(bookingService, never()).createBooking(any(BookingRequestDTO.class), any(User.class));
     }
 
     @Test
@@ -605,14 +726,12 @@ class BookingControllerTest {
         when(session.getAttribute("loggedInUser")).thenReturn(testUser);
         List<Booking> bookings = new ArrayList<>();
         
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, 7);
-        testBooking.setEndUseDate(cal.getTime());
+        testBooking.setEndUseDate(LocalDate.now().plusDays(7));
         
         bookings.add(testBooking);
-        when(bookingService.getUserBookings(testUser)).thenReturn(bookings);
+        when(bookingService.getUserBookingsPage(testUser, "active", null, null, null)).thenReturn(new BookingPageDTO(bookings, false));
 
-        String viewName = bookingController.showMyBookings(session, model, "active", null);
+        String viewName = bookingController.showMyBookings(session, model, "active", null, null, null);
 
         assertEquals("booking/myBookings", viewName);
         verify(model).addAttribute("filter", "active");
@@ -624,14 +743,12 @@ class BookingControllerTest {
         when(session.getAttribute("loggedInUser")).thenReturn(testUser);
         List<Booking> bookings = new ArrayList<>();
         
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, -7);
-        testBooking.setEndUseDate(cal.getTime());
+        testBooking.setEndUseDate(LocalDate.now().minusDays(7));
         
         bookings.add(testBooking);
-        when(bookingService.getUserBookings(testUser)).thenReturn(bookings);
+        when(bookingService.getUserBookingsPage(testUser, "active", null, null, null)).thenReturn(new BookingPageDTO(bookings, false));
 
-        String viewName = bookingController.showMyBookings(session, model, "active", null);
+        String viewName = bookingController.showMyBookings(session, model, "active", null, null, null);
 
         assertEquals("booking/myBookings", viewName);
         verify(model).addAttribute("filter", "active");
@@ -643,9 +760,9 @@ class BookingControllerTest {
         when(session.getAttribute("loggedInUser")).thenReturn(testUser);
         List<Booking> bookings = new ArrayList<>();
         bookings.add(testBooking);
-        when(bookingService.getUserBookings(testUser)).thenReturn(bookings);
+        when(bookingService.getUserBookingsPage(testUser, null, "CAMISA", null, null)).thenReturn(new BookingPageDTO(bookings, false));
 
-        String viewName = bookingController.showMyBookings(session, model, null, "CAMISA");
+        String viewName = bookingController.showMyBookings(session, model, null, "CAMISA", null, null);
 
         assertEquals("booking/myBookings", viewName);
         verify(model).addAttribute("search", "CAMISA");
@@ -659,18 +776,16 @@ class BookingControllerTest {
         Booking booking1 = createTestBooking();
         booking1.setStartUseDate(null);
         
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, 7);
         Booking booking2 = createTestBooking();
         booking2.setBookingId(UUID.randomUUID());
-        booking2.setStartUseDate(cal.getTime());
+        booking2.setStartUseDate(LocalDate.now().plusDays(7));
         
         bookings.add(booking1);
         bookings.add(booking2);
         
-        when(bookingService.getUserBookings(testUser)).thenReturn(bookings);
+        when(bookingService.getUserBookingsPage(testUser, null, null, null, null)).thenReturn(new BookingPageDTO(bookings, false));
 
-        String viewName = bookingController.showMyBookings(session, model, null, null);
+        String viewName = bookingController.showMyBookings(session, model, null, null, null, null);
 
         assertEquals("booking/myBookings", viewName);
         verify(model).addAttribute(eq("bookings"), anyList());
@@ -689,9 +804,9 @@ class BookingControllerTest {
         List<Booking> bookings = new ArrayList<>();
         bookings.add(b1);
         bookings.add(b2);
-        when(bookingService.getUserBookings(testUser)).thenReturn(bookings);
+        when(bookingService.getUserBookingsPage(testUser, null, null, null, null)).thenReturn(new BookingPageDTO(bookings, false));
 
-        String viewName = bookingController.showMyBookings(session, model, null, null);
+        String viewName = bookingController.showMyBookings(session, model, null, null, null, null);
 
         assertEquals("booking/myBookings", viewName);
         @SuppressWarnings("unchecked")
@@ -704,40 +819,36 @@ class BookingControllerTest {
     }
 
     @Test
-    void testShowMyBookings_SortByStartDateDesc_DescendingOrder() {
+    void testShowMyBookings_KeepsOrderFromQuery() {
         when(session.getAttribute("loggedInUser")).thenReturn(testUser);
         Booking b1 = createTestBooking();
         Booking b2 = createTestBooking();
         b1.setBookingId(UUID.randomUUID());
         b2.setBookingId(UUID.randomUUID());
 
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, 2);
-        b1.setStartUseDate(cal.getTime());
+        b1.setStartUseDate(LocalDate.now().plusDays(2));
 
-        cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, 5);
-        b2.setStartUseDate(cal.getTime());
+        b2.setStartUseDate(LocalDate.now().plusDays(5));
 
         List<Booking> bookings = new ArrayList<>();
-        bookings.add(b1);
+        // A query já devolve por data de início decrescente
         bookings.add(b2);
-        when(bookingService.getUserBookings(testUser)).thenReturn(bookings);
+        bookings.add(b1);
+        when(bookingService.getUserBookingsPage(testUser, null, null, null, null)).thenReturn(new BookingPageDTO(bookings, false));
 
-        String viewName = bookingController.showMyBookings(session, model, null, null);
+        String viewName = bookingController.showMyBookings(session, model, null, null, null, null);
 
         assertEquals("booking/myBookings", viewName);
         @SuppressWarnings("unchecked")
         org.mockito.ArgumentCaptor<List> captor = org.mockito.ArgumentCaptor.forClass(List.class);
         verify(model).addAttribute(eq("bookings"), captor.capture());
         List<Booking> result = captor.getValue();
-        // b2 has later start date and should come first after sorting desc
         assertEquals(b2.getBookingId(), result.get(0).getBookingId());
         assertEquals(b1.getBookingId(), result.get(1).getBookingId());
     }
 
     @Test
-    void testShowMyBookings_FilterPast_ReturnsOnlyPastStates() {
+    void testShowMyBookings_FilterPast_UsesPersistedStates() {
         when(session.getAttribute("loggedInUser")).thenReturn(testUser);
         Booking completed = createTestBooking();
         completed.setBookingId(UUID.randomUUID());
@@ -747,20 +858,13 @@ class BookingControllerTest {
         overdue.setBookingId(UUID.randomUUID());
         overdue.setState("OVERDUE");
 
-        Booking confirmed = createTestBooking();
-        confirmed.setBookingId(UUID.randomUUID());
-        confirmed.setState("CONFIRMED");
-
         List<Booking> bookings = new ArrayList<>();
         bookings.add(completed);
         bookings.add(overdue);
-        bookings.add(confirmed);
 
-        when(bookingService.getUserBookings(testUser)).thenReturn(bookings);
-        // The controller calls getCurrentBookingState for each booking; return the booking's own state
-        when(bookingService.getCurrentBookingState(any(Booking.class))).thenAnswer(invocation -> ((Booking) invocation.getArgument(0)).getState());
+        when(bookingService.getUserBookingsPage(testUser, "past", null, null, null)).thenReturn(new BookingPageDTO(bookings, false));
 
-        String viewName = bookingController.showMyBookings(session, model, "past", null);
+        String viewName = bookingController.showMyBookings(session, model, "past", null, null, null);
 
         assertEquals("booking/myBookings", viewName);
         @SuppressWarnings("unchecked")
@@ -771,6 +875,8 @@ class BookingControllerTest {
         for (Booking b : result) {
             assertTrue("COMPLETED".equals(b.getState()) || "OVERDUE".equals(b.getState()));
         }
+        // O estado vem da base de dados: não é recalculado reserva a reserva
+        verify(bookingService, never()).getCurrentBookingState(any(Booking.class));
     }
 
     @Test
@@ -781,24 +887,37 @@ class BookingControllerTest {
         List<Booking> bookings = new ArrayList<>();
         bookings.add(a);
         bookings.add(b);
-        when(bookingService.getUserBookings(testUser)).thenReturn(bookings);
+        when(bookingService.getUserBookingsPage(testUser, "something", null, null, null)).thenReturn(new BookingPageDTO(bookings, false));
 
-        String viewName = bookingController.showMyBookings(session, model, "something", null);
+        String viewName = bookingController.showMyBookings(session, model, "something", null, null, null);
 
         assertEquals("booking/myBookings", viewName);
         verify(model).addAttribute(eq("bookings"), anyList());
     }
 
+    @Test
+    void testShowMyBookings_WithCursor_LoadsNextPage() {
+        when(session.getAttribute("loggedInUser")).thenReturn(testUser);
+        LocalDate afterStart = LocalDate.now().plusDays(3);
+        UUID afterId = UUID.randomUUID();
+        BookingPageDTO page = new BookingPageDTO(List.of(testBooking), true);
+        when(bookingService.getUserBookingsPage(testUser, "active", null, afterStart, afterId)).thenReturn(page);
+
+        String viewName = bookingController.showMyBookings(session, model, "active", null, afterStart, afterId);
+
+        assertEquals("booking/myBookings", viewName);
+        verify(model).addAttribute("bookings", List.of(testBooking));
+        verify(model).addAttribute("page", page);
+        verify(model).addAttribute("firstPage", false);
+        assertEquals(testBooking.getBookingId(), page.getNextId());
+    }
+
     @Test
     void testCheckAvailability_API_Success() {
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, 7);
-        Date startDate = cal.getTime();
-        
-        cal.add(Calendar.DAY_OF_MONTH, 2);
-        Date endDate = cal.getTime();
+        LocalDate startDate = LocalDate.now().plusDays(7);
+        LocalDate endDate = LocalDate.now().plusDays(9);
 
-        when(bookingService.checkAvailabilityWithSize(anyInt(), anyString(), any(), any())).thenReturn(true);
+        when(bookingService.checkAvailabilityWithSize(anyInt(), anyString(), any(BookingWindow.class))).thenReturn(true);
         when(bookingService.calculatePrice(anyInt(), anyLong())).thenReturn(new BigDecimal("75.00"));
 
         com.magiclook.dto.BookingRequestDTO requestDTO = new com.magiclook.dto.BookingRequestDTO();
@@ -816,14 +935,10 @@ class BookingControllerTest {
 
     @Test
     void testCheckAvailability_API_NotAvailable() {
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, 7);
-        Date startDate = cal.getTime();
-        
-        cal.add(Calendar.DAY_OF_MONTH, 2);
-        Date endDate = cal.getTime();
+        LocalDate startDate = LocalDate.now().plusDays(7);
+        LocalDate endDate = LocalDate.now().plusDays(9);
 
-        when(bookingService.checkAvailabilityWithSize(anyInt(), anyString(), any(), any())).thenReturn(false);
+        when(bookingService.checkAvailabilityWithSize(anyInt(), anyString(), any(BookingWindow.class))).thenReturn(false);
 
         com.magiclook.dto.BookingRequestDTO requestDTO = new com.magiclook.dto.BookingRequestDTO();
         requestDTO.setItemId(testItem.getItemId());
@@ -840,14 +955,10 @@ class BookingControllerTest {
 
     @Test
     void testCheckAvailability_API_Exception() {
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, 7);
-        Date startDate = cal.getTime();
-        
-        cal.add(Calendar.DAY_OF_MONTH, 2);
-        Date endDate = cal.getTime();
+        LocalDate startDate = LocalDate.now().plusDays(7);
+        LocalDate endDate = LocalDate.now().plusDays(9);
 
-        when(bookingService.checkAvailabilityWithSize(anyInt(), anyString(), any(), any()))
+        when(bookingService.checkAvailabilityWithSize(anyInt(), anyString(), any(BookingWindow.class)))
             .thenThrow(new RuntimeException("Erro na verificação"));
 
         com.magiclook.dto.BookingRequestDTO requestDTO = new com.magiclook.dto.BookingRequestDTO();
@@ -865,12 +976,8 @@ class BookingControllerTest {
 
     @Test
     void testCheckItemAvailability_API_Success() {
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, 7);
-        Date startDate = cal.getTime();
-        
-        cal.add(Calendar.DAY_OF_MONTH, 2);
-        Date endDate = cal.getTime();
+        LocalDate startDate = LocalDate.now().plusDays(7);
+        LocalDate endDate = LocalDate.now().plusDays(9);
 
         when(bookingService.isItemAvailable(anyInt(), any(LocalDate.class), any(LocalDate.class))).thenReturn(true);
 
@@ -887,12 +994,8 @@ class BookingControllerTest {
 
     @Test
     void testCheckItemAvailability_API_WithSize() {
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, 7);
-        Date startDate = cal.getTime();
-        
-        cal.add(Calendar.DAY_OF_MONTH, 2);
-        Date endDate = cal.getTime();
+        LocalDate startDate = LocalDate.now().plusDays(7);
+        LocalDate endDate = LocalDate.now().plusDays(9);
 
         when(bookingService.isItemAvailableWithSize(anyInt(), anyString(), any(LocalDate.class), any(LocalDate.class))).thenReturn(true);
 
@@ -909,12 +1012,8 @@ class BookingControllerTest {
 
     @Test
     void testCheckItemAvailability_API_NotAvailable() {
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, 7);
-        Date startDate = cal.getTime();
-        
-        cal.add(Calendar.DAY_OF_MONTH, 2);
-        Date endDate = cal.getTime();
+        LocalDate startDate = LocalDate.now().plusDays(7);
+        LocalDate endDate = LocalDate.now().plusDays(9);
 
         when(bookingService.isItemAvailable(anyInt(), any(LocalDate.class), any(LocalDate.class))).thenReturn(false);
         
@@ -936,12 +1035,8 @@ class BookingControllerTest {
 
     @Test
     void testCheckItemAvailability_API_Exception() {
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, 7);
-        Date startDate = cal.getTime();
-        
-        cal.add(Calendar.DAY_OF_MONTH, 2);
-        Date endDate = cal.getTime();
+        LocalDate startDate = LocalDate.now().plusDays(7);
+        LocalDate endDate = LocalDate.now().plusDays(9);
 
         when(bookingService.isItemAvailable(anyInt(), any(LocalDate.class), any(LocalDate.class)))
             .thenThrow(new RuntimeException("Erro ao verificar disponibilidade"));
@@ -958,6 +1053,59 @@ class BookingControllerTest {
         assertTrue(response.containsKey("error"));
     }
 
+    @Test
+    void testGetSizeAvailability_API_ReturnsFreeUnitsPerSize() {
+        LocalDate startDate = LocalDate.now().plusDays(7);
+        LocalDate endDate = LocalDate.now().plusDays(9);
+
+        List<SizeAvailabilityDTO> sizes = List.of(
+            new SizeAvailabilityDTO("L", 1),
+            new SizeAvailabilityDTO("M", 3));
+        when(bookingService.getFreeUnitsBySize(testItem.getItemId(), startDate, endDate)).thenReturn(sizes);
+
+        Map<String, Object> response = bookingController.getSizeAvailability(testItem.getItemId(), startDate, endDate);
+
+        assertEquals(sizes, response.get("sizes"));
+        assertFalse(response.containsKey("error"));
+    }
+
+    @Test
+    void testGetSizeAvailability_API_Exception() {
+        LocalDate date = LocalDate.now();
+        when(bookingService.getFreeUnitsBySize(anyInt(), any(LocalDate.class), any(LocalDate.class)))
+            .thenThrow(new RuntimeException("Erro na base de dados"));
+
+        Map<String, Object> response = bookingController.getSizeAvailability(testItem.getItemId(), date, date);
+
+        assertTrue(((List<?>) response.get("sizes")).isEmpty());
+        assertEquals("Erro na base de dados", response.get("error"));
+    }
+
+    @Test
+    void testCheckAvailabilityBatch_API_ReturnsAllResults() {
+        BookingRequestDTO query = new BookingRequestDTO(testItem.getItemId(), LocalDate.now(), LocalDate.now());
+        AvailabilityResultDTO result = new AvailabilityResultDTO(query);
+        result.setAvailable(true);
+        result.setFreeUnits(3);
+        when(bookingService.checkAvailabilityBatch(List.of(query))).thenReturn(List.of(result));
+
+        Map<String, Object> response = bookingController.checkAvailabilityBatch(List.of(query));
+
+        assertEquals(List.of(result), response.get("results"));
+        assertFalse(response.containsKey("error"));
+    }
+
+    @Test
+    void testCheckAvailabilityBatch_API_Exception() {
+        when(bookingService.checkAvailabilityBatch(anyList()))
+            .thenThrow(new IllegalArgumentException("Máximo de 200 pedidos por chamada"));
+
+        Map<String, Object> response = bookingController.checkAvailabilityBatch(List.of());
+
+        assertTrue(((List<?>) response.get("results")).isEmpty());
+        assertEquals("Máximo de 200 pedidos por chamada", response.get("error"));
+    }
+
     private User createTestUser() {
         User user = new User();
         user.setUserId(UUID.randomUUID());
@@ -1005,18 +1153,10 @@ class BookingControllerTest {
         Booking booking = new Booking();
         booking.setBookingId(UUID.randomUUID());
         
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, 1);
-        Date pickupDate = cal.getTime();
-        
-        cal.add(Calendar.DAY_OF_MONTH, 1);
-        Date startUseDate = cal.getTime();
-        
-        cal.add(Calendar.DAY_OF_MONTH, 3);
-        Date endUseDate = cal.getTime();
-        
-        cal.add(Calendar.DAY_OF_MONTH, 1);
-        Date returnDate = cal.getTime();
+        LocalDate pickupDate = LocalDate.now().plusDays(1);
+        LocalDate startUseDate = LocalDate.now().plusDays(2);
+        LocalDate endUseDate = LocalDate.now().plusDays(5);
+        LocalDate returnDate = LocalDate.now().plusDays(6);
         
         booking.setPickupDate(pickupDate);
         booking.setStartUseDate(startUseDate);
@@ -1082,67 +1222,43 @@ class BookingControllerTest {
 
     @Test
     void testGetUnavailableDates_WithSize() {
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, 7);
-        Date startDate = cal.getTime();
-        
-        cal.add(Calendar.DAY_OF_MONTH, 2);
-        Date endDate = cal.getTime();
-
-        testBooking.setStartUseDate(startDate);
-        testBooking.setEndUseDate(endDate);
-        testBooking.setItemSingle(new ItemSingle());
-        testBooking.getItemSingle().setSize("L");
-
-        List<Booking> bookings = Arrays.asList(testBooking);
-        when(bookingService.getConflictingBookings(anyInt(), any(LocalDate.class), any(LocalDate.class)))
-            .thenReturn(bookings);
+        LocalDate start = LocalDate.now().plusDays(6);
+        List<DateRangeDTO> ranges = List.of(new DateRangeDTO(start, start.plusDays(4)));
+        when(bookingService.getUnavailableRanges(eq(testItem.getItemId()), eq("L"), any(LocalDate.class), any(LocalDate.class)))
+            .thenReturn(ranges);
 
         Map<String, Object> response = bookingController.getUnavailableDates(testItem.getItemId(), "L");
 
         assertNotNull(response);
-        assertTrue(response.containsKey("unavailableDates"));
-        List<String> unavailableDates = (List<String>) response.get("unavailableDates");
-        assertNotNull(unavailableDates);
-        assertTrue(unavailableDates.size() > 0);
+        assertEquals(ranges, response.get("unavailableRanges"));
+        assertFalse(response.containsKey("unavailableDates"));
     }
 
     @Test
     void testGetUnavailableDates_WithoutSize() {
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, 7);
-        Date startDate = cal.getTime();
-        
-        cal.add(Calendar.DAY_OF_MONTH, 2);
-        Date endDate = cal.getTime();
-
-        testBooking.setStartUseDate(startDate);
-        testBooking.setEndUseDate(endDate);
-
-        List<Booking> bookings = Arrays.asList(testBooking);
-        when(bookingService.getConflictingBookings(anyInt(), any(LocalDate.class), any(LocalDate.class)))
-            .thenReturn(bookings);
+        when(bookingService.getUnavailableRanges(eq(testItem.getItemId()), isNull(), any(LocalDate.class), any(LocalDate.class)))
+            .thenReturn(List.of());
 
         Map<String, Object> response = bookingController.getUnavailableDates(testItem.getItemId(), null);
 
         assertNotNull(response);
-        assertTrue(response.containsKey("unavailableDates"));
-        List<String> unavailableDates = (List<String>) response.get("unavailableDates");
-        assertTrue(unavailableDates.size() > 0);
+        assertTrue(((List<?>) response.get("unavailableRanges")).isEmpty());
+        // Janela de 3 meses a partir de hoje
+        LocalDate today = LocalDate.now(ZoneId.systemDefault());
+        verify(bookingService).getUnavailableRanges(testItem.getItemId(), null, today, today.plusMonths(3));
     }
 
     @Test
     void testGetUnavailableDates_Exception() {
-        when(bookingService.getConflictingBookings(anyInt(), any(LocalDate.class), any(LocalDate.class)))
+        when(bookingService.getUnavailableRanges(anyInt(), any(), any(LocalDate.class), any(LocalDate.class)))
             .thenThrow(new RuntimeException("Database error"));
 
         Map<String, Object> response = bookingController.getUnavailableDates(testItem.getItemId(), "L");
 
         assertNotNull(response);
-        assertTrue(response.containsKey("unavailableDates"));
+        assertTrue(response.containsKey("unavailableRanges"));
         assertTrue(response.containsKey("error"));
-        List<String> unavailableDates = (List<String>) response.get("unavailableDates");
-        assertTrue(unavailableDates.isEmpty());
+        assertTrue(((List<?>) response.get("unavailableRanges")).isEmpty());
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,199 @@
+package com.magiclook.booking;
+
+import com.magiclook.data.BookingHold;
+import com.magiclook.data.Item;
+import com.magiclook.data.ItemSingle;
+import com.magiclook.dto.BookingWindow;
+import com.magiclook.repository.BookingHoldRepository;
+import com.magiclook.repository.ItemSingleRepository;
+import com.magiclook.service.AvailabilityIndex;
+import com.magiclook.service.BookingHoldService;
+import com.magiclook.service.BookingLockManager;
+import com.magiclook.service.UnitAllocationStrategy;
+import com.magiclook.service.UnitAllocator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.lang.reflect.Field;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class BookingHoldServiceTest {
+
+    private static final BookingWindow WINDOW = BookingWindow.of(LocalDate.now().plusDays(10), LocalDate.now().plusDays(12));
+
+    @Mock
+    private BookingHoldRepository bookingHoldRepository;
+
+    @Mock
+    private ItemSingleRepository itemSingleRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private BookingHoldService holdService;
+    private ItemSingle unitA;
+    private ItemSingle unitB;
+    private final UUID alice = UUID.randomUUID();
+    private final UUID bob = UUID.randomUUID();
+
+    // Tabela booking_hold partilhada por todos os nós
+    private final List<BookingHold> table = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        holdService = new BookingHoldService(bookingHoldRepository, itemSingleRepository,
+                new BookingLockManager(BookingLockManager.MODE_LOCAL, 16),
+                new UnitAllocator(UnitAllocationStrategy.FIRST_FIT, mock(AvailabilityIndex.class)),
+                transactionManager, meterRegistry, 600, 2);
+
+        Item item = new Item();
+        item.setItemId(1);
+        unitA = unit(item, "M");
+        unitB = unit(item, "M");
+
+        when(bookingHoldRepository.save(any(BookingHold.class))).thenAnswer(invocation -> {
+            BookingHold hold = invocation.getArgument(0);
+            hold.setHoldId(UUID.randomUUID());
+            table.add(hold);
+            return hold;
+        });
+        doAnswer(invocation -> {
+            invocation.<Iterable<BookingHold>>getArgument(0).forEach(table::remove);
+            return null;
+        }).when(bookingHoldRepository).deleteAll(anyIterable());
+        doAnswer(invocation -> table.removeIf(h -> h.getHoldId().equals(invocation.getArgument(0))))
+                .when(bookingHoldRepository).deleteById(any(UUID.class));
+        doAnswer(invocation -> table.removeIf(h -> invocation.<List<UUID>>getArgument(0).contains(h.getHoldId())))
+                .when(bookingHoldRepository).deleteAllByIdInBatch(anyIterable());
+        when(bookingHoldRepository.findById(any(UUID.class))).thenAnswer(invocation ->
+                table.stream().filter(h -> h.getHoldId().equals(invocation.getArgument(0))).findFirst());
+        when(bookingHoldRepository.findByUserIdAndItemId(any(UUID.class), anyInt())).thenAnswer(invocation ->
+                table.stream().filter(h -> h.getUserId().equals(invocation.getArgument(0))
+                        && h.getItemId().equals(invocation.getArgument(1))).toList());
+        when(bookingHoldRepository.findActiveOverlapping(anyInt(), any(), any(), any(Date.class))).thenAnswer(invocation ->
+                table.stream().filter(h -> h.getItemId().equals(invocation.getArgument(0))
+                        && h.getExpiresAt().after(invocation.getArgument(3))
+                        && h.overlaps(invocation.getArgument(1), invocation.getArgument(2))).toList());
+        when(bookingHoldRepository.findFirstByUserIdAndItemIdAndExpiresAtAfter(any(UUID.class), anyInt(), any(Date.class)))
+                .thenAnswer(invocation -> table.stream().filter(h -> h.getUserId().equals(invocation.getArgument(0))
+                        && h.getItemId().equals(invocation.getArgument(1))
+                        && h.getExpiresAt().after(invocation.getArgument(2))).findFirst());
+        when(bookingHoldRepository.countByUserIdAndExpiresAtAfter(any(UUID.class), any(Date.class))).thenAnswer(invocation ->
+                table.stream().filter(h -> h.getUserId().equals(invocation.getArgument(0))
+                        && h.getExpiresAt().after(invocation.getArgument(1))).count());
+        when(bookingHoldRepository.countByExpiresAtAfter(any(Date.class))).thenAnswer(invocation ->
+                table.stream().filter(h -> h.getExpiresAt().after(invocation.getArgument(0))).count());
+        when(itemSingleRepository.findFreeUnits(eq(1), any(), any(), any(), any(), any(), any(Limit.class)))
+                .thenReturn(List.of(unitA, unitB));
+    }
+
+    @Test
+    void testPlace_OtherUsersHeldUnitIsSkipped() {
+        BookingHold first = holdService.place(1, "M", WINDOW, alice).orElseThrow();
+        BookingHold second = holdService.place(1, "M", WINDOW, bob).orElseThrow();
+
+        assertEquals(unitA.getId(), first.getItemSingleId());
+        assertEquals(unitB.getId(), second.getItemSingleId());
+        // Uma unidade extra pedida por cada unidade retida por outros
+        verify(itemSingleRepository).findFreeUnits(eq(1), eq("M"), any(), any(), any(), any(), eq(Limit.of(2)));
+        assertEquals(2, holdService.getActiveCount());
+        assertEquals(2.0, meterRegistry.get("booking.hold.placed").counter().count());
+    }
+
+    @Test
+    void testPlace_NoFreeUnitLeft_Empty() {
+        holdService.place(1, "M", WINDOW, alice);
+        holdService.place(1, "M", WINDOW, bob);
+
+        assertTrue(holdService.place(1, "M", WINDOW, UUID.randomUUID()).isEmpty());
+    }
+
+    @Test
+    void testPlace_ReplacesUsersPreviousHoldOnItem() {
+        BookingHold first = holdService.place(1, "M", WINDOW, alice).orElseThrow();
+
+        holdService.place(1, "M", WINDOW, alice);
+
+        verify(bookingHoldRepository).deleteAll(List.of(first));
+        assertEquals(1, holdService.countActiveForUser(alice));
+        assertTrue(holdService.findActive(first.getHoldId(), alice).isEmpty());
+    }
+
+    @Test
+    void testHeldUnits_ExcludeOwnHoldsAndOtherDates() {
+        BookingHold hold = holdService.place(1, "M", WINDOW, alice).orElseThrow();
+
+        assertEquals(Set.of(unitA.getId()), holdService.heldUnitIds(1, WINDOW, bob));
+        assertTrue(holdService.heldUnitIds(1, WINDOW, alice).isEmpty());
+        assertTrue(holdService.heldUnitIds(1, BookingWindow.of(LocalDate.now().plusDays(30),
+                LocalDate.now().plusDays(31)), bob).isEmpty());
+        assertEquals(1L, holdService.countHeldBySize(1, WINDOW).get("M"));
+        assertTrue(holdService.findActive(hold.getHoldId(), alice).isPresent());
+        assertTrue(holdService.findActive(hold.getHoldId(), bob).isEmpty());
+    }
+
+    @Test
+    void testSweepExpired_DeletesInBatches() {
+        BookingHold hold = holdService.place(1, "M", WINDOW, alice).orElseThrow();
+        hold.setExpiresAt(new Date(System.currentTimeMillis() - 1000));
+        List<UUID> fullBatch = List.of(UUID.randomUUID(), UUID.randomUUID());
+        List<UUID> lastBatch = List.of(hold.getHoldId());
+        when(bookingHoldRepository.findExpiredIds(any(Date.class), eq(Limit.of(2))))
+                .thenReturn(fullBatch, lastBatch);
+
+        // Expirado deixa de contar mesmo antes da passagem do sweeper
+        assertTrue(holdService.heldUnitIds(1, WINDOW, bob).isEmpty());
+
+        holdService.sweepExpired();
+
+        assertEquals(0, holdService.getActiveCount());
+        assertEquals(0.0, meterRegistry.get("booking.hold.active").gauge().value());
+        verify(bookingHoldRepository).deleteAllByIdInBatch(fullBatch);
+        verify(bookingHoldRepository).deleteAllByIdInBatch(lastBatch);
+        verify(bookingHoldRepository, times(2)).findExpiredIds(any(Date.class), any(Limit.class));
+        assertEquals(3.0, meterRegistry.get("booking.hold.expired").counter().count());
+    }
+
+    @Test
+    void testHoldPlacedByAnotherNode_IsHonoured() {
+        // Linha gravada por outro nó: nada dela passou por este serviço
+        BookingHold stored = new BookingHold(unitA, alice, WINDOW.getPickupDate(), WINDOW.getStartUseDate(),
+                WINDOW.getEndUseDate(), WINDOW.getReturnDate(), new Date(System.currentTimeMillis() + 60_000));
+        stored.setHoldId(UUID.randomUUID());
+        table.add(stored);
+
+        assertEquals(Optional.of(stored), holdService.findActiveForItem(alice, 1));
+        assertEquals(Set.of(unitA.getId()), holdService.heldUnitIds(1, WINDOW, null));
+        assertEquals(unitB.getId(), holdService.place(1, "M", WINDOW, bob).orElseThrow().getItemSingleId());
+    }
+
+    private static ItemSingle unit(Item item, String size) throws Exception {
+        ItemSingle unit = new ItemSingle("AVAILABLE", item, size);
+        Field idField = ItemSingle.class.getDeclaredField("id");
+        idField.setAccessible(true);
+        idField.set(unit, UUID.randomUUID());
+        return unit;
+    }
+}
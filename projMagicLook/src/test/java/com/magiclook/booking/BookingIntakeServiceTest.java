@@ -0,0 +1,213 @@
+package com.magiclook.booking;
+
+import com.magiclook.data.*;
+import com.magiclook.dto.BookingRequestDTO;
+import com.magiclook.repository.BookingIntakeRepository;
+import com.magiclook.service.BookingIntakeService;
+import com.magiclook.service.BookingService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BookingIntakeServiceTest {
+
+    private BookingIntakeRepository bookingIntakeRepository;
+    private BookingService bookingService;
+    private SimpleMeterRegistry registry;
+    private BookingIntakeService intakeService;
+
+    // Tabela booking_intake em memória
+    private final Map<UUID, BookingIntake> rows = new ConcurrentHashMap<>();
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        bookingIntakeRepository = mock(BookingIntakeRepository.class);
+        bookingService = mock(BookingService.class);
+        registry = new SimpleMeterRegistry();
+
+        user = new User();
+        user.setUserId(UUID.randomUUID());
+
+        when(bookingIntakeRepository.save(any(BookingIntake.class))).thenAnswer(inv -> {
+            BookingIntake intake = inv.getArgument(0);
+            if (intake.getIntakeId() == null) {
+                intake.setIntakeId(UUID.randomUUID());
+            }
+            rows.put(intake.getIntakeId(), intake);
+            return intake;
+        });
+        when(bookingIntakeRepository.findById(any(UUID.class)))
+            .thenAnswer(inv -> Optional.ofNullable(rows.get((UUID) inv.getArgument(0))));
+        when(bookingIntakeRepository.lockById(any(UUID.class)))
+            .thenAnswer(inv -> Optional.ofNullable(rows.get((UUID) inv.getArgument(0))));
+        when(bookingIntakeRepository.findByStatusOrderByCreatedAtAsc(eq(BookingIntake.STATUS_PENDING), any(Limit.class)))
+            .thenAnswer(inv -> rows.values().stream().filter(BookingIntake::isPending).toList());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (intakeService != null) {
+            intakeService.shutdown();
+        }
+    }
+
+    @Test
+    void testSubmit_QueuesAndConfirms() {
+        intakeService = service(BookingIntakeService.MODE_ASYNC, 2, 10);
+        Booking booking = new Booking();
+        booking.setBookingId(UUID.randomUUID());
+        confirmWith(booking);
+
+        BookingIntake intake = intakeService.submit(request(1), user);
+
+        assertNotNull(intake.getIntakeId());
+        await(() -> BookingIntake.STATUS_CONFIRMED.equals(rows.get(intake.getIntakeId()).getStatus()));
+        assertEquals(booking.getBookingId(), rows.get(intake.getIntakeId()).getBookingId());
+        assertNotNull(rows.get(intake.getIntakeId()).getProcessedAt());
+        await(() -> intakeService.getQueueDepth() == 0);
+        assertEquals(1.0, registry.get("booking.intake.submitted").counter().count());
+    }
+
+    @Test
+    void testProcess_FailedAllocationIsRejected() {
+        intakeService = service(BookingIntakeService.MODE_SYNC, 1, 10);
+        BookingIntake intake = pendingRow(1);
+        when(bookingService.createBooking(any(BookingRequestDTO.class), eq(user), any()))
+            .thenThrow(new IllegalStateException("Nenhuma unidade disponível para as datas selecionadas"));
+
+        intakeService.process(intake.getIntakeId());
+
+        assertEquals(BookingIntake.STATUS_REJECTED, intake.getStatus());
+        assertEquals("Nenhuma unidade disponível para as datas selecionadas", intake.getErrorMessage());
+        assertNull(intake.getBookingId());
+    }
+
+    @Test
+    void testProcess_AlreadyProcessedRowIsSkipped() {
+        intakeService = service(BookingIntakeService.MODE_SYNC, 1, 10);
+        BookingIntake intake = pendingRow(1);
+        intake.setStatus(BookingIntake.STATUS_CONFIRMED);
+
+        intakeService.process(intake.getIntakeId());
+
+        verify(bookingService, never()).createBooking(any(), any(), any());
+    }
+
+    @Test
+    void testFullQueue_RefusesNewRequests() throws Exception {
+        intakeService = service(BookingIntakeService.MODE_ASYNC, 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(bookingService.createBooking(any(BookingRequestDTO.class), eq(user), any())).thenAnswer(inv -> {
+            release.await(5, TimeUnit.SECONDS);
+            return new Booking();
+        });
+
+        intakeService.submit(request(1), user);
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+            () -> intakeService.submit(request(2), user));
+        assertTrue(exception.getMessage().startsWith("Estamos a receber muitas reservas"));
+        assertEquals(1.0, registry.get("booking.intake.throttled").counter().count());
+        assertEquals(1, rows.size());
+
+        release.countDown();
+        await(() -> intakeService.getQueueDepth() == 0);
+        // Com a fila livre, volta a aceitar pedidos
+        assertNotNull(intakeService.submit(request(2), user));
+    }
+
+    @Test
+    void testSubmit_InvalidDatesAreNotQueued() {
+        intakeService = service(BookingIntakeService.MODE_ASYNC, 1, 10);
+        BookingRequestDTO invalid = request(1);
+        invalid.setEndUseDate(invalid.getStartUseDate().minusDays(3));
+
+        assertThrows(IllegalArgumentException.class, () -> intakeService.submit(invalid, user));
+        assertThrows(IllegalArgumentException.class, () -> intakeService.submit(request(1), null));
+        verify(bookingIntakeRepository, never()).save(any());
+    }
+
+    @Test
+    void testDispatchPending_RecoversRowsLeftByARestart() {
+        intakeService = service(BookingIntakeService.MODE_ASYNC, 2, 10);
+        confirmWith(new Booking());
+        BookingIntake first = pendingRow(1);
+        BookingIntake second = pendingRow(2);
+
+        intakeService.dispatchPending();
+
+        await(() -> !first.isPending() && !second.isPending());
+        verify(bookingService, times(2)).createBooking(any(BookingRequestDTO.class), eq(user), any());
+    }
+
+    @Test
+    void testFindForUser_OnlyOwnRequests() {
+        intakeService = service(BookingIntakeService.MODE_ASYNC, 1, 10);
+        BookingIntake intake = pendingRow(1);
+        User other = new User();
+        other.setUserId(UUID.randomUUID());
+
+        assertTrue(intakeService.findForUser(intake.getIntakeId(), user).isPresent());
+        assertTrue(intakeService.findForUser(intake.getIntakeId(), other).isEmpty());
+        assertTrue(intakeService.findForUser(intake.getIntakeId(), null).isEmpty());
+    }
+
+    private void confirmWith(Booking booking) {
+        // O pedido é confirmado dentro da transação da reserva
+        when(bookingService.createBooking(any(BookingRequestDTO.class), eq(user), any())).thenAnswer(inv -> {
+            inv.<Consumer<Booking>>getArgument(2).accept(booking);
+            return booking;
+        });
+    }
+
+    private BookingIntakeService service(String mode, int workers, int capacity) {
+        return new BookingIntakeService(bookingIntakeRepository, bookingService,
+            mock(PlatformTransactionManager.class), registry, mode, workers, capacity);
+    }
+
+    private BookingIntake pendingRow(int itemId) {
+        BookingRequestDTO request = request(itemId);
+        BookingIntake intake = new BookingIntake(user, itemId, "M", request.getStartUseDate(), request.getEndUseDate());
+        intake.setIntakeId(UUID.randomUUID());
+        rows.put(intake.getIntakeId(), intake);
+        return intake;
+    }
+
+    private BookingRequestDTO request(int itemId) {
+        LocalDate start = LocalDate.now().plusDays(10);
+        BookingRequestDTO dto = new BookingRequestDTO(itemId, start, LocalDate.now().plusDays(12));
+        dto.setSize("M");
+        return dto;
+    }
+
+    private void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Condição não satisfeita a tempo");
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail("Interrompido");
+            }
+        }
+    }
+}
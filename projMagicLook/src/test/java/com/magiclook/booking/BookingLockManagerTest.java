@@ -0,0 +1,274 @@
+package com.magiclook.booking;
+
+import com.magiclook.config.BookingExclusionConstraint;
+import com.magiclook.data.*;
+import com.magiclook.dto.BookingRequestDTO;
+import com.magiclook.repository.BookingRepository;
+import com.magiclook.repository.ItemRepository;
+import com.magiclook.repository.ItemSingleRepository;
+import com.magiclook.repository.UserRepository;
+import com.magiclook.service.AvailabilityIndex;
+import com.magiclook.service.BookingHoldService;
+import com.magiclook.service.BookingLockManager;
+import com.magiclook.service.BookingService;
+import com.magiclook.service.OptimisticBookingRetry;
+import com.magiclook.service.UnitAllocationStrategy;
+import com.magiclook.service.UnitAllocator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BookingLockManagerTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testSameItem_IsSerialized() throws Exception {
+        BookingLockManager lockManager = new BookingLockManager(BookingLockManager.MODE_LOCAL, 16);
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger maxInside = new AtomicInteger();
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(executor.submit(() -> lockManager.withItemLock(1, () -> {
+                maxInside.accumulateAndGet(inside.incrementAndGet(), Math::max);
+                sleep(20);
+                inside.decrementAndGet();
+                return null;
+            })));
+        }
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+
+        assertEquals(1, maxInside.get());
+    }
+
+    @Test
+    void testDifferentItems_RunInParallel() throws Exception {
+        BookingLockManager lockManager = new BookingLockManager(BookingLockManager.MODE_LOCAL, 16);
+        int itemA = 1;
+        int itemB = otherStripeItem(lockManager, itemA);
+        CountDownLatch bothInside = new CountDownLatch(2);
+
+        // Cada thread só sai quando a outra também estiver dentro do seu lock
+        Callable<Boolean> holdA = () -> lockManager.withItemLock(itemA, () -> awaitLatch(bothInside));
+        Callable<Boolean> holdB = () -> lockManager.withItemLock(itemB, () -> awaitLatch(bothInside));
+
+        Future<Boolean> a = executor.submit(holdA);
+        Future<Boolean> b = executor.submit(holdB);
+
+        assertTrue(a.get(5, TimeUnit.SECONDS));
+        assertTrue(b.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testItemLocks_OppositeOrdersNeverDeadlock() throws Exception {
+        BookingLockManager lockManager = new BookingLockManager(BookingLockManager.MODE_LOCAL, 16);
+        int itemA = 1;
+        int itemB = otherStripeItem(lockManager, itemA);
+        AtomicInteger completed = new AtomicInteger();
+
+        // Conjuntos com os mesmos itens pedidos por ordens opostas
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            List<Integer> items = i % 2 == 0 ? List.of(itemA, itemB) : List.of(itemB, itemA);
+            futures.add(executor.submit(() -> lockManager.withItemLocks(items, completed::incrementAndGet)));
+        }
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+
+        assertEquals(200, completed.get());
+    }
+
+    @Test
+    void testItemLocks_HoldsEveryItemOfTheBundle() throws Exception {
+        BookingLockManager lockManager = new BookingLockManager(BookingLockManager.MODE_LOCAL, 16);
+        int itemA = 1;
+        int itemB = otherStripeItem(lockManager, itemA);
+        CountDownLatch bundleInside = new CountDownLatch(1);
+        CountDownLatch releaseBundle = new CountDownLatch(1);
+
+        Future<Boolean> bundle = executor.submit(() -> lockManager.withItemLocks(List.of(itemA, itemB, itemA), () -> {
+            bundleInside.countDown();
+            try {
+                return releaseBundle.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }));
+        assertTrue(bundleInside.await(5, TimeUnit.SECONDS));
+
+        Future<String> single = executor.submit(() -> lockManager.withItemLock(itemB, () -> "booked"));
+        assertThrows(TimeoutException.class, () -> single.get(200, TimeUnit.MILLISECONDS));
+
+        releaseBundle.countDown();
+        assertTrue(bundle.get(5, TimeUnit.SECONDS));
+        assertEquals("booked", single.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testLockHeldUntilTransactionCompletes() throws Exception {
+        BookingLockManager lockManager = new BookingLockManager(BookingLockManager.MODE_LOCAL, 16);
+        TransactionSynchronizationManager.initSynchronization();
+
+        lockManager.withItemLock(1, () -> "inserted");
+
+        Future<String> waiting = executor.submit(() -> lockManager.withItemLock(1, () -> "next"));
+        assertThrows(TimeoutException.class, () -> waiting.get(200, TimeUnit.MILLISECONDS));
+
+        // Simular o commit: só aqui o lock é libertado
+        for (TransactionSynchronization sync : TransactionSynchronizationManager.getSynchronizations()) {
+            sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+
+        assertEquals("next", waiting.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testLocalItemLock_ReleasedOnReturnEvenInsideTransaction() throws Exception {
+        BookingLockManager lockManager = new BookingLockManager(BookingLockManager.MODE_ADVISORY, 16);
+        TransactionSynchronizationManager.initSynchronization();
+
+        // Só a stripe: nem advisory lock (sem EntityManager aqui) nem libertação diferida
+        assertEquals("matched", lockManager.withLocalItemLock(1, () -> "matched"));
+        assertTrue(TransactionSynchronizationManager.getSynchronizations().isEmpty());
+
+        Future<String> next = executor.submit(() -> lockManager.withLocalItemLock(1, () -> "next"));
+        assertEquals("next", next.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testConcurrentBookings_NeverDoubleBookTheSameUnit() throws Exception {
+        Item item = new Item();
+        item.setItemId(1);
+        item.setPriceRent(new BigDecimal("20.00"));
+        ItemSingle onlyUnit = new ItemSingle("AVAILABLE", item, "M");
+        onlyUnit.setId(UUID.randomUUID());
+
+        User user = new User();
+        user.setUserId(UUID.randomUUID());
+
+        BookingService bookingService = serviceOver(List.of(onlyUnit), item, user);
+
+        int attempts = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Booking>> futures = new ArrayList<>();
+        for (int i = 0; i < attempts; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return bookingService.createBooking(request(item.getItemId()), user);
+            }));
+        }
+        start.countDown();
+
+        int confirmed = 0;
+        int rejected = 0;
+        for (Future<Booking> future : futures) {
+            try {
+                assertNotNull(future.get(5, TimeUnit.SECONDS));
+                confirmed++;
+            } catch (ExecutionException e) {
+                assertInstanceOf(IllegalStateException.class, e.getCause());
+                rejected++;
+            }
+        }
+
+        assertEquals(1, confirmed);
+        assertEquals(attempts - 1, rejected);
+    }
+
+    private BookingService serviceOver(List<ItemSingle> units, Item item, User user) {
+        BookingRepository bookingRepository = mock(BookingRepository.class);
+        ItemRepository itemRepository = mock(ItemRepository.class);
+        ItemSingleRepository itemSingleRepository = mock(ItemSingleRepository.class);
+        UserRepository userRepository = mock(UserRepository.class);
+
+        // Tabela de reservas em memória, com uma pausa para alargar a janela de corrida
+        List<Booking> saved = Collections.synchronizedList(new ArrayList<>());
+        when(itemRepository.findById(item.getItemId())).thenReturn(Optional.of(item));
+        when(userRepository.findById(user.getUserId())).thenReturn(Optional.of(user));
+        when(itemSingleRepository.findFreeUnits(eq(item.getItemId()), any(), any(), any(), any(), any(), any()))
+                .thenAnswer(inv -> {
+                    sleep(10);
+                    // Anti-join sobre as reservas já gravadas
+                    return units.stream()
+                            .filter(unit -> saved.stream().noneMatch(b -> b.getItemSingle().getId().equals(unit.getId())))
+                            .toList();
+                });
+        when(bookingRepository.countOverlappingBookingsForItemSingle(any(UUID.class), any(), any(), any(), any()))
+                .thenAnswer(inv -> {
+                    UUID unitId = inv.getArgument(0);
+                    sleep(10);
+                    return saved.stream().filter(b -> b.getItemSingle().getId().equals(unitId)).count();
+                });
+        when(bookingRepository.saveAndFlush(any(Booking.class))).thenAnswer(inv -> {
+            sleep(10);
+            Booking booking = inv.getArgument(0);
+            saved.add(booking);
+            return booking;
+        });
+
+        return new BookingService(bookingRepository, itemRepository, itemSingleRepository, userRepository,
+                new BookingLockManager(BookingLockManager.MODE_LOCAL, 16), mock(BookingExclusionConstraint.class),
+                mock(AvailabilityIndex.class), mock(OptimisticBookingRetry.class), mock(BookingHoldService.class),
+                new UnitAllocator(UnitAllocationStrategy.FIRST_FIT, mock(AvailabilityIndex.class)),
+                mock(ApplicationEventPublisher.class), mock(PlatformTransactionManager.class));
+    }
+
+    private BookingRequestDTO request(Integer itemId) {
+        LocalDate start = LocalDate.now().plusDays(10);
+        BookingRequestDTO dto = new BookingRequestDTO(itemId, start, LocalDate.now().plusDays(12));
+        dto.setSize("M");
+        return dto;
+    }
+
+    private int otherStripeItem(BookingLockManager lockManager, int itemId) {
+        int candidate = itemId + 1;
+        while (lockManager.stripeIndex(candidate) == lockManager.stripeIndex(itemId)) {
+            candidate++;
+        }
+        return candidate;
+    }
+
+    private boolean awaitLatch(CountDownLatch latch) {
+        latch.countDown();
+        try {
+            return latch.await(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.magiclook.booking;
+
+import com.magiclook.data.Booking;
+import com.magiclook.data.Item;
+import com.magiclook.data.ItemSingle;
+import com.magiclook.data.Staff;
+import com.magiclook.data.User;
+import com.magiclook.repository.ItemRepository;
+import com.magiclook.repository.ItemSingleRepository;
+import com.magiclook.repository.StaffRepository;
+import com.magiclook.repository.UserRepository;
+import com.magiclook.service.BookingService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Fixed number of SQL statements per page, whatever the number of rows:
+ * the read paths fetch their associations with entity graphs instead of
+ * one lazy/eager select per row.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+@Transactional
+class BookingQueryCountTest {
+
+    private static final LocalDate START = LocalDate.of(2031, 3, 10);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private ItemSingleRepository itemSingleRepository;
+
+    @Autowired
+    private StaffRepository staffRepository;
+
+    private Statistics statistics;
+    private User user;
+    private MockHttpSession session;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        user = userRepository.findByUsername("maria");
+        session = new MockHttpSession();
+        session.setAttribute("loggedInUser", user);
+    }
+
+    @Test
+    void testMyBookingsPage_SingleQueryRegardlessOfRows() throws Exception {
+        bookOnEveryItem(2);
+        long fewRows = statementsFor("/magiclook/my-bookings");
+
+        bookOnEveryItem(8);
+        long fullPage = statementsFor("/magiclook/my-bookings");
+
+        assertEquals(1, fewRows);
+        assertEquals(fewRows, fullPage);
+    }
+
+    @Test
+    void testBookingDetailsPage_SingleQuery() throws Exception {
+        Booking booking = bookOnEveryItem(1).get(0);
+
+        assertEquals(1, statementsFor("/magiclook/my-bookings/" + booking.getBookingId()));
+    }
+
+    @Test
+    void testConflictList_SingleQuery() {
+        List<Booking> booked = bookOnEveryItem(1);
+        Integer itemId = booked.get(0).getItem().getItemId();
+        flushAndClear();
+
+        List<Booking> conflicts = bookingService.getConflictingBookings(itemId, START, START.plusDays(2));
+        conflicts.forEach(b -> assertNotNull(b.getItemSingle().getSize()));
+
+        assertFalse(conflicts.isEmpty());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testStaffItemList_TwoQueries() throws Exception {
+        Staff staff = staffRepository.findByUsername("admin").orElseThrow();
+        session.setAttribute("loggedInStaff", staff);
+
+        // Artigos da loja (com tipo) + tamanhos de todos os artigos
+        assertEquals(2, statementsFor("/magiclook/staff/item"));
+    }
+
+    @Test
+    void testCatalogPage_PagesAndFacetsFromIndex() throws Exception {
+        bookOnEveryItem(3);
+
+        // Só as notificações por ler, com ou sem filtros: a página e as facetas vêm do índice
+        assertEquals(1, statementsFor("/magiclook/items/men"));
+        assertEquals(1, statementsFor("/magiclook/items/women?size=M&maxPrice=80&sort=price_asc&startUseDate="
+                + START + "&endUseDate=" + START.plusDays(1)));
+        // Páginas seguintes (scroll infinito): nenhuma query
+        assertEquals(0, statementsFor("/magiclook/items/men?sort=price_desc&afterId=1&afterPrice=500"));
+    }
+
+    private long statementsFor(String url) throws Exception {
+        flushAndClear();
+        mockMvc.perform(get(url).session(session)).andExpect(status().isOk());
+        return statistics.getPrepareStatementCount();
+    }
+
+    private void flushAndClear() {
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+    }
+
+    // Uma reserva por artigo (até ao limite), cada uma numa unidade e loja possivelmente diferentes
+    private List<Booking> bookOnEveryItem(int limit) {
+        List<Item> items = itemRepository.findAll().stream().limit(limit).toList();
+        return items.stream().map(item -> {
+            ItemSingle unit = itemSingleRepository.save(new ItemSingle("AVAILABLE", item, "M"));
+            Booking booking = new Booking(START.minusDays(1), START, START.plusDays(2), START.plusDays(3),
+                    Booking.STATE_CONFIRMED, item, entityManager.getReference(User.class, user.getUserId()));
+            booking.setItemSingle(unit);
+            booking.setTotalDays(3);
+            booking.setTotalPrice(BigDecimal.TEN);
+            entityManager.persist(booking);
+            return booking;
+        }).toList();
+    }
+}
@@ -1,31 +1,56 @@
 package com.magiclook.booking;
 
+import com.magiclook.config.BookingExclusionConstraint;
 import com.magiclook.data.*;
+import com.magiclook.dto.AvailabilityResultDTO;
+import com.magiclook.dto.BookingBundleRequestDTO;
+import com.magiclook.dto.BookingPageDTO;
 import com.magiclook.dto.BookingRequestDTO;
+import com.magiclook.dto.BookingResult;
+import com.magiclook.dto.BookingWindow;
+import com.magiclook.dto.DateRangeDTO;
+import com.magiclook.dto.SizeAvailabilityDTO;
 import com.magiclook.repository.BookingRepository;
 import com.magiclook.repository.ItemRepository;
 import com.magiclook.repository.ItemSingleRepository;
 import com.magiclook.repository.UserRepository;
+import com.magiclook.service.AvailabilityIndex;
+import com.magiclook.service.BookingCancelledEvent;
+import com.magiclook.service.BookingHoldService;
+import com.magiclook.service.BookingLockManager;
 import com.magiclook.service.BookingService;
+import com.magiclook.service.OptimisticBookingRetry;
+import com.magiclook.service.UnitAllocationStrategy;
+import com.magiclook.service.UnitAllocator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 
 import java.lang.reflect.Field;
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.util.Calendar;
 import java.util.Date;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.ArrayList;
 import java.util.Map;
 import java.util.List;
+import java.util.Collections;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -47,6 +72,30 @@ class BookingServiceTest {
     @Mock
     private ItemSingleRepository itemSingleRepository;
 
+    @Mock
+    private BookingExclusionConstraint bookingExclusionConstraint;
+
+    @Mock
+    private AvailabilityIndex availabilityIndex;
+
+    @Mock
+    private OptimisticBookingRetry optimisticBookingRetry;
+
+    @Mock
+    private BookingHoldService bookingHoldService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private BookingLockManager bookingLockManager = new BookingLockManager(BookingLockManager.MODE_LOCAL, 16);
+
+    @Spy
+    private UnitAllocator unitAllocator = new UnitAllocator(UnitAllocationStrategy.FIRST_FIT, mock(AvailabilityIndex.class));
+
     @InjectMocks
     private BookingService bookingService;
 
@@ -81,12 +130,9 @@ class BookingServiceTest {
         testBooking.setState("CONFIRMED");
         testBooking.setTotalPrice(new BigDecimal("75.00"));
         
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, 7);
-        testBooking.setStartUseDate(cal.getTime());
+        testBooking.setStartUseDate(LocalDate.now().plusDays(7));
         
-        cal.add(Calendar.DAY_OF_MONTH, 2);
-        testBooking.setEndUseDate(cal.getTime());
+        testBooking.setEndUseDate(LocalDate.now().plusDays(9));
         testBooking.setCreatedAt(new Date());
         
         bookingRequest = new BookingRequestDTO();
@@ -97,7 +143,7 @@ class BookingServiceTest {
         
         // Set up common lenient stubs to avoid strict stubbing issues
         lenient().when(bookingRepository.countOverlappingBookingsForItemSingle(
-            any(UUID.class), any(Date.class), any(Date.class), any(Date.class), any(Date.class)))
+            any(UUID.class), any(LocalDate.class), any(LocalDate.class), any(LocalDate.class), any(LocalDate.class)))
             .thenReturn(0L);
     }
 
@@ -108,14 +154,11 @@ class BookingServiceTest {
         when(itemRepository.findById(bookingRequest.getItemId()))
             .thenReturn(Optional.of(testItem));
             
-        // Mock para ItemSingleRepository - retornar lista com um ItemSingle disponível
-        List<ItemSingle> itemSingles = new ArrayList<>();
-        itemSingles.add(testItemSingle);
-        when(itemSingleRepository.findByItem_ItemId(bookingRequest.getItemId()))
-            .thenReturn(itemSingles);
+        // Mock para ItemSingleRepository - a query devolve um ItemSingle livre
+        stubFreeUnits(List.of(testItemSingle));
         
         // Mock the save method
-        when(bookingRepository.save(any(Booking.class)))
+        when(bookingRepository.saveAndFlush(any(Booking.class)))
             .thenAnswer(invocation -> invocation.getArgument(0));
 
         Booking result = bookingService.createBooking(bookingRequest, testUser);
@@ -127,8 +170,51 @@ class BookingServiceTest {
         assertNotNull(result.getCreatedAt());
         
         verify(itemRepository, times(1)).findById(bookingRequest.getItemId());
-        verify(itemSingleRepository, times(1)).findByItem_ItemId(bookingRequest.getItemId());
-        verify(bookingRepository, times(1)).save(any(Booking.class));
+        verify(itemSingleRepository, times(1)).findFreeUnits(eq(bookingRequest.getItemId()), eq("M"),
+            any(LocalDate.class), any(LocalDate.class), any(LocalDate.class), any(LocalDate.class), eq(Limit.of(1)));
+        verify(itemSingleRepository, never()).findByItem_ItemId(anyInt());
+        verify(bookingRepository, never()).countOverlappingBookings(anyInt(), any(), any(), any(), any());
+        verify(bookingRepository, times(1)).saveAndFlush(any(Booking.class));
+        verify(availabilityIndex, times(1)).bookingChanged(result);
+    }
+
+    @Test
+    void testCreateBooking_HookRunsAfterTheInsertInTheBookingTransaction() {
+        when(userRepository.findById(testUser.getUserId())).thenReturn(Optional.of(testUser));
+        when(itemRepository.findById(bookingRequest.getItemId())).thenReturn(Optional.of(testItem));
+        stubFreeUnits(List.of(testItemSingle));
+        when(bookingRepository.saveAndFlush(any(Booking.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        List<Booking> seen = new ArrayList<>();
+
+        Booking result = bookingService.createBooking(bookingRequest, testUser, booking -> {
+            verify(bookingRepository).saveAndFlush(booking);
+            seen.add(booking);
+        });
+
+        assertEquals(List.of(result), seen);
+        // Uma transação própria, aberta pelo serviço e não herdada do chamador
+        verify(transactionManager, times(1)).getTransaction(any());
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    void testCreateBooking_ComparingStrategy_GetsEveryFreeUnit() {
+        when(userRepository.findById(testUser.getUserId())).thenReturn(Optional.of(testUser));
+        when(itemRepository.findById(bookingRequest.getItemId())).thenReturn(Optional.of(testItem));
+        ItemSingle otherUnit = new ItemSingle("AVAILABLE", testItem, "M");
+        otherUnit.setId(UUID.randomUUID());
+        stubFreeUnits(List.of(testItemSingle, otherUnit));
+        when(bookingRepository.saveAndFlush(any(Booking.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        // Estratégia que compara unidades (best-fit/least-booked) e escolhe a segunda
+        doReturn(true).when(unitAllocator).comparesUnits();
+        doReturn(otherUnit).when(unitAllocator).choose(eq(testItem.getItemId()), eq(List.of(testItemSingle, otherUnit)),
+            any(BookingWindow.class));
+
+        Booking result = bookingService.createBooking(bookingRequest, testUser);
+
+        assertSame(otherUnit, result.getItemSingle());
+        verify(itemSingleRepository).findFreeUnits(eq(bookingRequest.getItemId()), eq("M"), any(LocalDate.class),
+            any(LocalDate.class), any(LocalDate.class), any(LocalDate.class), eq(Limit.unlimited()));
     }
 
     @Test
@@ -142,7 +228,7 @@ class BookingServiceTest {
 
         assertEquals("Item não encontrado", exception.getMessage());
         verify(itemRepository, times(1)).findById(bookingRequest.getItemId());
-        verify(bookingRepository, never()).save(any(Booking.class));
+        verify(bookingRepository, never()).saveAndFlush(any(Booking.class));
     }
 
     @Test
@@ -156,17 +242,13 @@ class BookingServiceTest {
 
         assertEquals("Utilizador não autenticado", exception.getMessage());
         verify(itemRepository, times(1)).findById(bookingRequest.getItemId());
-        verify(bookingRepository, never()).save(any(Booking.class));
+        verify(bookingRepository, never()).saveAndFlush(any(Booking.class));
     }
 
     @Test
     void testCreateBooking_InvalidDates() {
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, 7);
-        Date startDate = cal.getTime();
-        
-        cal.add(Calendar.DAY_OF_MONTH, -10);
-        Date endDate = cal.getTime();
+        LocalDate startDate = LocalDate.now().plusDays(7);
+        LocalDate endDate = LocalDate.now().minusDays(3);
         
         bookingRequest.setStartUseDate(startDate);
         bookingRequest.setEndUseDate(endDate);
@@ -187,8 +269,7 @@ class BookingServiceTest {
             .thenReturn(Optional.of(testItem));
             
         // CORREÇÃO: Lista vazia significa nenhum ItemSingle disponível
-        when(itemSingleRepository.findByItem_ItemId(bookingRequest.getItemId()))
-            .thenReturn(new ArrayList<>());
+        stubFreeUnits(new ArrayList<>());
 
         RuntimeException exception = assertThrows(RuntimeException.class, () -> {
             bookingService.createBooking(bookingRequest, testUser);
@@ -211,8 +292,278 @@ class BookingServiceTest {
         }
         
         verify(itemRepository, times(1)).findById(bookingRequest.getItemId());
-        verify(itemSingleRepository, times(1)).findByItem_ItemId(bookingRequest.getItemId());
-        verify(bookingRepository, never()).save(any(Booking.class));
+        verify(itemSingleRepository, times(1)).findFreeUnits(eq(bookingRequest.getItemId()), eq("M"),
+            any(LocalDate.class), any(LocalDate.class), any(LocalDate.class), any(LocalDate.class), any(Limit.class));
+        verify(bookingRepository, never()).saveAndFlush(any(Booking.class));
+    }
+
+    @Test
+    void testCreateBooking_DatabaseRejectsOverlap_ReturnsNoUnitError() {
+        when(bookingExclusionConstraint.isInstalled()).thenReturn(true);
+        when(userRepository.findById(testUser.getUserId())).thenReturn(Optional.of(testUser));
+        when(itemRepository.findById(bookingRequest.getItemId())).thenReturn(Optional.of(testItem));
+        stubFreeUnits(List.of(testItemSingle));
+        when(bookingRepository.saveAndFlush(any(Booking.class)))
+            .thenThrow(new DataIntegrityViolationException("booking_item_single_no_overlap"));
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+            () -> bookingService.createBooking(bookingRequest, testUser));
+
+        assertEquals("Nenhuma unidade disponível para o tamanho M nas datas selecionadas", exception.getMessage());
+        verify(itemSingleRepository, never()).lockById(any(UUID.class));
+    }
+
+    @Test
+    void testCreateBooking_WithoutConstraint_LocksUnitAndRechecks() {
+        when(bookingExclusionConstraint.isInstalled()).thenReturn(false);
+        when(userRepository.findById(testUser.getUserId())).thenReturn(Optional.of(testUser));
+        when(itemRepository.findById(bookingRequest.getItemId())).thenReturn(Optional.of(testItem));
+        // Livre na pesquisa, mas reservada por outro nó antes de obtermos o lock da linha
+        stubFreeUnits(List.of(testItemSingle));
+        when(bookingRepository.countOverlappingBookingsForItemSingle(
+            any(UUID.class), any(LocalDate.class), any(LocalDate.class), any(LocalDate.class), any(LocalDate.class)))
+            .thenReturn(1L);
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+            () -> bookingService.createBooking(bookingRequest, testUser));
+
+        assertTrue(exception.getMessage().startsWith("Nenhuma unidade disponível"));
+        verify(itemSingleRepository, times(1)).lockById(itemSingleId);
+        verify(bookingRepository, never()).saveAndFlush(any(Booking.class));
+    }
+
+    @Test
+    void testCreateBooking_OptimisticMode_BumpsUnitVersionWithoutLocks() {
+        enableOptimisticMode();
+        testItemSingle.setVersion(3L);
+        when(userRepository.findById(testUser.getUserId())).thenReturn(Optional.of(testUser));
+        when(itemRepository.findById(bookingRequest.getItemId())).thenReturn(Optional.of(testItem));
+        stubFreeUnits(List.of(testItemSingle));
+        when(itemSingleRepository.incrementVersion(itemSingleId, 3L)).thenReturn(1);
+        when(bookingRepository.saveAndFlush(any(Booking.class)))
+            .thenAnswer(invocation -> invocation.getArgument(0));
+
+        Booking result = bookingService.createBooking(bookingRequest, testUser);
+
+        assertEquals(testItemSingle, result.getItemSingle());
+        verify(optimisticBookingRetry, times(1)).execute(any());
+        verify(bookingLockManager, never()).withItemLock(anyInt(), any());
+        verify(itemSingleRepository, never()).lockById(any(UUID.class));
+        verify(availabilityIndex, times(1)).bookingChanged(result);
+    }
+
+    @Test
+    void testCreateBooking_OptimisticMode_StaleVersionIsAConflict() {
+        enableOptimisticMode();
+        testItemSingle.setVersion(3L);
+        when(userRepository.findById(testUser.getUserId())).thenReturn(Optional.of(testUser));
+        when(itemRepository.findById(bookingRequest.getItemId())).thenReturn(Optional.of(testItem));
+        stubFreeUnits(List.of(testItemSingle));
+        // Outra reserva alocou a unidade depois de a termos lido
+        when(itemSingleRepository.incrementVersion(itemSingleId, 3L)).thenReturn(0);
+
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+            () -> bookingService.createBooking(bookingRequest, testUser));
+
+        verify(bookingRepository, never()).saveAndFlush(any(Booking.class));
+    }
+
+    @Test
+    void testCreateBooking_WithHold_UsesHeldUnitAndReleasesHold() {
+        BookingWindow window = bookingRequest.getWindow();
+        BookingHold hold = new BookingHold(testItemSingle, testUser.getUserId(), window.getPickupDate(),
+            window.getStartUseDate(), window.getEndUseDate(), window.getReturnDate(), new Date());
+        hold.setHoldId(UUID.randomUUID());
+        bookingRequest.setHoldId(hold.getHoldId());
+        when(userRepository.findById(testUser.getUserId())).thenReturn(Optional.of(testUser));
+        when(itemRepository.findById(bookingRequest.getItemId())).thenReturn(Optional.of(testItem));
+        when(bookingHoldService.findActive(hold.getHoldId(), testUser.getUserId())).thenReturn(Optional.of(hold));
+        when(itemSingleRepository.findById(itemSingleId)).thenReturn(Optional.of(testItemSingle));
+        when(bookingRepository.saveAndFlush(any(Booking.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Booking result = bookingService.createBooking(bookingRequest, testUser);
+
+        assertEquals(testItemSingle, result.getItemSingle());
+        verify(itemSingleRepository, never()).findFreeUnits(anyInt(), any(), any(LocalDate.class), any(LocalDate.class),
+            any(LocalDate.class), any(LocalDate.class), any(Limit.class));
+        verify(bookingHoldService).release(hold.getHoldId());
+    }
+
+    @Test
+    void testCreateBooking_SkipsUnitHeldByAnotherUser() throws Exception {
+        ItemSingle otherUnit = new ItemSingle("AVAILABLE", testItem, "M");
+        Field idField = ItemSingle.class.getDeclaredField("id");
+        idField.setAccessible(true);
+        idField.set(otherUnit, UUID.randomUUID());
+        when(userRepository.findById(testUser.getUserId())).thenReturn(Optional.of(testUser));
+        when(itemRepository.findById(bookingRequest.getItemId())).thenReturn(Optional.of(testItem));
+        when(bookingHoldService.heldUnitIds(eq(1), any(BookingWindow.class), eq(testUser.getUserId())))
+            .thenReturn(Set.of(itemSingleId));
+        stubFreeUnits(List.of(testItemSingle, otherUnit));
+        when(bookingRepository.saveAndFlush(any(Booking.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Booking result = bookingService.createBooking(bookingRequest, testUser);
+
+        assertEquals(otherUnit, result.getItemSingle());
+        verify(itemSingleRepository).findFreeUnits(eq(1), eq("M"), any(LocalDate.class), any(LocalDate.class),
+            any(LocalDate.class), any(LocalDate.class), eq(Limit.of(2)));
+        verify(bookingHoldService, never()).release(any());
+    }
+
+    @Test
+    void testCheckAvailability_IndexCountsHeldUnitsAsOccupied() {
+        when(availabilityIndex.covers(testItem.getItemId())).thenReturn(true);
+        when(bookingHoldService.countHeldBySize(eq(testItem.getItemId()), any(BookingWindow.class)))
+            .thenReturn(Map.of("M", 1L));
+        when(availabilityIndex.countFreeUnits(eq(testItem.getItemId()), eq("M"), any(LocalDate.class), any(LocalDate.class)))
+            .thenReturn(1);
+
+        assertFalse(bookingService.checkAvailabilityWithSize(
+            testItem.getItemId(), "M", bookingRequest.getStartUseDate(), bookingRequest.getEndUseDate()));
+    }
+
+    @Test
+    void testCreateBundle_BooksEveryLineFromOneQuery() throws Exception {
+        Item shoes = new Item();
+        shoes.setItemId(2);
+        shoes.setPriceRent(new BigDecimal("10.00"));
+        ItemSingle shoesUnit = unitWithId(shoes, "42");
+        ItemSingle secondSuit = unitWithId(testItem, "M");
+        when(userRepository.findById(testUser.getUserId())).thenReturn(Optional.of(testUser));
+        when(itemRepository.findAllById(any())).thenReturn(List.of(testItem, shoes));
+        when(itemSingleRepository.findFreeUnitsForItems(any(), any(LocalDate.class), any(LocalDate.class),
+            any(LocalDate.class), any(LocalDate.class)))
+            .thenReturn(List.of(testItemSingle, secondSuit, shoesUnit));
+        when(bookingRepository.saveAndFlush(any(Booking.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<Booking> bookings = bookingService.createBundle(bundle(
+            new BookingBundleRequestDTO.Line(1, "M"),
+            new BookingBundleRequestDTO.Line(2, "42"),
+            new BookingBundleRequestDTO.Line(1, "M")), testUser);
+
+        assertEquals(3, bookings.size());
+        assertEquals(testItemSingle, bookings.get(0).getItemSingle());
+        assertEquals(shoesUnit, bookings.get(1).getItemSingle());
+        assertEquals(secondSuit, bookings.get(2).getItemSingle());
+        assertEquals(new BigDecimal("30.00"), bookings.get(1).getTotalPrice());
+        verify(itemSingleRepository, times(1)).findFreeUnitsForItems(any(), any(LocalDate.class), any(LocalDate.class),
+            any(LocalDate.class), any(LocalDate.class));
+        verify(itemSingleRepository, never()).findFreeUnits(anyInt(), any(), any(LocalDate.class), any(LocalDate.class),
+            any(LocalDate.class), any(LocalDate.class), any(Limit.class));
+        verify(bookingLockManager).withItemLocks(eq(List.of(1, 2, 1)), any());
+    }
+
+    @Test
+    void testCreateBundle_MissingUnitFailsBeforeAnyInsert() {
+        Item shoes = new Item();
+        shoes.setItemId(2);
+        shoes.setName("Sapatos");
+        when(userRepository.findById(testUser.getUserId())).thenReturn(Optional.of(testUser));
+        when(itemRepository.findAllById(any())).thenReturn(List.of(testItem, shoes));
+        when(itemSingleRepository.findFreeUnitsForItems(any(), any(LocalDate.class), any(LocalDate.class),
+            any(LocalDate.class), any(LocalDate.class)))
+            .thenReturn(List.of(testItemSingle));
+
+        IllegalStateException error = assertThrows(IllegalStateException.class, () -> bookingService.createBundle(
+            bundle(new BookingBundleRequestDTO.Line(1, "M"), new BookingBundleRequestDTO.Line(2, "42")), testUser));
+
+        assertTrue(error.getMessage().contains("Sapatos"));
+        verify(bookingRepository, never()).saveAndFlush(any(Booking.class));
+    }
+
+    @Test
+    void testCreateBundle_UnknownItemOrEmptyBundle() {
+        when(userRepository.findById(testUser.getUserId())).thenReturn(Optional.of(testUser));
+        when(itemRepository.findAllById(any())).thenReturn(List.of(testItem));
+
+        assertThrows(IllegalArgumentException.class, () -> bookingService.createBundle(
+            bundle(new BookingBundleRequestDTO.Line(1, "M"), new BookingBundleRequestDTO.Line(99, "M")), testUser));
+        assertThrows(IllegalArgumentException.class, () -> bookingService.createBundle(bundle(), testUser));
+        verify(itemSingleRepository, never()).findFreeUnitsForItems(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testReserve_Success_RunsOneAllocationQueryAndNoSizeLookup() {
+        when(userRepository.findById(testUser.getUserId())).thenReturn(Optional.of(testUser));
+        when(itemRepository.findById(bookingRequest.getItemId())).thenReturn(Optional.of(testItem));
+        stubFreeUnits(List.of(testItemSingle));
+        when(bookingRepository.saveAndFlush(any(Booking.class)))
+            .thenAnswer(invocation -> invocation.getArgument(0));
+
+        BookingResult result = bookingService.reserve(bookingRequest, testUser);
+
+        assertTrue(result.isSuccess());
+        assertEquals(testItemSingle, result.getBooking().getItemSingle());
+        assertNull(result.getFailureReason());
+        verifyFreeUnitsQueried(bookingRequest.getItemId());
+        verify(bookingLockManager, times(1)).withItemLock(eq(1), any());
+        verify(itemSingleRepository, never()).findByItem_ItemId(anyInt());
+    }
+
+    @Test
+    void testReserve_NoUnit_ReturnsReasonAndSizeAvailability() {
+        when(userRepository.findById(testUser.getUserId())).thenReturn(Optional.of(testUser));
+        when(itemRepository.findById(bookingRequest.getItemId())).thenReturn(Optional.of(testItem));
+        stubFreeUnits(List.of());
+        ItemSingle unitL = new ItemSingle("AVAILABLE", testItem, "L");
+        ItemSingle broken = new ItemSingle("MAINTENANCE", testItem, "S");
+        when(itemSingleRepository.findByItem_ItemId(1)).thenReturn(List.of(testItemSingle, unitL, broken));
+
+        BookingResult result = bookingService.reserve(bookingRequest, testUser);
+
+        assertFalse(result.isSuccess());
+        assertEquals(BookingResult.FailureReason.NO_UNIT_AVAILABLE, result.getFailureReason());
+        assertEquals("Nenhuma unidade disponível para o tamanho M nas datas selecionadas", result.getMessage());
+        assertEquals(List.of("L", "M"), result.getAvailableSizes());
+        assertEquals(Map.of("M", 1, "L", 1), result.getSizeAvailability());
+        // Uma única leitura das unidades serve tamanhos e contagens
+        verify(itemSingleRepository, times(1)).findByItem_ItemId(1);
+        verify(bookingRepository, never()).saveAndFlush(any(Booking.class));
+    }
+
+    @Test
+    void testReserve_DatabaseRejectsOverlap_ReadsSizesAfterTheRollback() {
+        when(bookingExclusionConstraint.isInstalled()).thenReturn(true);
+        when(userRepository.findById(testUser.getUserId())).thenReturn(Optional.of(testUser));
+        when(itemRepository.findById(bookingRequest.getItemId())).thenReturn(Optional.of(testItem));
+        stubFreeUnits(List.of(testItemSingle));
+        when(bookingRepository.saveAndFlush(any(Booking.class)))
+            .thenThrow(new DataIntegrityViolationException("booking_item_single_no_overlap"));
+        when(itemSingleRepository.findByItem_ItemId(1)).thenReturn(List.of(testItemSingle));
+
+        BookingResult result = bookingService.reserve(bookingRequest, testUser);
+
+        assertEquals(BookingResult.FailureReason.NO_UNIT_AVAILABLE, result.getFailureReason());
+        assertEquals(List.of("M"), result.getAvailableSizes());
+        // A transação abortada é desfeita antes de uma nova, só de leitura, ler os tamanhos
+        InOrder order = inOrder(transactionManager, itemSingleRepository);
+        order.verify(transactionManager).rollback(any());
+        order.verify(transactionManager).getTransaction(argThat(TransactionDefinition::isReadOnly));
+        order.verify(itemSingleRepository).findByItem_ItemId(1);
+    }
+
+    @Test
+    void testReserve_ItemNotFound() {
+        when(itemRepository.findById(bookingRequest.getItemId())).thenReturn(Optional.empty());
+
+        BookingResult result = bookingService.reserve(bookingRequest, testUser);
+
+        assertEquals(BookingResult.FailureReason.ITEM_NOT_FOUND, result.getFailureReason());
+        verify(itemSingleRepository, never()).findByItem_ItemId(anyInt());
+    }
+
+    @Test
+    void testReserve_InvalidDatesAndMissingUser_SkipAllocation() {
+        bookingRequest.setEndUseDate(bookingRequest.getStartUseDate().minusDays(3));
+
+        assertEquals(BookingResult.FailureReason.INVALID_DATES,
+            bookingService.reserve(bookingRequest, testUser).getFailureReason());
+
+        bookingRequest.setEndUseDate(testBooking.getEndUseDate());
+        assertEquals(BookingResult.FailureReason.NOT_AUTHENTICATED,
+            bookingService.reserve(bookingRequest, null).getFailureReason());
+
+        verify(bookingLockManager, never()).withItemLock(anyInt(), any());
     }
 
     @Test
@@ -253,19 +604,54 @@ class BookingServiceTest {
         verify(bookingRepository, times(1)).findByUserOrderByCreatedAtDesc(testUser);
     }
 
+    @Test
+    void testGetUserBookingsPage_FilterMapsToPersistedStates() {
+        when(bookingRepository.findUserBookingsPageByStates(eq(testUser), anyCollection(), any(), any(), any(), any(Limit.class)))
+            .thenReturn(List.of(testBooking));
+
+        BookingPageDTO active = bookingService.getUserBookingsPage(testUser, "active", "CaMiSa", null, null);
+        bookingService.getUserBookingsPage(testUser, "past", "", null, null);
+
+        assertEquals(List.of(testBooking), active.getBookings());
+        assertFalse(active.isHasNext());
+        assertNull(active.getNextId());
+        verify(bookingRepository).findUserBookingsPageByStates(testUser, List.of("CONFIRMED", "ACTIVE"), "camisa",
+            null, null, Limit.of(BookingService.MY_BOOKINGS_PAGE_SIZE + 1));
+        verify(bookingRepository).findUserBookingsPageByStates(testUser, List.of("COMPLETED", "OVERDUE"), null,
+            null, null, Limit.of(BookingService.MY_BOOKINGS_PAGE_SIZE + 1));
+        verify(bookingRepository, never()).findUserBookingsPage(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testGetUserBookingsPage_ExtraRowMeansNextPage() {
+        List<Booking> rows = new ArrayList<>();
+        for (int i = 0; i <= BookingService.MY_BOOKINGS_PAGE_SIZE; i++) {
+            Booking booking = new Booking();
+            booking.setBookingId(UUID.randomUUID());
+            booking.setStartUseDate(LocalDate.now().plusDays(30L - i));
+            rows.add(booking);
+        }
+        LocalDate afterStart = LocalDate.now().plusDays(40);
+        UUID afterId = UUID.randomUUID();
+        when(bookingRepository.findUserBookingsPage(eq(testUser), isNull(), eq(afterStart), eq(afterId), any(Limit.class)))
+            .thenReturn(rows);
+
+        BookingPageDTO page = bookingService.getUserBookingsPage(testUser, "something", null, afterStart, afterId);
+
+        Booking last = rows.get(BookingService.MY_BOOKINGS_PAGE_SIZE - 1);
+        assertEquals(BookingService.MY_BOOKINGS_PAGE_SIZE, page.getBookings().size());
+        assertTrue(page.isHasNext());
+        assertEquals(last.getStartUseDate(), page.getNextStart());
+        assertEquals(last.getBookingId(), page.getNextId());
+        verify(bookingRepository, never()).findUserBookingsPageByStates(any(), anyCollection(), any(), any(), any(), any());
+        assertThrows(IllegalArgumentException.class,
+            () -> bookingService.getUserBookingsPage(null, null, null, null, null));
+    }
+
     @Test
     void testCheckAvailability_Available() {
-        // Mock para ItemSingleRepository - retornar ItemSingle disponível
-        List<ItemSingle> itemSingles = new ArrayList<>();
-        itemSingles.add(testItemSingle);
-        
-        when(itemSingleRepository.findByItem_ItemId(testItem.getItemId()))
-            .thenReturn(itemSingles);
-            
-        // Override the common stub for this test
-        when(bookingRepository.countOverlappingBookingsForItemSingle(
-            eq(itemSingleId), any(Date.class), any(Date.class), any(Date.class), any(Date.class)))
-            .thenReturn(0L);
+        // Mock para ItemSingleRepository - a query devolve um ItemSingle livre
+        stubFreeUnits(List.of(testItemSingle));
 
         boolean result = bookingService.checkAvailability(
             testItem.getItemId(), 
@@ -274,22 +660,27 @@ class BookingServiceTest {
         );
 
         assertTrue(result);
-        verify(itemSingleRepository, times(1)).findByItem_ItemId(testItem.getItemId());
+        verifyFreeUnitsQueried(testItem.getItemId());
     }
 
     @Test
-    void testCheckAvailability_NotAvailable() {
-        // Mock para ItemSingleRepository - retornar ItemSingle disponível
-        List<ItemSingle> itemSingles = new ArrayList<>();
-        itemSingles.add(testItemSingle);
-        
-        when(itemSingleRepository.findByItem_ItemId(testItem.getItemId()))
-            .thenReturn(itemSingles);
+    void testCheckAvailability_UsesIndexWhenItCoversItem() {
+        when(availabilityIndex.covers(testItem.getItemId())).thenReturn(true);
+        when(availabilityIndex.hasFreeUnit(eq(testItem.getItemId()), eq("M"), any(LocalDate.class), any(LocalDate.class)))
+            .thenReturn(true);
 
-        // Override the common stub for this test
-        when(bookingRepository.countOverlappingBookingsForItemSingle(
-            eq(itemSingleId), any(Date.class), any(Date.class), any(Date.class), any(Date.class)))
-            .thenReturn(1L);
+        boolean result = bookingService.checkAvailabilityWithSize(
+            testItem.getItemId(), "M", bookingRequest.getStartUseDate(), bookingRequest.getEndUseDate());
+
+        assertTrue(result);
+        verify(itemSingleRepository, never()).findFreeUnits(anyInt(), any(), any(LocalDate.class), any(LocalDate.class),
+            any(LocalDate.class), any(LocalDate.class), any(Limit.class));
+    }
+
+    @Test
+    void testCheckAvailability_NotAvailable() {
+        // A única unidade tem reservas sobrepostas: a query não devolve nada
+        stubFreeUnits(List.of());
 
         boolean result = bookingService.checkAvailability(
             testItem.getItemId(), 
@@ -298,12 +689,12 @@ class BookingServiceTest {
         );
 
         assertFalse(result);
-        verify(itemSingleRepository, times(1)).findByItem_ItemId(testItem.getItemId());
+        verifyFreeUnitsQueried(testItem.getItemId());
     }
 
     @Test
     void testGetBookingById_Success() {
-        when(bookingRepository.findById(testBooking.getBookingId()))
+        when(bookingRepository.findWithDetailsByBookingId(testBooking.getBookingId()))
             .thenReturn(Optional.of(testBooking));
 
         Booking result = bookingService.getBookingById(testBooking.getBookingId());
@@ -312,19 +703,19 @@ class BookingServiceTest {
         assertEquals(testBooking.getBookingId(), result.getBookingId());
         assertEquals(testUser, result.getUser());
         assertEquals(testItem, result.getItem());
-        verify(bookingRepository, times(1)).findById(testBooking.getBookingId());
+        verify(bookingRepository, times(1)).findWithDetailsByBookingId(testBooking.getBookingId());
     }
 
     @Test
     void testGetBookingById_NotFound() {
         UUID nonExistentId = UUID.randomUUID();
-        when(bookingRepository.findById(nonExistentId))
+        when(bookingRepository.findWithDetailsByBookingId(nonExistentId))
             .thenReturn(Optional.empty());
 
         Booking result = bookingService.getBookingById(nonExistentId);
 
         assertNull(result);
-        verify(bookingRepository, times(1)).findById(nonExistentId);
+        verify(bookingRepository, times(1)).findWithDetailsByBookingId(nonExistentId);
     }
 
     @Test
@@ -332,22 +723,13 @@ class BookingServiceTest {
         LocalDate startDate = LocalDate.now().plusDays(7);
         LocalDate endDate = LocalDate.now().plusDays(10);
         
-        // Mock para ItemSingleRepository - retornar ItemSingle disponível
-        List<ItemSingle> itemSingles = new ArrayList<>();
-        itemSingles.add(testItemSingle);
-        
-        when(itemSingleRepository.findByItem_ItemId(testItem.getItemId()))
-            .thenReturn(itemSingles);
-            
-        // Override the common stub for this test
-        when(bookingRepository.countOverlappingBookingsForItemSingle(
-            eq(itemSingleId), any(Date.class), any(Date.class), any(Date.class), any(Date.class)))
-            .thenReturn(0L);
+        // Mock para ItemSingleRepository - a query devolve um ItemSingle livre
+        stubFreeUnits(List.of(testItemSingle));
 
         boolean result = bookingService.isItemAvailable(testItem.getItemId(), startDate, endDate);
 
         assertTrue(result);
-        verify(itemSingleRepository, times(1)).findByItem_ItemId(testItem.getItemId());
+        verifyFreeUnitsQueried(testItem.getItemId());
     }
 
     @Test
@@ -356,13 +738,12 @@ class BookingServiceTest {
         LocalDate endDate = LocalDate.now().plusDays(10);
         
         // Mock para ItemSingleRepository - lista vazia
-        when(itemSingleRepository.findByItem_ItemId(testItem.getItemId()))
-            .thenReturn(new ArrayList<>());
+        stubFreeUnits(new ArrayList<>());
 
         boolean result = bookingService.isItemAvailable(testItem.getItemId(), startDate, endDate);
 
         assertFalse(result);
-        verify(itemSingleRepository, times(1)).findByItem_ItemId(testItem.getItemId());
+        verifyFreeUnitsQueried(testItem.getItemId());
     }
 
     @Test
@@ -374,7 +755,7 @@ class BookingServiceTest {
         conflictingBookings.add(testBooking);
         
         when(bookingRepository.findOverlappingBookings(
-            anyInt(), any(Date.class), any(Date.class), any(Date.class), any(Date.class)))
+            anyInt(), any(LocalDate.class), any(LocalDate.class), any(LocalDate.class), any(LocalDate.class)))
             .thenReturn(conflictingBookings);
 
         List<Booking> result = bookingService.getConflictingBookings(
@@ -391,7 +772,7 @@ class BookingServiceTest {
         LocalDate endDate = LocalDate.now().plusDays(10);
         
         when(bookingRepository.findOverlappingBookings(
-            anyInt(), any(Date.class), any(Date.class), any(Date.class), any(Date.class)))
+            anyInt(), any(LocalDate.class), any(LocalDate.class), any(LocalDate.class), any(LocalDate.class)))
             .thenReturn(new ArrayList<>());
 
         List<Booking> result = bookingService.getConflictingBookings(
@@ -412,6 +793,7 @@ class BookingServiceTest {
         bookingService.saveBooking(booking);
 
         verify(bookingRepository, times(1)).save(booking);
+        verify(availabilityIndex, times(1)).bookingChanged(booking);
     }
     
     @Test
@@ -421,22 +803,13 @@ class BookingServiceTest {
         LocalDate end = LocalDate.now().plusDays(10);
         
         // Mock para ItemSingleRepository
-        List<ItemSingle> itemSingles = new ArrayList<>();
-        itemSingles.add(testItemSingle);
-        
-        when(itemSingleRepository.findByItem_ItemId(itemId))
-            .thenReturn(itemSingles);
-        
-        // Override the common stub for this test
-        when(bookingRepository.countOverlappingBookingsForItemSingle(
-            eq(itemSingleId), any(Date.class), any(Date.class), any(Date.class), any(Date.class)))
-            .thenReturn(0L);
+        stubFreeUnits(List.of(testItemSingle));
         
         // Chamar o método
         boolean result = bookingService.checkItemAvailability(itemId, start, end);
         
         // Verificar que o método necessário foi chamado
-        verify(itemSingleRepository, times(1)).findByItem_ItemId(itemId);
+        verifyFreeUnitsQueried(itemId);
         assertTrue(result);
     }
 
@@ -444,8 +817,8 @@ class BookingServiceTest {
     void testGetCurrentBookingState_Cancelled() {
         Booking booking = new Booking();
         booking.setState("CANCELLED");
-        booking.setStartUseDate(new Date());
-        booking.setEndUseDate(new Date());
+        booking.setStartUseDate(LocalDate.now());
+        booking.setEndUseDate(LocalDate.now());
         
         String state = bookingService.getCurrentBookingState(booking);
         
@@ -456,8 +829,8 @@ class BookingServiceTest {
     void testGetCurrentBookingState_Completed() {
         Booking booking = new Booking();
         booking.setState("COMPLETED");
-        booking.setStartUseDate(new Date());
-        booking.setEndUseDate(new Date());
+        booking.setStartUseDate(LocalDate.now());
+        booking.setEndUseDate(LocalDate.now());
         
         String state = bookingService.getCurrentBookingState(booking);
         
@@ -469,12 +842,9 @@ class BookingServiceTest {
         Booking booking = new Booking();
         booking.setState(null);
         
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, 7);
-        booking.setStartUseDate(cal.getTime());
+        booking.setStartUseDate(LocalDate.now().plusDays(7));
         
-        cal.add(Calendar.DAY_OF_MONTH, 3);
-        booking.setEndUseDate(cal.getTime());
+        booking.setEndUseDate(LocalDate.now().plusDays(10));
         
         String state = bookingService.getCurrentBookingState(booking);
         
@@ -486,12 +856,9 @@ class BookingServiceTest {
         Booking booking = new Booking();
         booking.setState(null);
         
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, -1);
-        booking.setStartUseDate(cal.getTime());
+        booking.setStartUseDate(LocalDate.now().minusDays(1));
         
-        cal.add(Calendar.DAY_OF_MONTH, 5);
-        booking.setEndUseDate(cal.getTime());
+        booking.setEndUseDate(LocalDate.now().plusDays(4));
         
         String state = bookingService.getCurrentBookingState(booking);
         
@@ -503,15 +870,11 @@ class BookingServiceTest {
         Booking booking = new Booking();
         booking.setState(null);
         
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, -10);
-        booking.setStartUseDate(cal.getTime());
+        booking.setStartUseDate(LocalDate.now().minusDays(10));
         
-        cal.add(Calendar.DAY_OF_MONTH, 3);
-        booking.setEndUseDate(cal.getTime());
+        booking.setEndUseDate(LocalDate.now().minusDays(7));
         
-        cal.add(Calendar.DAY_OF_MONTH, 1);
-        Date returnDate = cal.getTime();
+        LocalDate returnDate = LocalDate.now().minusDays(6);
         booking.setReturnDate(returnDate);
         
         String state = bookingService.getCurrentBookingState(booking);
@@ -524,15 +887,11 @@ class BookingServiceTest {
         Booking booking = new Booking();
         booking.setState(null);
         
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, -10);
-        booking.setStartUseDate(cal.getTime());
+        booking.setStartUseDate(LocalDate.now().minusDays(10));
         
-        cal.add(Calendar.DAY_OF_MONTH, 3);
-        booking.setEndUseDate(cal.getTime());
+        booking.setEndUseDate(LocalDate.now().minusDays(7));
         
-        cal.add(Calendar.DAY_OF_MONTH, 10);
-        Date returnDate = cal.getTime();
+        LocalDate returnDate = LocalDate.now().plusDays(3);
         booking.setReturnDate(returnDate);
         
         String state = bookingService.getCurrentBookingState(booking);
@@ -545,15 +904,11 @@ class BookingServiceTest {
         Booking booking = new Booking();
         booking.setState("RETURNED");
         
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, -20);
-        booking.setStartUseDate(cal.getTime());
+        booking.setStartUseDate(LocalDate.now().minusDays(20));
         
-        cal.add(Calendar.DAY_OF_MONTH, 10);
-        booking.setEndUseDate(cal.getTime());
+        booking.setEndUseDate(LocalDate.now().minusDays(10));
         
-        cal.add(Calendar.DAY_OF_MONTH, 1);
-        Date returnDate = cal.getTime();
+        LocalDate returnDate = LocalDate.now().minusDays(9);
         booking.setReturnDate(returnDate);
         
         String state = bookingService.getCurrentBookingState(booking);
@@ -581,9 +936,7 @@ class BookingServiceTest {
     @Test
     void testGetRefundInfo_100Percent() {
         testBooking.setTotalPrice(new BigDecimal("200.00"));
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, 40); // far in the future
-        testBooking.setStartUseDate(cal.getTime());
+        testBooking.setStartUseDate(LocalDate.now().plusDays(40));
 
         com.magiclook.dto.RefundInfoDTO info = bookingService.getRefundInfo(testBooking);
         assertEquals(100, info.getPercent());
@@ -593,9 +946,7 @@ class BookingServiceTest {
     @Test
     void testGetRefundInfo_50Percent() {
         testBooking.setTotalPrice(new BigDecimal("200.00"));
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, 20);
-        testBooking.setStartUseDate(cal.getTime());
+        testBooking.setStartUseDate(LocalDate.now().plusDays(20));
 
         com.magiclook.dto.RefundInfoDTO info = bookingService.getRefundInfo(testBooking);
         assertEquals(50, info.getPercent());
@@ -605,9 +956,7 @@ class BookingServiceTest {
     @Test
     void testGetRefundInfo_25Percent() {
         testBooking.setTotalPrice(new BigDecimal("80.00"));
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, 10);
-        testBooking.setStartUseDate(cal.getTime());
+        testBooking.setStartUseDate(LocalDate.now().plusDays(10));
 
         com.magiclook.dto.RefundInfoDTO info = bookingService.getRefundInfo(testBooking);
         assertEquals(25, info.getPercent());
@@ -617,9 +966,7 @@ class BookingServiceTest {
     @Test
     void testGetRefundInfo_0Percent_Within48h() {
         testBooking.setTotalPrice(new BigDecimal("80.00"));
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.HOUR, 24); // less than 48 hours
-        testBooking.setStartUseDate(cal.getTime());
+        testBooking.setStartUseDate(LocalDate.now().plusDays(1)); // less than 48 hours
 
         com.magiclook.dto.RefundInfoDTO info = bookingService.getRefundInfo(testBooking);
         assertEquals(0, info.getPercent());
@@ -629,9 +976,7 @@ class BookingServiceTest {
     @Test
     void testCancelBooking_ChangesStateAndReturnsRefund() {
         testBooking.setTotalPrice(new BigDecimal("100.00"));
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, 20);
-        testBooking.setStartUseDate(cal.getTime());
+        testBooking.setStartUseDate(LocalDate.now().plusDays(20));
         testBooking.setState("CONFIRMED");
 
         when(bookingRepository.save(any(Booking.class))).thenAnswer(invocation -> invocation.getArgument(0));
@@ -642,6 +987,21 @@ class BookingServiceTest {
         assertEquals(50, info.getPercent());
         assertEquals(new BigDecimal("50.00"), info.getAmount());
         verify(bookingRepository, times(1)).save(testBooking);
+        verify(availabilityIndex, times(1)).bookingChanged(testBooking);
+        // A unidade libertada vai para a lista de espera do item
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof BookingCancelledEvent cancelled
+            && cancelled.getItemId().equals(testItem.getItemId())
+            && cancelled.getBookingId().equals(testBooking.getBookingId())));
+    }
+
+    @Test
+    void testCancelBooking_AlreadyCancelled_NoEvent() {
+        testBooking.setState("CANCELLED");
+
+        bookingService.cancelBooking(testBooking);
+
+        verify(bookingRepository, never()).save(any(Booking.class));
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
     }
 
     @Test
@@ -652,15 +1012,10 @@ class BookingServiceTest {
         when(itemRepository.findById(anyInt()))
             .thenReturn(Optional.of(testItem));
         
-        // Mock para isItemAvailable
-        when(itemSingleRepository.findByItem_ItemId(anyInt()))
-            .thenReturn(List.of(testItemSingle));
-        
-        when(bookingRepository.countOverlappingBookingsForItemSingle(
-            any(UUID.class), any(Date.class), any(Date.class), any(Date.class), any(Date.class)))
-            .thenReturn(0L);
+        // Mock para isItemAvailable e para a alocação
+        stubFreeUnits(List.of(testItemSingle));
         
-        when(bookingRepository.save(any(Booking.class)))
+        when(bookingRepository.saveAndFlush(any(Booking.class)))
             .thenAnswer(invocation -> invocation.getArgument(0));
         
         Booking result = bookingService.createSimpleBooking(
@@ -674,7 +1029,7 @@ class BookingServiceTest {
         assertTrue(result.getTotalPrice().compareTo(BigDecimal.ZERO) > 0);
         
         verify(itemRepository, times(1)).findById(testItem.getItemId());
-        verify(bookingRepository, times(1)).save(any(Booking.class));
+        verify(bookingRepository, times(1)).saveAndFlush(any(Booking.class));
     }
 
     @Test
@@ -693,7 +1048,7 @@ class BookingServiceTest {
         
         assertEquals("Item não encontrado", exception.getMessage());
         verify(itemRepository, times(1)).findById(1);
-        verify(bookingRepository, never()).save(any(Booking.class));
+        verify(bookingRepository, never()).saveAndFlush(any(Booking.class));
     }
 
     @Test
@@ -704,13 +1059,8 @@ class BookingServiceTest {
         when(itemRepository.findById(anyInt()))
             .thenReturn(Optional.of(testItem));
         
-        // Mock para isItemAvailable retornar false
-        when(itemSingleRepository.findByItem_ItemId(anyInt()))
-            .thenReturn(List.of(testItemSingle));
-        
-        when(bookingRepository.countOverlappingBookingsForItemSingle(
-            any(UUID.class), any(Date.class), any(Date.class), any(Date.class), any(Date.class)))
-            .thenReturn(1L); // Indica que há sobreposição, não disponível
+        // Mock para isItemAvailable retornar false (todas as unidades com sobreposição)
+        stubFreeUnits(List.of());
         
         // Extrair a chamada para uma variável antes de usar no assertThrows
         org.junit.jupiter.api.function.Executable call = () -> 
@@ -720,7 +1070,7 @@ class BookingServiceTest {
         
         assertEquals("Item não disponível nas datas selecionadas", exception.getMessage());
         verify(itemRepository, times(1)).findById(testItem.getItemId());
-        verify(bookingRepository, never()).save(any(Booking.class));
+        verify(bookingRepository, never()).saveAndFlush(any(Booking.class));
     }
 
     @Test
@@ -732,13 +1082,10 @@ class BookingServiceTest {
             .thenReturn(Optional.of(testItem));
         
         // Mock para isItemAvailable retornar true (apenas para passar a primeira verificação)
-        when(itemSingleRepository.findByItem_ItemId(anyInt()))
-            .thenReturn(List.of(testItemSingle));
-        
-        when(bookingRepository.countOverlappingBookingsForItemSingle(
-            any(UUID.class), any(Date.class), any(Date.class), any(Date.class), any(Date.class)))
-            .thenReturn(0L) // Para isItemAvailable
-            .thenReturn(1L); // Para findAvailableItemSingleForDates
+        when(itemSingleRepository.findFreeUnits(anyInt(), any(), any(LocalDate.class), any(LocalDate.class),
+            any(LocalDate.class), any(LocalDate.class), any(Limit.class)))
+            .thenReturn(List.of(testItemSingle)) // Para isItemAvailable
+            .thenReturn(List.of()); // Para findAvailableItemSingleForDates
         
         // Extrair a chamada para uma variável antes de usar no assertThrows
         org.junit.jupiter.api.function.Executable call = () -> 
@@ -748,7 +1095,7 @@ class BookingServiceTest {
         
         assertEquals("Nenhuma unidade disponível para as datas selecionadas", exception.getMessage());
         verify(itemRepository, times(1)).findById(testItem.getItemId());
-        verify(bookingRepository, never()).save(any(Booking.class));
+        verify(bookingRepository, never()).saveAndFlush(any(Booking.class));
     }
 
     @Test
@@ -860,53 +1207,14 @@ class BookingServiceTest {
     @Test
     void testGetSizeAvailabilityForDates_Success() {
         // Configurar datas
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, 7);
-        Date startUseDate = cal.getTime();
-        
-        cal.add(Calendar.DAY_OF_MONTH, 3);
-        Date endUseDate = cal.getTime();
-        
-        // Criar ItemSingles
-        ItemSingle itemSingleM1 = new ItemSingle("AVAILABLE", testItem, "M");
-        ItemSingle itemSingleM2 = new ItemSingle("AVAILABLE", testItem, "M");
-        ItemSingle itemSingleL = new ItemSingle("AVAILABLE", testItem, "L");
-        ItemSingle itemSingleS = new ItemSingle("AVAILABLE", testItem, "S");
-        ItemSingle itemSingleUnavailable = new ItemSingle("MAINTENANCE", testItem, "XL");
-        // Atribuir IDs únicos para garantir stubs por id funcionem corretamente
-        try {
-            java.lang.reflect.Field idField = ItemSingle.class.getDeclaredField("id");
-            idField.setAccessible(true);
-            idField.set(itemSingleM1, UUID.randomUUID());
-            idField.set(itemSingleM2, UUID.randomUUID());
-            idField.set(itemSingleL, UUID.randomUUID());
-            idField.set(itemSingleS, UUID.randomUUID());
-            idField.set(itemSingleUnavailable, UUID.randomUUID());
-        } catch (ReflectiveOperationException e) {
-            throw new RuntimeException(e);
-        }
-        
-        List<ItemSingle> itemSingles = List.of(
-            itemSingleM1, itemSingleM2, itemSingleL, 
-            itemSingleS, itemSingleUnavailable
-        );
-        
-        when(itemSingleRepository.findByItem_ItemId(testItem.getItemId()))
-            .thenReturn(itemSingles);
+        LocalDate startUseDate = LocalDate.now().plusDays(7);
+        LocalDate endUseDate = LocalDate.now().plusDays(10);
         
-        // Mock para countOverlappingBookingsForItemSingle
-        when(bookingRepository.countOverlappingBookingsForItemSingle(
-            eq(itemSingleM1.getId()), any(Date.class), any(Date.class), any(Date.class), any(Date.class)))
-            .thenReturn(0L);
-        when(bookingRepository.countOverlappingBookingsForItemSingle(
-            eq(itemSingleM2.getId()), any(Date.class), any(Date.class), any(Date.class), any(Date.class)))
-            .thenReturn(1L);
-        when(bookingRepository.countOverlappingBookingsForItemSingle(
-            eq(itemSingleL.getId()), any(Date.class), any(Date.class), any(Date.class), any(Date.class)))
-            .thenReturn(0L);
-        when(bookingRepository.countOverlappingBookingsForItemSingle(
-            eq(itemSingleS.getId()), any(Date.class), any(Date.class), any(Date.class), any(Date.class)))
-            .thenReturn(0L);
+        // A query agrupa as unidades livres por tamanho (M2 reservado e XL em manutenção já ficam de fora)
+        stubFreeUnitsBySize(List.of(
+            new SizeAvailabilityDTO("L", 1),
+            new SizeAvailabilityDTO("M", 1),
+            new SizeAvailabilityDTO("S", 1)));
         
         Map<String, Integer> availability = bookingService.getSizeAvailabilityForDates(
             testItem.getItemId(), startUseDate, endUseDate);
@@ -920,66 +1228,38 @@ class BookingServiceTest {
         assertEquals(1, availability.get("S"));
         assertFalse(availability.containsKey("XL"));
         
-        verify(itemSingleRepository, times(1)).findByItem_ItemId(testItem.getItemId());
+        // Uma única query, independente do número de unidades em stock
+        verify(itemSingleRepository, times(1)).countFreeUnitsBySize(eq(testItem.getItemId()),
+            any(LocalDate.class), any(LocalDate.class), any(LocalDate.class), any(LocalDate.class));
+        verify(itemSingleRepository, never()).findByItem_ItemId(anyInt());
+        verify(bookingRepository, never()).countOverlappingBookingsForItemSingle(
+            any(UUID.class), any(LocalDate.class), any(LocalDate.class), any(LocalDate.class), any(LocalDate.class));
     }
 
     @Test
     void testGetSizeAvailabilityForDates_AllUnavailable() {
         // Configurar datas
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, 7);
-        Date startUseDate = cal.getTime();
-        
-        cal.add(Calendar.DAY_OF_MONTH, 3);
-        Date endUseDate = cal.getTime();
-        
-        // Criar ItemSingles todos com sobreposição
-        ItemSingle itemSingleM = new ItemSingle("AVAILABLE", testItem, "M");
-        ItemSingle itemSingleL = new ItemSingle("AVAILABLE", testItem, "L");
-        // Atribuir IDs únicos
-        try {
-            java.lang.reflect.Field idField2 = ItemSingle.class.getDeclaredField("id");
-            idField2.setAccessible(true);
-            idField2.set(itemSingleM, UUID.randomUUID());
-            idField2.set(itemSingleL, UUID.randomUUID());
-        } catch (ReflectiveOperationException e) {
-            throw new RuntimeException(e);
-        }
+        LocalDate startUseDate = LocalDate.now().plusDays(7);
+        LocalDate endUseDate = LocalDate.now().plusDays(10);
         
-        List<ItemSingle> itemSingles = List.of(itemSingleM, itemSingleL);
-        
-        when(itemSingleRepository.findByItem_ItemId(testItem.getItemId()))
-            .thenReturn(itemSingles);
-        
-        // Todos têm sobreposição
-        when(bookingRepository.countOverlappingBookingsForItemSingle(
-            eq(itemSingleM.getId()), any(Date.class), any(Date.class), any(Date.class), any(Date.class)))
-            .thenReturn(1L);
-        when(bookingRepository.countOverlappingBookingsForItemSingle(
-            eq(itemSingleL.getId()), any(Date.class), any(Date.class), any(Date.class), any(Date.class)))
-            .thenReturn(1L);
+        // Todos têm sobreposição, logo nenhum tamanho tem unidades livres
+        stubFreeUnitsBySize(List.of());
         
         Map<String, Integer> availability = bookingService.getSizeAvailabilityForDates(
             testItem.getItemId(), startUseDate, endUseDate);
         
         assertNotNull(availability);
         assertTrue(availability.isEmpty()); // Nenhum disponível
-        
-        verify(itemSingleRepository, times(1)).findByItem_ItemId(testItem.getItemId());
     }
 
     @Test
     void testGetSizeAvailabilityForDates_EmptyList() {
         // Configurar datas
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, 7);
-        Date startUseDate = cal.getTime();
+        LocalDate startUseDate = LocalDate.now().plusDays(7);
+        LocalDate endUseDate = LocalDate.now().plusDays(10);
         
-        cal.add(Calendar.DAY_OF_MONTH, 3);
-        Date endUseDate = cal.getTime();
-        
-        when(itemSingleRepository.findByItem_ItemId(testItem.getItemId()))
-            .thenReturn(List.of());
+        // Item sem unidades em stock
+        stubFreeUnitsBySize(List.of());
         
         Map<String, Integer> availability = bookingService.getSizeAvailabilityForDates(
             testItem.getItemId(), startUseDate, endUseDate);
@@ -987,36 +1267,161 @@ class BookingServiceTest {
         assertNotNull(availability);
         assertTrue(availability.isEmpty());
         
-        verify(itemSingleRepository, times(1)).findByItem_ItemId(testItem.getItemId());
+        verify(itemSingleRepository, times(1)).countFreeUnitsBySize(eq(testItem.getItemId()),
+            any(LocalDate.class), any(LocalDate.class), any(LocalDate.class), any(LocalDate.class));
     }
 
     @Test
-    void testGetSizeAvailabilityForDates_NullSizeHandling() {
+    void testGetSizeAvailabilityForDates_LargeStock() {
         // Configurar datas
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, 7);
-        Date startUseDate = cal.getTime();
+        LocalDate startUseDate = LocalDate.now().plusDays(7);
+        LocalDate endUseDate = LocalDate.now().plusDays(10);
         
-        cal.add(Calendar.DAY_OF_MONTH, 3);
-        Date endUseDate = cal.getTime();
+        stubFreeUnitsBySize(List.of(new SizeAvailabilityDTO("M", 45)));
         
-        // Criar ItemSingle com tamanho null
-        ItemSingle itemSingleNull = new ItemSingle("AVAILABLE", testItem, null);
+        Map<String, Integer> availability = bookingService.getSizeAvailabilityForDates(
+            testItem.getItemId(), startUseDate, endUseDate);
         
-        when(itemSingleRepository.findByItem_ItemId(testItem.getItemId()))
-            .thenReturn(List.of(itemSingleNull));
+        assertEquals(45, availability.get("M"));
+    }
+
+    @Test
+    void testGetSizeAvailabilityForDates_NullSizeHandling() {
+        // Configurar datas
+        LocalDate startUseDate = LocalDate.now().plusDays(7);
+        LocalDate endUseDate = LocalDate.now().plusDays(10);
         
-        when(bookingRepository.countOverlappingBookingsForItemSingle(
-            any(UUID.class), any(Date.class), any(Date.class), any(Date.class), any(Date.class)))
-            .thenReturn(0L);
+        // A query já devolve o tamanho null como "Único" (COALESCE)
+        stubFreeUnitsBySize(List.of(new SizeAvailabilityDTO("Único", 1)));
         
         Map<String, Integer> availability = bookingService.getSizeAvailabilityForDates(
             testItem.getItemId(), startUseDate, endUseDate);
         
         assertNotNull(availability);
         assertEquals(1, availability.size());
-        assertEquals(1, availability.get("Único")); // Tamanho null deve ser mapeado para "Único"
+        assertEquals(1, availability.get("Único"));
+    }
+
+    @Test
+    void testGetFreeUnitsBySize_UsesPickupAndReturnDays() {
+        LocalDate startUseDate = LocalDate.now().plusDays(7);
+        LocalDate expectedPickup = LocalDate.now().plusDays(6);
+        LocalDate endUseDate = LocalDate.now().plusDays(10);
+        LocalDate expectedReturn = LocalDate.now().plusDays(11);
         
-        verify(itemSingleRepository, times(1)).findByItem_ItemId(testItem.getItemId());
+        List<SizeAvailabilityDTO> sizes = List.of(new SizeAvailabilityDTO("M", 2));
+        when(itemSingleRepository.countFreeUnitsBySize(testItem.getItemId(), expectedPickup,
+            startUseDate, endUseDate, expectedReturn)).thenReturn(sizes);
+        
+        List<SizeAvailabilityDTO> result = bookingService.getFreeUnitsBySize(
+            testItem.getItemId(), startUseDate, endUseDate);
+        
+        assertEquals(sizes, result);
+    }
+
+    @Test
+    void testGetUnavailableRanges_DelegatesToIndexWithNormalizedSize() {
+        LocalDate from = LocalDate.now();
+        LocalDate to = from.plusMonths(3);
+        List<DateRangeDTO> ranges = List.of(new DateRangeDTO(from.plusDays(3), from.plusDays(5)));
+        when(availabilityIndex.getUnavailableRanges(testItem.getItemId(), null, from, to)).thenReturn(ranges);
+
+        assertEquals(ranges, bookingService.getUnavailableRanges(testItem.getItemId(), "", from, to));
+    }
+
+    @Test
+    void testCheckAvailabilityBatch_MixesIndexAndDatabase() {
+        Item otherItem = new Item();
+        otherItem.setItemId(2);
+        otherItem.setPriceRent(new BigDecimal("10.00"));
+        when(itemRepository.findAllById(anyCollection())).thenReturn(List.of(testItem, otherItem));
+
+        // Item 1 está no índice, item 2 não
+        when(availabilityIndex.covers(1)).thenReturn(true);
+        when(availabilityIndex.countFreeUnits(eq(1), eq("M"), any(LocalDate.class), any(LocalDate.class))).thenReturn(2);
+        when(itemSingleRepository.countFreeUnitsBySize(eq(2), any(LocalDate.class), any(LocalDate.class),
+            any(LocalDate.class), any(LocalDate.class)))
+            .thenReturn(List.of(new SizeAvailabilityDTO("L", 1), new SizeAvailabilityDTO("M", 0)));
+
+        BookingRequestDTO second = new BookingRequestDTO(2, bookingRequest.getStartUseDate(), bookingRequest.getEndUseDate());
+        second.setSize("");
+
+        List<AvailabilityResultDTO> results = bookingService.checkAvailabilityBatch(List.of(bookingRequest, second));
+
+        assertEquals(2, results.size());
+        assertTrue(results.get(0).isAvailable());
+        assertEquals(2, results.get(0).getFreeUnits());
+        long useDays = bookingRequest.getUseDays();
+        assertEquals(new BigDecimal("25.00").multiply(BigDecimal.valueOf(useDays)), results.get(0).getTotalPrice());
+        assertTrue(results.get(1).isAvailable());
+        assertEquals(1, results.get(1).getFreeUnits()); // Qualquer tamanho: soma de todos
+        assertEquals(new BigDecimal("10.00").multiply(BigDecimal.valueOf(useDays)), results.get(1).getTotalPrice());
+
+        // Preços obtidos numa única query e nenhuma procura item a item
+        verify(itemRepository, times(1)).findAllById(anyCollection());
+        verify(itemRepository, never()).findById(anyInt());
+        verify(itemSingleRepository, never()).countFreeUnitsBySize(eq(1), any(LocalDate.class), any(LocalDate.class),
+            any(LocalDate.class), any(LocalDate.class));
+        verify(bookingLockManager, never()).withItemLock(anyInt(), any());
+    }
+
+    @Test
+    void testCheckAvailabilityBatch_UnknownItemAndInvalidDates() {
+        when(itemRepository.findAllById(anyCollection())).thenReturn(List.of(testItem));
+
+        BookingRequestDTO unknown = new BookingRequestDTO(99, bookingRequest.getStartUseDate(), bookingRequest.getEndUseDate());
+        BookingRequestDTO invalid = new BookingRequestDTO(1, bookingRequest.getEndUseDate(), bookingRequest.getStartUseDate());
+
+        List<AvailabilityResultDTO> results = bookingService.checkAvailabilityBatch(List.of(unknown, invalid));
+
+        assertFalse(results.get(0).isAvailable());
+        assertEquals("Item não encontrado", results.get(0).getMessage());
+        assertFalse(results.get(1).isAvailable());
+        assertEquals("Datas inválidas", results.get(1).getMessage());
+    }
+
+    @Test
+    void testCheckAvailabilityBatch_TooManyQueries() {
+        List<BookingRequestDTO> queries = Collections.nCopies(201, bookingRequest);
+
+        assertThrows(IllegalArgumentException.class, () -> bookingService.checkAvailabilityBatch(queries));
+        assertTrue(bookingService.checkAvailabilityBatch(List.of()).isEmpty());
+    }
+
+    private BookingBundleRequestDTO bundle(BookingBundleRequestDTO.Line... lines) {
+        return new BookingBundleRequestDTO(bookingRequest.getStartUseDate(), bookingRequest.getEndUseDate(),
+            List.of(lines));
+    }
+
+    private static ItemSingle unitWithId(Item item, String size) throws Exception {
+        ItemSingle unit = new ItemSingle("AVAILABLE", item, size);
+        Field idField = ItemSingle.class.getDeclaredField("id");
+        idField.setAccessible(true);
+        idField.set(unit, UUID.randomUUID());
+        return unit;
+    }
+
+    private void stubFreeUnits(List<ItemSingle> units) {
+        when(itemSingleRepository.findFreeUnits(anyInt(), any(), any(LocalDate.class), any(LocalDate.class),
+            any(LocalDate.class), any(LocalDate.class), any(Limit.class)))
+            .thenReturn(units);
+    }
+
+    private void stubFreeUnitsBySize(List<SizeAvailabilityDTO> sizes) {
+        when(itemSingleRepository.countFreeUnitsBySize(anyInt(), any(LocalDate.class), any(LocalDate.class),
+            any(LocalDate.class), any(LocalDate.class)))
+            .thenReturn(sizes);
+    }
+
+    private void verifyFreeUnitsQueried(Integer itemId) {
+        verify(itemSingleRepository, times(1)).findFreeUnits(eq(itemId), any(), any(LocalDate.class),
+            any(LocalDate.class), any(LocalDate.class), any(LocalDate.class), any(Limit.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void enableOptimisticMode() {
+        when(optimisticBookingRetry.isEnabled()).thenReturn(true);
+        when(optimisticBookingRetry.execute(any()))
+            .thenAnswer(invocation -> ((Supplier<Object>) invocation.getArgument(0)).get());
     }
-}
\ No newline at end of file
+}
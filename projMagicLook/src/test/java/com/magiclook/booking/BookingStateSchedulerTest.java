@@ -0,0 +1,138 @@
+package com.magiclook.booking;
+
+import com.magiclook.data.Booking;
+import com.magiclook.repository.BookingRepository;
+import com.magiclook.service.BookingStateScheduler;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+class BookingStateSchedulerTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2031, 6, 15);
+
+    @Autowired
+    private BookingStateScheduler scheduler;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void testAdvance_MatchesPerBookingStateRule() {
+        List<String> states = new ArrayList<>(List.of("CONFIRMED", "ACTIVE", "RETURNED", "RESERVED",
+                "OVERDUE", "COMPLETED", "CANCELLED"));
+        states.add(null);
+        int[][] windows = {
+                { 3, 6 },     // futura
+                { 0, 2 },     // começa hoje
+                { -2, 0 },    // termina hoje
+                { -3, -1 },   // terminou ontem, devolução hoje
+                { -5, -2 },   // devolução ontem
+        };
+
+        // Acertar primeiro as reservas de exemplo, para só contar as deste teste
+        scheduler.advance(TODAY);
+
+        Map<UUID, String> expected = new LinkedHashMap<>();
+        int transitions = 0;
+        for (String state : states) {
+            for (int[] window : windows) {
+                Booking booking = booking(state, TODAY.plusDays(window[0]), TODAY.plusDays(window[1]));
+                String next = storedStateOn(booking, TODAY);
+                expected.put(booking.getBookingId(), next);
+                if (!Objects.equals(state, next)) {
+                    transitions++;
+                }
+            }
+        }
+        entityManager.clear();
+
+        int changed = scheduler.advance(TODAY);
+
+        entityManager.clear();
+        expected.forEach((id, state) ->
+                assertEquals(state, bookingRepository.findById(id).orElseThrow().getState(), "booking " + id));
+        assertEquals(transitions, changed);
+
+        // Segunda passagem no mesmo dia não muda nada
+        assertEquals(0, scheduler.advance(TODAY));
+    }
+
+    @Test
+    void testAdvance_UnreturnedBookingBecomesOverdueAfterReturnDate() {
+        scheduler.advance(TODAY);
+        // Uso de TODAY a TODAY+2, devolução em TODAY+3
+        Booking booking = booking("CONFIRMED", TODAY, TODAY.plusDays(2));
+        entityManager.clear();
+
+        scheduler.advance(TODAY.plusDays(3)); // endUseDate + 1: ainda pode devolver
+        entityManager.clear();
+        assertEquals("ACTIVE", bookingRepository.findById(booking.getBookingId()).orElseThrow().getState());
+
+        scheduler.advance(TODAY.plusDays(4)); // returnDate + 1 sem devolução
+        entityManager.clear();
+        assertEquals("OVERDUE", bookingRepository.findById(booking.getBookingId()).orElseThrow().getState());
+    }
+
+    @Test
+    void testAdvance_ReturnedBookingCompletesAfterUse() {
+        scheduler.advance(TODAY);
+        Booking booking = booking("RETURNED", TODAY.minusDays(3), TODAY.minusDays(1));
+        entityManager.clear();
+
+        scheduler.advance(TODAY.plusDays(5));
+        entityManager.clear();
+
+        assertEquals("COMPLETED", bookingRepository.findById(booking.getBookingId()).orElseThrow().getState());
+    }
+
+    @Test
+    void testAdvance_CountsTransitionsByTargetState() {
+        scheduler.advance(TODAY);
+        double before = meterRegistry.get("booking.state.transitions").tag("to", "ACTIVE").counter().count();
+        booking("CONFIRMED", TODAY, TODAY.plusDays(1));
+        entityManager.clear();
+
+        scheduler.advance(TODAY);
+
+        assertEquals(before + 1, meterRegistry.get("booking.state.transitions").tag("to", "ACTIVE").counter().count());
+    }
+
+    // stateOn, mas sem COMPLETED guardado antes de a reserva ser devolvida
+    private static String storedStateOn(Booking booking, LocalDate day) {
+        String state = booking.stateOn(day);
+        if ("COMPLETED".equals(state) && !"COMPLETED".equals(booking.getState())
+                && !"RETURNED".equals(booking.getState())) {
+            return "ACTIVE";
+        }
+        return state;
+    }
+
+    private Booking booking(String state, LocalDate start, LocalDate end) {
+        Booking booking = new Booking(start.minusDays(1), start, end, end.plusDays(1), state, null, null);
+        entityManager.persist(booking);
+        entityManager.flush();
+        return booking;
+    }
+}
@@ -0,0 +1,108 @@
+package com.magiclook.booking;
+
+import com.magiclook.data.ItemSingle;
+import com.magiclook.service.OptimisticBookingRetry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OptimisticBookingRetryTest {
+
+    private PlatformTransactionManager transactionManager;
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        transactionManager = mock(PlatformTransactionManager.class);
+        registry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void testModeSelection() {
+        assertTrue(retry(OptimisticBookingRetry.MODE_OPTIMISTIC, 3).isEnabled());
+        assertFalse(retry(OptimisticBookingRetry.MODE_PESSIMISTIC, 3).isEnabled());
+        assertThrows(IllegalArgumentException.class, () -> retry(OptimisticBookingRetry.MODE_OPTIMISTIC, 0));
+    }
+
+    @Test
+    void testConflict_IsRetriedInANewTransaction() {
+        OptimisticBookingRetry retry = retry(OptimisticBookingRetry.MODE_OPTIMISTIC, 5);
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = retry.execute(() -> {
+            if (calls.incrementAndGet() < 3) {
+                throw conflict();
+            }
+            return "ok";
+        });
+
+        assertEquals("ok", result);
+        assertEquals(3, calls.get());
+        verify(transactionManager, times(3)).getTransaction(argThat(definition ->
+            definition.getPropagationBehavior() == TransactionDefinition.PROPAGATION_REQUIRED));
+        assertEquals(3.0, registry.get("booking.optimistic.attempts").counter().count());
+        assertEquals(2.0, registry.get("booking.optimistic.conflicts").counter().count());
+        assertEquals(2.0, registry.get("booking.optimistic.retries").summary().max());
+    }
+
+    @Test
+    void testRetriesExhausted_ReportsBusyItem() {
+        OptimisticBookingRetry retry = retry(OptimisticBookingRetry.MODE_OPTIMISTIC, 3);
+        AtomicInteger calls = new AtomicInteger();
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> retry.execute(() -> {
+            calls.incrementAndGet();
+            throw conflict();
+        }));
+
+        assertEquals("O item está muito procurado neste momento. Por favor, tente novamente.", exception.getMessage());
+        assertEquals(3, calls.get());
+        assertEquals(1.0, registry.get("booking.optimistic.exhausted").counter().count());
+    }
+
+    @Test
+    void testOtherFailures_AreNotRetried() {
+        OptimisticBookingRetry retry = retry(OptimisticBookingRetry.MODE_OPTIMISTIC, 5);
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(IllegalStateException.class, () -> retry.execute(() -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("Nenhuma unidade disponível para as datas selecionadas");
+        }));
+
+        assertEquals(1, calls.get());
+        assertEquals(0.0, registry.get("booking.optimistic.conflicts").counter().count());
+        verify(transactionManager, times(1)).rollback(any());
+    }
+
+    @Test
+    void testInsideATransaction_IsRefused() {
+        OptimisticBookingRetry retry = retry(OptimisticBookingRetry.MODE_OPTIMISTIC, 5);
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            assertThrows(IllegalStateException.class, () -> retry.execute(() -> "ok"));
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+        verifyNoInteractions(transactionManager);
+    }
+
+    private OptimisticBookingRetry retry(String mode, int maxAttempts) {
+        return new OptimisticBookingRetry(mode, maxAttempts, 1, transactionManager, registry);
+    }
+
+    private ObjectOptimisticLockingFailureException conflict() {
+        return new ObjectOptimisticLockingFailureException(ItemSingle.class, UUID.randomUUID());
+    }
+}
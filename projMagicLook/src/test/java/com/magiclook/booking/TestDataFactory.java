@@ -3,7 +3,7 @@ package com.magiclook.booking;
 import com.magiclook.data.*;
 import com.magiclook.dto.BookingRequestDTO;
 
-import java.util.Calendar;
+import java.time.LocalDate;
 import java.util.Date;
 import java.util.UUID;
 
@@ -33,13 +33,10 @@ public class TestDataFactory {
         booking.setItem(item);
         booking.setState("CONFIRMED");
         
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, 7);
-        Date startDate = cal.getTime();
+        LocalDate startDate = LocalDate.now().plusDays(7);
         booking.setStartUseDate(startDate);
         
-        cal.add(Calendar.DAY_OF_MONTH, 2);
-        Date endDate = cal.getTime();
+        LocalDate endDate = LocalDate.now().plusDays(9);
         booking.setEndUseDate(endDate);
         
         booking.setCreatedAt(new Date());
@@ -50,12 +47,9 @@ public class TestDataFactory {
         BookingRequestDTO dto = new BookingRequestDTO();
         dto.setItemId(1);
         
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, 7);
-        dto.setStartUseDate(cal.getTime());
+        dto.setStartUseDate(LocalDate.now().plusDays(7));
         
-        cal.add(Calendar.DAY_OF_MONTH, 2);
-        dto.setEndUseDate(cal.getTime());
+        dto.setEndUseDate(LocalDate.now().plusDays(9));
         
         return dto;
     }
@@ -0,0 +1,86 @@
+package com.magiclook.booking;
+
+import com.magiclook.data.Item;
+import com.magiclook.data.ItemSingle;
+import com.magiclook.dto.BookingWindow;
+import com.magiclook.service.AvailabilityIndex;
+import com.magiclook.service.UnitAllocationStrategy;
+import com.magiclook.service.UnitAllocationStrategy.Candidate;
+import com.magiclook.service.UnitAllocator;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static com.magiclook.service.UnitAllocationStrategy.OPEN;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class UnitAllocationStrategyTest {
+
+    private static final LocalDate BASE = LocalDate.of(2031, 5, 1);
+
+    @Test
+    void testFirstFit_TakesFirstCandidate() {
+        UnitAllocationStrategy strategy = UnitAllocationStrategy.named("first-fit");
+
+        assertFalse(strategy.comparesUnits());
+        assertEquals(0, strategy.choose(List.of(new Candidate(OPEN, OPEN, 9), new Candidate(0, 0, 0))));
+    }
+
+    @Test
+    void testBestFit_PrefersTightestGap() {
+        UnitAllocationStrategy strategy = UnitAllocationStrategy.named("best-fit");
+
+        // Buraco fechado dos dois lados ganha; entre fechados, o mais pequeno
+        assertEquals(2, strategy.choose(List.of(
+            new Candidate(OPEN, OPEN, 0), new Candidate(3, 8, 2), new Candidate(1, 2, 5))));
+        // Só um lado fechado: ganha o lado mais apertado
+        assertEquals(1, strategy.choose(List.of(new Candidate(OPEN, OPEN, 0), new Candidate(4, OPEN, 1))));
+    }
+
+    @Test
+    void testLeastBooked_PrefersLeastCurrentlyBookedUnit() {
+        UnitAllocationStrategy strategy = UnitAllocationStrategy.named("LEAST-BOOKED");
+
+        assertEquals(UnitAllocationStrategy.LEAST_BOOKED, strategy.getName());
+        assertEquals(1, strategy.choose(List.of(new Candidate(0, 0, 4), new Candidate(OPEN, OPEN, 2),
+            new Candidate(0, 0, 2))));
+        // O nome antigo continua a escolher a mesma estratégia
+        assertEquals(UnitAllocationStrategy.LEAST_BOOKED, UnitAllocationStrategy.named("round-robin").getName());
+    }
+
+    @Test
+    void testUnknownStrategy_Rejected() {
+        assertThrows(IllegalArgumentException.class, () -> UnitAllocationStrategy.named("worst-fit"));
+    }
+
+    @Test
+    void testAllocator_ReadsGapsFromIndex() {
+        AvailabilityIndex index = mock(AvailabilityIndex.class);
+        UnitAllocator allocator = new UnitAllocator(UnitAllocationStrategy.BEST_FIT, index);
+        ItemSingle loose = unit();
+        ItemSingle tight = unit();
+        BookingWindow window = BookingWindow.of(BASE.plusDays(10), BASE.plusDays(12));
+        when(index.describeUnits(eq(1), eq(List.of(loose.getId(), tight.getId())), eq(window.getPickupDate()),
+            eq(window.getReturnDate())))
+            .thenReturn(List.of(new Candidate(OPEN, OPEN, 0), new Candidate(1, 1, 3)));
+
+        assertTrue(allocator.comparesUnits());
+        assertSame(tight, allocator.choose(1, List.of(loose, tight), window));
+        assertNull(allocator.choose(1, List.of(), window));
+        // Com uma só unidade não há nada a comparar
+        assertSame(loose, allocator.choose(1, List.of(loose), window));
+        verify(index, times(1)).describeUnits(anyInt(), anyList(), any(), any());
+    }
+
+    private static ItemSingle unit() {
+        Item item = new Item();
+        item.setItemId(1);
+        ItemSingle unit = new ItemSingle(ItemSingle.STATE_AVAILABLE, item, "M");
+        unit.setId(UUID.randomUUID());
+        return unit;
+    }
+}
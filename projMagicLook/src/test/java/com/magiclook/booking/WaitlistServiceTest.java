@@ -0,0 +1,221 @@
+package com.magiclook.booking;
+
+import com.magiclook.data.*;
+import com.magiclook.dto.BookingRequestDTO;
+import com.magiclook.dto.SizeAvailabilityDTO;
+import com.magiclook.repository.NotificationRepository;
+import com.magiclook.repository.WaitlistRepository;
+import com.magiclook.service.BookingCancelledEvent;
+import com.magiclook.service.BookingLockManager;
+import com.magiclook.service.BookingService;
+import com.magiclook.service.WaitlistService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class WaitlistServiceTest {
+
+    private static final LocalDate START = LocalDate.now().plusDays(10);
+    private static final LocalDate END = LocalDate.now().plusDays(12);
+
+    private WaitlistRepository waitlistRepository;
+    private BookingService bookingService;
+    private NotificationRepository notificationRepository;
+    private SimpleMeterRegistry registry;
+    private WaitlistService waitlistService;
+
+    // Fila do item em memória, por ordem de chegada
+    private final List<WaitlistEntry> queue = new CopyOnWriteArrayList<>();
+    private final List<Notification> notifications = new CopyOnWriteArrayList<>();
+    private Item item;
+
+    @BeforeEach
+    void setUp() {
+        waitlistRepository = mock(WaitlistRepository.class);
+        bookingService = mock(BookingService.class);
+        notificationRepository = mock(NotificationRepository.class);
+        registry = new SimpleMeterRegistry();
+        waitlistService = new WaitlistService(waitlistRepository, bookingService, notificationRepository,
+            new BookingLockManager(BookingLockManager.MODE_LOCAL, 16), mock(PlatformTransactionManager.class),
+            registry, 50);
+
+        item = new Item();
+        item.setItemId(1);
+        item.setName("Vestido Azul");
+
+        when(waitlistRepository.findByItemIdAndStatusOrderByCreatedAtAsc(eq(1), eq(WaitlistEntry.STATUS_WAITING),
+                any(Limit.class)))
+            .thenAnswer(inv -> queue.stream().filter(WaitlistEntry::isWaiting).toList());
+        when(waitlistRepository.save(any(WaitlistEntry.class))).thenAnswer(inv -> {
+            WaitlistEntry entry = inv.getArgument(0);
+            if (entry.getEntryId() == null) {
+                entry.setEntryId(UUID.randomUUID());
+                queue.add(entry);
+            }
+            return entry;
+        });
+        when(notificationRepository.save(any(Notification.class))).thenAnswer(inv -> {
+            notifications.add(inv.getArgument(0));
+            return inv.getArgument(0);
+        });
+        when(bookingService.createBooking(any(BookingRequestDTO.class), any(User.class), any())).thenAnswer(inv -> {
+            BookingRequestDTO request = inv.getArgument(0);
+            Booking booking = new Booking();
+            booking.setBookingId(UUID.randomUUID());
+            booking.setItem(item);
+            booking.setUser(inv.getArgument(1));
+            booking.setStartUseDate(request.getStartUseDate());
+            booking.setEndUseDate(request.getEndUseDate());
+            // A atualização da entrada corre dentro da transação da reserva
+            inv.<Consumer<Booking>>getArgument(2).accept(booking);
+            return booking;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        waitlistService.shutdown();
+    }
+
+    @Test
+    void testMatch_AllocatesOldestCompatibleEntriesAndNotifies() {
+        WaitlistEntry wantsL = waiting(user(), "L");
+        WaitlistEntry firstM = waiting(user(), "M");
+        WaitlistEntry secondM = waiting(user(), "M");
+        // Uma unidade M livre; depois de atribuída já não há nenhuma
+        when(bookingService.getFreeUnitsBySize(1, START, END))
+            .thenReturn(List.of(new SizeAvailabilityDTO("M", 1)))
+            .thenReturn(List.of(new SizeAvailabilityDTO("M", 1)))
+            .thenReturn(List.of(new SizeAvailabilityDTO("M", 0)));
+
+        int allocated = waitlistService.match(1);
+
+        assertEquals(1, allocated);
+        assertEquals(WaitlistEntry.STATUS_WAITING, wantsL.getStatus());
+        assertEquals(WaitlistEntry.STATUS_ALLOCATED, firstM.getStatus());
+        assertNotNull(firstM.getBookingId());
+        assertEquals(WaitlistEntry.STATUS_WAITING, secondM.getStatus());
+        assertEquals(1, notifications.size());
+        assertEquals(firstM.getUser(), notifications.get(0).getUser());
+        assertTrue(notifications.get(0).getMessage().contains("Vestido Azul"));
+        verify(bookingService, times(1)).createBooking(argThat(r -> "M".equals(r.getSize())), eq(firstM.getUser()), any());
+        assertEquals(1.0, registry.get("booking.waitlist.allocated").counter().count());
+    }
+
+    @Test
+    void testMatch_StartedEntryExpiresWithoutBooking() {
+        WaitlistEntry late = waiting(user(), "M");
+        late.setStartUseDate(LocalDate.now());
+        when(bookingService.getFreeUnitsBySize(anyInt(), any(), any()))
+            .thenReturn(List.of(new SizeAvailabilityDTO("M", 3)));
+
+        assertEquals(0, waitlistService.match(1));
+
+        assertEquals(WaitlistEntry.STATUS_EXPIRED, late.getStatus());
+        verify(bookingService, never()).createBooking(any(), any(), any());
+    }
+
+    @Test
+    void testMatch_FailedBookingRejectsOnlyThatEntry() {
+        WaitlistEntry poison = waiting(user(), "M");
+        WaitlistEntry next = waiting(user(), "M");
+        when(bookingService.getFreeUnitsBySize(1, START, END)).thenReturn(List.of(new SizeAvailabilityDTO("M", 1)));
+        when(bookingService.createBooking(any(BookingRequestDTO.class), eq(poison.getUser()), any()))
+            .thenThrow(new IllegalArgumentException("Utilizador não encontrado na base de dados."));
+
+        assertEquals(1, waitlistService.match(1));
+
+        assertEquals(WaitlistEntry.STATUS_REJECTED, poison.getStatus());
+        assertNull(poison.getBookingId());
+        assertEquals(WaitlistEntry.STATUS_ALLOCATED, next.getStatus());
+        assertEquals(List.of(poison.getUser(), next.getUser()), notifications.stream().map(Notification::getUser).toList());
+        assertEquals(1.0, registry.get("booking.waitlist.rejected").counter().count());
+
+        // A entrada rejeitada já não volta à cabeça da fila
+        assertEquals(0, waitlistService.match(1));
+        verify(bookingService, times(1)).createBooking(any(BookingRequestDTO.class), eq(poison.getUser()), any());
+    }
+
+    @Test
+    void testCancellation_MatchesOffTheCallingThread() {
+        WaitlistEntry entry = waiting(user(), null);
+        when(bookingService.getFreeUnitsBySize(1, START, END))
+            .thenReturn(List.of(new SizeAvailabilityDTO("S", 0), new SizeAvailabilityDTO("M", 1)));
+        List<String> threads = new CopyOnWriteArrayList<>();
+        when(notificationRepository.save(any(Notification.class))).thenAnswer(inv -> {
+            threads.add(Thread.currentThread().getName());
+            return inv.getArgument(0);
+        });
+
+        waitlistService.onBookingCancelled(new BookingCancelledEvent(UUID.randomUUID(), 1));
+
+        await(() -> WaitlistEntry.STATUS_ALLOCATED.equals(entry.getStatus()));
+        assertEquals(List.of("waitlist-matcher"), threads);
+    }
+
+    @Test
+    void testJoin_SavesEntryOnceAndValidatesDates() {
+        User user = user();
+        BookingRequestDTO request = new BookingRequestDTO(1, START, END);
+        request.setSize("");
+
+        WaitlistEntry entry = waitlistService.join(request, user);
+        assertNull(entry.getSize());
+        assertEquals(WaitlistEntry.STATUS_WAITING, entry.getStatus());
+
+        when(waitlistRepository.existsByUserAndItemIdAndSizeAndStatusAndStartUseDateAndEndUseDate(user, 1,
+            null, WaitlistEntry.STATUS_WAITING, START, END)).thenReturn(true);
+        assertNull(waitlistService.join(request, user));
+        assertEquals(1, queue.size());
+
+        // Outro tamanho do mesmo item é um pedido diferente
+        request.setSize("M");
+        assertEquals("M", waitlistService.join(request, user).getSize());
+        assertEquals(2, queue.size());
+
+        BookingRequestDTO past = new BookingRequestDTO(1, LocalDate.now().minusDays(1), END);
+        assertThrows(IllegalArgumentException.class, () -> waitlistService.join(past, user));
+        assertThrows(IllegalArgumentException.class, () -> waitlistService.join(request, null));
+    }
+
+    private WaitlistEntry waiting(User user, String size) {
+        WaitlistEntry entry = new WaitlistEntry(user, 1, size, START, END);
+        entry.setEntryId(UUID.randomUUID());
+        queue.add(entry);
+        return entry;
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setUserId(UUID.randomUUID());
+        return user;
+    }
+
+    private void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Condição não satisfeita a tempo");
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail("Interrompido");
+            }
+        }
+    }
+}
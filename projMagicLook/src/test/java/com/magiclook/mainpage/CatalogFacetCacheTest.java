@@ -0,0 +1,120 @@
+package com.magiclook.mainpage;
+
+import com.magiclook.dto.FacetedSearchResult;
+import com.magiclook.dto.ItemFilterDTO;
+import com.magiclook.service.CatalogChangedEvent;
+import com.magiclook.service.CatalogFacetCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogFacetCacheTest {
+
+    private SimpleMeterRegistry registry;
+    private CatalogFacetCache cache;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        cache = new CatalogFacetCache(100, 600, registry);
+    }
+
+    @Test
+    void testGet_LoadsOnceThenHits() {
+        assertEquals(List.of("Azul", "Preto"), cache.get("colors", null, this::colors));
+        assertEquals(List.of("Azul", "Preto"), cache.get("colors", null, this::colors));
+
+        assertEquals(1, loads.get());
+        assertEquals(1.0, registry.get("cache.gets").tag("cache", "catalog.facets").tag("result", "hit")
+            .functionCounter().count());
+        assertEquals(1.0, registry.get("cache.gets").tag("cache", "catalog.facets").tag("result", "miss")
+            .functionCounter().count());
+    }
+
+    @Test
+    void testGet_GenderIsPartOfTheKeyAndNullsAreKept() {
+        cache.get("sizes", "M", () -> List.of("M", "L"));
+
+        assertEquals(List.of("S"), cache.get("sizes", "F", () -> List.of("S")));
+        assertEquals(Arrays.asList("Seda", null), cache.get("materials", null, () -> Arrays.asList("Seda", null)));
+        assertThrows(UnsupportedOperationException.class, () -> cache.get("sizes", "M", List::of).add("XL"));
+    }
+
+    @Test
+    void testCatalogChanged_DropsEverything() {
+        cache.get("colors", null, this::colors);
+        cache.get("sizes", "M", () -> List.of("M"));
+
+        cache.onCatalogChanged(new CatalogChangedEvent(1));
+
+        assertEquals(0, cache.size());
+        cache.get("colors", null, this::colors);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testLoadStartedBeforeChange_IsNotServedAfterIt() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // Leitura dos dados antigos em curso quando o staff grava
+        Thread reader = new Thread(() -> cache.get("colors", null, () -> {
+            loading.countDown();
+            await(release);
+            return List.of("Azul");
+        }));
+        reader.start();
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+        Thread staff = new Thread(() -> cache.onCatalogChanged(new CatalogChangedEvent(1)));
+        staff.start();
+        Thread.sleep(50);
+        release.countDown();
+        reader.join(5000);
+        staff.join(5000);
+
+        assertEquals(List.of("Azul", "Preto"), cache.get("colors", null, this::colors));
+    }
+
+    @Test
+    void testGetSearch_KeyedByFilterAndNeverWithDateWindow() {
+        FacetedSearchResult blue = new FacetedSearchResult(1, Map.of());
+        cache.getSearch("M", ItemFilterDTO.builder().color("Azul").build(), () -> blue);
+
+        assertSame(blue, cache.getSearch("M", ItemFilterDTO.builder().color("Azul").build(), () -> null));
+        assertEquals(0, cache.getSearch("M", ItemFilterDTO.builder().color("Preto").build(),
+            () -> new FacetedSearchResult(0, Map.of())).getTotal());
+        LocalDate day = LocalDate.of(2031, 5, 2);
+        ItemFilterDTO dated = ItemFilterDTO.builder().startUseDate(day).endUseDate(day).build();
+        assertThrows(IllegalArgumentException.class, () -> cache.getSearch("M", dated, () -> blue));
+    }
+
+    @Test
+    void testInvalidConfiguration_Rejected() {
+        assertThrows(IllegalArgumentException.class, () -> new CatalogFacetCache(0, 600, registry));
+        assertThrows(IllegalArgumentException.class, () -> new CatalogFacetCache(10, 0, registry));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private List<String> colors() {
+        loads.incrementAndGet();
+        return List.of("Azul", "Preto");
+    }
+}
@@ -0,0 +1,201 @@
+package com.magiclook.mainpage;
+
+import com.magiclook.data.Item;
+import com.magiclook.data.ItemType;
+import com.magiclook.data.Shop;
+import com.magiclook.dto.FacetedSearchResult;
+import com.magiclook.dto.ItemFilterDTO;
+import com.magiclook.repository.ItemRepository;
+import com.magiclook.service.AvailabilityIndex;
+import com.magiclook.service.CatalogChangedEvent;
+import com.magiclook.service.CatalogIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CatalogIndexTest {
+
+    private ItemRepository itemRepository;
+    private AvailabilityIndex availabilityIndex;
+    private SimpleMeterRegistry registry;
+    private CatalogIndex index;
+
+    private Item shirt;
+    private Item pants;
+    private Item jacket;
+    private Item dress;
+    private Item retired;
+
+    @BeforeEach
+    void setUp() {
+        itemRepository = mock(ItemRepository.class);
+        availabilityIndex = mock(AvailabilityIndex.class);
+        registry = new SimpleMeterRegistry();
+        index = new CatalogIndex(itemRepository, availabilityIndex, true, registry);
+
+        shirt = item(1, "M", "Azul", "Zara", "Camisa", "Lisboa", "19.99");
+        pants = item(2, "M", "Preto", "Zara", "Calças", "Porto", "35.00");
+        jacket = item(3, "M", "Azul", "Hugo", "Casaco", "Lisboa", "120.00");
+        dress = item(4, "F", "Azul", "Zara", "Vestido", "Lisboa", "50.00");
+        retired = item(5, "M", "Azul", "Zara", "Camisa", "Lisboa", "10.00");
+
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(row(shirt, "M"));
+        rows.add(row(shirt, "L"));
+        rows.add(row(pants, "M"));
+        rows.add(row(jacket, "S"));
+        rows.add(row(dress, "M"));
+        // Sem unidades disponíveis: indexado mas fora do catálogo
+        rows.add(row(retired, null));
+        when(itemRepository.findIndexRows()).thenReturn(rows);
+        index.warmUp();
+    }
+
+    @Test
+    void testFind_IntersectsAttributeColumns() {
+        assertEquals(List.of(shirt, pants, jacket), find("M", new ItemFilterDTO()));
+        assertEquals(List.of(shirt, jacket), find("M", ItemFilterDTO.builder().color("Azul").build()));
+        assertEquals(List.of(shirt, pants), find("M", ItemFilterDTO.builder().size("M").brand("Zara").build()));
+        assertEquals(List.of(shirt), find("M", ItemFilterDTO.builder().category("Camisa").build()));
+        assertEquals(List.of(dress), find("F", ItemFilterDTO.builder().shopLocation("Lisboa").build()));
+        assertEquals(List.of(), find("M", ItemFilterDTO.builder().color("Verde").build()));
+        assertEquals(4.0, registry.get("catalog.index.items").gauge().value());
+    }
+
+    @Test
+    void testFind_PriceRangeIsInclusive() {
+        assertEquals(List.of(shirt, pants), find("M", ItemFilterDTO.builder().maxPrice(35.0).build()));
+        assertEquals(List.of(pants, jacket), find("M", ItemFilterDTO.builder().minPrice(19.995).build()));
+        assertEquals(List.of(pants), find("M", ItemFilterDTO.builder().minPrice(20.0).maxPrice(119.99).build()));
+        assertEquals(List.of(), find("M", ItemFilterDTO.builder().minPrice(50.0).maxPrice(40.0).build()));
+    }
+
+    @Test
+    void testFind_DateWindowCheckedAgainstAvailabilityIndex() {
+        ItemFilterDTO filter = ItemFilterDTO.builder().size("M")
+                .startUseDate(LocalDate.of(2031, 5, 2)).endUseDate(LocalDate.of(2031, 5, 3)).build();
+        when(availabilityIndex.covers(anyInt())).thenReturn(true);
+        when(availabilityIndex.hasFreeUnit(1, "M", LocalDate.of(2031, 5, 1), LocalDate.of(2031, 5, 4)))
+                .thenReturn(true);
+
+        assertEquals(List.of(shirt), find("M", filter));
+
+        // Um artigo que o índice de disponibilidade não conhece: responde a base de dados
+        when(availabilityIndex.covers(2)).thenReturn(false);
+        assertTrue(index.find("M", filter).isEmpty());
+    }
+
+    @Test
+    void testFindPage_KeysetOrderFromTheCursor() {
+        shirt.setName("Camisa");
+        pants.setName("Calças");
+        jacket.setName("Casaco");
+        index.onCatalogChanged(new CatalogChangedEvent(null));
+        ItemFilterDTO byName = new ItemFilterDTO();
+        ItemFilterDTO byPriceDesc = ItemFilterDTO.builder().sort(ItemFilterDTO.SORT_PRICE_DESC).build();
+
+        assertEquals(List.of(pants, shirt), index.findPage("M", byName, null, null, null, 2).orElseThrow());
+        assertEquals(List.of(jacket), index.findPage("M", byName, 1, "Camisa", null, 2).orElseThrow());
+        assertEquals(List.of(jacket, pants), index.findPage("M", byPriceDesc, null, null, null, 2).orElseThrow());
+        assertEquals(List.of(shirt),
+                index.findPage("M", byPriceDesc, 2, null, new BigDecimal("35.00"), 2).orElseThrow());
+    }
+
+    @Test
+    void testSearch_EachFacetCountedWithTheOtherFilters() {
+        FacetedSearchResult result = index.search("M",
+                ItemFilterDTO.builder().color("Azul").size("M").build()).orElseThrow();
+
+        assertEquals(1, result.getTotal());
+        assertEquals(Map.of("Azul", 1L, "Preto", 1L), result.getFacets().get(FacetedSearchResult.COLOR));
+        assertEquals(Map.of("L", 1L, "M", 1L, "S", 1L), result.getFacets().get(FacetedSearchResult.SIZE));
+        assertEquals(Map.of("Zara", 1L, "Hugo", 0L), result.getFacets().get(FacetedSearchResult.BRAND));
+        assertEquals(List.of("Até 25 €", "25 € a 50 €", "50 € a 100 €", "Mais de 100 €"),
+                result.options(FacetedSearchResult.PRICE));
+        assertEquals(1L, result.count(FacetedSearchResult.PRICE, "Até 25 €"));
+        assertEquals(0L, result.count(FacetedSearchResult.PRICE, "Mais de 100 €"));
+    }
+
+    @Test
+    void testSearch_DateWindowKeepsOnlyFreeSizes() {
+        ItemFilterDTO filter = ItemFilterDTO.builder()
+                .startUseDate(LocalDate.of(2031, 5, 2)).endUseDate(LocalDate.of(2031, 5, 3)).build();
+        when(availabilityIndex.covers(anyInt())).thenReturn(true);
+        when(availabilityIndex.hasFreeUnit(1, "M", LocalDate.of(2031, 5, 1), LocalDate.of(2031, 5, 4)))
+                .thenReturn(true);
+
+        FacetedSearchResult result = index.search("M", filter).orElseThrow();
+
+        assertEquals(1, result.getTotal());
+        assertEquals(Map.of("M", 1L), result.getFacets().get(FacetedSearchResult.SIZE));
+        assertEquals(Map.of("Azul", 1L), result.getFacets().get(FacetedSearchResult.COLOR));
+
+        when(availabilityIndex.covers(3)).thenReturn(false);
+        assertTrue(index.search("M", filter).isEmpty());
+    }
+
+    @Test
+    void testCatalogChanged_ReindexesOnlyThatItem() {
+        Item repainted = item(2, "M", "Azul", "Zara", "Calças", "Porto", "9.00");
+        when(itemRepository.findIndexRowsByItemId(2)).thenReturn(List.<Object[]>of(row(repainted, "XL")));
+
+        index.onCatalogChanged(new CatalogChangedEvent(2));
+
+        assertEquals(List.of(shirt, repainted, jacket), find("M", ItemFilterDTO.builder().color("Azul").build()));
+        assertEquals(List.of(), find("M", ItemFilterDTO.builder().color("Preto").build()));
+        assertEquals(List.of(repainted), find("M", ItemFilterDTO.builder().size("XL").maxPrice(10.0).build()));
+        verify(itemRepository, times(1)).findIndexRows();
+
+        // Apagado da base de dados: sai do índice
+        when(itemRepository.findIndexRowsByItemId(2)).thenReturn(List.of());
+        index.onCatalogChanged(new CatalogChangedEvent(2));
+        assertEquals(List.of(shirt, jacket), find("M", new ItemFilterDTO()));
+    }
+
+    @Test
+    void testNotBuilt_CallerUsesDatabase() {
+        CatalogIndex disabled = new CatalogIndex(itemRepository, availabilityIndex, false, new SimpleMeterRegistry());
+        disabled.warmUp();
+        disabled.onCatalogChanged(new CatalogChangedEvent(1));
+
+        assertFalse(disabled.isReady());
+        assertTrue(disabled.find("M", new ItemFilterDTO()).isEmpty());
+        assertTrue(disabled.search("M", new ItemFilterDTO()).isEmpty());
+        assertTrue(disabled.findPage("M", new ItemFilterDTO(), null, null, null, 10).isEmpty());
+        verify(itemRepository, never()).findIndexRowsByItemId(any());
+    }
+
+    private List<Item> find(String gender, ItemFilterDTO filter) {
+        Optional<List<Item>> found = index.find(gender, filter);
+        assertTrue(found.isPresent());
+        return found.get();
+    }
+
+    private static Object[] row(Item item, String size) {
+        return new Object[] { item, size };
+    }
+
+    private static Item item(int id, String gender, String color, String brand, String category,
+                             String location, String price) {
+        Item item = new Item();
+        item.setItemId(id);
+        item.setColor(color);
+        item.setBrand(brand);
+        item.setMaterial("Algodão");
+        item.setPriceRent(new BigDecimal(price));
+        item.setItemType(new ItemType(gender, category, "Simples"));
+        item.setShop(new Shop("Loja " + location, location));
+        return item;
+    }
+}
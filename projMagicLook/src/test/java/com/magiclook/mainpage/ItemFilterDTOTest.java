@@ -4,6 +4,8 @@ import org.junit.jupiter.api.Test;
 
 import com.magiclook.dto.ItemFilterDTO;
 
+import java.time.LocalDate;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 class ItemFilterDTOTest {
@@ -151,4 +153,29 @@ class ItemFilterDTOTest {
                 .build();
         assertThat(filter.hasFilters()).isTrue();
     }
+
+    @Test
+    void testDateWindow_DerivesPickupAndReturnDays() {
+        ItemFilterDTO filter = ItemFilterDTO.builder()
+                .startUseDate(LocalDate.of(2026, 5, 10))
+                .endUseDate(LocalDate.of(2026, 5, 12))
+                .build();
+
+        assertThat(filter.hasDateWindow()).isTrue();
+        assertThat(filter.hasFilters()).isTrue();
+        assertThat(filter.getPickupDate()).isEqualTo(LocalDate.of(2026, 5, 9));
+        assertThat(filter.getReturnDate()).isEqualTo(LocalDate.of(2026, 5, 13));
+    }
+
+    @Test
+    void testDateWindow_IncompleteWindowIsIgnored() {
+        ItemFilterDTO filter = ItemFilterDTO.builder()
+                .startUseDate(LocalDate.of(2026, 5, 10))
+                .build();
+
+        assertThat(filter.hasDateWindow()).isFalse();
+        assertThat(filter.hasFilters()).isFalse();
+        assertThat(filter.getPickupDate()).isNull();
+        assertThat(filter.getReturnDate()).isNull();
+    }
 }
\ No newline at end of file
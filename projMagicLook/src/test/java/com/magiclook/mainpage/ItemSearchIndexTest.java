@@ -0,0 +1,119 @@
+package com.magiclook.mainpage;
+
+import com.magiclook.data.Item;
+import com.magiclook.data.ItemType;
+import com.magiclook.dto.ItemSearchHit;
+import com.magiclook.repository.ItemRepository;
+import com.magiclook.service.CatalogChangedEvent;
+import com.magiclook.service.ItemSearchIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ItemSearchIndexTest {
+
+    private ItemRepository itemRepository;
+    private ItemSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        itemRepository = mock(ItemRepository.class);
+        index = new ItemSearchIndex(itemRepository, new SimpleMeterRegistry());
+
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(row(item(1, "Fato Clássico Azul", "Hugo Boss", "Azul", "Lã", "M", "Fato"), "M"));
+        rows.add(row(item(2, "Camisa de Algodão", "Zara", "Branco", "Algodão", "M", "Camisa"), "L"));
+        rows.add(row(item(3, "Vestido Azul Longo", "Mango", "Azul", "Seda", "F", "Vestido"), "S"));
+        rows.add(row(item(4, "Fato Três Peças", "Massimo Dutti", "Cinzento", "Lã", "M", "Fato"), "M"));
+        // Sem unidades disponíveis: só aparece na pesquisa do staff
+        rows.add(row(item(5, "Fato Azul Antigo", "Hugo Boss", "Azul", "Lã", "M", "Fato"), null));
+        when(itemRepository.findIndexRows()).thenReturn(rows);
+        index.warmUp();
+    }
+
+    @Test
+    void testTokenize_FoldsAccentsAndCase() {
+        assertEquals(List.of("fato", "tres", "pecas", "la"), ItemSearchIndex.tokenize("Fato TRÊS-Peças (Lã)"));
+        assertEquals(List.of(), ItemSearchIndex.tokenize("  "));
+    }
+
+    @Test
+    void testSearch_AccentFoldedAndRankedByField() {
+        assertEquals(List.of(2), ids(index.search("algodao", null, true, 10)));
+        // Mesma pontuação: desempata o nome mais curto e depois o id
+        assertEquals(List.of(1, 3), ids(index.search("Azul", null, true, 10)));
+        assertEquals(List.of(3), ids(index.search("azul", "F", true, 10)));
+        assertEquals(List.of(5, 1, 3), ids(index.search("azul", null, false, 10)));
+        // A marca pesa mais do que a cor
+        assertEquals(List.of(2), ids(index.search("zara", null, true, 10)));
+        assertTrue(index.search("zara", null, true, 10).get(0).getScore()
+                > index.search("branco", null, true, 10).get(0).getScore());
+        assertEquals(List.of(1), ids(index.search("azul", null, true, 1)));
+    }
+
+    @Test
+    void testSearch_PrefixFuzzyAndAllWordsRequired() {
+        // Prefixo enquanto se escreve
+        assertEquals(List.of(4, 1), ids(index.search("fa", null, true, 10)));
+        assertEquals(List.of(4), ids(index.search("fato tr", null, true, 10)));
+        // Erros de escrita: uma edição até 7 letras, duas a partir de 8
+        assertEquals(List.of(2), ids(index.search("camiza", null, true, 10)));
+        assertEquals(List.of(1), ids(index.search("clasicco", null, true, 10)));
+        assertEquals(List.of(), ids(index.search("cmza", null, true, 10)));
+        assertEquals(List.of(), ids(index.search("fato seda", null, true, 10)));
+    }
+
+    @Test
+    void testSearch_ExactBeatsPrefixAndFuzzy() {
+        List<ItemSearchHit> hits = index.search("seda", null, true, 10);
+
+        assertEquals(List.of(3), ids(hits));
+        assertTrue(index.search("sed", null, true, 10).get(0).getScore() < hits.get(0).getScore());
+        assertTrue(index.search("sedq", null, true, 10).get(0).getScore() < hits.get(0).getScore());
+    }
+
+    @Test
+    void testCatalogChanged_ReindexesOnlyThatItem() {
+        int terms = index.getTermCount();
+        when(itemRepository.findIndexRowsByItemId(2)).thenReturn(List.<Object[]>of(
+                row(item(2, "Camisa de Linho", "Zara", "Branco", "Linho", "M", "Camisa"), "L")));
+
+        index.onCatalogChanged(new CatalogChangedEvent(2));
+
+        assertEquals(List.of(), ids(index.search("algodao", null, true, 10)));
+        assertEquals(List.of(2), ids(index.search("linho", null, true, 10)));
+        assertEquals(terms, index.getTermCount());
+        verify(itemRepository, times(1)).findIndexRows();
+
+        when(itemRepository.findIndexRowsByItemId(2)).thenReturn(List.of());
+        index.onCatalogChanged(new CatalogChangedEvent(2));
+        assertEquals(List.of(), ids(index.search("camisa", null, false, 10)));
+    }
+
+    private static List<Integer> ids(List<ItemSearchHit> hits) {
+        return hits.stream().map(ItemSearchHit::getItemId).toList();
+    }
+
+    private static Object[] row(Item item, String size) {
+        return new Object[] { item, size };
+    }
+
+    private static Item item(int id, String name, String brand, String color, String material, String gender,
+                             String category) {
+        Item item = new Item(name);
+        item.setItemId(id);
+        item.setBrand(brand);
+        item.setColor(color);
+        item.setMaterial(material);
+        item.setPriceRent(new BigDecimal("40.00"));
+        item.setItemType(new ItemType(gender, category, "Simples"));
+        return item;
+    }
+}
@@ -2,21 +2,34 @@ package com.magiclook.mainpage;
 
 import com.magiclook.data.Item;
 import com.magiclook.data.Shop;
+import com.magiclook.dto.FacetedSearchResult;
 import com.magiclook.dto.ItemFilterDTO;
+import com.magiclook.service.CatalogChangedEvent;
+import com.magiclook.service.CatalogFacetCache;
+import com.magiclook.service.CatalogIndex;
+import com.magiclook.service.ItemSearchIndex;
 import com.magiclook.service.ItemService;
 import com.magiclook.repository.ItemRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
 import java.util.Arrays;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -25,6 +38,16 @@ class ItemServiceTest {
     @Mock
     private ItemRepository itemRepository;
 
+    @Spy
+    private CatalogFacetCache facetCache = new CatalogFacetCache(100, 600, new SimpleMeterRegistry());
+
+    // Sem índice construído (find vazio): os filtros vão ao repositório
+    @Mock
+    private CatalogIndex catalogIndex;
+
+    @Mock
+    private ItemSearchIndex searchIndex;
+
     @InjectMocks
     private ItemService itemService;
 
@@ -139,6 +162,36 @@ class ItemServiceTest {
         assertThat(allMaleItems).hasSize(2);
     }
 
+    @Test
+    void testFindByGenderAndFilters_ReversedDateWindow_IsDropped() {
+        when(itemRepository.findByGenderAndFilters(eq("M"), any(ItemFilterDTO.class)))
+                .thenReturn(Arrays.asList(shirt, pants));
+        ItemFilterDTO filter = ItemFilterDTO.builder()
+                .startUseDate(LocalDate.of(2033, 5, 18))
+                .endUseDate(LocalDate.of(2030, 3, 17))
+                .build();
+
+        itemService.findByGenderAndFilters("M", filter);
+
+        assertThat(filter.getStartUseDate()).isNull();
+        assertThat(filter.getEndUseDate()).isNull();
+    }
+
+    @Test
+    void testFindByGenderAndFilters_ValidDateWindow_IsKept() {
+        when(itemRepository.findByGenderAndFilters(eq("M"), any(ItemFilterDTO.class)))
+                .thenReturn(Arrays.asList(shirt));
+        LocalDate start = LocalDate.of(2030, 3, 17);
+        LocalDate end = LocalDate.of(2033, 5, 18);
+        ItemFilterDTO filter = ItemFilterDTO.builder().startUseDate(start).endUseDate(end).build();
+
+        List<Item> items = itemService.findByGenderAndFilters("M", filter);
+
+        assertThat(items).hasSize(1);
+        assertThat(filter.getStartUseDate()).isEqualTo(start);
+        assertThat(filter.getEndUseDate()).isEqualTo(end);
+    }
+
     @Test
     void testGetItemsByShop_ReturnsShopSpecificItems() {
         when(itemRepository.findByShop(shop)).thenReturn(Arrays.asList(shirt, pants));
@@ -155,6 +208,104 @@ class ItemServiceTest {
         assertThat(recent).hasSize(2);
     }
 
+    @Test
+    void testSearch_CountsEachFacetWithTheOtherFiltersKept() {
+        shirt.setItemId(1);
+        pants.setItemId(2);
+        Item jacket = createItem("Blue Jacket", "M", "Blue", "H&M", "Wool", "Jacket", 120.0);
+        jacket.setItemId(3);
+        // Uma linha por artigo e tamanho disponível: a camisa tem M e L
+        when(itemRepository.findCatalogRowsByGender(eq("M"), any(ItemFilterDTO.class))).thenReturn(List.of(
+                catalogRow(shirt, "Shirt", "Casual", "Lisboa", "M"),
+                catalogRow(shirt, "Shirt", "Casual", "Lisboa", "L"),
+                catalogRow(pants, "Pants", "Casual", "Porto", "M"),
+                catalogRow(jacket, "Jacket", "Formal", "Lisboa", "S")));
+
+        FacetedSearchResult result = itemService.search("M",
+                ItemFilterDTO.builder().color("Blue").size("M").brand("").build());
+
+        assertThat(result.getTotal()).isEqualTo(1);
+        // As calças só falham a cor e o casaco só falha o tamanho
+        assertThat(result.getFacets().get(FacetedSearchResult.COLOR)).containsExactly(
+                entry("Black", 1L), entry("Blue", 1L));
+        assertThat(result.getFacets().get(FacetedSearchResult.SIZE)).containsExactly(
+                entry("L", 1L), entry("M", 1L), entry("S", 1L));
+        assertThat(result.count(FacetedSearchResult.BRAND, "Zara")).isEqualTo(1);
+        assertThat(result.options(FacetedSearchResult.BRAND)).containsExactly("H&M", "Zara");
+        assertThat(result.count(FacetedSearchResult.SHOP_LOCATION, "Lisboa")).isEqualTo(1);
+        assertThat(result.count(FacetedSearchResult.PRICE, "25 € a 50 €")).isEqualTo(1);
+        assertThat(result.options(FacetedSearchResult.PRICE)).hasSize(FacetedSearchResult.PRICE_BUCKETS.size());
+    }
+
+    @Test
+    void testSearch_PriceRangeAndSelectedValueWithoutResults() {
+        shirt.setItemId(1);
+        pants.setItemId(2);
+        when(itemRepository.findCatalogRowsByGender(eq("M"), any(ItemFilterDTO.class))).thenReturn(List.of(
+                catalogRow(shirt, "Shirt", "Casual", "Lisboa", "M"),
+                catalogRow(pants, "Pants", "Casual", "Porto", "M")));
+
+        FacetedSearchResult result = itemService.search("M",
+                ItemFilterDTO.builder().maxPrice(30.0).material("Linen").build());
+
+        assertThat(result.getTotal()).isZero();
+        // A camisa só falha o material; as calças falham material e preço
+        assertThat(result.count(FacetedSearchResult.MATERIAL, "Cotton")).isEqualTo(1);
+        assertThat(result.count(FacetedSearchResult.MATERIAL, "Denim")).isZero();
+        assertThat(result.options(FacetedSearchResult.MATERIAL)).contains("Linen");
+        assertThat(result.count(FacetedSearchResult.PRICE, "25 € a 50 €")).isZero();
+    }
+
+    @Test
+    void testSearch_DatabaseScanCachedUntilCatalogChanges() {
+        shirt.setItemId(1);
+        when(itemRepository.findCatalogRowsByGender(eq("M"), any(ItemFilterDTO.class))).thenReturn(List.<Object[]>of(
+                catalogRow(shirt, "Shirt", "Casual", "Lisboa", "M")));
+
+        itemService.search("M", ItemFilterDTO.builder().color("Blue").sort(ItemFilterDTO.SORT_PRICE_ASC).build());
+        FacetedSearchResult again = itemService.search("M", ItemFilterDTO.builder().color("Blue").build());
+        assertThat(again.getTotal()).isEqualTo(1);
+        verify(itemRepository, times(1)).findCatalogRowsByGender(eq("M"), any(ItemFilterDTO.class));
+
+        // Com janela de datas as reservas mudam o resultado: nunca fica em cache
+        LocalDate start = LocalDate.of(2031, 5, 2);
+        itemService.search("M", ItemFilterDTO.builder().color("Blue").startUseDate(start).endUseDate(start).build());
+        verify(itemRepository, times(2)).findCatalogRowsByGender(eq("M"), any(ItemFilterDTO.class));
+
+        facetCache.onCatalogChanged(new CatalogChangedEvent(1));
+        itemService.search("M", ItemFilterDTO.builder().color("Blue").build());
+        verify(itemRepository, times(3)).findCatalogRowsByGender(eq("M"), any(ItemFilterDTO.class));
+    }
+
+    @Test
+    void testSearch_AnsweredByCatalogIndex() {
+        Map<String, Map<String, Long>> facets = new LinkedHashMap<>();
+        facets.put(FacetedSearchResult.COLOR, new TreeMap<>(Map.of("Blue", 1L)));
+        when(catalogIndex.search(eq("M"), any(ItemFilterDTO.class)))
+                .thenReturn(Optional.of(new FacetedSearchResult(1, facets)));
+
+        FacetedSearchResult result = itemService.search("M", ItemFilterDTO.builder().color("Red").build());
+
+        assertThat(result.getTotal()).isEqualTo(1);
+        // O valor escolhido continua visível mesmo sem resultados
+        assertThat(result.count(FacetedSearchResult.COLOR, "Red")).isZero();
+        assertThat(result.options(FacetedSearchResult.COLOR)).contains("Red");
+        verifyNoInteractions(itemRepository);
+    }
+
+    @Test
+    void testSearch_InvalidParameters_ReturnsEmpty() {
+        assertThat(itemService.search(null, new ItemFilterDTO()).getTotal()).isZero();
+        assertThat(itemService.search("M", null).getFacets()).isEmpty();
+        verifyNoInteractions(itemRepository);
+    }
+
+    private static Object[] catalogRow(Item item, String category, String subcategory, String location,
+            String size) {
+        return new Object[] { item.getItemId(), item.getColor(), item.getBrand(), item.getMaterial(),
+                item.getPriceRent(), category, subcategory, location, size };
+    }
+
     private Item createItem(String name, String gender, String color, String brand,
             String material, String category, double price) {
         Item item = new Item();
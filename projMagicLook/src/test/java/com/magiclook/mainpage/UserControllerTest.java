@@ -3,7 +3,10 @@ package com.magiclook.mainpage;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
+import com.magiclook.dto.FacetedSearchResult;
 import com.magiclook.dto.ItemFilterDTO;
+import com.magiclook.dto.ItemPageDTO;
+import com.magiclook.dto.ItemSearchHit;
 import com.magiclook.boundary.UserController;
 import com.magiclook.data.User;
 import com.magiclook.data.Item;
@@ -18,7 +21,9 @@ import org.springframework.ui.Model;
 import org.springframework.mock.web.MockHttpSession;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 class UserControllerTest {
@@ -152,16 +157,21 @@ class UserControllerTest {
                 .build();
 
         List<Item> filteredItems = createTestItems("M", 2);
-        when(itemService.findByGenderAndFilters(eq("M"), any())).thenReturn(filteredItems);
-        when(itemService.getAllDistinctColors()).thenReturn(List.of("Blue"));
-        when(itemService.getAllDistinctBrands()).thenReturn(List.of("BrandX"));
-        when(itemService.getAllDistinctMaterials()).thenReturn(List.of("Silk"));
-        when(itemService.getAllDistinctCategories()).thenReturn(List.of("Shirt"));
-        when(itemService.getAllDistinctSubcategoriesByGender("M")).thenReturn(List.of("Casual"));
-        when(itemService.getAllDistinctSizesByGender("M")).thenReturn(List.of("M"));
-        when(itemService.getAllDistinctShopLocations()).thenReturn(List.of("Lisbon"));
-
-        String viewName = userController.showMenItems(filterDTO, session, model);
+        Map<String, Map<String, Long>> facets = new LinkedHashMap<>();
+        facets.put(FacetedSearchResult.COLOR, Map.of("Blue", 2L));
+        facets.put(FacetedSearchResult.BRAND, Map.of("BrandX", 2L));
+        facets.put(FacetedSearchResult.MATERIAL, Map.of("Silk", 2L));
+        facets.put(FacetedSearchResult.CATEGORY, Map.of("Shirt", 2L));
+        facets.put(FacetedSearchResult.SUBCATEGORY, Map.of("Casual", 2L));
+        facets.put(FacetedSearchResult.SIZE, Map.of("M", 2L));
+        facets.put(FacetedSearchResult.SHOP_LOCATION, Map.of("Lisbon", 2L));
+        // O total conta todos os resultados, não só os da primeira página
+        FacetedSearchResult result = new FacetedSearchResult(40, facets);
+        when(itemService.search(eq("M"), any())).thenReturn(result);
+        when(itemService.getCatalogPage(eq("M"), any(), isNull(), isNull(), isNull()))
+                .thenReturn(new ItemPageDTO(filteredItems, false));
+
+        String viewName = userController.showMenItems(filterDTO, null, null, null, session, model);
 
         assertEquals("items/men", viewName);
 
@@ -188,8 +198,28 @@ class UserControllerTest {
         verify(model).addAttribute("subcategories", List.of("Casual"));
         verify(model).addAttribute("sizes", List.of("M"));
         verify(model).addAttribute("shopLocations", List.of("Lisbon"));
+        verify(model).addAttribute("facets", result);
         verify(model).addAttribute("items", filteredItems);
-        verify(model).addAttribute("itemCount", 2);
+        verify(model).addAttribute("itemCount", 40L);
+    }
+
+    @Test
+    void testShowWomenItems_NextPage_RendersOnlyCards() {
+        User user = new User();
+        session.setAttribute("loggedInUser", user);
+        ItemFilterDTO filter = ItemFilterDTO.builder().sort(ItemFilterDTO.SORT_PRICE_ASC).build();
+        ItemPageDTO page = new ItemPageDTO(createTestItems("F", 2), true);
+        when(itemService.getCatalogPage("F", filter, 7, "Vestido", new java.math.BigDecimal("40.00")))
+                .thenReturn(page);
+
+        String viewName = userController.showWomenItems(filter, 7, "Vestido", new java.math.BigDecimal("40.00"),
+                session, model);
+
+        assertEquals("items/women :: cards", viewName);
+        verify(model).addAttribute("items", page.getItems());
+        verify(model).addAttribute("page", page);
+        // Facetas e contagens só na primeira página
+        verify(itemService, never()).search(any(), any());
     }
 
     @Test
@@ -211,6 +241,18 @@ class UserControllerTest {
                 res);
     }
 
+    @Test
+    void testFilterItems_Post_IncludesDateWindow() {
+        ItemFilterDTO filter = ItemFilterDTO.builder()
+                .startUseDate(java.time.LocalDate.of(2026, 5, 10))
+                .endUseDate(java.time.LocalDate.of(2026, 5, 12))
+                .sort(ItemFilterDTO.SORT_PRICE_DESC)
+                .build();
+        String res = userController.filterItems("women", filter);
+        assertEquals("redirect:/magiclook/items/women?startUseDate=2026-05-10&endUseDate=2026-05-12&sort=price_desc",
+                res);
+    }
+
     @Test
     void testLogout_ShouldInvalidateSession() {
         User user = new User();
@@ -317,6 +359,23 @@ class UserControllerTest {
         assertEquals("redirect:/magiclook/items/women", viewName);
     }
 
+    // ==================== SEARCH TESTS ====================
+
+    @Test
+    void testSearchItems_ClampsLimitAndReturnsHits() {
+        ItemSearchHit hit = new ItemSearchHit(1, "Fato Azul", "Hugo Boss", "Azul", "Lã", "Fato", "M",
+                null, null, 3.2);
+        when(itemService.searchItems("fato", "M", 50)).thenReturn(List.of(hit));
+
+        Map<String, Object> response = userController.searchItems("fato", "M", 500);
+
+        assertEquals("fato", response.get("query"));
+        assertEquals(List.of(hit), response.get("results"));
+
+        userController.searchItems("fato", null, 0);
+        verify(itemService).searchItems("fato", null, 1);
+    }
+
     // ==================== MARK NOTIFICATION AS READ TESTS ====================
 
     @Test
@@ -0,0 +1,127 @@
+package com.magiclook.performance;
+
+import com.magiclook.MagicLookApplication;
+import com.magiclook.data.Item;
+import com.magiclook.data.ItemSingle;
+import com.magiclook.data.ItemType;
+import com.magiclook.data.Shop;
+import com.magiclook.dto.ItemFilterDTO;
+import com.magiclook.repository.ItemRepository;
+import com.magiclook.repository.ItemSingleRepository;
+import com.magiclook.repository.ItemTypeRepository;
+import com.magiclook.repository.ShopRepository;
+import com.magiclook.service.CatalogChangedEvent;
+import com.magiclook.service.CatalogIndex;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Catalog filtering through the {@link CatalogIndex} bitsets versus the JPA query
+ * (findByGenderAndFilters), on the seeded H2 database grown to catalogSize items.
+ * Not run by the test suite; after mvn test-compile:
+ *
+ *   java -cp target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout) \
+ *        com.magiclook.performance.CatalogIndexBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CatalogIndexBenchmark {
+
+    private static final String[] COLORS = { "Azul", "Preto", "Branco", "Vermelho", "Verde", "Cinzento" };
+    private static final String[] BRANDS = { "Zara", "Hugo", "Mango", "Massimo", "Boss" };
+    private static final String[] SIZES = { "XS", "S", "M", "L", "XL" };
+
+    @Param({ "1000", "10000" })
+    public int catalogSize;
+
+    // none: só o género; color: um atributo; combined: cor + tamanho + intervalo de preço
+    @Param({ "none", "color", "combined" })
+    public String filterKind;
+
+    private ConfigurableApplicationContext context;
+    private ItemRepository itemRepository;
+    private CatalogIndex catalogIndex;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(MagicLookApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("logging.level.root=WARN", "spring.jpa.show-sql=false")
+                .run();
+        itemRepository = context.getBean(ItemRepository.class);
+        catalogIndex = context.getBean(CatalogIndex.class);
+        grow(catalogSize - (int) itemRepository.count());
+        catalogIndex.onCatalogChanged(new CatalogChangedEvent(null));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Item> catalogIndex() {
+        return catalogIndex.find("M", filter()).orElseThrow();
+    }
+
+    @Benchmark
+    public List<Item> jpaQuery() {
+        return itemRepository.findByGenderAndFilters("M", filter());
+    }
+
+    private ItemFilterDTO filter() {
+        return switch (filterKind) {
+            case "color" -> ItemFilterDTO.builder().color("Azul").build();
+            case "combined" -> ItemFilterDTO.builder().color("Azul").size("M").minPrice(20.0).maxPrice(80.0).build();
+            default -> new ItemFilterDTO();
+        };
+    }
+
+    // Artigos sintéticos nos tipos e lojas do seed, com duas unidades disponíveis cada
+    private void grow(int count) {
+        List<ItemType> types = context.getBean(ItemTypeRepository.class).findAll();
+        List<Shop> shops = context.getBean(ShopRepository.class).findAll();
+        ItemSingleRepository itemSingleRepository = context.getBean(ItemSingleRepository.class);
+        Random random = new Random(42);
+
+        new TransactionTemplate(context.getBean(PlatformTransactionManager.class))
+                .executeWithoutResult(status -> {
+                    List<ItemSingle> units = new ArrayList<>();
+                    for (int i = 0; i < count; i++) {
+                        Item item = new Item("Artigo " + i);
+                        item.setColor(COLORS[random.nextInt(COLORS.length)]);
+                        item.setBrand(BRANDS[random.nextInt(BRANDS.length)]);
+                        item.setMaterial("Algodão");
+                        item.setPriceRent(BigDecimal.valueOf(10 + random.nextInt(150)));
+                        item.setPriceSale(BigDecimal.valueOf(300));
+                        item.setItemType(types.get(random.nextInt(types.size())));
+                        item.setShop(shops.get(random.nextInt(shops.size())));
+                        itemRepository.save(item);
+                        units.add(new ItemSingle(ItemSingle.STATE_AVAILABLE, item, SIZES[random.nextInt(SIZES.length)]));
+                        units.add(new ItemSingle(ItemSingle.STATE_AVAILABLE, item, SIZES[random.nextInt(SIZES.length)]));
+                    }
+                    itemSingleRepository.saveAll(units);
+                });
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CatalogIndexBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -4,16 +4,26 @@ import com.magiclook.data.Item;
 import com.magiclook.data.ItemSingle;
 import com.magiclook.data.Shop;
 import com.magiclook.dto.ItemFilterDTO;
+import com.magiclook.dto.ItemPageDTO;
+import com.magiclook.dto.ItemSearchHit;
 import com.magiclook.repository.ItemRepository;
 import com.magiclook.repository.ItemSingleRepository;
+import com.magiclook.service.CatalogFacetCache;
+import com.magiclook.service.CatalogIndex;
+import com.magiclook.service.ItemSearchIndex;
 import com.magiclook.service.ItemService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -30,6 +40,16 @@ class ItemServiceTest {
     @Mock
     private ItemSingleRepository itemSingleRepository;
 
+    @Spy
+    private CatalogFacetCache facetCache = new CatalogFacetCache(100, 600, new SimpleMeterRegistry());
+
+    // Sem índice construído (find vazio): os filtros vão ao repositório
+    @Mock
+    private CatalogIndex catalogIndex;
+
+    @Mock
+    private ItemSearchIndex searchIndex;
+
     @InjectMocks
     private ItemService itemService;
 
@@ -176,6 +196,16 @@ class ItemServiceTest {
         verify(itemRepository, times(1)).findByGenderAndFilters(eq("M"), any(ItemFilterDTO.class));
     }
 
+    @Test
+    void testFindByGenderAndFilters_AnsweredByCatalogIndex() {
+        ItemFilterDTO filter = ItemFilterDTO.builder().color("").size("M").build();
+        when(catalogIndex.find(eq("M"), any(ItemFilterDTO.class))).thenReturn(Optional.of(List.of(item)));
+
+        assertEquals(List.of(item), itemService.findByGenderAndFilters("M", filter));
+        verify(catalogIndex).find(eq("M"), argThat(f -> f.getColor() == null && "M".equals(f.getSize())));
+        verifyNoInteractions(itemRepository);
+    }
+
     @Test
     void testFindByGenderAndFilters_NullGender() {
         ItemFilterDTO filter = new ItemFilterDTO();
@@ -384,4 +414,94 @@ class ItemServiceTest {
         assertEquals(3, res.size());
         verify(itemRepository, times(1)).findAllDistinctShopLocations();
     }
-}
\ No newline at end of file
+
+    @Test
+    void testSearchItems_BlankQueryAndEmptyGender() {
+        assertTrue(itemService.searchItems("  ", "M", 8).isEmpty());
+        verifyNoInteractions(searchIndex);
+
+        itemService.searchItems("fato", "", 8);
+        verify(searchIndex).search("fato", null, true, 8);
+    }
+
+    @Test
+    void testFilterByQuery_RankedBySearchIndex() {
+        Item other = new Item();
+        other.setItemId(2);
+        other.setName("Fato Azul");
+        Item unrelated = new Item();
+        unrelated.setItemId(3);
+        unrelated.setName("Vestido");
+        when(searchIndex.isReady()).thenReturn(true);
+        when(searchIndex.search("azul", null, false, Integer.MAX_VALUE)).thenReturn(List.of(
+                new ItemSearchHit(2, "Fato Azul", null, null, null, null, "M", null, null, 2.0),
+                new ItemSearchHit(1, "Test Item", null, null, null, null, "M", null, null, 1.0),
+                new ItemSearchHit(9, "Noutra loja", null, null, null, null, "M", null, null, 0.5)));
+
+        assertEquals(List.of(other, item), itemService.filterByQuery(List.of(item, other, unrelated), "azul"));
+    }
+
+    @Test
+    void testFilterByQuery_NameMatchUntilIndexIsReady() {
+        Item other = new Item();
+        other.setItemId(2);
+        other.setName("Vestido");
+
+        assertEquals(List.of(item), itemService.filterByQuery(List.of(item, other), " TEST "));
+        assertEquals(List.of(item, other), itemService.filterByQuery(List.of(item, other), null));
+        verify(searchIndex, never()).search(anyString(), any(), anyBoolean(), anyInt());
+    }
+
+    @Test
+    void testGetCatalogPage_FullPageHasNextCursor() {
+        List<Item> rows = new ArrayList<>();
+        for (int i = 1; i <= ItemService.CATALOG_PAGE_SIZE + 1; i++) {
+            Item row = new Item();
+            row.setItemId(i);
+            row.setName("Item " + i);
+            row.setPriceRent(BigDecimal.valueOf(10 + i));
+            rows.add(row);
+        }
+        ItemFilterDTO filter = ItemFilterDTO.builder().color("").sort("unknown").build();
+        when(itemRepository.findCatalogPageByName(eq("M"), any(ItemFilterDTO.class), isNull(), isNull(),
+                eq(Limit.of(ItemService.CATALOG_PAGE_SIZE + 1)))).thenReturn(rows);
+
+        ItemPageDTO page = itemService.getCatalogPage("M", filter, null, null, null);
+
+        assertEquals(ItemService.CATALOG_PAGE_SIZE, page.getItems().size());
+        assertTrue(page.isHasNext());
+        assertEquals(ItemService.CATALOG_PAGE_SIZE, page.getNextId());
+        assertEquals("Item " + ItemService.CATALOG_PAGE_SIZE, page.getNextName());
+        assertNull(filter.getColor());
+        assertNull(filter.getSort());
+    }
+
+    @Test
+    void testGetCatalogPage_SortPicksKeysetQuery() {
+        BigDecimal afterPrice = new BigDecimal("40.00");
+        when(itemRepository.findCatalogPageByPriceDesc(eq("F"), any(ItemFilterDTO.class), eq(afterPrice), eq(7),
+                any(Limit.class))).thenReturn(List.of(item));
+
+        ItemPageDTO page = itemService.getCatalogPage("F",
+                ItemFilterDTO.builder().sort(ItemFilterDTO.SORT_PRICE_DESC).build(), 7, "Vestido", afterPrice);
+
+        assertEquals(List.of(item), page.getItems());
+        assertFalse(page.isHasNext());
+        assertNull(page.getNextId());
+        verify(itemRepository, never()).findCatalogPageByName(any(), any(), any(), any(), any());
+        verify(itemRepository, never()).findCatalogPageByPrice(any(), any(), any(), any(), any());
+
+        assertTrue(itemService.getCatalogPage(null, new ItemFilterDTO(), null, null, null).getItems().isEmpty());
+    }
+
+    @Test
+    void testGetCatalogPage_AnsweredFromCatalogIndex() {
+        when(catalogIndex.findPage(eq("M"), any(ItemFilterDTO.class), eq(3), eq("Camisa"), isNull(),
+                eq(ItemService.CATALOG_PAGE_SIZE + 1))).thenReturn(Optional.of(List.of(item)));
+
+        ItemPageDTO page = itemService.getCatalogPage("M", new ItemFilterDTO(), 3, "Camisa", null);
+
+        assertEquals(List.of(item), page.getItems());
+        verify(itemRepository, never()).findCatalogPageByName(any(), any(), any(), any(), any());
+    }
+}
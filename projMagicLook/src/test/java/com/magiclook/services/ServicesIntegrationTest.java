@@ -1,11 +1,30 @@
 package com.magiclook.services;
 
+import com.magiclook.data.Item;
+import com.magiclook.dto.FacetedSearchResult;
+import com.magiclook.dto.ItemFilterDTO;
+import com.magiclook.repository.ItemRepository;
+import com.magiclook.repository.ItemSingleRepository;
+import com.magiclook.service.AvailabilityIndex;
+import com.magiclook.service.CatalogChangedEvent;
+import com.magiclook.service.CatalogFacetCache;
+import com.magiclook.service.CatalogIndex;
+import com.magiclook.service.ItemSearchIndex;
 import com.magiclook.service.ItemService;
 import com.magiclook.service.StaffService;
 import com.magiclook.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.InstanceOfAssertFactories;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -35,4 +54,147 @@ class ServicesIntegrationTest {
         assertThat(staffService).isInstanceOf(StaffService.class);
         assertThat(itemService).isInstanceOf(ItemService.class);
     }
-}
\ No newline at end of file
+
+    @Autowired
+    private CatalogIndex catalogIndex;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Test
+    void testCatalogIndex_AgreesWithDatabaseFilters() {
+        // Reconstruir: outros testes do mesmo contexto podem ter gravado stock
+        catalogIndex.onCatalogChanged(new CatalogChangedEvent(null));
+        assertThat(catalogIndex.isReady()).isTrue();
+
+        List<ItemFilterDTO> filters = new ArrayList<>();
+        filters.add(new ItemFilterDTO());
+        filters.add(ItemFilterDTO.builder().minPrice(20.0).maxPrice(60.0).build());
+        for (Item item : itemRepository.findAll()) {
+            filters.add(ItemFilterDTO.builder().color(item.getColor()).build());
+            filters.add(ItemFilterDTO.builder().brand(item.getBrand()).size("M").build());
+            filters.add(ItemFilterDTO.builder().material(item.getMaterial()).maxPrice(item.getPriceRent().doubleValue()).build());
+        }
+
+        for (String gender : List.of("M", "F")) {
+            for (ItemFilterDTO filter : filters) {
+                assertThat(catalogIndex.find(gender, filter)).get(InstanceOfAssertFactories.list(Item.class))
+                        .containsExactlyInAnyOrderElementsOf(itemRepository.findByGenderAndFilters(gender, filter));
+            }
+        }
+    }
+
+    @Autowired
+    private ItemSingleRepository itemSingleRepository;
+
+    @Autowired
+    private AvailabilityIndex availabilityIndex;
+
+    @Autowired
+    private ItemSearchIndex searchIndex;
+
+    @Test
+    void testCatalogIndexFacets_AgreeWithDatabaseScan() {
+        catalogIndex.onCatalogChanged(new CatalogChangedEvent(null));
+        // O mesmo serviço sem índice responde a partir das linhas da base de dados
+        ItemService scan = new ItemService(itemRepository, itemSingleRepository,
+                new CatalogFacetCache(100, 600, new SimpleMeterRegistry()),
+                new CatalogIndex(itemRepository, availabilityIndex, false, new SimpleMeterRegistry()), searchIndex);
+
+        LocalDate start = LocalDate.now().plusDays(10);
+        List<ItemFilterDTO> filters = new ArrayList<>();
+        filters.add(new ItemFilterDTO());
+        filters.add(ItemFilterDTO.builder().minPrice(20.0).maxPrice(60.0).build());
+        filters.add(ItemFilterDTO.builder().startUseDate(start).endUseDate(start.plusDays(3)).build());
+        for (Item item : itemRepository.findAll()) {
+            filters.add(ItemFilterDTO.builder().color(item.getColor()).size("M").build());
+            filters.add(ItemFilterDTO.builder().brand(item.getBrand()).maxPrice(item.getPriceRent().doubleValue()).build());
+            filters.add(ItemFilterDTO.builder().material(item.getMaterial())
+                    .startUseDate(start).endUseDate(start.plusDays(1)).build());
+        }
+
+        for (String gender : List.of("M", "F")) {
+            assertThat(catalogIndex.search(gender, new ItemFilterDTO())).isPresent();
+            for (ItemFilterDTO filter : filters) {
+                FacetedSearchResult indexed = itemService.search(gender, filter);
+                FacetedSearchResult scanned = scan.search(gender, filter);
+                assertThat(indexed.getTotal()).isEqualTo(scanned.getTotal());
+                assertThat(indexed.getFacets()).isEqualTo(scanned.getFacets());
+            }
+        }
+    }
+
+    @Test
+    void testCatalogKeysetPages_WalkWholeResultInSortOrder() {
+        Comparator<Item> byName = Comparator.comparing(Item::getName).thenComparing(Item::getItemId);
+        Comparator<Item> byPrice = Comparator.comparing(Item::getPriceRent).thenComparing(Item::getItemId);
+
+        for (String gender : List.of("M", "F")) {
+            for (ItemFilterDTO filter : List.of(new ItemFilterDTO(),
+                    ItemFilterDTO.builder().minPrice(20.0).maxPrice(60.0).size("M").build())) {
+                List<Item> all = itemRepository.findByGenderAndFilters(gender, filter);
+
+                assertThat(walk(gender, filter, ItemFilterDTO.SORT_NAME))
+                        .containsExactlyElementsOf(all.stream().sorted(byName).toList());
+                assertThat(walk(gender, filter, ItemFilterDTO.SORT_PRICE_ASC))
+                        .containsExactlyElementsOf(all.stream().sorted(byPrice).toList());
+                assertThat(walk(gender, filter, ItemFilterDTO.SORT_PRICE_DESC))
+                        .containsExactlyElementsOf(all.stream().sorted(byPrice.reversed()).toList());
+            }
+        }
+    }
+
+    @Test
+    void testCatalogIndexPages_AgreeWithDatabasePages() {
+        catalogIndex.onCatalogChanged(new CatalogChangedEvent(null));
+        LocalDate start = LocalDate.now().plusDays(10);
+
+        for (String gender : List.of("M", "F")) {
+            for (ItemFilterDTO filter : List.of(new ItemFilterDTO(),
+                    ItemFilterDTO.builder().minPrice(20.0).maxPrice(60.0).size("M").build(),
+                    ItemFilterDTO.builder().startUseDate(start).endUseDate(start.plusDays(3)).build())) {
+                for (String sort : ItemFilterDTO.SORTS) {
+                    filter.setSort(sort);
+                    assertThat(walkIndex(gender, filter)).containsExactlyElementsOf(walk(gender, filter, sort));
+                }
+            }
+        }
+    }
+
+    // Como walk, mas a partir do índice do catálogo
+    private List<Item> walkIndex(String gender, ItemFilterDTO filter) {
+        List<Item> walked = new ArrayList<>();
+        Item last = null;
+        List<Item> page;
+        do {
+            page = catalogIndex.findPage(gender, filter, last == null ? null : last.getItemId(),
+                    last == null ? null : last.getName(), last == null ? null : last.getPriceRent(), 2)
+                    .orElseThrow();
+            walked.addAll(page);
+            last = page.isEmpty() ? null : page.get(page.size() - 1);
+        } while (page.size() == 2);
+        return walked;
+    }
+
+    // Percorre o catálogo em páginas de 2, sempre a partir do último artigo da página anterior
+    private List<Item> walk(String gender, ItemFilterDTO filter, String sort) {
+        List<Item> walked = new ArrayList<>();
+        Item last = null;
+        List<Item> page;
+        do {
+            Integer afterId = last == null ? null : last.getItemId();
+            BigDecimal afterPrice = last == null ? null : last.getPriceRent();
+            String afterName = last == null ? null : last.getName();
+            page = switch (sort) {
+                case ItemFilterDTO.SORT_PRICE_ASC ->
+                        itemRepository.findCatalogPageByPrice(gender, filter, afterPrice, afterId, Limit.of(2));
+                case ItemFilterDTO.SORT_PRICE_DESC ->
+                        itemRepository.findCatalogPageByPriceDesc(gender, filter, afterPrice, afterId, Limit.of(2));
+                default -> itemRepository.findCatalogPageByName(gender, filter, afterName, afterId, Limit.of(2));
+            };
+            walked.addAll(page);
+            last = page.isEmpty() ? null : page.get(page.size() - 1);
+        } while (page.size() == 2);
+        return walked;
+    }
+}
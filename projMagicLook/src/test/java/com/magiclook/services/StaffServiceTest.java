@@ -3,15 +3,19 @@ package com.magiclook.services;
 import com.magiclook.data.*;
 import com.magiclook.dto.ItemDTO;
 import com.magiclook.repository.*;
+import com.magiclook.service.AvailabilityIndex;
+import com.magiclook.service.CatalogChangedEvent;
 import com.magiclook.service.StaffService;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
+import org.mockito.ArgumentMatchers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
 import java.math.BigDecimal;
@@ -48,6 +52,12 @@ class StaffServiceTest {
     @Mock
     private BookingRepository bookingRepository;
 
+    @Mock
+    private AvailabilityIndex availabilityIndex;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private StaffService staffService;
 
@@ -179,6 +189,9 @@ class StaffServiceTest {
         verify(itemSingleRepository).deleteByItem_ItemIdAndSize(itemId, size);
         verify(itemSingleRepository).findByItem_ItemId(itemId);
         verify(itemRepository, never()).deleteById(itemId);
+        // Listas de filtros do catálogo invalidadas depois do commit
+        verify(eventPublisher).publishEvent(ArgumentMatchers.<Object>argThat(
+            event -> event instanceof CatalogChangedEvent changed && itemId.equals(changed.getItemId())));
     }
 
     @Test
@@ -400,24 +413,24 @@ class StaffServiceTest {
         Booking booking1 = new Booking();
         booking1.setBookingId(UUID.randomUUID());
         booking1.setUser(user1);
-        booking1.setStartUseDate(new java.util.Date(System.currentTimeMillis() + 86400000));
-        booking1.setEndUseDate(new java.util.Date(System.currentTimeMillis() + 172800000));
+        booking1.setStartUseDate(java.time.LocalDate.now().plusDays(1));
+        booking1.setEndUseDate(java.time.LocalDate.now().plusDays(2));
         
         Booking booking2 = new Booking();
         booking2.setBookingId(UUID.randomUUID());
         booking2.setUser(user2);
-        booking2.setStartUseDate(new java.util.Date(System.currentTimeMillis() + 259200000));
-        booking2.setEndUseDate(new java.util.Date(System.currentTimeMillis() + 345600000));
+        booking2.setStartUseDate(java.time.LocalDate.now().plusDays(3));
+        booking2.setEndUseDate(java.time.LocalDate.now().plusDays(4));
         
         List<Booking> upcomingBookings = List.of(booking1, booking2);
         
         when(itemSingleRepository.findById(itemSingleId)).thenReturn(Optional.of(testItemSingle));
         when(bookingRepository.findOverlappingBookingsForItemSingle(
                 any(ItemSingle.class),
-                any(java.util.Date.class),
-                any(java.util.Date.class),
-                any(java.util.Date.class),
-                any(java.util.Date.class)
+                any(java.time.LocalDate.class),
+                any(java.time.LocalDate.class),
+                any(java.time.LocalDate.class),
+                any(java.time.LocalDate.class)
         )).thenReturn(upcomingBookings);
         
         staffService.updateItemSingle(itemSingleId, null, "DAMAGED", "Rasgado na costura");
@@ -438,10 +451,10 @@ class StaffServiceTest {
         verify(notificationRepository, never()).save(any(Notification.class));
         verify(bookingRepository, never()).findOverlappingBookingsForItemSingle(
                 any(ItemSingle.class),
-                any(java.util.Date.class),
-                any(java.util.Date.class),
-                any(java.util.Date.class),
-                any(java.util.Date.class)
+                any(java.time.LocalDate.class),
+                any(java.time.LocalDate.class),
+                any(java.time.LocalDate.class),
+                any(java.time.LocalDate.class)
         );
     }
 
@@ -453,10 +466,10 @@ class StaffServiceTest {
         when(itemSingleRepository.findById(itemSingleId)).thenReturn(Optional.of(testItemSingle));
         when(bookingRepository.findOverlappingBookingsForItemSingle(
                 any(ItemSingle.class),
-                any(java.util.Date.class),
-                any(java.util.Date.class),
-                any(java.util.Date.class),
-                any(java.util.Date.class)
+                any(java.time.LocalDate.class),
+                any(java.time.LocalDate.class),
+                any(java.time.LocalDate.class),
+                any(java.time.LocalDate.class)
         )).thenReturn(new ArrayList<>());
         
         staffService.updateItemSingle(itemSingleId, null, "DAMAGED", "Dano menor");
@@ -479,18 +492,18 @@ class StaffServiceTest {
             Booking booking = new Booking();
             booking.setBookingId(UUID.randomUUID());
             booking.setUser(user);
-            booking.setStartUseDate(new java.util.Date(System.currentTimeMillis() + 86400000 * (i + 1)));
-            booking.setEndUseDate(new java.util.Date(System.currentTimeMillis() + 86400000 * (i + 2)));
+            booking.setStartUseDate(java.time.LocalDate.now().plusDays(i + 1));
+            booking.setEndUseDate(java.time.LocalDate.now().plusDays(i + 2));
             bookings.add(booking);
         }
         
         when(itemSingleRepository.findById(itemSingleId)).thenReturn(Optional.of(testItemSingle));
         when(bookingRepository.findOverlappingBookingsForItemSingle(
                 any(ItemSingle.class),
-                any(java.util.Date.class),
-                any(java.util.Date.class),
-                any(java.util.Date.class),
-                any(java.util.Date.class)
+                any(java.time.LocalDate.class),
+                any(java.time.LocalDate.class),
+                any(java.time.LocalDate.class),
+                any(java.time.LocalDate.class)
         )).thenReturn(bookings);
         
         staffService.updateItemSingle(itemSingleId, null, "DAMAGED", "Dano severo");
@@ -511,16 +524,16 @@ class StaffServiceTest {
         Booking booking = new Booking();
         booking.setBookingId(UUID.randomUUID());
         booking.setUser(user);
-        booking.setStartUseDate(new java.util.Date(System.currentTimeMillis() + 86400000));
-        booking.setEndUseDate(new java.util.Date(System.currentTimeMillis() + 172800000));
+        booking.setStartUseDate(java.time.LocalDate.now().plusDays(1));
+        booking.setEndUseDate(java.time.LocalDate.now().plusDays(2));
         
         when(itemSingleRepository.findById(itemSingleId)).thenReturn(Optional.of(testItemSingle));
         when(bookingRepository.findOverlappingBookingsForItemSingle(
                 any(ItemSingle.class),
-                any(java.util.Date.class),
-                any(java.util.Date.class),
-                any(java.util.Date.class),
-                any(java.util.Date.class)
+                any(java.time.LocalDate.class),
+                any(java.time.LocalDate.class),
+                any(java.time.LocalDate.class),
+                any(java.time.LocalDate.class)
         )).thenReturn(List.of(booking));
         
         staffService.updateItemSingle(itemSingleId, null, "DAMAGED", null);
@@ -541,16 +554,16 @@ class StaffServiceTest {
         
         Booking booking = new Booking();
         booking.setUser(user);
-        booking.setStartUseDate(new java.util.Date(System.currentTimeMillis() + 86400000));
-        booking.setEndUseDate(new java.util.Date(System.currentTimeMillis() + 172800000));
+        booking.setStartUseDate(java.time.LocalDate.now().plusDays(1));
+        booking.setEndUseDate(java.time.LocalDate.now().plusDays(2));
         
         when(itemSingleRepository.findById(itemSingleId)).thenReturn(Optional.of(testItemSingle));
         when(bookingRepository.findOverlappingBookingsForItemSingle(
                 any(ItemSingle.class),
-                any(java.util.Date.class),
-                any(java.util.Date.class),
-                any(java.util.Date.class),
-                any(java.util.Date.class)
+                any(java.time.LocalDate.class),
+                any(java.time.LocalDate.class),
+                any(java.time.LocalDate.class),
+                any(java.time.LocalDate.class)
         )).thenReturn(List.of(booking));
         
         staffService.updateItemSingle(itemSingleId, null, "DAMAGED", "Mancha de vinho");
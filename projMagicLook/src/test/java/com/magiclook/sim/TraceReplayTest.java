@@ -0,0 +1,95 @@
+package com.magiclook.sim;
+
+import com.magiclook.service.UnitAllocationStrategy;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TraceReplayTest {
+
+    private static final LocalDate BASE = LocalDate.of(2031, 5, 1);
+
+    @Test
+    void testCompare_BestFitKeepsRoomForLongRental() {
+        BookingTrace trace = BookingTrace.of(
+            List.of(new BookingTrace.Unit(1, "M"), new BookingTrace.Unit(1, "M")),
+            // Janelas (levantamento a devolução) 0-2, 0-3, 5-7 e 3-12: first-fit espalha a
+            // terceira e a longa do fim deixa de caber em qualquer unidade
+            List.of(request(1, 1), request(1, 2), request(6, 6), request(4, 11)));
+
+        List<ReplayReport> reports = TraceReplay.compare(trace, List.of(
+            UnitAllocationStrategy.named(UnitAllocationStrategy.FIRST_FIT),
+            UnitAllocationStrategy.named(UnitAllocationStrategy.BEST_FIT),
+            UnitAllocationStrategy.named(UnitAllocationStrategy.LEAST_BOOKED)));
+
+        assertEquals(1, reports.get(0).rejected());
+        assertEquals(0, reports.get(1).rejected());
+        assertEquals(1, reports.get(2).rejected());
+        assertEquals(20.0 / 26, reports.get(1).utilization(), 1e-9);
+        assertTrue(reports.get(1).utilization() > reports.get(0).utilization());
+        assertEquals(1, reports.get(0).size("M").rejected());
+    }
+
+    @Test
+    void testRead_StockLinesAndBookingsExport() throws Exception {
+        String jsonl = String.join("\n",
+            "{\"type\":\"stock\",\"itemId\":1,\"size\":\"M\",\"units\":2}",
+            "{\"itemId\":1,\"size\":\"M\",\"startUseDate\":\"2031-05-02\",\"endUseDate\":\"2031-05-03\"}",
+            "",
+            // Exportação da tabela de reservas: unidades inferidas dos itemSingleId
+            "{\"itemId\":2,\"size\":\"L\",\"itemSingleId\":\"a\",\"startUseDate\":\"2031-05-02\",\"endUseDate\":\"2031-05-03\"}",
+            "{\"itemId\":2,\"size\":\"L\",\"itemSingleId\":\"b\",\"startUseDate\":\"2031-05-02\",\"endUseDate\":\"2031-05-03\"}",
+            "{\"itemId\":2,\"size\":\"L\",\"itemSingleId\":\"a\",\"state\":\"CANCELLED\",\"startUseDate\":\"2031-06-02\",\"endUseDate\":\"2031-06-03\"}",
+            "{\"itemId\":3,\"size\":\"\",\"startUseDate\":\"2031-05-05\",\"endUseDate\":\"2031-05-01\"}");
+
+        BookingTrace trace = BookingTrace.read(new BufferedReader(new StringReader(jsonl)));
+
+        assertEquals(List.of("item1-M#1", "item1-M#2", "a", "b"),
+            trace.getUnits().stream().map(BookingTrace.Unit::label).toList());
+        assertEquals(4, trace.getRequests().size());
+        assertNull(trace.getRequests().get(3).size());
+        assertFalse(trace.getRequests().get(3).isValid());
+
+        ReplayReport report = TraceReplay.replay(trace,
+            UnitAllocationStrategy.named(UnitAllocationStrategy.FIRST_FIT), 1, 16);
+        assertEquals(3, report.accepted());
+        assertEquals(1, report.invalid());
+        assertEquals(1, report.size("any").rejected());
+    }
+
+    @Test
+    void testRead_BrokenLineRejected() {
+        BufferedReader reader = new BufferedReader(new StringReader("{\"itemId\":1,"));
+
+        assertThrows(IllegalArgumentException.class, () -> BookingTrace.read(reader));
+    }
+
+    @Test
+    void testReplay_ConcurrentWorkersNeverDoubleBook() throws Exception {
+        BookingTrace trace = BookingTrace.synthetic(20_000, 10, 2, 7);
+        UnitAllocationStrategy strategy = UnitAllocationStrategy.named(UnitAllocationStrategy.BEST_FIT);
+
+        ReplayReport sequential = TraceReplay.replay(trace, strategy, 1, 64);
+        ReplayReport concurrent = TraceReplay.replay(trace, strategy, 4, 4);
+
+        assertEquals(20_000, concurrent.requests());
+        assertEquals(concurrent.requests(), concurrent.accepted() + concurrent.rejected());
+        assertEquals(concurrent.requests(),
+            concurrent.sizes().stream().mapToLong(ReplayReport.SizeStats::requests).sum());
+        // Cada unidade nunca tem mais dias reservados do que o período do trace
+        for (SimUnit unit : concurrent.units()) {
+            assertTrue(unit.getBookedDays() <= concurrent.spanDays(), unit.getLabel());
+        }
+        assertTrue(concurrent.utilization() > 0.5);
+        assertTrue(sequential.throughputPerSecond() > 0);
+    }
+
+    private static BookingTrace.Request request(int startDay, int endDay) {
+        return new BookingTrace.Request(1, "M", BASE.plusDays(startDay), BASE.plusDays(endDay));
+    }
+}
@@ -496,7 +496,6 @@ class StaffControllerTest {
             List<Item> items = Arrays.asList(testItem);
             when(session.getAttribute("loggedInStaff")).thenReturn(testStaff);
             when(itemService.getItemsByShop(testShop)).thenReturn(items);
-            when(itemService.getItems(testItem.getItemId())).thenReturn(new ArrayList<>());
 
             String viewName = staffController.getItems(session, model, null, null);
 
@@ -538,12 +537,13 @@ class StaffControllerTest {
             List<Item> allItems = Arrays.asList(testItem, item2);
             when(session.getAttribute("loggedInStaff")).thenReturn(testStaff);
             when(itemService.getItemsByShop(testShop)).thenReturn(allItems);
-            when(itemService.getItems(anyInt())).thenReturn(new ArrayList<>());
+            when(itemService.filterByQuery(allItems, "Blue")).thenReturn(List.of(item2));
 
             String viewName = staffController.getItems(session, model, null, "Blue");
 
             assertEquals("staffItem", viewName);
             verify(model).addAttribute("q", "Blue");
+            verify(model).addAttribute("items", List.of(item2));
             verify(itemService).getItemsByShop(testShop);
         }
 
@@ -555,7 +555,6 @@ class StaffControllerTest {
             when(session.getAttribute("loggedInStaff")).thenReturn(testStaff);
             when(itemService.getItemsByShop(testShop)).thenReturn(allItems);
             when(itemService.getAllItemsByState("AVAILABLE")).thenReturn(filteredItems);
-            when(itemService.getItems(testItem.getItemId())).thenReturn(new ArrayList<>());
 
             String viewName = staffController.getItems(session, model, "AVAILABLE", null);
 
@@ -573,7 +572,6 @@ class StaffControllerTest {
             when(session.getAttribute("loggedInStaff")).thenReturn(testStaff);
             when(itemService.getItemsByShop(testShop)).thenReturn(allItems);
             when(itemService.getAllItemsByState("RENTED")).thenReturn(filteredItems);
-            when(itemService.getItems(testItem.getItemId())).thenReturn(new ArrayList<>());
 
             String viewName = staffController.getItems(session, model, "RENTED", "Test");
 
@@ -585,14 +583,11 @@ class StaffControllerTest {
         @Test
         @DisplayName("GET /item should populate itemSizes map for each item")
         void getItems_shouldPopulateItemSizesMap() {
-            ItemSingle single1 = new ItemSingle("AVAILABLE", testItem, "M");
-            ItemSingle single2 = new ItemSingle("AVAILABLE", testItem, "L");
-            List<ItemSingle> singles = Arrays.asList(single1, single2);
-
             List<Item> items = Arrays.asList(testItem);
             when(session.getAttribute("loggedInStaff")).thenReturn(testStaff);
             when(itemService.getItemsByShop(testShop)).thenReturn(items);
-            when(itemService.getItems(testItem.getItemId())).thenReturn(singles);
+            when(itemService.getSizesByShop(testShop))
+                    .thenReturn(new HashMap<>(Map.of(testItem.getItemId(), Arrays.asList("L", "M"))));
 
             String viewName = staffController.getItems(session, model, null, null);
 
@@ -618,19 +613,19 @@ class StaffControllerTest {
                     .build();
             item2.setItemId(2);
 
-            ItemSingle single1 = new ItemSingle("AVAILABLE", testItem, "M");
-            ItemSingle single2 = new ItemSingle("AVAILABLE", item2, "S");
-
+            // Só o primeiro artigo tem unidades: o segundo fica com lista vazia
             List<Item> items = Arrays.asList(testItem, item2);
             when(session.getAttribute("loggedInStaff")).thenReturn(testStaff);
             when(itemService.getItemsByShop(testShop)).thenReturn(items);
-            when(itemService.getItems(testItem.getItemId())).thenReturn(Arrays.asList(single1));
-            when(itemService.getItems(item2.getItemId())).thenReturn(Arrays.asList(single2));
+            when(itemService.getSizesByShop(testShop))
+                    .thenReturn(new HashMap<>(Map.of(testItem.getItemId(), List.of("M"))));
 
             String viewName = staffController.getItems(session, model, null, null);
 
             assertEquals("staffItem", viewName);
-            verify(model).addAttribute(eq("itemSizes"), argThat(map -> ((Map<Integer, List<String>>) map).size() == 2));
+            verify(model).addAttribute(eq("itemSizes"), argThat(map -> ((Map<Integer, List<String>>) map).size() == 2
+                    && ((Map<Integer, List<String>>) map).get(item2.getItemId()).isEmpty()));
+            verify(itemService, never()).getItems(anyInt());
         }
 
         @Test
@@ -639,7 +634,6 @@ class StaffControllerTest {
             List<Item> allItems = Arrays.asList(testItem);
             when(session.getAttribute("loggedInStaff")).thenReturn(testStaff);
             when(itemService.getItemsByShop(testShop)).thenReturn(allItems);
-            when(itemService.getItems(anyInt())).thenReturn(new ArrayList<>());
 
             String viewName = staffController.getItems(session, model, null, "TEST");
 
@@ -653,7 +647,6 @@ class StaffControllerTest {
             List<Item> items = Arrays.asList(testItem);
             when(session.getAttribute("loggedInStaff")).thenReturn(testStaff);
             when(itemService.getItemsByShop(testShop)).thenReturn(items);
-            when(itemService.getItems(testItem.getItemId())).thenReturn(new ArrayList<>());
 
             String viewName = staffController.getItems(session, model, null, "   ");
 
@@ -666,7 +659,6 @@ class StaffControllerTest {
             List<Item> items = Arrays.asList(testItem);
             when(session.getAttribute("loggedInStaff")).thenReturn(testStaff);
             when(itemService.getItemsByShop(testShop)).thenReturn(items);
-            when(itemService.getItems(testItem.getItemId())).thenReturn(new ArrayList<>());
 
             String viewName = staffController.getItems(session, model, "   ", null);
 